@@ -0,0 +1,27 @@
+package blog.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks. Takes the usual JMH options; unless a result format
+ * is given with <code>-rf</code>, the results are also written as JSON to
+ * <code>target/jmh-result.json</code>, so that runs can be compared by tools.
+ *
+ * @since Oct 18, 2026
+ */
+public class BenchmarkMain {
+  public static void main(String[] args) throws Exception {
+    List<String> jmhArgs = new ArrayList<String>(Arrays.asList(args));
+    if (!jmhArgs.contains("-rf")) {
+      jmhArgs.add(0, "-rf");
+      jmhArgs.add(1, "json");
+      if (!jmhArgs.contains("-rff")) {
+        jmhArgs.add(2, "-rff");
+        jmhArgs.add(3, "target/jmh-result.json");
+      }
+    }
+    org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[jmhArgs.size()]));
+  }
+}
@@ -0,0 +1,135 @@
+package blog.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blog.common.Util;
+import blog.common.numerical.MatrixFactory;
+import blog.common.random.RandomStream;
+import blog.distrib.CondProbDistrib;
+
+/**
+ * Cost of <code>sampleVal</code> and <code>getLogProb</code> for each
+ * distribution in <code>blog.distrib</code>, with typical parameters. The
+ * value whose probability is computed is a sample from the distribution.
+ *
+ * @since Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistribBenchmark {
+  @Param({ "Bernoulli", "Beta", "Binomial", "BooleanDistrib", "Categorical",
+      "Dirichlet", "Discrete", "Exponential", "Gamma", "GEM", "Geometric",
+      "InverseWishart", "IsotropicMultivarGaussian", "Laplace", "Multinomial",
+      "MultivarGaussian", "NegativeBinomial", "Poisson", "UniformChoice",
+      "UniformInt", "UniformReal", "UniformVector", "UnivarGaussian" })
+  public String distrib;
+
+  private CondProbDistrib cpd;
+  private Object value;
+
+  @Setup
+  public void setUp() throws Exception {
+    Util.initRandom(RandomStream.JAVA, Util.DEFAULT_SEED);
+    cpd = (CondProbDistrib) Class.forName("blog.distrib." + distrib)
+        .newInstance();
+    cpd.setParams(params(distrib));
+    if (distrib.equals("InverseWishart")) {
+      // samples are symmetric only up to rounding, which getLogProb rejects
+      value = MatrixFactory.eye(3);
+    } else {
+      value = cpd.sampleVal();
+    }
+  }
+
+  @Benchmark
+  public Object sampleVal() {
+    return cpd.sampleVal();
+  }
+
+  @Benchmark
+  public double getLogProb() {
+    return cpd.getLogProb(value);
+  }
+
+  /**
+   * Returns typical parameters for the named distribution.
+   */
+  static Object[] params(String distrib) {
+    if (distrib.equals("Bernoulli") || distrib.equals("BooleanDistrib")
+        || distrib.equals("Geometric")) {
+      return new Object[] { 0.3 };
+    } else if (distrib.equals("Beta")) {
+      return new Object[] { 2.0, 5.0 };
+    } else if (distrib.equals("Binomial")) {
+      return new Object[] { 20, 0.3 };
+    } else if (distrib.equals("Categorical")) {
+      Map<String, Double> probs = new HashMap<String, Double>();
+      for (int i = 0; i < 10; i++) {
+        probs.put("v" + i, (i + 1) / 55.0);
+      }
+      return new Object[] { probs };
+    } else if (distrib.equals("Dirichlet")) {
+      return new Object[] { MatrixFactory.createColumnVector(1, 2, 3, 4) };
+    } else if (distrib.equals("Discrete")) {
+      return new Object[] { MatrixFactory.createColumnVector(0.1, 0.2, 0.3,
+          0.05, 0.05, 0.1, 0.2) };
+    } else if (distrib.equals("Exponential")) {
+      return new Object[] { 1.5 };
+    } else if (distrib.equals("Gamma")) {
+      return new Object[] { 2.0, 1.0 };
+    } else if (distrib.equals("GEM")) {
+      return new Object[] { 1.0, 10 };
+    } else if (distrib.equals("InverseWishart")) {
+      return new Object[] { MatrixFactory.eye(3), 5 };
+    } else if (distrib.equals("IsotropicMultivarGaussian")) {
+      return new Object[] { MatrixFactory.createColumnVector(0, 0, 0), 1.0 };
+    } else if (distrib.equals("Laplace") || distrib.equals("UnivarGaussian")) {
+      return new Object[] { 0.0, 1.0 };
+    } else if (distrib.equals("Multinomial")) {
+      return new Object[] { 10,
+          MatrixFactory.createColumnVector(0.1, 0.2, 0.3, 0.4) };
+    } else if (distrib.equals("MultivarGaussian")) {
+      return new Object[] { MatrixFactory.createColumnVector(0, 0, 0),
+          MatrixFactory.eye(3) };
+    } else if (distrib.equals("NegativeBinomial")) {
+      return new Object[] { 5, 0.5 };
+    } else if (distrib.equals("Poisson")) {
+      return new Object[] { 4.0 };
+    } else if (distrib.equals("UniformChoice")) {
+      List<String> choices = new ArrayList<String>();
+      for (int i = 0; i < 10; i++) {
+        choices.add("v" + i);
+      }
+      return new Object[] { choices };
+    } else if (distrib.equals("UniformInt")) {
+      return new Object[] { 0, 9 };
+    } else if (distrib.equals("UniformReal")) {
+      return new Object[] { 0.0, 1.0 };
+    } else if (distrib.equals("UniformVector")) {
+      return new Object[] { MatrixFactory.createRowVector(0, 1),
+          MatrixFactory.createRowVector(0, 1),
+          MatrixFactory.createRowVector(0, 1) };
+    }
+    throw new IllegalArgumentException("No parameters for " + distrib);
+  }
+}
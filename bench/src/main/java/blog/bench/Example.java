@@ -0,0 +1,86 @@
+package blog.bench;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import blog.Main;
+import blog.common.Util;
+import blog.common.random.RandomStream;
+import blog.model.ArgSpecQuery;
+import blog.model.Evidence;
+import blog.model.Model;
+import blog.model.Queries;
+import blog.model.Query;
+import blog.model.SymbolEvidenceStatement;
+import blog.model.ValueEvidenceStatement;
+import blog.type.Timestep;
+
+/**
+ * A model with its evidence and queries, read from the <code>example</code>
+ * directory (or the directory named by the <code>blog.examples</code> system
+ * property).
+ *
+ * @since Oct 18, 2026
+ */
+class Example {
+  private Example(Model model, Evidence evidence, Queries queries) {
+    this.model = model;
+    this.evidence = evidence;
+    this.queries = queries;
+  }
+
+  /**
+   * Reads and compiles the example in the given file, and resets the random
+   * stream to the fixed seed.
+   */
+  static Example load(String filename) {
+    File file = new File(System.getProperty("blog.examples", "example"),
+        filename);
+    Model model = new Model();
+    Evidence evidence = new Evidence(model);
+    Queries queries = new Queries(model);
+    List<Object[]> readers = Main.makeReaders(Collections.singletonList(file
+        .getPath()));
+    if (!Main.setup(model, evidence, queries, readers, false, false)) {
+      throw new IllegalStateException("Cannot load example " + file);
+    }
+    Util.initRandom(RandomStream.JAVA, Util.DEFAULT_SEED);
+    return new Example(model, evidence, queries);
+  }
+
+  /**
+   * Returns the number of time steps the evidence and queries span, or 0 if
+   * none of them is about a time step.
+   */
+  int numTimesteps() {
+    int last = -1;
+    for (ValueEvidenceStatement stmt : evidence.getValueEvidence()) {
+      last = later(last, stmt.getLeftSide().maxTimestep());
+    }
+    for (SymbolEvidenceStatement stmt : evidence.getSymbolEvidence()) {
+      last = later(last, stmt.getSetSpec().maxTimestep());
+    }
+    for (Query q : queries) {
+      last = later(last, ((ArgSpecQuery) q).argSpec().maxTimestep());
+    }
+    return last + 1;
+  }
+
+  /**
+   * Forgets the answers accumulated by the queries.
+   */
+  void clearQueries() {
+    for (Query q : queries) {
+      ((ArgSpecQuery) q).clear();
+    }
+  }
+
+  private static int later(int last, Timestep t) {
+    return (t == null) ? last : Math.max(last, t.intValue());
+  }
+
+  final Model model;
+  final Evidence evidence;
+  final Queries queries;
+}
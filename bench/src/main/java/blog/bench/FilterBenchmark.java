@@ -0,0 +1,92 @@
+package blog.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blog.engine.InferenceEngine;
+import blog.io.JsonWriter;
+
+/**
+ * Throughput of full particle filtering runs over the evidence of an example
+ * model, in runs per second. Also reports the secondary
+ * <code>particleTimesteps</code> rate: particles times time steps processed
+ * per second, which is comparable across models and particle counts.
+ *
+ * @since Oct 18, 2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+  @State(Scope.Thread)
+  public static class Run {
+    @Param({ "hmm.dblog", "weather.dblog", "kalman-filter.dblog", "ar1.dblog" })
+    public String model;
+
+    @Param({ "ParticleFilter", "LiuWestFilter" })
+    public String engine;
+
+    @Param({ "1000" })
+    public int numParticles;
+
+    Example example;
+    InferenceEngine filter;
+    int numTimesteps;
+
+    @Setup
+    public void setUp() {
+      example = Example.load(model);
+      numTimesteps = example.numTimesteps();
+      Properties props = new Properties();
+      props.setProperty("engineClass", "blog.engine." + engine);
+      props.setProperty("numParticles", String.valueOf(numParticles));
+      filter = InferenceEngine.constructEngine(example.model, props);
+      filter.setEvidence(example.evidence);
+      filter.setQueries(example.queries);
+      JsonWriter writer = new JsonWriter();
+      writer.setOutput(new PrintStream(new OutputStream() {
+        public void write(int b) {
+        }
+
+        public void write(byte[] b, int off, int len) {
+        }
+      }));
+      filter.setResultWriter(writer);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearQueries() {
+      example.clearQueries();
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Counters {
+    public long particleTimesteps;
+  }
+
+  @Benchmark
+  public void answerQueries(Run run, Counters counters) {
+    run.filter.answerQueries();
+    counters.particleTimesteps += (long) run.numParticles * run.numTimesteps;
+  }
+}
@@ -0,0 +1,58 @@
+package blog.bench;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blog.sample.Sampler;
+
+/**
+ * Throughput of the samplers used by SamplingEngine, in samples per second,
+ * on example models. Each benchmark call draws one sample (a weighted world
+ * for likelihood weighting, one proposal for Metropolis-Hastings, one
+ * resampled variable for Gibbs).
+ *
+ * @since Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplerBenchmark {
+  @Param({ "burglary.blog", "hurricane.blog", "mixture-of-gaussian.blog",
+      "poisson-ball.blog" })
+  public String model;
+
+  @Param({ "LWSampler", "MHSampler", "GibbsSampler" })
+  public String sampler;
+
+  private Sampler s;
+
+  @Setup
+  public void setUp() {
+    Example example = Example.load(model);
+    Properties props = new Properties();
+    props.setProperty("proposerClass", "blog.sample.GenericProposer");
+    s = Sampler.make("blog.sample." + sampler, example.model, props);
+    s.initialize(example.evidence, example.queries);
+  }
+
+  @Benchmark
+  public double nextSample() {
+    s.nextSample();
+    return s.getLatestLogWeight();
+  }
+}
@@ -0,0 +1,127 @@
+package blog.bench;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blog.bn.BasicVar;
+import blog.bn.RandFuncAppVar;
+import blog.model.Model;
+import blog.model.RandomFunction;
+import blog.model.Type;
+import blog.world.DefaultPartialWorld;
+import blog.world.WorldFactory;
+
+/**
+ * Cost of the basic operations on partial worlds: setting a value, computing
+ * the probability of a value (which instantiates nothing but looks up the
+ * parents), and cloning the world, for each world class and world size.
+ *
+ * @since Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldBenchmark {
+  @Param({ "DefaultPartialWorld", "CopyOnWritePartialWorld",
+      "IntIndexedPartialWorld" })
+  public String worldClass;
+
+  @Param({ "10", "1000" })
+  public int numItems;
+
+  private DefaultPartialWorld world;
+  private BasicVar[] xs;
+  private BasicVar[] flags;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    xs = new BasicVar[numItems];
+    flags = new BasicVar[numItems];
+    world = makeWorld(worldClass, false, xs, flags);
+  }
+
+  /**
+   * Returns a world of the given class in which all the variables of the
+   * model with <code>xs.length</code> items are instantiated and their
+   * probabilities computed. Stores the variables <code>x(i)</code> and
+   * <code>flag(i)</code> in the given arrays.
+   */
+  static DefaultPartialWorld makeWorld(String worldClass, boolean useCBN,
+      BasicVar[] xs, BasicVar[] flags) {
+    int numItems = xs.length;
+    Model model = new Model();
+    model.augmentFromString(modelString(numItems));
+    Type item = model.getType("Item");
+    RandomFunction mu = (RandomFunction) model.getRandomFunc("mu", 0);
+    RandomFunction x = (RandomFunction) model.getRandomFunc("x", 1);
+    RandomFunction flag = (RandomFunction) model.getRandomFunc("flag", 1);
+
+    DefaultPartialWorld world = new WorldFactory("blog.world." + worldClass)
+        .makeWorld(Collections.EMPTY_SET, false, useCBN);
+    world.setValue(new RandFuncAppVar(mu, new Object[0], true), 0.0);
+    for (int i = 0; i < numItems; i++) {
+      Object[] args = new Object[] { item.getGuaranteedObject(i) };
+      xs[i] = new RandFuncAppVar(x, args, true);
+      flags[i] = new RandFuncAppVar(flag, args, true);
+      world.setValue(xs[i], (double) i);
+      world.setValue(flags[i], Boolean.TRUE);
+    }
+    for (int i = 0; i < numItems; i++) {
+      world.getLogProbOfValue(xs[i]);
+      world.getLogProbOfValue(flags[i]);
+    }
+    return world;
+  }
+
+  static String modelString(int numItems) {
+    return "type Item;\n" + "distinct Item I[" + numItems + "];\n"
+        + "random Real mu ~ Gaussian(0.0, 10.0);\n"
+        + "random Real x(Item i) ~ Gaussian(mu, 1.0);\n"
+        + "random Boolean flag(Item i) ~ "
+        + "if x(i) > 0.0 then BooleanDistrib(0.9) else BooleanDistrib(0.1);\n";
+  }
+
+  private int nextIndex() {
+    next = (next + 1) % numItems;
+    return next;
+  }
+
+  @Benchmark
+  public void setValue() {
+    int i = nextIndex();
+    world.setValue(xs[i], (next & 1) == 0 ? -1.0 : 1.0);
+  }
+
+  @Benchmark
+  public double getLogProbOfValue() {
+    return world.getLogProbOfValue(flags[nextIndex()]);
+  }
+
+  @Benchmark
+  public double setValueThenLogProb() {
+    int i = nextIndex();
+    world.setValue(xs[i], (next & 1) == 0 ? -1.0 : 1.0);
+    return world.getLogProbOfValue(xs[i]) + world.getLogProbOfValue(flags[i]);
+  }
+
+  @Benchmark
+  public Object cloneWorld() {
+    return world.clone();
+  }
+}
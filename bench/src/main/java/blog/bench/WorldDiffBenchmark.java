@@ -0,0 +1,66 @@
+package blog.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import blog.bn.BasicVar;
+import blog.world.PartialWorldDiff;
+
+/**
+ * Cost of accepting and of rejecting a one-variable change through a
+ * PartialWorldDiff, as the Metropolis-Hastings sampler does for every
+ * proposal, on the worlds of {@link WorldBenchmark}.
+ *
+ * @since Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldDiffBenchmark {
+  @Param({ "10", "1000" })
+  public int numItems;
+
+  private PartialWorldDiff diff;
+  private BasicVar[] xs;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    xs = new BasicVar[numItems];
+    // like MH, track parent changes against the underlying world's CBN
+    diff = new PartialWorldDiff(WorldBenchmark.makeWorld(
+        "DefaultPartialWorld", true, xs, new BasicVar[numItems]));
+  }
+
+  private void change() {
+    next = (next + 1) % numItems;
+    diff.setValue(xs[next], (next & 1) == 0 ? -1.0 : 1.0);
+    diff.getLogProbOfValue(xs[next]);
+  }
+
+  @Benchmark
+  public void save() {
+    change();
+    diff.save();
+  }
+
+  @Benchmark
+  public void revert() {
+    change();
+    diff.revert();
+  }
+}
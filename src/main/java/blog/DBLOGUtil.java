@@ -1,12 +1,10 @@
 package blog;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
-import blog.bn.BasicVar;
 import blog.model.ArgSpecQuery;
 import blog.model.Evidence;
 import blog.model.Queries;
@@ -34,15 +32,7 @@ public class DBLOGUtil {
    */
   public static void removeVarsAtDiffTimestep(Timestep largest,
       PartialWorld world) {
-    LinkedList instantiatedVars = new LinkedList(world.getInstantiatedVars());
-    Iterator varIt = instantiatedVars.iterator();
-    while (varIt.hasNext()) {
-      BasicVar var = (BasicVar) varIt.next();
-      Timestep timestep = var.maxTimestep();
-      if (timestep != null && timestep.compareTo(largest) < 0) {
-        world.forceRemoveVar(var);
-      }
-    }
+    world.removeVarsBefore(largest);
   }
 
   /**
@@ -58,7 +58,10 @@ import blog.common.cmdline.Parser;
 import blog.common.cmdline.PropertiesOption;
 import blog.common.cmdline.StringListOption;
 import blog.common.cmdline.StringOption;
+import blog.common.random.RandomStream;
 import blog.engine.InferenceEngine;
+import blog.engine.ParticleFilter;
+import blog.engine.ResampleMovePF;
 import blog.io.ResultWriter;
 import blog.model.Evidence;
 import blog.model.Model;
@@ -88,6 +91,10 @@ import blog.semant.Semant;
  * given, the program uses a fixed random seed so its behavior is reproducible.
  * Default: false
  * 
+ * <dt>--rng=<i>name</i>
+ * <dd>Use the named pseudorandom number generator: java (java.util.Random),
+ * splitmix (SplitMix64) or xoroshiro (xoroshiro128+). Default: java
+ * 
  * <dt>-e <i>classname</i>, --engine=<i>classname</i>
  * <dd>Use <i>classname</i> as the inference engine. Default:
  * blog.engine.SamplingEngine
@@ -132,11 +139,17 @@ import blog.semant.Semant;
  * 
  * <dt>--writer <i>writer class</i>
  * <dd>Using the writer class to print query result (default is
- * blog.io.TableWriter)
+ * blog.io.TableWriter). blog.io.JsonWriter and blog.io.BinaryWriter stream
+ * machine-readable results, the latter in a compact binary format.
  * 
  * <dt>--interval=<i>num</i>
  * <dd>Report query results to stdout every num queries.
  * 
+ * <dt>--stream
+ * <dd>Read evidence and queries lazily, one time step at a time, rather than
+ * loading them all before inference. This requires a particle filter engine
+ * and time-ordered input; see {@link TimeSliceReader}. Default: false
+ * 
  * <dt>-P <i>key</i>=<i>value</i>
  * <dd>Include the entry <i>key</i>=<i>value</i> in the properties table that is
  * passed to the inference engine. This feature can be used to set configuration
@@ -153,7 +166,15 @@ public class Main {
     fromString = false;
     init(args);
     List<Object[]> readersAndOrigins = makeReaders(filenames);
-    if (setup(model, evidence, queries, readersAndOrigins, Util.verbose(), true)) {
+    boolean ready;
+    if (stream) {
+      timeSlices = new TimeSliceReader(model, readersAndOrigins, packages);
+      ready = streamingSetup(model, timeSlices);
+    } else {
+      ready = setup(model, evidence, queries, readersAndOrigins,
+          Util.verbose(), true);
+    }
+    if (ready) {
       run();
     } else {
       System.exit(1);
@@ -175,10 +196,15 @@ public class Main {
     model = new Model();
     evidence = new Evidence(model);
     queries = new Queries(model);
+    timeSlices = null;
     parseOptions(args);
     Util.setVerbose(verbose);
     Util.setPrint(print);
-    Util.initRandom(randomize);
+    try {
+      Util.initRandom(randomize, randomGenerator);
+    } catch (IllegalArgumentException e) {
+      Util.fatalErrorWithoutStack(e.getMessage());
+    }
   }
 
   public static void run() {
@@ -196,6 +222,16 @@ public class Main {
           inferenceProps);
       engine.setEvidence(evidence);
       engine.setQueries(queries);
+      if (timeSlices != null) {
+        if (engine instanceof ParticleFilter) {
+          ((ParticleFilter) engine).setTimeSliceReader(timeSlices);
+        } else if (engine instanceof ResampleMovePF) {
+          ((ResampleMovePF) engine).setTimeSliceReader(timeSlices);
+        } else {
+          Util.fatalErrorWithoutStack("Streaming evidence requires "
+              + "blog.engine.ParticleFilter or blog.engine.ResampleMovePF.");
+        }
+      }
 
       ResultWriter writer = null;
       try {
@@ -273,6 +309,10 @@ public class Main {
 
     BooleanOption optRandomize = new BooleanOption("r", "randomize", false,
         "Use clock time as random seed");
+    StringOption optRandomGenerator = new StringOption(null, "rng",
+        RandomStream.JAVA, "Use random number generator <s> (" + RandomStream.JAVA
+            + ", " + RandomStream.SPLITMIX + " or " + RandomStream.XOROSHIRO
+            + ")");
 
     StringOption optEngine = new StringOption("e", "engine",
         "blog.engine.SamplingEngine", "Use inference engine class <s>");
@@ -319,6 +359,8 @@ public class Main {
         "blog.io.TableWriter", "Writer class for queries");
     StringOption optOutput = new StringOption("o", "output", null,
         "Output query results to file");
+    BooleanOption optStream = new BooleanOption(null, "stream", false,
+        "Read evidence and queries one timestep at a time (particle filters)");
     PropertiesOption optInferenceProps = new PropertiesOption("P", null, null,
         "Set inference configuration properties");
 
@@ -333,6 +375,7 @@ public class Main {
     }
 
     randomize = optRandomize.getValue();
+    randomGenerator = optRandomGenerator.getValue();
     generate = optGenerate.getValue();
     packages = optPackages.getValue();
     verbose = optVerbose.getValue();
@@ -340,6 +383,7 @@ public class Main {
     debug = optDebug.getValue();
     outputPath = optOutput.getValue();
     writerName = writerClsName.getValue();
+    stream = optStream.getValue();
 
     // Make sure properties that have special-purpose options weren't
     // specified with -P.
@@ -500,6 +544,36 @@ public class Main {
       return true;
   }
 
+  /**
+   * Reads the declarations from the given time slice reader and prepares the
+   * model for inference; evidence and queries are left to be read one time
+   * step at a time during inference.
+   * 
+   * @return true if the declarations are a valid BLOG model
+   */
+  public static boolean streamingSetup(Model model, TimeSliceReader timeSlices) {
+    if (!timeSlices.readModel()) {
+      ok = false;
+      return false;
+    }
+    if (debug || verbose) {
+      System.out.println("............................................");
+      System.out.println(model);
+      System.out.println("............................................");
+    }
+    if (!semanticsCorrect(model, evidence, queries)) {
+      System.err.println("The model failed one or more checks.");
+      return false;
+    }
+    int errors = model.compile();
+    if (errors > 0) {
+      System.err.println("Encountered " + errors
+          + " errors in compilation phase.");
+      return false;
+    }
+    return true;
+  }
+
   private static boolean parseAndTranslate(Model m, Evidence e, Queries qs,
       Reader reader, String origin) {
     ErrorMsg msg = new ErrorMsg(origin);
@@ -553,6 +627,7 @@ public class Main {
   private static List<String> filenames; // of String
   private static Properties inferenceProps;
   private static boolean randomize = false;
+  private static String randomGenerator = RandomStream.JAVA;
   private static int numSamples;
   private static Model model;
   private static Evidence evidence;
@@ -565,4 +640,6 @@ public class Main {
   private static boolean debug;
   private static boolean fromString;
   private static String outputPath;
+  private static boolean stream;
+  private static TimeSliceReader timeSlices = null;
 }
@@ -54,7 +54,11 @@ public class ObjectIdentifier implements Comparable {
 	 */
 	public ObjectIdentifier(Type type) {
 		this.type = type;
-		num = new Integer(ObjectIdentifier.numCreated++);
+		num = new Integer(nextNum());
+	}
+
+	private static synchronized int nextNum() {
+		return numCreated++;
 	}
 
 	public Type getType() {
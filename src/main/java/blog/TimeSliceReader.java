@@ -0,0 +1,344 @@
+package blog;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import blog.common.Util;
+import blog.model.ArgSpecQuery;
+import blog.model.Evidence;
+import blog.model.Model;
+import blog.model.Queries;
+import blog.model.Query;
+import blog.model.SymbolEvidenceStatement;
+import blog.model.ValueEvidenceStatement;
+import blog.msg.ErrorMsg;
+import blog.parse.Parse;
+import blog.parse.StatementReader;
+import blog.semant.Semant;
+import blog.type.Timestep;
+
+/**
+ * Reads a DBLOG program lazily, one time step at a time, instead of loading
+ * all of its evidence and queries up front as {@link Main#setup} and
+ * {@link DBLOGUtil#splitEvidenceInTime(Evidence)} do. The declarations are
+ * read by {@link #readModel()}; each call to {@link #next()} then reads ahead
+ * just far enough to return the evidence and queries for the next time step,
+ * so that memory does not grow with the length of the input.
+ *
+ * This requires the input to be ordered in time:
+ * <ul>
+ * <li>all declarations come before the first evidence or query statement;
+ * <li>statements about a time step come before those about any later time
+ * step (statements about earlier time steps are an error);
+ * <li>evidence about no time step is taken along with the time step being read
+ * (or before all others, if it comes first), and queries about no time step are
+ * answered at every time step from then on;
+ * <li>Skolem constants introduced by symbol evidence can be used by statements
+ * of the same time step.
+ * </ul>
+ * Files that list all evidence before all queries, as many examples do, must
+ * be run without streaming instead.
+ *
+ * @since Oct 18, 2026
+ */
+public class TimeSliceReader {
+  /**
+   * Creates a reader over the given readers (with their origins, as in
+   * {@link Main#makeReaders(Collection)}), which are read in order.
+   *
+   * @param packages
+   *          extra packages in which to look for distribution classes
+   */
+  public TimeSliceReader(Model model, List<Object[]> readersAndOrigins,
+      List<String> packages) {
+    this.model = model;
+    this.sources = new LinkedList<Object[]>(readersAndOrigins);
+    this.packages = packages;
+    atemporalQueries = new Queries(model);
+  }
+
+  /**
+   * Reads declarations up to the first evidence or query statement, which is
+   * kept for {@link #next()}. The model still has to be checked and compiled
+   * by the caller.
+   *
+   * @return false if there were errors
+   */
+  public boolean readModel() {
+    if (pending == null) {
+      readStatement();
+    }
+    return ok;
+  }
+
+  /**
+   * Advances to the next time step that has evidence or queries. The first
+   * slice may be for timestep null, if the input starts with evidence about no
+   * time step.
+   *
+   * @return false at the end of the input
+   */
+  public boolean next() {
+    timestep = null;
+    evidenceStatements = new ArrayList<Object>();
+    queries = new Queries(model);
+    boolean started = false;
+    boolean temporal = false;
+    while (true) {
+      if (pending == null && !readStatement()) {
+        break;
+      }
+      Object stmt = pending;
+      Timestep t = pendingTimestep;
+      if (t == null) {
+        if (stmt instanceof Query) {
+          // answered at every time step from now on
+          compile((Query) stmt);
+          atemporalQueries.add((Query) stmt);
+        } else {
+          evidenceStatements.add(stmt);
+        }
+        started = true;
+      } else if (!temporal) {
+        if (started && !evidenceStatements.isEmpty()) {
+          break; // evidence about no time step goes first
+        }
+        if (lastTimestep != null && t.compareTo(lastTimestep) <= 0) {
+          outOfOrder(stmt, t);
+        }
+        timestep = t;
+        temporal = true;
+        started = true;
+        add(stmt);
+      } else if (t == timestep) {
+        add(stmt);
+      } else if (t.compareTo(timestep) > 0) {
+        break;
+      } else {
+        outOfOrder(stmt, t);
+      }
+      pending = null;
+    }
+
+    if (!started) {
+      return false;
+    }
+    if (temporal) {
+      lastTimestep = timestep;
+    }
+    evidence = Evidence.constructAndCompile(model, evidenceStatements);
+    for (Query q : queries) {
+      compile(q);
+    }
+    evidenceStatements = null;
+    return true;
+  }
+
+  /**
+   * Returns the time step of the current slice, or null for evidence about no
+   * time step.
+   */
+  public Timestep getTimestep() {
+    return timestep;
+  }
+
+  /**
+   * Returns the compiled evidence of the current slice.
+   */
+  public Evidence getEvidence() {
+    return evidence;
+  }
+
+  /**
+   * Returns the compiled queries about the time step of the current slice.
+   */
+  public Queries getQueries() {
+    return queries;
+  }
+
+  /**
+   * Returns the compiled queries about no time step read so far.
+   */
+  public Queries getAtemporalQueries() {
+    return atemporalQueries;
+  }
+
+  private void add(Object stmt) {
+    if (stmt instanceof Query) {
+      queries.add((Query) stmt);
+    } else {
+      evidenceStatements.add(stmt);
+    }
+  }
+
+  private void compile(Query q) {
+    if (q.compile() > 0) {
+      Util.fatalErrorWithoutStack("Could not compile query " + q);
+    }
+  }
+
+  private void outOfOrder(Object stmt, Timestep t) {
+    Util.fatalErrorWithoutStack("Statement \"" + stmt + "\" at " + origin
+        + ":" + startLine + " is about time step " + t
+        + ", which comes before statements already read; "
+        + "streaming requires time-ordered input.");
+  }
+
+  /**
+   * Reads statements until one of them is evidence or a query, which is
+   * translated and becomes pending, or the input ends. Declarations are
+   * collected and translated together, at the end of their file or before the
+   * first evidence or query, so that they may refer to each other in any order
+   * as usual.
+   *
+   * @return false at the end of the input or on errors
+   */
+  private boolean readStatement() {
+    while (true) {
+      if (statements == null) {
+        if (sources.isEmpty()) {
+          return false;
+        }
+        Object[] readerAndOrigin = sources.removeFirst();
+        statements = new StatementReader((Reader) readerAndOrigin[0]);
+        origin = (String) readerAndOrigin[1];
+        declarations = new StringBuilder();
+      }
+      String text;
+      try {
+        text = statements.next();
+      } catch (IOException e) {
+        Util.fatalError(e);
+        return false;
+      }
+      if (text == null) {
+        statements = null;
+        if (!translateDeclarations()) {
+          return false;
+        }
+        continue;
+      }
+      startLine = statements.getStartLine();
+      if (!StatementReader.isEvidenceOrQuery(text)) {
+        if (!inModel) {
+          Util.fatalErrorWithoutStack("Declaration at " + origin + ":"
+              + startLine + " follows evidence or queries; "
+              + "streaming requires all declarations to come first.");
+        }
+        declarations.append(text);
+        continue;
+      }
+      if (!translateDeclarations()) {
+        return false;
+      }
+      inModel = false;
+      return translate(text);
+    }
+  }
+
+  private boolean translateDeclarations() {
+    if (declarations.length() > 0) {
+      ErrorMsg msg = new ErrorMsg(origin);
+      Parse parse = new Parse(new StringReader(declarations.toString()), msg,
+          origin);
+      Semant sem = new Semant(model, new Evidence(model), new Queries(model),
+          msg);
+      sem.addPackages(packages);
+      if (msg.OK()) {
+        sem.transProg(parse.getResult());
+      }
+      declarations = new StringBuilder();
+      ok = ok && msg.OK();
+    }
+    return ok;
+  }
+
+  /**
+   * Translates one evidence or query statement, which becomes pending.
+   *
+   * @return true
+   */
+  private boolean translate(String text) {
+    // Symbol evidence of the slice being read is visible to the statement.
+    Evidence scratch = new Evidence(model);
+    if (evidenceStatements != null) {
+      for (Object stmt : evidenceStatements) {
+        if (stmt instanceof SymbolEvidenceStatement) {
+          scratch.addSymbolEvidence((SymbolEvidenceStatement) stmt);
+        }
+      }
+    }
+    int numKnownSymbolEvidence = scratch.getSymbolEvidence().size();
+    Queries scratchQueries = new Queries(model);
+
+    ErrorMsg msg = new ErrorMsg(origin);
+    Parse parse = new Parse(new StringReader(text), msg, origin);
+    Semant sem = new Semant(model, scratch, scratchQueries, msg);
+    sem.addPackages(packages);
+    // Evidence and queries are not retained after their time step, so neither
+    // should their literals be.
+    sem.setRegisterLiterals(false);
+    if (msg.OK()) {
+      sem.transProg(parse.getResult());
+    }
+    if (!msg.OK()) {
+      Util.fatalErrorWithoutStack("Error in statement starting at " + origin
+          + ":" + startLine);
+    }
+
+    List<Object> found = new ArrayList<Object>();
+    found.addAll(scratch.getValueEvidence());
+    int i = 0;
+    for (SymbolEvidenceStatement stmt : scratch.getSymbolEvidence()) {
+      if (i++ >= numKnownSymbolEvidence) {
+        found.add(stmt);
+      }
+    }
+    found.addAll(scratchQueries);
+    if (found.size() != 1) {
+      Util.fatalErrorWithoutStack("Expected a single statement at " + origin
+          + ":" + startLine);
+    }
+    pending = found.get(0);
+    pendingTimestep = timestepOf(pending);
+    return true;
+  }
+
+  private static Timestep timestepOf(Object stmt) {
+    if (stmt instanceof ValueEvidenceStatement) {
+      return ((ValueEvidenceStatement) stmt).getLeftSide().maxTimestep();
+    } else if (stmt instanceof SymbolEvidenceStatement) {
+      return ((SymbolEvidenceStatement) stmt).getSetSpec().maxTimestep();
+    } else {
+      return ((ArgSpecQuery) stmt).argSpec().maxTimestep();
+    }
+  }
+
+  private final Model model;
+  private final LinkedList<Object[]> sources;
+  private final List<String> packages;
+
+  private StatementReader statements = null;
+  private String origin = null;
+  private StringBuilder declarations = null;
+  private int startLine = -1;
+  private boolean inModel = true;
+  private boolean ok = true;
+
+  // the statement read ahead but not yet assigned to a slice
+  private Object pending = null;
+  private Timestep pendingTimestep = null;
+
+  // the slice being read or last returned
+  private Timestep timestep = null;
+  private Timestep lastTimestep = null;
+  private List<Object> evidenceStatements = null;
+  private Evidence evidence = null;
+  private Queries queries = null;
+  private final Queries atemporalQueries;
+}
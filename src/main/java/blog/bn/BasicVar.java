@@ -94,6 +94,45 @@ public abstract class BasicVar extends AbstractBayesNetVar implements
     return args;
   }
 
+  /**
+   * Returns the id given to this variable when it became the canonical
+   * instance in a {@link VarInterner}, or -1 if it is not canonical. Two
+   * canonical variables are equal if and only if they have the same id.
+   */
+  public final int getId() {
+    return id;
+  }
+
+  final void setId(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the canonical instance equal to this variable, making one if
+   * necessary. Variables that are not interned return themselves, so the
+   * result may still have no id.
+   */
+  public BasicVar canonical() {
+    return this;
+  }
+
+  /**
+   * Returns the canonical instance equal to this variable if there is one,
+   * without making one, or null if there is none. Variables that are not
+   * interned return themselves.
+   */
+  public BasicVar findCanonical() {
+    return this;
+  }
+
+  /**
+   * Returns true if this variable and <code>other</code> are both canonical,
+   * in which case they are equal exactly when they are the same object.
+   */
+  protected final boolean bothInterned(BasicVar other) {
+    return (id >= 0) && (other.id >= 0);
+  }
+
   /**
    * Returns the type of object that can be a value for this variable.
    */
@@ -180,8 +219,25 @@ public abstract class BasicVar extends AbstractBayesNetVar implements
     return Model.compareArgTuples(args, other.args());
   }
 
+  /**
+   * Returns the hash code computed by {@link #computeHashCode()}. It is
+   * computed once: the arguments of a variable must not change after it is
+   * first hashed.
+   */
   @Override
-  public int hashCode() {
+  public final int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = computeHashCode();
+      hash = h;
+    }
+    return h;
+  }
+
+  /**
+   * Computes the hash code of this variable from its arguments.
+   */
+  protected int computeHashCode() {
     int hash = 5;
     hash = 71 * hash + Arrays.deepHashCode(this.args);
     return hash;
@@ -189,6 +245,9 @@ public abstract class BasicVar extends AbstractBayesNetVar implements
 
   @Override
   public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
     if (obj == null) {
       return false;
     }
@@ -207,4 +266,6 @@ public abstract class BasicVar extends AbstractBayesNetVar implements
   protected Object[] args; // of Object
 
   private boolean stable = false;
+  private int hash; // 0 until computed
+  private int id = -1;
 }
@@ -111,7 +111,7 @@ public class DerivedVar extends AbstractBayesNetVar {
 	}
 
 	public Timestep maxTimestep() {
-		return null;
+		return argSpec.maxTimestep();
 	}
 
 	/**
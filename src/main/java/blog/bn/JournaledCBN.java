@@ -0,0 +1,311 @@
+package blog.bn;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import blog.common.AbstractDGraph;
+import blog.common.Journaled;
+
+/**
+ * A CBN that writes through to an underlying CBN and journals the nodes and
+ * edges it adds or removes, recording for each whether it was in the graph
+ * before. Reads go straight to the underlying CBN, and <code>getSaved</code>
+ * gives a read-only view of the graph as it was when the journal was last
+ * cleared. This is the in-place counterpart of {@link PatchCBN}.
+ *
+ * @since Oct 18, 2026
+ */
+public class JournaledCBN extends AbstractDGraph implements CBN, Journaled {
+  /**
+   * Creates a journaled CBN over <code>current</code>, with an empty journal.
+   */
+  public JournaledCBN(CBN current) {
+    this.current = current;
+  }
+
+  public Set nodes() {
+    return current.nodes();
+  }
+
+  public boolean addNode(Object v) {
+    if (current.nodes().contains(v)) {
+      return false;
+    }
+    noteNode(v, false);
+    return current.addNode(v);
+  }
+
+  public boolean removeNode(Object v) {
+    if (!current.nodes().contains(v)) {
+      return false;
+    }
+    noteNode(v, true);
+    for (Iterator iter = current.getParents(v).iterator(); iter.hasNext();) {
+      noteEdge(iter.next(), v, true);
+    }
+    for (Iterator iter = current.getChildren(v).iterator(); iter.hasNext();) {
+      noteEdge(v, iter.next(), true);
+    }
+    return current.removeNode(v);
+  }
+
+  public void addEdge(Object parent, Object child) {
+    ensureNodeNoted(parent);
+    ensureNodeNoted(child);
+    if (!current.getParents(child).contains(parent)) {
+      noteEdge(parent, child, false);
+    }
+    current.addEdge(parent, child);
+  }
+
+  public void removeEdge(Object parent, Object child) {
+    Set parents = current.getParents(child);
+    if ((parents != null) && parents.contains(parent)) {
+      noteEdge(parent, child, true);
+    }
+    current.removeEdge(parent, child);
+  }
+
+  public void setParents(Object v, Set newParents) {
+    Set oldParents = current.getParents(v);
+    if (oldParents == null) {
+      noteNode(v, false);
+      oldParents = Collections.EMPTY_SET;
+    }
+    for (Iterator iter = oldParents.iterator(); iter.hasNext();) {
+      Object parent = iter.next();
+      if (!newParents.contains(parent)) {
+        noteEdge(parent, v, true);
+      }
+    }
+    for (Iterator iter = newParents.iterator(); iter.hasNext();) {
+      Object parent = iter.next();
+      if (!oldParents.contains(parent)) {
+        ensureNodeNoted(parent);
+        noteEdge(parent, v, false);
+      }
+    }
+    current.setParents(v, newParents);
+  }
+
+  public Set getParents(Object v) {
+    return current.getParents(v);
+  }
+
+  public Set getChildren(Object v) {
+    return current.getChildren(v);
+  }
+
+  /**
+   * Returns the nodes that are barren (have no children) in this graph, but
+   * either are not in the saved graph or are not barren there.
+   *
+   * @return unmodifiable Set of Object
+   */
+  public Set getNewlyBarrenNodes() {
+    Set candidates = new LinkedHashSet(nodeJournal.keySet());
+    candidates.addAll(childJournal.keySet());
+    Set newlyBarren = new HashSet();
+    for (Iterator iter = candidates.iterator(); iter.hasNext();) {
+      Object v = iter.next();
+      Set children = current.getChildren(v);
+      if ((children != null) && children.isEmpty()) {
+        Set savedChildren = getSaved().getChildren(v);
+        if ((savedChildren == null) || !savedChildren.isEmpty()) {
+          newlyBarren.add(v);
+        }
+      }
+    }
+    return Collections.unmodifiableSet(newlyBarren);
+  }
+
+  /**
+   * Returns a read-only view of the saved version of this graph. The view
+   * follows later changes to this graph and to its journal.
+   */
+  public CBN getSaved() {
+    if (saved == null) {
+      saved = new SavedCBN();
+    }
+    return saved;
+  }
+
+  public void revert() {
+    // Nodes first, since removing a node also removes its edges.
+    for (Iterator iter = nodeJournal.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      if (((Boolean) entry.getValue()).booleanValue()) {
+        current.addNode(entry.getKey());
+      }
+    }
+    for (Iterator iter = parentJournal.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      Object child = entry.getKey();
+      Map savedParents = (Map) entry.getValue();
+      for (Iterator parentIter = savedParents.entrySet().iterator(); parentIter
+          .hasNext();) {
+        Map.Entry parent = (Map.Entry) parentIter.next();
+        if (((Boolean) parent.getValue()).booleanValue()) {
+          current.addEdge(parent.getKey(), child);
+        } else {
+          current.removeEdge(parent.getKey(), child);
+        }
+      }
+    }
+    for (Iterator iter = nodeJournal.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      if (!((Boolean) entry.getValue()).booleanValue()) {
+        current.removeNode(entry.getKey());
+      }
+    }
+    clearJournal();
+  }
+
+  public void clearJournal() {
+    nodeJournal.clear();
+    parentJournal.clear();
+    childJournal.clear();
+  }
+
+  private void ensureNodeNoted(Object v) {
+    if (!current.nodes().contains(v)) {
+      noteNode(v, false);
+    }
+  }
+
+  private void noteNode(Object v, boolean wasPresent) {
+    if (!nodeJournal.containsKey(v)) {
+      nodeJournal.put(v, Boolean.valueOf(wasPresent));
+    }
+  }
+
+  private void noteEdge(Object parent, Object child, boolean wasPresent) {
+    Map savedParents = (Map) parentJournal.get(child);
+    if (savedParents == null) {
+      savedParents = new HashMap();
+      parentJournal.put(child, savedParents);
+    }
+    if (!savedParents.containsKey(parent)) {
+      savedParents.put(parent, Boolean.valueOf(wasPresent));
+      Set children = (Set) childJournal.get(parent);
+      if (children == null) {
+        children = new HashSet();
+        childJournal.put(parent, children);
+      }
+      children.add(child);
+    }
+  }
+
+  private boolean savedHasNode(Object v) {
+    Boolean wasPresent = (Boolean) nodeJournal.get(v);
+    if (wasPresent != null) {
+      return wasPresent.booleanValue();
+    }
+    return current.nodes().contains(v);
+  }
+
+  private class SavedCBN extends AbstractDGraph implements CBN {
+    public Set nodes() {
+      return new AbstractSet() {
+        public boolean contains(Object o) {
+          return savedHasNode(o);
+        }
+
+        public int size() {
+          return copyNodes().size();
+        }
+
+        public Iterator iterator() {
+          return Collections.unmodifiableSet(copyNodes()).iterator();
+        }
+      };
+    }
+
+    public Set getParents(Object v) {
+      if (!savedHasNode(v)) {
+        return null;
+      }
+      Map savedParents = (Map) parentJournal.get(v);
+      if (savedParents == null) {
+        return current.getParents(v);
+      }
+      Set parents = copy(current.getParents(v));
+      for (Iterator iter = savedParents.entrySet().iterator(); iter.hasNext();) {
+        Map.Entry parent = (Map.Entry) iter.next();
+        if (((Boolean) parent.getValue()).booleanValue()) {
+          parents.add(parent.getKey());
+        } else {
+          parents.remove(parent.getKey());
+        }
+      }
+      return Collections.unmodifiableSet(parents);
+    }
+
+    public Set getChildren(Object v) {
+      if (!savedHasNode(v)) {
+        return null;
+      }
+      Set changedChildren = (Set) childJournal.get(v);
+      if (changedChildren == null) {
+        return current.getChildren(v);
+      }
+      Set children = copy(current.getChildren(v));
+      for (Iterator iter = changedChildren.iterator(); iter.hasNext();) {
+        Object child = iter.next();
+        Map savedParents = (Map) parentJournal.get(child);
+        if (((Boolean) savedParents.get(v)).booleanValue()) {
+          children.add(child);
+        } else {
+          children.remove(child);
+        }
+      }
+      return Collections.unmodifiableSet(children);
+    }
+
+    private Set copyNodes() {
+      Set nodes = new HashSet(current.nodes());
+      for (Iterator iter = nodeJournal.entrySet().iterator(); iter.hasNext();) {
+        Map.Entry entry = (Map.Entry) iter.next();
+        if (((Boolean) entry.getValue()).booleanValue()) {
+          nodes.add(entry.getKey());
+        } else {
+          nodes.remove(entry.getKey());
+        }
+      }
+      return nodes;
+    }
+
+    private Set copy(Set set) {
+      return (set == null) ? new HashSet() : new HashSet(set);
+    }
+  }
+
+  private final CBN current;
+
+  /**
+   * Map from each added or removed node to a Boolean telling whether it was
+   * in the saved graph.
+   */
+  private final Map nodeJournal = new HashMap();
+
+  /**
+   * Map from each node whose parent set changed to a map from each added or
+   * removed parent to a Boolean telling whether the edge was in the saved
+   * graph.
+   */
+  private final Map parentJournal = new HashMap();
+
+  /**
+   * Map from each node to the children whose edges from it are in
+   * parentJournal.
+   */
+  private final Map childJournal = new HashMap();
+
+  private CBN saved = null;
+}
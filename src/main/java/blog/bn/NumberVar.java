@@ -88,6 +88,16 @@ public class NumberVar extends VarWithDistrib {
 		return pop;
 	}
 
+	@Override
+	public BasicVar canonical() {
+		return (getId() >= 0) ? this : pop.rvWithArgs(args, false);
+	}
+
+	@Override
+	public BasicVar findCanonical() {
+		return (getId() >= 0) ? this : pop.findInterned(this);
+	}
+
 	public DependencyModel.Distrib getDistrib(EvalContext context) {
 		context.pushEvaluee(this);
 		DependencyModel.Distrib distrib = pop.getDepModel().getDistribWithBinding(
@@ -152,14 +162,20 @@ public class NumberVar extends VarWithDistrib {
 	 * two lists).
 	 */
 	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
 		if (obj instanceof NumberVar) {
 			NumberVar other = (NumberVar) obj;
+			if (bothInterned(other)) {
+				return false;
+			}
 			return ((pop == other.pop()) && Arrays.equals(args, other.args()));
 		}
 		return false;
 	}
 
-	public int hashCode() {
+	protected int computeHashCode() {
 		int code = pop.hashCode();
 		for (int i = 0; i < args.length; ++i) {
 			code ^= args[i].hashCode();
@@ -91,6 +91,16 @@ public class RandFuncAppVar extends VarWithDistrib {
     return f;
   }
 
+  @Override
+  public BasicVar canonical() {
+    return (getId() >= 0) ? this : f.rvWithArgs(args, false);
+  }
+
+  @Override
+  public BasicVar findCanonical() {
+    return (getId() >= 0) ? this : f.findInterned(this);
+  }
+
   /**
    * Returns the return type of this variable's function.
    */
@@ -153,18 +163,24 @@ public class RandFuncAppVar extends VarWithDistrib {
    * arrays).
    */
   public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
     if (obj instanceof RandFuncAppVar) {
       RandFuncAppVar other = (RandFuncAppVar) obj;
+      if (bothInterned(other)) {
+        return false;
+      }
       return ((f == other.func()) && Arrays.equals(args, other.args()));
     }
     return false;
   }
 
   @Override
-  public int hashCode() {
+  protected int computeHashCode() {
     int hash = 7;
     hash = 43 * hash + f.hashCode();
-    hash = 43 * hash + super.hashCode();
+    hash = 43 * hash + super.computeHashCode();
     return hash;
   }
 
@@ -0,0 +1,113 @@
+package blog.bn;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Table of canonical instances for the basic variables of one random function
+ * or POP. Interning a variable returns the one instance that is equal to it,
+ * so worlds mostly see a single object per variable: its hash code is computed
+ * once, equality checks usually succeed on identity, and it carries a dense
+ * integer id (see {@link BasicVar#getId()}).
+ *
+ * Canonical instances are only weakly referenced, so variables no world uses
+ * any more (for instance those of past time steps) can be garbage collected.
+ * Their ids are then handed out again, so the ids in use stay dense even when
+ * a long run creates many more variables than are alive at once.
+ * The table is split into independently locked stripes so that concurrent
+ * samplers rarely contend.
+ *
+ * @since Oct 18, 2026
+ */
+public class VarInterner<V extends BasicVar> {
+  /**
+   * Returns the canonical instance equal to <code>var</code>. If there is
+   * none yet, <code>var</code> itself becomes canonical: its arguments are
+   * made stable and it is given an id.
+   */
+  public V intern(V var) {
+    Map<V, WeakReference<V>> stripe = stripes[spread(var.hashCode())];
+    synchronized (stripe) {
+      WeakReference<V> ref = stripe.get(var);
+      if (ref != null) {
+        V canonical = ref.get();
+        if (canonical != null) {
+          return canonical;
+        }
+      }
+      var.ensureStable();
+      int id = newId();
+      var.setId(id);
+      stripe.put(var, new CanonicalRef<V>(var, id));
+      return var;
+    }
+  }
+
+  /**
+   * Returns the canonical instance equal to <code>var</code>, or null if there
+   * is none. Unlike {@link #intern}, this never makes <code>var</code>
+   * canonical.
+   */
+  public V find(V var) {
+    Map<V, WeakReference<V>> stripe = stripes[spread(var.hashCode())];
+    synchronized (stripe) {
+      WeakReference<V> ref = stripe.get(var);
+      return (ref == null) ? null : ref.get();
+    }
+  }
+
+  /**
+   * Returns an id freed by a collected variable, or a new id if there
+   * is none. Ids are shared by all interners, so that variables of different
+   * functions never have the same id.
+   */
+  private static synchronized int newId() {
+    for (Reference<?> ref; (ref = collected.poll()) != null;) {
+      if (numFreeIds == freeIds.length) {
+        freeIds = Arrays.copyOf(freeIds, 2 * freeIds.length);
+      }
+      freeIds[numFreeIds++] = ((CanonicalRef<?>) ref).id;
+    }
+    if (numFreeIds == 0) {
+      return nextId++;
+    }
+    return freeIds[--numFreeIds];
+  }
+
+  /**
+   * Weak reference to a canonical variable that remembers its id, so the id
+   * can be freed once the variable is collected.
+   */
+  private static class CanonicalRef<V extends BasicVar> extends
+      WeakReference<V> {
+    CanonicalRef(V var, int id) {
+      super(var, collected);
+      this.id = id;
+    }
+
+    final int id;
+  }
+
+  private static int spread(int hash) {
+    hash ^= (hash >>> 16);
+    return hash & (NUM_STRIPES - 1);
+  }
+
+  @SuppressWarnings("unchecked")
+  private final Map<V, WeakReference<V>>[] stripes = new Map[NUM_STRIPES];
+  {
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      stripes[i] = new WeakHashMap<V, WeakReference<V>>();
+    }
+  }
+
+  private static final int NUM_STRIPES = 16;
+  private static final ReferenceQueue<BasicVar> collected = new ReferenceQueue<BasicVar>();
+  private static int[] freeIds = new int[16]; // stack of reusable ids
+  private static int numFreeIds = 0;
+  private static int nextId = 0;
+}
@@ -160,6 +160,16 @@ public class Histogram implements SetWithDistrib {
       map.put(obj, Util.logSum(getLogWeight(obj), logWeight));
   }
 
+  /**
+   * Adds the weights of all objects in <code>other</code> to this histogram.
+   */
+  public void addAll(Histogram other) {
+    for (Iterator iter = other.map.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      increaseWeight(entry.getKey(), ((Double) entry.getValue()).doubleValue());
+    }
+  }
+
   /**
    * Resets the weights of all objects to zero.
    */
@@ -0,0 +1,69 @@
+package blog.common;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small, fixed-size cache from objects, compared by identity, to values
+ * computed from them. It is meant for tables that are expensive to derive from
+ * a parameter object that is passed again and again, such as a probability map
+ * or vector given to a distribution.
+ *
+ * The cache is direct-mapped: each key has one slot, chosen by its identity
+ * hash code, and a new entry simply replaces whatever was in its slot. Keys are
+ * only weakly referenced. Entries are immutable and published through an
+ * atomic array, so the cache may be used from several threads without
+ * locking. Since keys are compared by identity, callers must not mutate a key
+ * after its value has been cached.
+ *
+ * @since Oct 18, 2026
+ */
+public class IdentityCache<K, V> {
+  /**
+   * Creates a cache with the given number of slots, which is rounded up to a
+   * power of two.
+   */
+  public IdentityCache(int size) {
+    int n = 1;
+    while (n < size) {
+      n <<= 1;
+    }
+    slots = new AtomicReferenceArray<Entry<K, V>>(n);
+  }
+
+  /**
+   * Returns the value cached for <code>key</code>, or null if there is none.
+   */
+  public V get(K key) {
+    Entry<K, V> entry = slots.get(slot(key));
+    if (entry != null && entry.key.get() == key) {
+      return entry.value;
+    }
+    return null;
+  }
+
+  /**
+   * Caches <code>value</code> for <code>key</code>.
+   */
+  public void put(K key, V value) {
+    slots.set(slot(key), new Entry<K, V>(key, value));
+  }
+
+  private int slot(Object key) {
+    int h = System.identityHashCode(key);
+    h ^= (h >>> 16);
+    return h & (slots.length() - 1);
+  }
+
+  private static class Entry<K, V> {
+    Entry(K key, V value) {
+      this.key = new WeakReference<K>(key);
+      this.value = value;
+    }
+
+    final WeakReference<K> key;
+    final V value;
+  }
+
+  private final AtomicReferenceArray<Entry<K, V>> slots;
+}
@@ -0,0 +1,23 @@
+package blog.common;
+
+/**
+ * A structure that is changed in place and keeps a journal of the state its
+ * entries had before they were first changed, so that it can be brought back
+ * to that saved state. Both operations take time proportional to the number
+ * of entries changed since the journal was last cleared.
+ *
+ * @since Oct 18, 2026
+ */
+public interface Journaled {
+  /**
+   * Undoes all changes made since the journal was last cleared, and clears
+   * the journal.
+   */
+  void revert();
+
+  /**
+   * Forgets the changes made so far, so that the current state becomes the
+   * saved one.
+   */
+  void clearJournal();
+}
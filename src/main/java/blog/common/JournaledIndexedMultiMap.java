@@ -0,0 +1,38 @@
+package blog.common;
+
+import java.util.Set;
+
+/**
+ * A JournaledMultiMap over an IndexedMultiMap. Reverting restores the set of
+ * values for each key, but not necessarily their order.
+ *
+ * @since Oct 18, 2026
+ */
+public class JournaledIndexedMultiMap extends JournaledMultiMap implements
+    IndexedMultiMap {
+  /**
+   * Creates a journaled multi-map over <code>current</code>, with an empty
+   * journal.
+   */
+  public JournaledIndexedMultiMap(IndexedMultiMap current) {
+    super(current);
+  }
+
+  protected Set newSet(Set values) {
+    return new IndexedHashSet(values);
+  }
+
+  protected MultiMap makeSavedView() {
+    return new SavedIndexedMultiMap();
+  }
+
+  protected class SavedIndexedMultiMap extends SavedMultiMap implements
+      IndexedMultiMap {
+    public Object get(Object key) {
+      if (journal.containsKey(key)) {
+        return copySavedValues(key); // a copy, so changes do not matter
+      }
+      return current.get(key);
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package blog.common;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map that writes through to an underlying map and journals the entries it
+ * changes. Reads go straight to the underlying map, and
+ * <code>getSaved</code> gives a read-only view of the map as it was when the
+ * journal was last cleared. The underlying map must not be changed except
+ * through this map while the journal is in use.
+ *
+ * @since Oct 18, 2026
+ */
+public class JournaledMap extends AbstractMap implements Journaled {
+  /**
+   * Creates a journaled map over <code>current</code>, with an empty journal.
+   */
+  public JournaledMap(Map current) {
+    this.current = current;
+  }
+
+  public int size() {
+    return current.size();
+  }
+
+  public boolean isEmpty() {
+    return current.isEmpty();
+  }
+
+  public boolean containsKey(Object key) {
+    return current.containsKey(key);
+  }
+
+  public Object get(Object key) {
+    return current.get(key);
+  }
+
+  public Object put(Object key, Object value) {
+    note(key);
+    return current.put(key, value);
+  }
+
+  public Object remove(Object key) {
+    note(key);
+    return current.remove(key);
+  }
+
+  public void clear() {
+    for (Iterator iter = current.keySet().iterator(); iter.hasNext();) {
+      note(iter.next());
+    }
+    current.clear();
+  }
+
+  public Set keySet() {
+    return Collections.unmodifiableSet(current.keySet());
+  }
+
+  public Collection values() {
+    return Collections.unmodifiableCollection(current.values());
+  }
+
+  public Set entrySet() {
+    return Collections.unmodifiableMap(current).entrySet();
+  }
+
+  /**
+   * Returns the keys that have a different value, or are present in one map
+   * and not the other, in this map and the saved one.
+   *
+   * @return unmodifiable Set of Object
+   */
+  public Set getChangedKeys() {
+    Set changed = new HashSet();
+    for (Iterator iter = journal.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      Object key = entry.getKey();
+      Object savedValue = entry.getValue();
+      if (savedValue == ABSENT) {
+        if (current.containsKey(key)) {
+          changed.add(key);
+        }
+      } else if (!current.containsKey(key)
+          || !Util.equalsOrBothNull(savedValue, current.get(key))) {
+        changed.add(key);
+      }
+    }
+    return Collections.unmodifiableSet(changed);
+  }
+
+  /**
+   * Returns the keys recorded in the journal, whether or not their values
+   * differ from the saved ones.
+   */
+  public List getJournaledKeys() {
+    return new ArrayList(journal.keySet());
+  }
+
+  /**
+   * Returns a read-only view of the saved version of this map. The view
+   * follows later changes to this map and to its journal.
+   */
+  public Map getSaved() {
+    if (saved == null) {
+      saved = new SavedMap();
+    }
+    return saved;
+  }
+
+  public void revert() {
+    for (Iterator iter = journal.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      if (entry.getValue() == ABSENT) {
+        current.remove(entry.getKey());
+      } else {
+        current.put(entry.getKey(), entry.getValue());
+      }
+    }
+    clearJournal();
+  }
+
+  public void clearJournal() {
+    journal.clear();
+  }
+
+  /**
+   * Records the current state of <code>key</code> if it is not yet in the
+   * journal. Must be called before the entry for <code>key</code> changes.
+   */
+  protected void note(Object key) {
+    if (!journal.containsKey(key)) {
+      journal.put(key, current.containsKey(key) ? current.get(key) : ABSENT);
+    }
+  }
+
+  /**
+   * Returns true if <code>key</code> was present in the saved map.
+   */
+  protected boolean savedContainsKey(Object key) {
+    if (journal.containsKey(key)) {
+      return journal.get(key) != ABSENT;
+    }
+    return current.containsKey(key);
+  }
+
+  /**
+   * Returns a new map with the entries of the saved map.
+   */
+  protected Map copySaved() {
+    Map copy = new HashMap(current);
+    for (Iterator iter = journal.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      if (entry.getValue() == ABSENT) {
+        copy.remove(entry.getKey());
+      } else {
+        copy.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return copy;
+  }
+
+  protected class SavedMap extends AbstractMap {
+    public int size() {
+      int size = current.size();
+      for (Iterator iter = journal.entrySet().iterator(); iter.hasNext();) {
+        Map.Entry entry = (Map.Entry) iter.next();
+        boolean wasPresent = (entry.getValue() != ABSENT);
+        if (wasPresent != current.containsKey(entry.getKey())) {
+          size += wasPresent ? 1 : -1;
+        }
+      }
+      return size;
+    }
+
+    public boolean containsKey(Object key) {
+      return savedContainsKey(key);
+    }
+
+    public Object get(Object key) {
+      if (journal.containsKey(key)) {
+        Object savedValue = journal.get(key);
+        return (savedValue == ABSENT) ? null : savedValue;
+      }
+      return current.get(key);
+    }
+
+    public Set entrySet() {
+      if (journal.isEmpty()) {
+        return Collections.unmodifiableMap(current).entrySet();
+      }
+      return Collections.unmodifiableMap(copySaved()).entrySet();
+    }
+  }
+
+  protected final Map current;
+
+  /**
+   * Map from each changed key to its saved value, or ABSENT.
+   */
+  protected final Map journal = new HashMap();
+
+  private Map saved = null;
+
+  protected static final Object ABSENT = new Object();
+}
@@ -0,0 +1,96 @@
+package blog.common;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A JournaledMap over a MapWithPreimages. Like the underlying map, it does not
+ * support null keys or values.
+ *
+ * @since Oct 18, 2026
+ */
+public class JournaledMapWithPreimages extends JournaledMap implements
+    MapWithPreimages {
+  /**
+   * Creates a journaled map over <code>current</code>, with an empty journal.
+   */
+  public JournaledMapWithPreimages(MapWithPreimages current) {
+    super(current);
+  }
+
+  public Set valueSet() {
+    return ((MapWithPreimages) current).valueSet();
+  }
+
+  public Set getPreimage(Object v) {
+    return ((MapWithPreimages) current).getPreimage(v);
+  }
+
+  public MultiMap getPreimages() {
+    return ((MapWithPreimages) current).getPreimages();
+  }
+
+  public boolean isCorefPair(Object k1, Object k2) {
+    return ((MapWithPreimages) current).isCorefPair(k1, k2);
+  }
+
+  public int numCorefPairs() {
+    return ((MapWithPreimages) current).numCorefPairs();
+  }
+
+  /**
+   * Returns a read-only view of the saved version of this map, which is a
+   * MapWithPreimages.
+   */
+  public Map getSaved() {
+    if (savedWithPreimages == null) {
+      savedWithPreimages = new SavedMapWithPreimages();
+    }
+    return savedWithPreimages;
+  }
+
+  protected class SavedMapWithPreimages extends SavedMap implements
+      MapWithPreimages {
+    public Set valueSet() {
+      return copy().valueSet();
+    }
+
+    public Set getPreimage(Object v) {
+      if (journal.isEmpty()) {
+        return ((MapWithPreimages) current).getPreimage(v);
+      }
+      Set preimage = new HashSet(((MapWithPreimages) current).getPreimage(v));
+      for (Iterator iter = journal.entrySet().iterator(); iter.hasNext();) {
+        Map.Entry entry = (Map.Entry) iter.next();
+        if (v.equals(entry.getValue())) {
+          preimage.add(entry.getKey());
+        } else {
+          preimage.remove(entry.getKey());
+        }
+      }
+      return Collections.unmodifiableSet(preimage);
+    }
+
+    public MultiMap getPreimages() {
+      return copy().getPreimages();
+    }
+
+    public boolean isCorefPair(Object k1, Object k2) {
+      Object value1 = get(k1);
+      return ((value1 != null) && (value1.equals(get(k2))));
+    }
+
+    public int numCorefPairs() {
+      return copy().numCorefPairs();
+    }
+
+    private MapWithPreimages copy() {
+      return new HashMapWithPreimages(copySaved());
+    }
+  }
+
+  private Map savedWithPreimages = null;
+}
@@ -0,0 +1,280 @@
+package blog.common;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A multi-map that writes through to an underlying MultiMap and journals, for
+ * each (key, value) pair it changes, whether the pair was in the map before.
+ * Reads go straight to the underlying multi-map; the sets returned by
+ * <code>get</code> must not be changed directly. <code>getSaved</code> gives
+ * a read-only view of the multi-map as it was when the journal was last
+ * cleared.
+ *
+ * @since Oct 18, 2026
+ */
+public class JournaledMultiMap extends AbstractMap implements MultiMap,
+    Journaled {
+  /**
+   * Creates a journaled multi-map over <code>current</code>, with an empty
+   * journal.
+   */
+  public JournaledMultiMap(MultiMap current) {
+    this.current = current;
+  }
+
+  public int size() {
+    return current.size();
+  }
+
+  public boolean containsKey(Object key) {
+    return current.containsKey(key);
+  }
+
+  public Object get(Object key) {
+    return current.get(key);
+  }
+
+  public Object put(Object key, Object value) {
+    if (!(value instanceof Set)) {
+      throw new IllegalArgumentException(
+          "Values stored in MultiMap must be sets.");
+    }
+    Set oldValues = (Set) current.get(key);
+    Set newValues = (Set) value;
+    for (Iterator iter = oldValues.iterator(); iter.hasNext();) {
+      Object v = iter.next();
+      if (!newValues.contains(v)) {
+        note(key, v, true);
+      }
+    }
+    for (Iterator iter = newValues.iterator(); iter.hasNext();) {
+      Object v = iter.next();
+      if (!oldValues.contains(v)) {
+        note(key, v, false);
+      }
+    }
+    return current.put(key, value);
+  }
+
+  public boolean add(Object key, Object value) {
+    if (current.add(key, value)) {
+      note(key, value, false);
+      return true;
+    }
+    return false;
+  }
+
+  public boolean addAll(Object key, Set values) {
+    boolean changed = false;
+    for (Iterator iter = values.iterator(); iter.hasNext();) {
+      changed |= add(key, iter.next());
+    }
+    return changed;
+  }
+
+  public Object remove(Object key) {
+    Set oldValues = new HashSet((Set) current.get(key));
+    for (Iterator iter = oldValues.iterator(); iter.hasNext();) {
+      note(key, iter.next(), true);
+    }
+    current.remove(key);
+    return oldValues;
+  }
+
+  public boolean remove(Object key, Object value) {
+    if (current.remove(key, value)) {
+      note(key, value, true);
+      return true;
+    }
+    return false;
+  }
+
+  public boolean removeAll(Object key, Set values) {
+    boolean changed = false;
+    for (Iterator iter = values.iterator(); iter.hasNext();) {
+      changed |= remove(key, iter.next());
+    }
+    return changed;
+  }
+
+  public void clear() {
+    Object[] keys = current.keySet().toArray();
+    for (int i = 0; i < keys.length; ++i) {
+      remove(keys[i]);
+    }
+  }
+
+  public Set keySet() {
+    return Collections.unmodifiableSet(current.keySet());
+  }
+
+  public Set entrySet() {
+    return Collections.unmodifiableMap(current).entrySet();
+  }
+
+  /**
+   * Returns the keys whose sets of values are different in this multi-map
+   * and in the saved one.
+   *
+   * @return unmodifiable Set of Object
+   */
+  public Set getChangedKeys() {
+    Set changed = new HashSet();
+    for (Iterator iter = journal.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      Set values = (Set) current.get(entry.getKey());
+      Map savedMembership = (Map) entry.getValue();
+      for (Iterator memberIter = savedMembership.entrySet().iterator(); memberIter
+          .hasNext();) {
+        Map.Entry member = (Map.Entry) memberIter.next();
+        if (values.contains(member.getKey()) != ((Boolean) member.getValue())
+            .booleanValue()) {
+          changed.add(entry.getKey());
+          break;
+        }
+      }
+    }
+    return Collections.unmodifiableSet(changed);
+  }
+
+  /**
+   * Returns a read-only view of the saved version of this multi-map. The view
+   * follows later changes to this multi-map and to its journal.
+   */
+  public MultiMap getSaved() {
+    if (saved == null) {
+      saved = makeSavedView();
+    }
+    return saved;
+  }
+
+  public void revert() {
+    for (Iterator iter = journal.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      Object key = entry.getKey();
+      Map savedMembership = (Map) entry.getValue();
+      for (Iterator memberIter = savedMembership.entrySet().iterator(); memberIter
+          .hasNext();) {
+        Map.Entry member = (Map.Entry) memberIter.next();
+        if (((Boolean) member.getValue()).booleanValue()) {
+          current.add(key, member.getKey());
+        } else {
+          current.remove(key, member.getKey());
+        }
+      }
+    }
+    clearJournal();
+  }
+
+  public void clearJournal() {
+    journal.clear();
+  }
+
+  /**
+   * Records whether (key, value) was in the saved multi-map, if the pair is
+   * not yet in the journal.
+   */
+  protected void note(Object key, Object value, boolean wasPresent) {
+    Map savedMembership = (Map) journal.get(key);
+    if (savedMembership == null) {
+      savedMembership = new HashMap();
+      journal.put(key, savedMembership);
+    }
+    if (!savedMembership.containsKey(value)) {
+      savedMembership.put(value, Boolean.valueOf(wasPresent));
+    }
+  }
+
+  /**
+   * Returns the saved set of values for <code>key</code>, as a new set.
+   */
+  protected Set copySavedValues(Object key) {
+    Set values = newSet((Set) current.get(key));
+    Map savedMembership = (Map) journal.get(key);
+    if (savedMembership != null) {
+      for (Iterator iter = savedMembership.entrySet().iterator(); iter
+          .hasNext();) {
+        Map.Entry member = (Map.Entry) iter.next();
+        if (((Boolean) member.getValue()).booleanValue()) {
+          values.add(member.getKey());
+        } else {
+          values.remove(member.getKey());
+        }
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Returns a new, modifiable set with the elements of <code>values</code>.
+   */
+  protected Set newSet(Set values) {
+    return new HashSet(values);
+  }
+
+  protected MultiMap makeSavedView() {
+    return new SavedMultiMap();
+  }
+
+  protected class SavedMultiMap extends AbstractMap implements MultiMap {
+    public boolean containsKey(Object key) {
+      return !((Set) get(key)).isEmpty();
+    }
+
+    public Object get(Object key) {
+      if (journal.containsKey(key)) {
+        return Collections.unmodifiableSet(copySavedValues(key));
+      }
+      return current.get(key);
+    }
+
+    public boolean add(Object key, Object value) {
+      throw new UnsupportedOperationException();
+    }
+
+    public boolean addAll(Object key, Set values) {
+      throw new UnsupportedOperationException();
+    }
+
+    public boolean remove(Object key, Object value) {
+      throw new UnsupportedOperationException();
+    }
+
+    public boolean removeAll(Object key, Set values) {
+      throw new UnsupportedOperationException();
+    }
+
+    public Set entrySet() {
+      if (journal.isEmpty()) {
+        return Collections.unmodifiableMap(current).entrySet();
+      }
+      Map copy = new HashMap();
+      Set keys = new HashSet(current.keySet());
+      keys.addAll(journal.keySet());
+      for (Iterator iter = keys.iterator(); iter.hasNext();) {
+        Object key = iter.next();
+        Set values = copySavedValues(key);
+        if (!values.isEmpty()) {
+          copy.put(key, Collections.unmodifiableSet(values));
+        }
+      }
+      return Collections.unmodifiableMap(copy).entrySet();
+    }
+  }
+
+  protected final MultiMap current;
+
+  /**
+   * Map from each changed key to a map from each changed value to a Boolean
+   * telling whether the pair was in the saved multi-map.
+   */
+  protected final Map journal = new HashMap();
+
+  private MultiMap saved = null;
+}
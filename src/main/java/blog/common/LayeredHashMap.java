@@ -0,0 +1,316 @@
+package blog.common;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map that can be forked in constant time. The entries of a map are kept in
+ * a chain of frozen layers, which may be shared with other maps, plus a
+ * private layer of recent changes. Forking freezes the private layer and
+ * gives the fork the same chain; after that, each map records its own changes
+ * in a new private layer, so only the changed entries are copied.
+ *
+ * Lookups and iteration go through the layers from the newest to the oldest,
+ * so chains are flattened into a single layer when they get longer than
+ * <code>MAX_DEPTH</code>. If the <code>linked</code> flag is given at
+ * construction, layers are LinkedHashMaps and iteration follows insertion
+ * order within each layer, oldest layer first.
+ *
+ * This map does not permit null values.
+ *
+ * @since Oct 18, 2026
+ */
+public class LayeredHashMap extends AbstractMap implements Cloneable {
+  /**
+   * Creates an empty map.
+   */
+  public LayeredHashMap() {
+    this(false);
+  }
+
+  /**
+   * Creates an empty map, which iterates in insertion order if
+   * <code>linked</code> is true.
+   */
+  public LayeredHashMap(boolean linked) {
+    this.linked = linked;
+    delta = newLayerMap(0);
+  }
+
+  public int size() {
+    return (base == null) ? delta.size() : size;
+  }
+
+  public boolean containsKey(Object key) {
+    return (get(key) != null);
+  }
+
+  public Object get(Object key) {
+    Object value = delta.get(key);
+    for (Layer layer = base; (value == null) && (layer != null); layer = layer.parent) {
+      value = layer.entries.get(key);
+    }
+    return (value == REMOVED) ? null : value;
+  }
+
+  public Object put(Object key, Object value) {
+    if (value == null) {
+      throw new NullPointerException("LayeredHashMap does not permit null values");
+    }
+    if (base == null) {
+      return delta.put(key, value);
+    }
+    Object oldValue = get(key);
+    delta.put(key, value);
+    if (oldValue == null) {
+      ++size;
+    }
+    return oldValue;
+  }
+
+  public Object remove(Object key) {
+    if (base == null) {
+      return delta.remove(key);
+    }
+    Object oldValue = get(key);
+    if (oldValue != null) {
+      delta.put(key, REMOVED);
+      --size;
+    }
+    return oldValue;
+  }
+
+  public void clear() {
+    base = null;
+    delta = newLayerMap(0);
+  }
+
+  public Set entrySet() {
+    return new EntrySet();
+  }
+
+  /**
+   * Returns a map with the same entries as this one, in constant time
+   * (amortized). Later changes to either map do not affect the other.
+   */
+  public LayeredHashMap fork() {
+    if (!delta.isEmpty()) {
+      int n = size();
+      base = new Layer(delta, base);
+      delta = newLayerMap(0);
+      size = n;
+      if (base.depth > MAX_DEPTH) {
+        flatten();
+        base = new Layer(delta, null);
+        delta = newLayerMap(0);
+      }
+    }
+    LayeredHashMap newMap = new LayeredHashMap(linked);
+    newMap.base = base;
+    newMap.size = size;
+    return newMap;
+  }
+
+  public Object clone() {
+    return fork();
+  }
+
+  /**
+   * Merges the layers into a single private layer without removed entries.
+   */
+  private void flatten() {
+    if (base == null) {
+      return;
+    }
+    List<Map> layers = new ArrayList<Map>();
+    for (Layer layer = base; layer != null; layer = layer.parent) {
+      layers.add(layer.entries);
+    }
+    Map flat = newLayerMap(size);
+    for (int i = layers.size() - 1; i >= 0; --i) {
+      replay(layers.get(i), flat);
+    }
+    replay(delta, flat);
+    base = null;
+    delta = flat;
+  }
+
+  private static void replay(Map layer, Map flat) {
+    for (Iterator iter = layer.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      if (entry.getValue() == REMOVED) {
+        flat.remove(entry.getKey());
+      } else {
+        flat.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private Map newLayerMap(int expectedSize) {
+    int capacity = Math.max(16, (int) (expectedSize / 0.75f) + 1);
+    return linked ? new LinkedHashMap(capacity) : new HashMap(capacity);
+  }
+
+  /**
+   * Returns true if <code>key</code> appears in the private layer or in one
+   * of the first <code>numLayers</code> layers of the chain.
+   */
+  private boolean shadowed(Object key, int numLayers) {
+    if (delta.containsKey(key)) {
+      return true;
+    }
+    Layer layer = base;
+    for (int i = 0; i < numLayers; ++i, layer = layer.parent) {
+      if (layer.entries.containsKey(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private class EntrySet extends AbstractSet {
+    public int size() {
+      return LayeredHashMap.this.size();
+    }
+
+    public boolean contains(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry entry = (Map.Entry) o;
+      Object value = get(entry.getKey());
+      return (value != null) && value.equals(entry.getValue());
+    }
+
+    public Iterator iterator() {
+      if (base == null) {
+        return delta.entrySet().iterator();
+      }
+      return new EntryIterator();
+    }
+
+    public void clear() {
+      LayeredHashMap.this.clear();
+    }
+  }
+
+  /**
+   * Iterates over the oldest layer first, skipping entries that a newer layer
+   * overrides or removes, and ends with the private layer. The private layer
+   * is iterated over through a snapshot of its entries, so that entries can
+   * be removed (by adding removal markers to it) at any point.
+   */
+  private class EntryIterator implements Iterator {
+    EntryIterator() {
+      for (Layer layer = base; layer != null; layer = layer.parent) {
+        layers.add(layer.entries);
+      }
+      layerIndex = layers.size();
+      advance();
+    }
+
+    public boolean hasNext() {
+      return (next != null);
+    }
+
+    public Object next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      current = next;
+      advance();
+      return current;
+    }
+
+    public void remove() {
+      if (current == null) {
+        throw new IllegalStateException();
+      }
+      LayeredHashMap.this.remove(current.getKey());
+      current = null;
+    }
+
+    private void advance() {
+      next = null;
+      while (true) {
+        while ((iter != null) && iter.hasNext()) {
+          Map.Entry entry = (Map.Entry) iter.next();
+          if (entry.getValue() == REMOVED) {
+            continue;
+          }
+          if (layerIndex < 0) {
+            next = entry;
+            return;
+          }
+          if (!shadowed(entry.getKey(), layerIndex)) {
+            next = new Entry(entry.getKey(), entry.getValue());
+            return;
+          }
+        }
+        if (layerIndex < 0) {
+          return;
+        }
+        --layerIndex;
+        if (layerIndex < 0) {
+          iter = new ArrayList(delta.entrySet()).iterator();
+        } else {
+          iter = layers.get(layerIndex).entrySet().iterator();
+        }
+      }
+    }
+
+    private List<Map> layers = new ArrayList<Map>(); // newest first
+    private int layerIndex; // layer of iter, -1 for the private layer
+    private Iterator iter;
+    private Map.Entry next;
+    private Map.Entry current;
+  }
+
+  /**
+   * Entry of a frozen layer; setting its value changes the map, not the
+   * layer.
+   */
+  private class Entry extends DefaultMapEntry {
+    Entry(Object key, Object value) {
+      super(key, value);
+    }
+
+    public Object setValue(Object newValue) {
+      Object oldValue = value;
+      put(key, newValue);
+      value = newValue;
+      return oldValue;
+    }
+  }
+
+  /**
+   * A frozen set of changes on top of an older layer.
+   */
+  private static class Layer {
+    Layer(Map entries, Layer parent) {
+      this.entries = entries;
+      this.parent = parent;
+      this.depth = (parent == null) ? 1 : parent.depth + 1;
+    }
+
+    final Map entries;
+    final Layer parent;
+    final int depth;
+  }
+
+  private static final Object REMOVED = new Object();
+  private static final int MAX_DEPTH = 4;
+
+  private final boolean linked;
+  private Layer base; // shared, never modified
+  private Map delta; // changes made since the last fork
+  private int size; // number of entries, if base is not null
+}
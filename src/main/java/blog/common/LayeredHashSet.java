@@ -0,0 +1,75 @@
+package blog.common;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+/**
+ * A set backed by a {@link LayeredHashMap}, which can be forked in constant
+ * time. If the <code>linked</code> flag is given at construction, iteration
+ * follows insertion order (as in LinkedHashSet) within each layer of the
+ * backing map.
+ *
+ * @since Oct 18, 2026
+ */
+public class LayeredHashSet extends AbstractSet implements Cloneable {
+  /**
+   * Creates an empty set.
+   */
+  public LayeredHashSet() {
+    this(false);
+  }
+
+  /**
+   * Creates an empty set, which iterates in insertion order if
+   * <code>linked</code> is true.
+   */
+  public LayeredHashSet(boolean linked) {
+    this(new LayeredHashMap(linked));
+  }
+
+  private LayeredHashSet(LayeredHashMap map) {
+    this.map = map;
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  public boolean contains(Object o) {
+    return map.containsKey(o);
+  }
+
+  public boolean add(Object o) {
+    if (map.containsKey(o)) {
+      return false;
+    }
+    map.put(o, Boolean.TRUE);
+    return true;
+  }
+
+  public boolean remove(Object o) {
+    return (map.remove(o) != null);
+  }
+
+  public void clear() {
+    map.clear();
+  }
+
+  public Iterator iterator() {
+    return map.keySet().iterator();
+  }
+
+  /**
+   * Returns a set with the same elements as this one, in constant time
+   * (amortized). Later changes to either set do not affect the other.
+   */
+  public LayeredHashSet fork() {
+    return new LayeredHashSet(map.fork());
+  }
+
+  public Object clone() {
+    return fork();
+  }
+
+  private final LayeredHashMap map;
+}
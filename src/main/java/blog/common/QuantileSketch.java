@@ -0,0 +1,313 @@
+package blog.common;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A mergeable sketch of a weighted distribution over real numbers that answers
+ * approximate quantile queries in memory independent of the number of values
+ * added. This is a merging t-digest: values are collected in a buffer, and when
+ * the buffer fills up they are merged with the existing centroids in sorted
+ * order. A centroid may span at most one unit of the scale function
+ * <code>k(q) = compression / (2 pi) asin(2q - 1)</code> of the cumulative
+ * weight fraction q, so there are at most about <code>compression</code>
+ * centroids and the tails are kept at a finer resolution than the middle of
+ * the distribution. The minimum and maximum values are kept exactly.
+ *
+ * Weights are given as log weights, as elsewhere in the samplers. Internally
+ * they are stored relative to a common scale, which is moved up when a much
+ * larger weight arrives.
+ *
+ * @since Oct 18, 2026
+ */
+public class QuantileSketch {
+  /**
+   * Creates an empty sketch with the default compression of 100, which keeps
+   * on the order of a hundred centroids.
+   */
+  public QuantileSketch() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Creates an empty sketch with the given compression. Larger values give
+   * more accurate quantiles at the cost of more centroids.
+   */
+  public QuantileSketch(double compression) {
+    if (compression < 1) {
+      throw new IllegalArgumentException("Compression must be at least 1: "
+          + compression);
+    }
+    this.compression = compression;
+    this.bufferCapacity = (int) Math.ceil(2 * compression);
+  }
+
+  /**
+   * Adds the given value with the given log weight.
+   */
+  public void add(double x, double logWeight) {
+    if (Double.isNaN(x) || logWeight == Double.NEGATIVE_INFINITY) {
+      return;
+    }
+    if (logScale == Double.NEGATIVE_INFINITY) {
+      logScale = logWeight;
+    } else if (logWeight > logScale + MAX_LOG_WEIGHT_ABOVE_SCALE) {
+      rescale(logWeight);
+    }
+    double w = Math.exp(logWeight - logScale);
+    if (w == 0) {
+      return; // negligible next to the weight already in the sketch
+    }
+    if (numBuffered == bufferedMeans.length) {
+      if (numBuffered >= bufferCapacity) {
+        flush();
+      } else {
+        int len = Math.min(bufferCapacity, Math.max(8, 2 * numBuffered));
+        bufferedMeans = grow(bufferedMeans, len);
+        bufferedWeights = grow(bufferedWeights, len);
+      }
+    }
+    bufferedMeans[numBuffered] = x;
+    bufferedWeights[numBuffered] = w;
+    ++numBuffered;
+    totalWeight += w;
+    min = Math.min(min, x);
+    max = Math.max(max, x);
+  }
+
+  /**
+   * Adds everything in <code>other</code> to this sketch.
+   */
+  public void addAll(QuantileSketch other) {
+    for (int i = 0; i < other.numCentroids; ++i) {
+      add(other.means[i], Math.log(other.weights[i]) + other.logScale);
+    }
+    for (int i = 0; i < other.numBuffered; ++i) {
+      add(other.bufferedMeans[i], Math.log(other.bufferedWeights[i])
+          + other.logScale);
+    }
+    if (other.getTotalLogWeight() > Double.NEGATIVE_INFINITY) {
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+    }
+  }
+
+  /**
+   * Removes all values from this sketch.
+   */
+  public void clear() {
+    numCentroids = 0;
+    numBuffered = 0;
+    totalWeight = 0;
+    logScale = Double.NEGATIVE_INFINITY;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Returns the log of the total weight added to this sketch.
+   */
+  public double getTotalLogWeight() {
+    if (totalWeight == 0) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    return Math.log(totalWeight) + logScale;
+  }
+
+  /**
+   * Returns the smallest value added, or NaN if the sketch is empty.
+   */
+  public double getMin() {
+    return (totalWeight == 0) ? Double.NaN : min;
+  }
+
+  /**
+   * Returns the largest value added, or NaN if the sketch is empty.
+   */
+  public double getMax() {
+    return (totalWeight == 0) ? Double.NaN : max;
+  }
+
+  /**
+   * Returns the number of centroids currently summarizing the distribution.
+   */
+  public int numCentroids() {
+    flush();
+    return numCentroids;
+  }
+
+  /**
+   * Returns an estimate of the value below which fraction <code>q</code> of
+   * the weight lies, or NaN if the sketch is empty. The estimate interpolates
+   * linearly between the centroids, which are taken to sit at the middle of
+   * their weight.
+   */
+  public double quantile(double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+    }
+    flush();
+    if (numCentroids == 0) {
+      return Double.NaN;
+    }
+    if (numCentroids == 1) {
+      return means[0];
+    }
+    double target = q * totalWeight;
+    double left = weights[0] / 2;
+    if (target <= left) {
+      return interpolate(min, means[0], target / left);
+    }
+    for (int i = 0; i < numCentroids - 1; ++i) {
+      double right = left + (weights[i] + weights[i + 1]) / 2;
+      if (target <= right) {
+        return interpolate(means[i], means[i + 1], (target - left)
+            / (right - left));
+      }
+      left = right;
+    }
+    double last = weights[numCentroids - 1] / 2;
+    return interpolate(means[numCentroids - 1], max, (target - left) / last);
+  }
+
+  private static double[] grow(double[] array, int length) {
+    double[] grown = new double[length];
+    System.arraycopy(array, 0, grown, 0, array.length);
+    return grown;
+  }
+
+  private static double interpolate(double a, double b, double t) {
+    return a + Math.max(0, Math.min(1, t)) * (b - a);
+  }
+
+  /**
+   * Multiplies every stored weight so that they are relative to
+   * <code>newScale</code>.
+   */
+  private void rescale(double newScale) {
+    double factor = Math.exp(logScale - newScale);
+    for (int i = 0; i < numCentroids; ++i) {
+      weights[i] *= factor;
+    }
+    for (int i = 0; i < numBuffered; ++i) {
+      bufferedWeights[i] *= factor;
+    }
+    totalWeight *= factor;
+    logScale = newScale;
+  }
+
+  /**
+   * Merges the buffered values into the centroids.
+   */
+  private void flush() {
+    if (numBuffered == 0) {
+      return;
+    }
+    sortBuffer();
+
+    // merge the sorted centroids and buffer, compressing as we go
+    int n = numCentroids + numBuffered;
+    double[] newMeans = new double[Math.max(8, n)];
+    double[] newWeights = new double[newMeans.length];
+    int m = 0;
+    double weightSoFar = 0;
+    double curMean = 0;
+    double curWeight = 0;
+    int i = 0;
+    int j = 0;
+    while (i < numCentroids || j < numBuffered) {
+      double x;
+      double w;
+      if (j == numBuffered
+          || (i < numCentroids && means[i] <= bufferedMeans[j])) {
+        x = means[i];
+        w = weights[i];
+        ++i;
+      } else {
+        x = bufferedMeans[j];
+        w = bufferedWeights[j];
+        ++j;
+      }
+      if (curWeight == 0) {
+        curMean = x;
+        curWeight = w;
+        continue;
+      }
+      double proposed = curWeight + w;
+      double q0 = weightSoFar / totalWeight;
+      double q2 = (weightSoFar + proposed) / totalWeight;
+      if (scale(q2) - scale(q0) <= 1) {
+        curMean += (x - curMean) * w / proposed;
+        curWeight = proposed;
+      } else {
+        newMeans[m] = curMean;
+        newWeights[m] = curWeight;
+        ++m;
+        weightSoFar += curWeight;
+        curMean = x;
+        curWeight = w;
+      }
+    }
+    newMeans[m] = curMean;
+    newWeights[m] = curWeight;
+    ++m;
+
+    means = newMeans;
+    weights = newWeights;
+    numCentroids = m;
+    numBuffered = 0;
+  }
+
+  /**
+   * The t-digest scale function k1: a centroid may span at most one unit of
+   * it.
+   */
+  private double scale(double q) {
+    return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+  }
+
+  private void sortBuffer() {
+    Integer[] order = new Integer[numBuffered];
+    for (int i = 0; i < numBuffered; ++i) {
+      order[i] = i;
+    }
+    final double[] keys = bufferedMeans;
+    Arrays.sort(order, new Comparator<Integer>() {
+      public int compare(Integer a, Integer b) {
+        return Double.compare(keys[a], keys[b]);
+      }
+    });
+    double[] sortedMeans = new double[bufferedMeans.length];
+    double[] sortedWeights = new double[bufferedWeights.length];
+    for (int i = 0; i < numBuffered; ++i) {
+      sortedMeans[i] = bufferedMeans[order[i]];
+      sortedWeights[i] = bufferedWeights[order[i]];
+    }
+    bufferedMeans = sortedMeans;
+    bufferedWeights = sortedWeights;
+  }
+
+  public static final double DEFAULT_COMPRESSION = 100;
+
+  /**
+   * How far above the current scale a log weight may be before the stored
+   * weights are rescaled, keeping them well within double range.
+   */
+  private static final double MAX_LOG_WEIGHT_ABOVE_SCALE = 100;
+
+  private final double compression;
+  private final int bufferCapacity;
+
+  private double[] means = new double[0]; // sorted
+  private double[] weights = new double[0];
+  private int numCentroids = 0;
+
+  private double[] bufferedMeans = new double[0];
+  private double[] bufferedWeights = new double[0];
+  private int numBuffered = 0;
+
+  private double totalWeight = 0; // relative to logScale
+  private double logScale = Double.NEGATIVE_INFINITY;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+}
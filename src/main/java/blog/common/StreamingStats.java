@@ -0,0 +1,216 @@
+package blog.common;
+
+import blog.common.numerical.MatrixLib;
+
+/**
+ * Weighted running statistics of real numbers or real matrices, kept in memory
+ * that does not grow with the number of values added. For every element (a
+ * single one for numbers), the class keeps the weighted mean and variance,
+ * updated with West's incremental formulas, and a {@link QuantileSketch}.
+ *
+ * <p>
+ * The first value added fixes the shape: later values must be numbers if it
+ * was a number, or matrices of the same dimensions if it was a matrix. Values
+ * that do not fit are rejected by <code>add</code>, so the caller can record
+ * them some other way.
+ *
+ * @since Oct 18, 2026
+ */
+public class StreamingStats {
+  /**
+   * Adds the given value with the given log weight. Returns false, leaving the
+   * statistics unchanged, if the value is not a number or a matrix of the
+   * shape seen so far.
+   */
+  public boolean add(Object value, double logWeight) {
+    if (value instanceof Number) {
+      if (!ensureShape(false, 1, 1)) {
+        return false;
+      }
+      if (logWeight == Double.NEGATIVE_INFINITY) {
+        return true;
+      }
+      double newTotal = Util.logSum(totalLogWeight, logWeight);
+      update(0, ((Number) value).doubleValue(), logWeight, newTotal);
+      totalLogWeight = newTotal;
+      return true;
+    }
+    if (value instanceof MatrixLib) {
+      MatrixLib m = (MatrixLib) value;
+      if (!ensureShape(true, m.numRows(), m.numCols())) {
+        return false;
+      }
+      if (logWeight == Double.NEGATIVE_INFINITY) {
+        return true;
+      }
+      double newTotal = Util.logSum(totalLogWeight, logWeight);
+      for (int i = 0; i < rows; ++i) {
+        for (int j = 0; j < cols; ++j) {
+          update(i * cols + j, m.elementAt(i, j), logWeight, newTotal);
+        }
+      }
+      totalLogWeight = newTotal;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Adds everything recorded in <code>other</code> to these statistics. Does
+   * nothing if the two have different shapes.
+   */
+  public void addAll(StreamingStats other) {
+    if (other.totalLogWeight == Double.NEGATIVE_INFINITY
+        || !ensureShape(other.matrix, other.rows, other.cols)) {
+      return;
+    }
+    double newTotal = Util.logSum(totalLogWeight, other.totalLogWeight);
+    double frac = Math.exp(other.totalLogWeight - newTotal);
+    for (int k = 0; k < means.length; ++k) {
+      double delta = other.means[k] - means[k];
+      means[k] += frac * delta;
+      variances[k] = (1 - frac) * variances[k] + frac * other.variances[k]
+          + frac * (1 - frac) * delta * delta;
+      sketches[k].addAll(other.sketches[k]);
+    }
+    totalLogWeight = newTotal;
+  }
+
+  /**
+   * Removes all values, also forgetting the shape.
+   */
+  public void clear() {
+    means = null;
+    variances = null;
+    sketches = null;
+    totalLogWeight = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Returns the log of the total weight of the values added.
+   */
+  public double getTotalLogWeight() {
+    return totalLogWeight;
+  }
+
+  /**
+   * Returns true if no values have been added.
+   */
+  public boolean isEmpty() {
+    return totalLogWeight == Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Returns true if the values added are matrices.
+   */
+  public boolean isMatrix() {
+    return matrix;
+  }
+
+  public int numRows() {
+    return rows;
+  }
+
+  public int numCols() {
+    return cols;
+  }
+
+  /**
+   * Returns the weighted mean of element (i, j); (0, 0) for numbers.
+   */
+  public double getMean(int i, int j) {
+    return means[i * cols + j];
+  }
+
+  /**
+   * Returns the weighted variance of element (i, j); (0, 0) for numbers.
+   */
+  public double getVariance(int i, int j) {
+    return variances[i * cols + j];
+  }
+
+  /**
+   * Returns an estimate of quantile <code>q</code> of element (i, j); (0, 0)
+   * for numbers.
+   */
+  public double getQuantile(int i, int j, double q) {
+    return sketches[i * cols + j].quantile(q);
+  }
+
+  /**
+   * Returns the weighted mean of every element, as a numRows() by numCols()
+   * array.
+   */
+  public double[][] getMeans() {
+    return toArray(means);
+  }
+
+  /**
+   * Returns the weighted variance of every element, as a numRows() by
+   * numCols() array.
+   */
+  public double[][] getVariances() {
+    return toArray(variances);
+  }
+
+  /**
+   * Returns an estimate of quantile <code>q</code> of every element, as a
+   * numRows() by numCols() array.
+   */
+  public double[][] getQuantiles(double q) {
+    double[] values = new double[sketches.length];
+    for (int k = 0; k < values.length; ++k) {
+      values[k] = sketches[k].quantile(q);
+    }
+    return toArray(values);
+  }
+
+  private double[][] toArray(double[] values) {
+    double[][] result = new double[rows][cols];
+    for (int i = 0; i < rows; ++i) {
+      System.arraycopy(values, i * cols, result[i], 0, cols);
+    }
+    return result;
+  }
+
+  /**
+   * Moves the mean and variance of element k towards x, which brings the total
+   * weight from totalLogWeight to newTotal.
+   */
+  private void update(int k, double x, double logWeight, double newTotal) {
+    double frac = Math.exp(logWeight - newTotal);
+    double delta = x - means[k];
+    means[k] += frac * delta;
+    variances[k] = (1 - frac) * (variances[k] + frac * delta * delta);
+    sketches[k].add(x, logWeight);
+  }
+
+  /**
+   * Sets the shape if no values have been added yet; otherwise returns true
+   * if it matches the given one.
+   */
+  private boolean ensureShape(boolean matrix, int rows, int cols) {
+    if (means != null) {
+      return (this.matrix == matrix) && (this.rows == rows)
+          && (this.cols == cols);
+    }
+    this.matrix = matrix;
+    this.rows = rows;
+    this.cols = cols;
+    means = new double[rows * cols];
+    variances = new double[rows * cols];
+    sketches = new QuantileSketch[rows * cols];
+    for (int k = 0; k < sketches.length; ++k) {
+      sketches[k] = new QuantileSketch();
+    }
+    return true;
+  }
+
+  private boolean matrix = false;
+  private int rows = 0;
+  private int cols = 0;
+  private double[] means; // row-major, null until the shape is known
+  private double[] variances;
+  private QuantileSketch[] sketches;
+  private double totalLogWeight = Double.NEGATIVE_INFINITY;
+}
@@ -49,11 +49,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
-import java.util.Random;
 import java.util.Set;
 
 import org.apache.commons.math3.util.ArithmeticUtils;
 
+import blog.common.random.RandomStream;
+
 /**
  * Provides common utilities to FOMIE programs.
  * Original created by
@@ -65,23 +66,81 @@ import org.apache.commons.math3.util.ArithmeticUtils;
  */
 public class Util {
   /**
-   * Initializes random number generator in the default random context (see
-   * {@link #pushRandomContext(String)}) using either the clock time or a fixed
-   * seed. If the fixed seed is used, the behavior of the default random context
-   * will be repeatable across runs.
+   * The seed used for repeatable runs, when the clock time is not used.
+   */
+  public static final long DEFAULT_SEED = 0xad527c2b74e10cb3L;
+
+  /**
+   * Initializes the master random stream using either the clock time or a
+   * fixed seed, with the default generator ({@link RandomStream#JAVA}). If the
+   * fixed seed is used, the behavior of the program will be repeatable across
+   * runs.
    * 
    * @param randomize
    *          set seed using clock time rather than fixed value
    */
   public static void initRandom(boolean randomize) {
+    initRandom(randomize, RandomStream.JAVA);
+  }
+
+  /**
+   * Same as {@link #initRandom(boolean)}, but with the named generator (see
+   * {@link RandomStream#make(String, long)}).
+   */
+  public static void initRandom(boolean randomize, String generator) {
+    long seed;
     if (randomize) {
-      long seed = System.currentTimeMillis();
+      seed = System.currentTimeMillis();
       System.out.println("Using clock time " + seed + " as random seed.");
-      rand = new Random(seed);
     } else {
       System.out.println("Using fixed random seed for repeatability.");
-      rand = new Random(0xad527c2b74e10cb3L);
+      seed = DEFAULT_SEED;
+    }
+    initRandom(generator, seed);
+  }
+
+  /**
+   * Initializes the master random stream with the named generator and the
+   * given seed, and detaches the calling thread from any stream set with
+   * {@link #setRandomStream(RandomStream)}.
+   */
+  public static void initRandom(String generator, long seed) {
+    rand = RandomStream.make(generator, seed);
+    threadRand.remove();
+  }
+
+  /**
+   * Returns the random stream used by the calling thread: the one installed
+   * with {@link #setRandomStream(RandomStream)} if any, and the master stream
+   * otherwise. All the sampling methods of this class draw from it.
+   */
+  public static RandomStream getRandomStream() {
+    RandomStream stream = threadRand.get();
+    return (stream != null) ? stream : rand;
+  }
+
+  /**
+   * Makes the calling thread draw from <code>stream</code> until this method is
+   * called again; <code>null</code> reverts to the master stream. Returns the
+   * stream that was previously installed (possibly <code>null</code>), so
+   * callers can restore it.
+   */
+  public static RandomStream setRandomStream(RandomStream stream) {
+    RandomStream previous = threadRand.get();
+    if (stream == null) {
+      threadRand.remove();
+    } else {
+      threadRand.set(stream);
     }
+    return previous;
+  }
+
+  /**
+   * Returns a new stream split off the calling thread's stream (see
+   * {@link RandomStream#split()}).
+   */
+  public static RandomStream splitRandomStream() {
+    return getRandomStream().split();
   }
 
   /**
@@ -105,7 +164,7 @@ public class Util {
    * This method must not be called before initRandom() is called.
    */
   public static double random() {
-    return rand.nextDouble(); // null pointer exception if not initialized
+    return getRandomStream().nextDouble(); // NPE if not initialized
   }
 
   /**
@@ -113,7 +172,7 @@ public class Util {
    * n > 0
    */
   public static int randInt(int n) {
-    return rand.nextInt(n);
+    return getRandomStream().nextInt(n);
   }
 
   /**
@@ -121,7 +180,7 @@ public class Util {
    * This method must not be called before initRandom() is called.
    */
   public static double randGaussian() {
-    return rand.nextGaussian();
+    return getRandomStream().nextGaussian();
   }
 
   /** Returns the sum of an array of doubles. */
@@ -1103,7 +1162,8 @@ public class Util {
     return newAry;
   }
 
-  private static Random rand;
+  private static RandomStream rand;
+  private static final ThreadLocal<RandomStream> threadRand = new ThreadLocal<RandomStream>();
   private static boolean verbose = false;
   private static boolean print = false;
 
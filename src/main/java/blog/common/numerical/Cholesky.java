@@ -0,0 +1,245 @@
+package blog.common.numerical;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import blog.common.IdentityCache;
+
+/**
+ * The Cholesky factorization <code>A = L L'</code> of a symmetric positive
+ * definite matrix, together with what distributions derive from it: the log
+ * determinant, quadratic forms <code>x' A^-1 x</code> computed by triangular
+ * solves, and (on demand) the inverse. Instances are immutable.
+ *
+ * <p>
+ * Factorizations are cached, since the same covariance matrix is typically
+ * passed to many distributions. {@link #of(MatrixLib)} first looks up the
+ * matrix by identity and then by content, so equal matrices built
+ * separately share one factorization too. Callers must not modify a matrix
+ * after it has been factorized. {@link #factor(MatrixLib)} bypasses the
+ * cache.
+ *
+ * @since Oct 18, 2026
+ */
+public class Cholesky {
+  /**
+   * Returns the factorization of <code>a</code>, from the cache if possible.
+   * Only the lower triangle of <code>a</code> is read; symmetry is up to the
+   * caller to check.
+   *
+   * @throws IllegalArgumentException
+   *           if <code>a</code> is not square and positive definite
+   */
+  public static Cholesky of(MatrixLib a) {
+    Cholesky result = BY_IDENTITY.get(a);
+    if (result != null) {
+      return result;
+    }
+    ContentKey key = new ContentKey(a);
+    synchronized (BY_CONTENT) {
+      result = BY_CONTENT.get(key);
+    }
+    if (result == null) {
+      result = new Cholesky(key.rows, key.values);
+      synchronized (BY_CONTENT) {
+        BY_CONTENT.put(key, result);
+      }
+    }
+    BY_IDENTITY.put(a, result);
+    return result;
+  }
+
+  /**
+   * Returns a new factorization of <code>a</code>, without looking it up in or
+   * adding it to the cache. This suits matrices seen only once, such as the
+   * values of a matrix-valued variable, which would otherwise crowd out the
+   * parameters worth caching.
+   *
+   * @throws IllegalArgumentException
+   *           if <code>a</code> is not square and positive definite
+   */
+  public static Cholesky factor(MatrixLib a) {
+    ContentKey key = new ContentKey(a);
+    return new Cholesky(key.rows, key.values);
+  }
+
+  private Cholesky(int n, double[] a) {
+    this.n = n;
+    l = new double[n * n];
+    double logDet = 0;
+    for (int j = 0; j < n; j++) {
+      double d = a[j * n + j];
+      for (int k = 0; k < j; k++) {
+        d -= l[j * n + k] * l[j * n + k];
+      }
+      if (!(d > 0)) {
+        throw new IllegalArgumentException(
+            "Matrix is not positive definite");
+      }
+      double ljj = Math.sqrt(d);
+      l[j * n + j] = ljj;
+      logDet += 2 * Math.log(ljj);
+      for (int i = j + 1; i < n; i++) {
+        double s = a[i * n + j];
+        for (int k = 0; k < j; k++) {
+          s -= l[i * n + k] * l[j * n + k];
+        }
+        l[i * n + j] = s / ljj;
+      }
+    }
+    this.logDet = logDet;
+  }
+
+  /**
+   * Returns the dimension of the factorized matrix.
+   */
+  public int size() {
+    return n;
+  }
+
+  /**
+   * Returns the log determinant of the factorized matrix.
+   */
+  public double logDet() {
+    return logDet;
+  }
+
+  /**
+   * Returns the lower triangular factor L as a new matrix.
+   */
+  public MatrixLib getFactor() {
+    double[][] result = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(l, i * n, result[i], 0, i + 1);
+    }
+    return MatrixFactory.fromArray(result);
+  }
+
+  /**
+   * Returns <code>mean + L z</code> for the column vector <code>z</code>,
+   * given as an array. If <code>z</code> holds independent standard normal
+   * draws, this is a sample from the Gaussian with the given mean and the
+   * factorized matrix as covariance.
+   */
+  public MatrixLib transform(MatrixLib mean, double[] z) {
+    double[][] result = new double[n][1];
+    for (int i = 0; i < n; i++) {
+      double s = mean.elementAt(i, 0);
+      for (int k = 0; k <= i; k++) {
+        s += l[i * n + k] * z[k];
+      }
+      result[i][0] = s;
+    }
+    return MatrixFactory.fromArray(result);
+  }
+
+  /**
+   * Returns <code>(x - mean)' A^-1 (x - mean)</code> for column vectors
+   * <code>x</code> and <code>mean</code>, solving <code>L y = x - mean</code>
+   * by forward substitution instead of forming the inverse.
+   */
+  public double quadraticForm(MatrixLib x, MatrixLib mean) {
+    double[] y = new double[n];
+    double result = 0;
+    for (int i = 0; i < n; i++) {
+      double s = x.elementAt(i, 0) - mean.elementAt(i, 0);
+      for (int k = 0; k < i; k++) {
+        s -= l[i * n + k] * y[k];
+      }
+      y[i] = s / l[i * n + i];
+      result += y[i] * y[i];
+    }
+    return result;
+  }
+
+  /**
+   * Returns the inverse of the factorized matrix, computed from L the first
+   * time it is requested. The returned matrix must not be modified.
+   */
+  public MatrixLib inverse() {
+    MatrixLib result = inverse;
+    if (result == null) {
+      // M = L^-1, lower triangular
+      double[] m = new double[n * n];
+      for (int j = 0; j < n; j++) {
+        m[j * n + j] = 1 / l[j * n + j];
+        for (int i = j + 1; i < n; i++) {
+          double s = 0;
+          for (int k = j; k < i; k++) {
+            s -= l[i * n + k] * m[k * n + j];
+          }
+          m[i * n + j] = s / l[i * n + i];
+        }
+      }
+      // A^-1 = M' M
+      double[][] inv = new double[n][n];
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j <= i; j++) {
+          double s = 0;
+          for (int k = i; k < n; k++) {
+            s += m[k * n + i] * m[k * n + j];
+          }
+          inv[i][j] = s;
+          inv[j][i] = s;
+        }
+      }
+      result = MatrixFactory.fromArray(inv);
+      inverse = result;
+    }
+    return result;
+  }
+
+  /**
+   * The contents of a square matrix, compared by value.
+   */
+  private static class ContentKey {
+    ContentKey(MatrixLib a) {
+      rows = a.numRows();
+      if (a.numCols() != rows || rows == 0) {
+        throw new IllegalArgumentException("Matrix is not square: " + rows
+            + " by " + a.numCols());
+      }
+      values = new double[rows * rows];
+      for (int i = 0; i < rows; i++) {
+        for (int j = 0; j < rows; j++) {
+          values[i * rows + j] = a.elementAt(i, j);
+        }
+      }
+      hash = Arrays.hashCode(values);
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof ContentKey)) {
+        return false;
+      }
+      ContentKey other = (ContentKey) o;
+      return (hash == other.hash) && Arrays.equals(values, other.values);
+    }
+
+    public int hashCode() {
+      return hash;
+    }
+
+    final int rows;
+    final double[] values;
+    final int hash;
+  }
+
+  private final int n;
+  private final double[] l; // row-major, lower triangle only
+  private final double logDet;
+  private volatile MatrixLib inverse = null;
+
+  private static final int CACHE_SIZE = 64;
+
+  private static final IdentityCache<MatrixLib, Cholesky> BY_IDENTITY = new IdentityCache<MatrixLib, Cholesky>(
+      256);
+
+  private static final Map<ContentKey, Cholesky> BY_CONTENT = new LinkedHashMap<ContentKey, Cholesky>(
+      16, 0.75f, true) {
+    protected boolean removeEldestEntry(Map.Entry<ContentKey, Cholesky> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+}
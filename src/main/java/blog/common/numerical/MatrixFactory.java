@@ -5,7 +5,9 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import blog.common.Util;
 
@@ -214,6 +216,65 @@ public class MatrixFactory {
     return fromArray(result);
   }
 
+  /**
+   * Reads a matrix from a file: a numpy <code>.npy</code> file if the name
+   * ends with <code>.npy</code>, and a space-separated text file otherwise.
+   * Matrices are cached by file name.
+   */
+  static public MatrixLib load(String filename) {
+    return isNpy(filename) ? fromNpy(filename) : fromTxt(filename);
+  }
+
+  /**
+   * Reads rows <code>lo</code> to <code>hi</code> (inclusive) of the matrix in
+   * a file, as {@link #load(String)}. From a .npy file that is not cached
+   * whole, only the given rows are read.
+   */
+  static public MatrixLib loadRows(String filename, int lo, int hi) {
+    MatrixLib mat = cached(filename);
+    if (mat != null) {
+      return mat.sliceRows(lo, hi);
+    }
+    if (isNpy(filename)) {
+      NpyFile npy = mapNpy(filename);
+      return npy.read(lo, 0, hi, npy.numCols() - 1);
+    }
+    return fromTxt(filename).sliceRows(lo, hi);
+  }
+
+  /**
+   * Reads the submatrix from row <code>x1</code> and column <code>y1</code> to
+   * row <code>x2</code> and column <code>y2</code> (inclusive) of the matrix
+   * in a file, as {@link #load(String)}. From a .npy file that is not cached
+   * whole, only the submatrix is read.
+   */
+  static public MatrixLib loadSub(String filename, int x1, int y1, int x2,
+      int y2) {
+    MatrixLib mat = cached(filename);
+    if (mat != null) {
+      return mat.subMat(x1, y1, x2, y2);
+    }
+    if (isNpy(filename)) {
+      return mapNpy(filename).read(x1, y1, x2, y2);
+    }
+    return fromTxt(filename).subMat(x1, y1, x2, y2);
+  }
+
+  /**
+   * Read matrix from a numpy .npy file; see {@link NpyFile}.
+   */
+  static public MatrixLib fromNpy(String filename) {
+    MatrixLib mat = cached(filename);
+    if (mat == null) {
+      NpyFile npy = mapNpy(filename);
+      mat = npy.read(0, 0, npy.numRows() - 1, npy.numCols() - 1);
+      Util.debug("Loaded ", mat.numRows(), "x", mat.numCols(),
+          " matrix from ", filename);
+      cache(filename, mat);
+    }
+    return mat;
+  }
+
   /**
    * Read matrix from space-separated text file.
    * 
@@ -222,8 +283,9 @@ public class MatrixFactory {
    */
   static public MatrixLib fromTxt(String filename) {
     // Do Caching for matrix loading from Disk
-    if (MatCache.containsKey(filename))
-      return MatCache.get(filename);
+    MatrixLib cachedMat = cached(filename);
+    if (cachedMat != null)
+      return cachedMat;
 
     ArrayList<ArrayList<Double>> rows = new ArrayList<ArrayList<Double>>();
     try {
@@ -266,9 +328,80 @@ public class MatrixFactory {
     Util.debug("Loaded ", result.length, "x", result[0].length,
         " matrix from ", filename);
     MatrixLib mat = fromArray(result);
-    MatCache.put(filename, mat);
+    cache(filename, mat);
     return mat;
   }
 
-  private static final HashMap<String, MatrixLib> MatCache = new HashMap<String, MatrixLib>();
+  /**
+   * Sets the number of matrix elements the cache of matrices read from files
+   * may hold (2^24 by default, or 128 MB), evicting the least recently used
+   * matrices if needed. A matrix larger than the whole cache is not cached.
+   */
+  static synchronized public void setCacheCapacity(long numElements) {
+    cacheCapacity = numElements;
+    evict();
+  }
+
+  /**
+   * Returns the number of matrix elements in the cache of matrices read from
+   * files.
+   */
+  static synchronized public long getCacheSize() {
+    return cacheSize;
+  }
+
+  private static boolean isNpy(String filename) {
+    return filename.endsWith(".npy");
+  }
+
+  private static synchronized MatrixLib cached(String filename) {
+    return matCache.get(filename);
+  }
+
+  private static synchronized void cache(String filename, MatrixLib mat) {
+    if ((long) mat.numRows() * mat.numCols() > cacheCapacity) {
+      return;
+    }
+    MatrixLib old = matCache.put(filename, mat);
+    if (old != null) {
+      cacheSize -= (long) old.numRows() * old.numCols();
+    }
+    cacheSize += (long) mat.numRows() * mat.numCols();
+    evict();
+  }
+
+  private static void evict() {
+    Iterator<MatrixLib> iter = matCache.values().iterator();
+    while (cacheSize > cacheCapacity && iter.hasNext()) {
+      MatrixLib mat = iter.next();
+      cacheSize -= (long) mat.numRows() * mat.numCols();
+      iter.remove();
+    }
+  }
+
+  private static synchronized NpyFile mapNpy(String filename) {
+    NpyFile npy = npyCache.get(filename);
+    if (npy == null) {
+      npy = NpyFile.map(filename);
+      npyCache.put(filename, npy);
+    }
+    return npy;
+  }
+
+  private static long cacheCapacity = 1L << 24;
+  private static long cacheSize = 0;
+
+  /** Matrices read from files, least recently used first. */
+  private static final LinkedHashMap<String, MatrixLib> matCache = new LinkedHashMap<String, MatrixLib>(
+      16, 0.75f, true);
+
+  private static final int NPY_CACHE_SIZE = 16;
+
+  /** Mapped .npy files, for reading slices. */
+  private static final Map<String, NpyFile> npyCache = new LinkedHashMap<String, NpyFile>(
+      16, 0.75f, true) {
+    protected boolean removeEldestEntry(Map.Entry<String, NpyFile> eldest) {
+      return size() > NPY_CACHE_SIZE;
+    }
+  };
 }
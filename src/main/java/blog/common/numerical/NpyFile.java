@@ -0,0 +1,159 @@
+package blog.common.numerical;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A matrix of doubles stored in numpy's binary <code>.npy</code> format,
+ * memory-mapped rather than read. Reading a row or a sub-matrix only touches
+ * the pages holding it, so a slice of a large file costs about as much as the
+ * slice itself.
+ *
+ * Only float64 arrays (<code>'&lt;f8'</code> or <code>'&gt;f8'</code>) of one
+ * or two dimensions are supported; a one-dimensional array is read as a
+ * column vector, as <code>savetxt</code> would write it.
+ *
+ * To save in this format from numpy: save('a.npy', a)
+ *
+ * @since Oct 18, 2026
+ */
+final class NpyFile {
+  /**
+   * Maps the given file.
+   *
+   * @throws IllegalArgumentException
+   *           if the file cannot be read or is not a supported .npy file
+   */
+  static NpyFile map(String filename) {
+    try {
+      RandomAccessFile file = new RandomAccessFile(filename, "r");
+      try {
+        FileChannel channel = file.getChannel();
+        if (channel.size() > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("File " + filename
+              + " is too large to map");
+        }
+        ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+            channel.size());
+        return new NpyFile(filename, buf);
+      } finally {
+        file.close(); // the mapping stays valid
+      }
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File " + filename + " not found");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Error reading " + filename);
+    }
+  }
+
+  private NpyFile(String filename, ByteBuffer buf) {
+    buf.order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (buf.remaining() == 0 || buf.get() != MAGIC[i]) {
+        throw new IllegalArgumentException(filename + " is not a .npy file");
+      }
+    }
+    int major = buf.get();
+    buf.get(); // minor version
+    int headerLen = (major == 1) ? (buf.getShort() & 0xffff) : buf.getInt();
+    byte[] headerBytes = new byte[headerLen];
+    buf.get(headerBytes);
+    String header;
+    try {
+      header = new String(headerBytes, "ISO-8859-1");
+    } catch (java.io.UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+
+    String descr = field(header, DESCR, filename);
+    if (!descr.equals("<f8") && !descr.equals(">f8")) {
+      throw new IllegalArgumentException(filename + " holds " + descr
+          + " values; only float64 matrices are supported");
+    }
+    fortranOrder = field(header, FORTRAN_ORDER, filename).equals("True");
+    String[] dims = field(header, SHAPE, filename).split(",");
+    if (dims.length == 1 && dims[0].trim().length() > 0) {
+      rows = Integer.parseInt(dims[0].trim());
+      cols = 1;
+    } else if (dims.length == 2 && dims[1].trim().length() > 0) {
+      rows = Integer.parseInt(dims[0].trim());
+      cols = Integer.parseInt(dims[1].trim());
+    } else {
+      throw new IllegalArgumentException(filename
+          + " does not hold a vector or a matrix");
+    }
+    if (rows == 0 || cols == 0) {
+      throw new IllegalArgumentException("Tried to read an empty matrix");
+    }
+
+    ByteBuffer payload = buf.slice();
+    payload.order(descr.charAt(0) == '<' ? ByteOrder.LITTLE_ENDIAN
+        : ByteOrder.BIG_ENDIAN);
+    data = payload.asDoubleBuffer();
+    if (data.capacity() < (long) rows * cols) {
+      throw new IllegalArgumentException(filename + " is truncated");
+    }
+  }
+
+  private static String field(String header, Pattern pattern, String filename) {
+    Matcher m = pattern.matcher(header);
+    if (!m.find()) {
+      throw new IllegalArgumentException("Could not parse header of "
+          + filename);
+    }
+    return m.group(1);
+  }
+
+  int numRows() {
+    return rows;
+  }
+
+  int numCols() {
+    return cols;
+  }
+
+  /**
+   * Reads the sub-matrix from row <code>x1</code> and column <code>y1</code>
+   * to row <code>x2</code> and column <code>y2</code>, inclusive.
+   */
+  MatrixLib read(int x1, int y1, int x2, int y2) {
+    if (x1 < 0 || y1 < 0 || x2 >= rows || y2 >= cols || x1 > x2 || y1 > y2) {
+      throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+    }
+    double[][] result = new double[x2 - x1 + 1][y2 - y1 + 1];
+    for (int r = x1; r <= x2; r++) {
+      double[] row = result[r - x1];
+      if (fortranOrder) {
+        for (int c = y1; c <= y2; c++) {
+          row[c - y1] = data.get(c * rows + r);
+        }
+      } else {
+        int offset = r * cols;
+        for (int c = y1; c <= y2; c++) {
+          row[c - y1] = data.get(offset + c);
+        }
+      }
+    }
+    return MatrixFactory.fromArray(result);
+  }
+
+  private static final byte[] MAGIC = { (byte) 0x93, 'N', 'U', 'M', 'P', 'Y' };
+  private static final Pattern DESCR = Pattern
+      .compile("'descr'\\s*:\\s*'([^']*)'");
+  private static final Pattern FORTRAN_ORDER = Pattern
+      .compile("'fortran_order'\\s*:\\s*(True|False)");
+  private static final Pattern SHAPE = Pattern
+      .compile("'shape'\\s*:\\s*\\(([^)]*)\\)");
+
+  private final int rows;
+  private final int cols;
+  private final boolean fortranOrder;
+  private final DoubleBuffer data; // absolute gets only, so safe to share
+}
@@ -0,0 +1,39 @@
+package blog.common.random;
+
+import java.util.Random;
+
+/**
+ * A {@link RandomStream} backed by {@link java.util.Random}. This is the
+ * default generator; given the same seed it produces exactly the draws BLOG
+ * produced before streams were introduced.
+ * 
+ * @since Oct 18, 2026
+ */
+public class JavaRandomStream extends RandomStream {
+
+  public JavaRandomStream(long seed) {
+    rand = new Random(seed);
+  }
+
+  public long nextLong() {
+    return rand.nextLong();
+  }
+
+  public double nextDouble() {
+    return rand.nextDouble();
+  }
+
+  public int nextInt(int n) {
+    return rand.nextInt(n);
+  }
+
+  public double nextGaussian() {
+    return rand.nextGaussian();
+  }
+
+  public RandomStream split() {
+    return new JavaRandomStream(mix64(rand.nextLong()));
+  }
+
+  private Random rand;
+}
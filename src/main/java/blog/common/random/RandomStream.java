@@ -0,0 +1,111 @@
+package blog.common.random;
+
+/**
+ * A stream of pseudorandom numbers. Unlike a single shared
+ * {@link java.util.Random}, streams are meant to be owned by one thread (or
+ * one particle, or one chain) at a time, and new independent streams are
+ * derived from an existing one with {@link #split()}. Deriving all streams
+ * from one master stream in a fixed order makes a run reproducible no matter
+ * how the streams are later scheduled across threads.
+ * 
+ * Subclasses only have to provide {@link #nextLong()} and {@link #split()};
+ * the other methods are derived from the 64-bit output.
+ * 
+ * @since Oct 18, 2026
+ */
+public abstract class RandomStream {
+
+  /** Name of the generator backed by {@link java.util.Random}. */
+  public static final String JAVA = "java";
+
+  /** Name of the {@link SplitMix64} generator. */
+  public static final String SPLITMIX = "splitmix";
+
+  /** Name of the {@link Xoroshiro128Plus} generator. */
+  public static final String XOROSHIRO = "xoroshiro";
+
+  /**
+   * Creates a stream of the named generator, seeded with <code>seed</code>.
+   * Known names are {@link #JAVA}, {@link #SPLITMIX} and {@link #XOROSHIRO}.
+   * 
+   * @throws IllegalArgumentException
+   *           if the name is unknown
+   */
+  public static RandomStream make(String generator, long seed) {
+    if (JAVA.equals(generator)) {
+      return new JavaRandomStream(seed);
+    } else if (SPLITMIX.equals(generator)) {
+      return new SplitMix64(seed);
+    } else if (XOROSHIRO.equals(generator)) {
+      return new Xoroshiro128Plus(seed);
+    }
+    throw new IllegalArgumentException("Unknown random generator: "
+        + generator + " (expected " + JAVA + ", " + SPLITMIX + " or "
+        + XOROSHIRO + ")");
+  }
+
+  /** Returns the next 64 pseudorandom bits. */
+  public abstract long nextLong();
+
+  /**
+   * Returns a new stream whose output is statistically independent of this
+   * one. Advances this stream.
+   */
+  public abstract RandomStream split();
+
+  /** Returns a pseudorandom number uniformly distributed in [0, 1). */
+  public double nextDouble() {
+    return (nextLong() >>> 11) * DOUBLE_UNIT;
+  }
+
+  /**
+   * Returns a pseudorandom integer sampled uniformly from {0, ..., n-1}.
+   * Assumes n > 0.
+   */
+  public int nextInt(int n) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("bound must be positive");
+    }
+    // Rejection sampling on 31-bit values avoids modulo bias.
+    int bits, val;
+    do {
+      bits = (int) (nextLong() >>> 33);
+      val = bits % n;
+    } while (bits - val + (n - 1) < 0);
+    return val;
+  }
+
+  /** Returns a pseudorandom number sampled from a standard Gaussian. */
+  public double nextGaussian() {
+    if (haveNextGaussian) {
+      haveNextGaussian = false;
+      return nextGaussian;
+    }
+    // Marsaglia polar method; the second deviate is kept for the next call.
+    double v1, v2, s;
+    do {
+      v1 = 2 * nextDouble() - 1;
+      v2 = 2 * nextDouble() - 1;
+      s = v1 * v1 + v2 * v2;
+    } while (s >= 1 || s == 0);
+    double multiplier = Math.sqrt(-2 * Math.log(s) / s);
+    nextGaussian = v2 * multiplier;
+    haveNextGaussian = true;
+    return v1 * multiplier;
+  }
+
+  /**
+   * Mixes the bits of <code>z</code> (the SplitMix64 finalizer). Useful for
+   * turning seeds into well-distributed generator state.
+   */
+  static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+  private double nextGaussian;
+  private boolean haveNextGaussian = false;
+}
@@ -0,0 +1,52 @@
+package blog.common.random;
+
+/**
+ * The SplitMix64 generator (Steele, Lea and Flood, "Fast Splittable
+ * Pseudorandom Number Generators", OOPSLA 2014). Its state is a single 64-bit
+ * counter, so it is cheap to create and to split.
+ * 
+ * @since Oct 18, 2026
+ */
+public class SplitMix64 extends RandomStream {
+
+  public SplitMix64(long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  private SplitMix64(long seed, long gamma) {
+    this.state = seed;
+    this.gamma = gamma;
+  }
+
+  public long nextLong() {
+    state += gamma;
+    return mix64(state);
+  }
+
+  /**
+   * Returns a new generator with a fresh seed and increment, both drawn from
+   * this one.
+   */
+  public RandomStream split() {
+    long seed = nextLong();
+    return new SplitMix64(seed, mixGamma(nextSeed()));
+  }
+
+  private long nextSeed() {
+    return state += gamma;
+  }
+
+  /** Derives an odd increment with enough bit transitions. */
+  private static long mixGamma(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    int n = Long.bitCount(z ^ (z >>> 1));
+    return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private long state;
+  private final long gamma;
+}
@@ -0,0 +1,41 @@
+package blog.common.random;
+
+/**
+ * The xoroshiro128+ generator (Blackman and Vigna). It is one of the fastest
+ * generators with good statistical quality for floating-point output, which
+ * is what the samplers mostly consume. New streams are obtained by seeding a
+ * fresh generator from this one's output through SplitMix64.
+ * 
+ * @since Oct 18, 2026
+ */
+public class Xoroshiro128Plus extends RandomStream {
+
+  public Xoroshiro128Plus(long seed) {
+    // Expand the seed with SplitMix64, as recommended by the authors; this
+    // also guarantees the state is not all zeros.
+    s0 = mix64(seed + GOLDEN_GAMMA);
+    s1 = mix64(seed + 2 * GOLDEN_GAMMA);
+    if (s0 == 0 && s1 == 0) {
+      s1 = GOLDEN_GAMMA;
+    }
+  }
+
+  public long nextLong() {
+    long a = s0;
+    long b = s1;
+    long result = a + b;
+    b ^= a;
+    s0 = Long.rotateLeft(a, 24) ^ b ^ (b << 16);
+    s1 = Long.rotateLeft(b, 37);
+    return result;
+  }
+
+  public RandomStream split() {
+    return new Xoroshiro128Plus(nextLong());
+  }
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private long s0;
+  private long s1;
+}
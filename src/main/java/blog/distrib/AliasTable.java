@@ -0,0 +1,85 @@
+package blog.distrib;
+
+import blog.common.random.RandomStream;
+
+/**
+ * Walker's alias table for sampling from a fixed distribution over the indices
+ * 0, ..., n-1 in constant time, built with Vose's linear-time method. Each
+ * index i owns one column of height 1/n, split between i itself (with
+ * probability <code>cutoff[i]</code>) and one other index, its alias. A sample
+ * picks a column uniformly and then one of its two parts.
+ *
+ * Instances are immutable, so they may be shared between distributions and
+ * threads.
+ *
+ * @since Oct 18, 2026
+ */
+public class AliasTable {
+  /**
+   * Builds a table for the given probabilities, which must be non-negative and
+   * sum to (approximately) 1.
+   */
+  public AliasTable(double[] probs) {
+    int n = probs.length;
+    cutoff = new double[n];
+    alias = new int[n];
+    double[] scaled = new double[n];
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int numSmall = 0;
+    int numLarge = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = probs[i] * n;
+      if (scaled[i] < 1) {
+        small[numSmall++] = i;
+      } else {
+        large[numLarge++] = i;
+      }
+    }
+    while (numSmall > 0 && numLarge > 0) {
+      int s = small[--numSmall];
+      int l = large[--numLarge];
+      cutoff[s] = scaled[s];
+      alias[s] = l;
+      scaled[l] -= 1 - scaled[s];
+      if (scaled[l] < 1) {
+        small[numSmall++] = l;
+      } else {
+        large[numLarge++] = l;
+      }
+    }
+    // whatever is left is 1 up to rounding
+    while (numLarge > 0) {
+      int l = large[--numLarge];
+      cutoff[l] = 1;
+      alias[l] = l;
+    }
+    while (numSmall > 0) {
+      int s = small[--numSmall];
+      cutoff[s] = 1;
+      alias[s] = s;
+    }
+  }
+
+  /**
+   * Returns the number of indices in the table.
+   */
+  public int size() {
+    return cutoff.length;
+  }
+
+  /**
+   * Samples an index, using a single uniform draw from <code>rng</code>.
+   */
+  public int sample(RandomStream rng) {
+    double u = rng.nextDouble() * cutoff.length;
+    int i = (int) u;
+    if (i >= cutoff.length) {
+      i = cutoff.length - 1; // guard against rounding up
+    }
+    return (u - i < cutoff[i]) ? i : alias[i];
+  }
+
+  private final double[] cutoff;
+  private final int[] alias;
+}
@@ -35,6 +35,9 @@
 
 package blog.distrib;
 
+import blog.common.Util;
+import blog.common.random.RandomStream;
+
 /**
  * A distribution over {0,1}. It takes one parameter <code>p</code>, which is
  * the probability
@@ -90,7 +93,17 @@ public class Bernoulli implements CondProbDistrib {
    */
   @Override
   public Object sampleVal() {
-    return ((Boolean) booldist.sampleVal()) ? 1 : 0;
+    return sampleVal(Util.getRandomStream());
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return ((Boolean) booldist.sampleVal(rng)) ? 1 : 0;
   }
 
   /**
@@ -35,6 +35,9 @@
 
 package blog.distrib;
 
+import blog.common.Util;
+import blog.common.random.RandomStream;
+
 /**
  * A Beta distribution with shape parameters <code>a</code> and <code>b</code>,
  * defined by f(x) =(x^(a-1)
@@ -164,10 +167,25 @@ public class Beta implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   public double sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public double sample_value(RandomStream rng) {
     checkHasParams();
-    double y = gammaA.sample_value();
-    double z = gammaB.sample_value();
+    double y = gammaA.sample_value(rng);
+    double z = gammaB.sample_value(rng);
     return y / (y + z);
   }
 
@@ -38,6 +38,7 @@ package blog.distrib;
 import org.apache.commons.math3.distribution.BinomialDistribution;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * A Binomial distribution with parameters <code>n</code> (number of trials) and
@@ -100,7 +101,8 @@ public class Binomial implements CondProbDistrib {
       this.hasP = true;
     }
     this.finiteSupport = null;
-    binom = null;
+    binom = (hasN && hasP) ? new BinomialDistribution(this.n, this.p)
+        : null;
   }
 
   private void checkHasParams() {
@@ -110,9 +112,6 @@ public class Binomial implements CondProbDistrib {
     if (!this.hasN) {
       throw new IllegalArgumentException("parameter n not provided");
     }
-    if (binom == null) {
-      binom = new BinomialDistribution(n, p);
-    }
   }
 
   /*
@@ -163,17 +162,38 @@ public class Binomial implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   public int sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public int sample_value(RandomStream rng) {
     checkHasParams();
-    return sample_value(n, p);
+    return binom.inverseCumulativeProbability(rng.nextDouble());
   }
 
   /**
    * Samples the current binomial distribution.
    */
   public static int sample_value(int n, double p) {
-    // Modified by yiwu on Oct.8.2014
-    return binom.sample();
+    return sample_value(n, p, Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value(int, double)}, but draws from <code>rng</code>. */
+  public static int sample_value(int n, double p, RandomStream rng) {
+    // Inversion, as BinomialDistribution.sample() does with its own generator.
+    return new BinomialDistribution(n, p).inverseCumulativeProbability(rng
+        .nextDouble());
   }
 
   @Override
@@ -183,20 +203,22 @@ public class Binomial implements CondProbDistrib {
 
   @Override
   public Object[] getFiniteSupport() {
-    if (finiteSupport == null) {
+    Object[] support = finiteSupport;
+    if (support == null) {
       checkHasParams();
-      finiteSupport = new Object[n + 1];
+      support = new Object[n + 1];
       for (int i = 0; i <= n; i++) {
-        finiteSupport[i] = i;
+        support[i] = i;
       }
+      finiteSupport = support;
     }
-    return finiteSupport;
+    return support;
   }
 
   private int n;
   private boolean hasN;
   private double p;
   private boolean hasP;
-  private Object[] finiteSupport = null;
-  static private BinomialDistribution binom;
+  private volatile Object[] finiteSupport = null;
+  private BinomialDistribution binom;
 }
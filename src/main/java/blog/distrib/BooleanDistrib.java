@@ -36,6 +36,7 @@
 package blog.distrib;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * A distribution over Boolean values. It is defined by one parameter p, which
@@ -102,8 +103,18 @@ public class BooleanDistrib implements CondProbDistrib {
    */
   @Override
   public Object sampleVal() {
+    return sampleVal(Util.getRandomStream());
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
     checkHasParams();
-    if (Util.random() < p) {
+    if (rng.nextDouble() < p) {
       return true;
     }
     return false;
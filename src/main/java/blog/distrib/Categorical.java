@@ -38,12 +38,15 @@ package blog.distrib;
 import java.util.HashMap;
 import java.util.Map;
 
+import blog.common.IdentityCache;
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * Categorical Distribution takes a distribution parameter <code>map</code>,
  * which is a map from objects to numbers. The number corresponding to each
- * object represents the probability of that object occurring.
+ * object represents the probability of that object occurring. Values are
+ * sampled in constant time from an {@link AliasTable}.
  */
 public class Categorical implements CondProbDistrib {
 
@@ -66,10 +69,32 @@ public class Categorical implements CondProbDistrib {
   /**
    * If method parameter map is non-null, normalize the probabilities of the
    * values for each object, and set the distribution parameter <code>map</code>
-   * to the method parameter map.
+   * to the method parameter map. The normalized tables are cached by the
+   * identity of <code>map</code>, so passing the same map again is cheap; the
+   * map must not be modified afterwards.
    */
   public void setParams(Map<?, ?> map) {
     if (map != null) {
+      Tables tables = CACHE.get(map);
+      if (tables == null) {
+        tables = new Tables(map);
+        CACHE.put(map, tables);
+      }
+      this.map = tables.map;
+      this.logMap = tables.logMap;
+      this.objects = tables.objects;
+      this.aliasTable = tables.aliasTable;
+      this.hasMap = true;
+      this.finiteSupport = null;
+    }
+  }
+
+  /**
+   * The normalized probabilities for one parameter map, and an alias table
+   * over its keys. Never modified after construction.
+   */
+  private static class Tables {
+    Tables(Map<?, ?> map) {
       if (map.size() == 0) {
         throw new IllegalArgumentException(
             "no elements within map for categorical distribution");
@@ -91,24 +116,26 @@ public class Categorical implements CondProbDistrib {
       this.map = new HashMap<Object, Double>();
       this.logMap = new HashMap<Object, Double>();
       this.objects = new Object[map.size()];
-      this.cdfObjects = new double[map.size()];
+      double[] probs = new double[map.size()];
       int count = 0;
-      double cdf = 0.0;
       for (Map.Entry<?, ?> entry : map.entrySet()) {
         Object key = entry.getKey();
         Number num = (Number) entry.getValue();
         double value = num.doubleValue();
         this.objects[count] = key;
         double prob = value / sum;
-        cdf += prob;
-        this.cdfObjects[count] = cdf;
+        probs[count] = prob;
         this.map.put(key, prob);
         this.logMap.put(key, Math.log(prob));
         count += 1;
       }
-      this.hasMap = true;
-      this.finiteSupport = null;
+      this.aliasTable = new AliasTable(probs);
     }
+
+    final HashMap<Object, Double> map;
+    final HashMap<Object, Double> logMap;
+    final Object[] objects;
+    final AliasTable aliasTable;
   }
 
   private void checkHasParams() {
@@ -148,14 +175,18 @@ public class Categorical implements CondProbDistrib {
    */
   @Override
   public Object sampleVal() {
+    return sampleVal(Util.getRandomStream());
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
     checkHasParams();
-    double val = Util.random();
-    for (int i = 0; i < cdfObjects.length; i++) {
-      if (val <= cdfObjects[i]) {
-        return objects[i];
-      }
-    }
-    return objects[objects.length - 1];
+    return objects[aliasTable.sample(rng)];
   }
 
   @Override
@@ -165,7 +196,8 @@ public class Categorical implements CondProbDistrib {
 
   @Override
   public Object[] getFiniteSupport() {
-    if (finiteSupport == null) {
+    Object[] support = finiteSupport;
+    if (support == null) {
       checkHasParams();
       int supportSize = 0;
       for (Map.Entry<?, ?> entry : map.entrySet()) {
@@ -175,24 +207,28 @@ public class Categorical implements CondProbDistrib {
           supportSize++;
       }
       int curSupportIndex = 0;
-      finiteSupport = new Object[supportSize];
+      support = new Object[supportSize];
       for (Map.Entry<?, ?> entry : map.entrySet()) {
         Object key = entry.getKey();
         Number num = (Number) entry.getValue();
         double prob = num.doubleValue();
         if (!Util.closeToZero(prob)) {
-          finiteSupport[curSupportIndex] = key;
+          support[curSupportIndex] = key;
           curSupportIndex++;
         }
       }
+      finiteSupport = support;
     }
-    return finiteSupport;
+    return support;
   }
 
   private HashMap<Object, Double> map;
   private HashMap<Object, Double> logMap;
   private Object[] objects; // Ordered collection of objects
-  private double[] cdfObjects; // CDF corresponding to objects
+  private AliasTable aliasTable; // over the indices of objects
   private boolean hasMap;
-  private Object[] finiteSupport = null;
+  private volatile Object[] finiteSupport = null;
+
+  private static final IdentityCache<Map<?, ?>, Tables> CACHE = new IdentityCache<Map<?, ?>, Tables>(
+      256);
 }
@@ -1,5 +1,7 @@
 package blog.distrib;
 
+import blog.common.random.RandomStream;
+
 /**
  * Common interface for all probability distributions.
  * 
@@ -7,6 +9,15 @@ package blog.distrib;
  * this interface. Provide a constructor that takes no parameters. For full
  * examples, see UnivarGaussian or UniformReal.
  * 
+ * Once its parameters are set, a distribution is treated as immutable: the
+ * engine binds one instance per set of parameters (see
+ * {@link blog.model.DistribSpec#bindCPD(Object[])}) and may query it from
+ * several threads at once. So {@link #getProb(Object)},
+ * {@link #getLogProb(Object)}, {@link #sampleVal(RandomStream)} and
+ * {@link #getFiniteSupport()} must not modify the distribution; tables built
+ * lazily by these methods have to be filled in completely before they are
+ * published through a volatile field.
+ * 
  * @author cberzan
  * @since Jun 3, 2014
  */
@@ -70,6 +81,18 @@ public interface CondProbDistrib {
    */
   public Object sampleVal();
 
+  /**
+   * Sample a value from this distribution, drawing all randomness from the
+   * given stream rather than from the stream installed for the current thread.
+   * Two calls with streams in the same state and the same parameters return
+   * the same value.
+   * 
+   * @param rng
+   *          The random stream to draw from.
+   * @return The sample value.
+   */
+  public Object sampleVal(RandomStream rng);
+
   /**
    * Calculate the finite support of this CPD.
    * 
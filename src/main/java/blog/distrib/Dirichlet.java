@@ -35,8 +35,10 @@
 
 package blog.distrib;
 
+import blog.common.Util;
 import blog.common.numerical.MatrixFactory;
 import blog.common.numerical.MatrixLib;
+import blog.common.random.RandomStream;
 
 /**
  * A Dirichlet distribution with shape parameter vector <code>alpha</code>,
@@ -225,11 +227,26 @@ public class Dirichlet implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /**
    * Samples a dirichlet distribution using the method at the following url:
    * http://en.wikipedia.org/wiki/Dirichlet_distribution#
    */
   public MatrixLib sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public MatrixLib sample_value(RandomStream rng) {
     checkHasParams();
 
     double sum = 0.0;
@@ -237,7 +254,7 @@ public class Dirichlet implements CondProbDistrib {
 
     double[][] samples = new double[vec_size][1];
     for (int i = 0; i < vec_size; i++) {
-      double sample = Gamma.sample_value(alpha[i], 1);
+      double sample = Gamma.sample_value(alpha[i], 1, rng);
       sum += sample;
       samples[i][0] = sample;
     }
@@ -3,14 +3,17 @@
  */
 package blog.distrib;
 
+import blog.common.IdentityCache;
 import blog.common.Util;
 import blog.common.numerical.MatrixLib;
+import blog.common.random.RandomStream;
 
 /**
  * The discrete distribution generates values in 0 ... k-1, with p.m.f. p(x) =
  * P_{x} where <code>P</code> is a distribution parameter that is a MatrixLib
  * row vector of probabilities. It is basically a simplified case of a
- * Multinomial distribution with <code>N = 1</code>.
+ * Multinomial distribution with <code>N = 1</code>. Values are sampled in
+ * constant time from an {@link AliasTable}.
  * 
  * @author cgioia
  * @since Jun 16, 2014
@@ -41,57 +44,65 @@ public class Discrete implements CondProbDistrib {
   /**
    * If the method parameter value is non-null and is a column vector, then set
    * the
-   * distribution parameter <code>P</code> to value.
+   * distribution parameter <code>P</code> to value. The normalized tables are
+   * cached by the identity of <code>value</code>, which must not be modified
+   * afterwards.
    */
   public void setParams(MatrixLib value) {
     if (value != null) {
-      if (value.numCols() != 1 || value.numRows() == 0) {
-        throw new IllegalArgumentException(
-            "The argument passed into setParams is not a column vector");
+      Tables tables = CACHE.get(value);
+      if (tables == null) {
+        if (value.numCols() != 1 || value.numRows() == 0) {
+          throw new IllegalArgumentException(
+              "The argument passed into setParams is not a column vector");
+        }
+        tables = new Tables(value);
+        CACHE.put(value, tables);
       }
-      initializeProbabilityVector(value);
+      this.p = tables.p;
+      this.logP = tables.logP;
+      this.k = this.p.length;
+      this.aliasTable = tables.aliasTable;
       this.hasP = true;
       this.finiteSupport = null;
     }
   }
 
   /**
-   * Precondition: p is a column vector
-   * 
-   * Sets instance variable p to a normalized array of probabilities
-   * Sets pCDF to the CDF of p
-   * 
-   * @param p
+   * The normalized probabilities for one parameter vector, and an alias table
+   * over them. Never modified after construction.
    */
-  private void initializeProbabilityVector(MatrixLib p) {
-    double[] pi = new double[p.numRows()];
-    this.logP = new double[p.numRows()];
-    double sum = 0.0;
-    for (int i = 0; i < p.numRows(); i++) {
-      double ele = p.elementAt(i, 0);
-      if (ele < 0) {
-        throw new IllegalArgumentException("Probability " + ele
-            + " for element " + i + " is negative.");
+  private static class Tables {
+    /**
+     * Precondition: p is a column vector
+     */
+    Tables(MatrixLib p) {
+      double[] pi = new double[p.numRows()];
+      this.logP = new double[p.numRows()];
+      double sum = 0.0;
+      for (int i = 0; i < p.numRows(); i++) {
+        double ele = p.elementAt(i, 0);
+        if (ele < 0) {
+          throw new IllegalArgumentException("Probability " + ele
+              + " for element " + i + " is negative.");
+        }
+        sum += p.elementAt(i, 0);
       }
-      sum += p.elementAt(i, 0);
-    }
-    if (Util.closeToZero(sum)) {
-      throw new IllegalArgumentException("Probabilities sum to approx zero");
-    }
-    // normalization
-    for (int i = 0; i < p.numRows(); i++) {
-      pi[i] = p.elementAt(i, 0) / sum;
-      this.logP[i] = Math.log(pi[i]);
-    }
-    this.p = pi;
-    this.k = this.p.length;
-
-    // Precompute the CDF of P for Sampling
-    this.pCDF = new double[k];
-    pCDF[0] = this.p[0];
-    for (int i = 1; i < k; i++) {
-      this.pCDF[i] = pCDF[i - 1] + this.p[i];
+      if (Util.closeToZero(sum)) {
+        throw new IllegalArgumentException("Probabilities sum to approx zero");
+      }
+      // normalization
+      for (int i = 0; i < p.numRows(); i++) {
+        pi[i] = p.elementAt(i, 0) / sum;
+        this.logP[i] = Math.log(pi[i]);
+      }
+      this.p = pi;
+      this.aliasTable = new AliasTable(pi);
     }
+
+    final double[] p;
+    final double[] logP;
+    final AliasTable aliasTable;
   }
 
   private void checkHasParams() {
@@ -155,25 +166,35 @@ public class Discrete implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /**
    * Samples a value from the multinomial. Say the unnormalized probabilities of
    * <code>P</code> are P_0, ... P_K-1. Returns the index <code>i</code>
    * corresponding to outcome with probability P_i.
    */
   public Integer sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public Integer sample_value(RandomStream rng) {
     checkHasParams();
-    double val = Util.random();
-    for (int i = 0; i < k; i++) {
-      if (val <= pCDF[i]) {
-        return i;
-      }
-    }
-    return k;
+    return aliasTable.sample(rng);
   }
 
   @Override
   public Object[] getFiniteSupport() {
-    if (finiteSupport == null) {
+    Object[] support = finiteSupport;
+    if (support == null) {
       checkHasParams();
       int supportSize = 0;
       for (int i = 0; i < k; i++) {
@@ -181,22 +202,26 @@ public class Discrete implements CondProbDistrib {
           supportSize++;
         }
       }
-      finiteSupport = new Object[supportSize];
+      support = new Object[supportSize];
       int curSupportIndex = 0;
       for (int i = 0; i < k; i++) {
         if (!Util.closeToZero(this.p[i])) {
-          finiteSupport[curSupportIndex] = i;
+          support[curSupportIndex] = i;
           curSupportIndex++;
         }
       }
+      finiteSupport = support;
     }
-    return finiteSupport;
+    return support;
   }
 
   private double[] p;
   private double[] logP;
-  private double[] pCDF;
+  private AliasTable aliasTable;
   private boolean hasP;
   private int k; // the number of categories; dimension of p
-  private Object[] finiteSupport = null;
+  private volatile Object[] finiteSupport = null;
+
+  private static final IdentityCache<MatrixLib, Tables> CACHE = new IdentityCache<MatrixLib, Tables>(
+      256);
 }
@@ -1,5 +1,8 @@
 package blog.distrib;
 
+import blog.common.Util;
+import blog.common.random.RandomStream;
+
 /**
  * "Don't care" prior.
  * 
@@ -46,6 +49,16 @@ public class DontCare implements CondProbDistrib {
    * @see blog.distrib.CondProbDistrib#sampleVal()
    */
   public Object sampleVal() {
+    return sampleVal(Util.getRandomStream());
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
     throw new IllegalStateException(
         "Tried to sample from a DontCare distribution."
             + " Did you forget to provide an observation?");
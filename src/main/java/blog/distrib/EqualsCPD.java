@@ -35,6 +35,9 @@
 
 package blog.distrib;
 
+import blog.common.Util;
+import blog.common.random.RandomStream;
+
 
 /**
  * EqualsCPD class is a convenience hack to represent the situation when the
@@ -44,9 +47,24 @@ package blog.distrib;
 public class EqualsCPD implements CondProbDistrib {
   /**
    * An instance of EqualsCPD.
+   * 
+   * @deprecated shared by all callers, so its parameters must not be set; use
+   *             {@link #EqualsCPD(Object)} instead.
    */
+  @Deprecated
   public static final EqualsCPD CPD = new EqualsCPD();
 
+  public EqualsCPD() {
+  }
+
+  /**
+   * Creates a distribution that takes on <code>value</code> with probability
+   * 1.
+   */
+  public EqualsCPD(Object value) {
+    setParams(value);
+  }
+
   /**
    * @param params
    *          A single-element object array. If the first element is non-null,
@@ -112,21 +130,33 @@ public class EqualsCPD implements CondProbDistrib {
    */
   @Override
   public Object sampleVal() {
+    return sampleVal(Util.getRandomStream());
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
     checkHasParams();
     return value;
   }
 
   @Override
   public Object[] getFiniteSupport() {
-    if (finiteSupport == null) {
+    Object[] support = finiteSupport;
+    if (support == null) {
       checkHasParams();
-      finiteSupport = new Object[1];
-      finiteSupport[0] = value;
+      support = new Object[1];
+      support[0] = value;
+      finiteSupport = support;
     }
-    return finiteSupport;
+    return support;
   }
 
   private Object value;
   private boolean hasValue;
-  private Object[] finiteSupport = null;
+  private volatile Object[] finiteSupport = null;
 }
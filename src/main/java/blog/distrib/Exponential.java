@@ -36,6 +36,7 @@
 package blog.distrib;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * An Exponential distribution with parameter <code>lambda</code> over
@@ -139,10 +140,25 @@ public class Exponential implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /** Samples a value from an exponential distribution. */
   public double sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public double sample_value(RandomStream rng) {
     checkHasParams();
-    return -Math.log(Util.random()) / this.lambda;
+    return -Math.log(rng.nextDouble()) / this.lambda;
   }
 
   /**
@@ -150,7 +166,12 @@ public class Exponential implements CondProbDistrib {
    * <code>lambda</code>.
    */
   public static double sample_value(double lambda) {
-    return -Math.log(Util.random()) / lambda;
+    return sample_value(lambda, Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value(double)}, but draws from <code>rng</code>. */
+  public static double sample_value(double lambda, RandomStream rng) {
+    return -Math.log(rng.nextDouble()) / lambda;
   }
 
   @Override
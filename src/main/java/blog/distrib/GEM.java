@@ -38,6 +38,7 @@ package blog.distrib;
 import blog.common.Util;
 import blog.common.numerical.MatrixFactory;
 import blog.common.numerical.MatrixLib;
+import blog.common.random.RandomStream;
 
 /**
  * A GEM distribution with a parameter <code>lambda</code> and a limitation
@@ -217,10 +218,25 @@ public class GEM implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /**
    * Samples a GEM distribution using the Stick-Breaking Construction.
    */
   public MatrixLib sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public MatrixLib sample_value(RandomStream rng) {
     checkHasParams();
 
     double[][] samples = new double[truncation][1];
@@ -228,7 +244,7 @@ public class GEM implements CondProbDistrib {
     Beta beta = new Beta();
     beta.setParams(1, lambda);
     for (int i = 0; i < truncation - 1; i++) {
-      samples[i][0] = beta.sample_value() * remain;
+      samples[i][0] = beta.sample_value(rng) * remain;
       remain -= samples[i][0];
     }
     samples[truncation - 1][0] = remain;
@@ -36,6 +36,7 @@
 package blog.distrib;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * A Gamma distribution with shape parameter <code>k</code> and scale parameter
@@ -158,12 +159,32 @@ public class Gamma implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   public double sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public double sample_value(RandomStream rng) {
     checkHasParams();
-    return sample_value(k, lambda);
+    return sample_value(k, lambda, rng);
   }
 
   public static double sample_value(double k, double lambda) {
+    return sample_value(k, lambda, Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value(double, double)}, but draws from <code>rng</code>. */
+  public static double sample_value(double k, double lambda, RandomStream rng) {
     boolean accept = false;
     if (k >= 1) {
       // Cheng's algorithm
@@ -173,8 +194,8 @@ public class Gamma implements CondProbDistrib {
       double cheng = (1 + Math.log(4.5));
       double u, v, x, y, z, r;
       do {
-        u = Util.random();
-        v = Util.random();
+        u = rng.nextDouble();
+        v = rng.nextDouble();
         y = ((1 / lam) * Math.log(v / (1 - v)));
         x = (k * Math.exp(y));
         z = (u * v * v);
@@ -190,8 +211,8 @@ public class Gamma implements CondProbDistrib {
       double d = ((1 - k) * Math.pow(k, (k / (1 - k))));
       double u, v, z, e, x;
       do {
-        u = Util.random();
-        v = Util.random();
+        u = rng.nextDouble();
+        v = rng.nextDouble();
         z = -Math.log(u); // generating random exponential variates
         e = -Math.log(v);
         x = Math.pow(z, c);
@@ -36,6 +36,7 @@
 package blog.distrib;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * A geometric distribution over the natural numbers 0, 1, 2,... It has a single
@@ -157,6 +158,16 @@ public class Geometric implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /**
    * Returns an integer sampled from this distribution. Uses the method from p.
    * 87 of <cite>Non-Uniform Random Variate Generation</cite> (by Luc Devroye,
@@ -165,8 +176,13 @@ public class Geometric implements CondProbDistrib {
    * discretization of the exponential distribution.
    */
   public int sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public int sample_value(RandomStream rng) {
     checkHasParams();
-    double u = Util.random();
+    double u = rng.nextDouble();
     return (int) (Math.log(u) / logOneMinusAlpha);
   }
 
@@ -182,21 +198,23 @@ public class Geometric implements CondProbDistrib {
 
   @Override
   public Object[] getFiniteSupport() {
-    if (finiteSupport == null) {
+    Object[] support = finiteSupport;
+    if (support == null) {
       checkHasParams();
       int supportSize = 0;
       while (!Util.closeToZero(getProb(supportSize)))
         supportSize++;
-      finiteSupport = new Object[supportSize];
+      support = new Object[supportSize];
       for (int i = 0; i < supportSize; i++)
-        finiteSupport[i] = i;
+        support[i] = i;
+      finiteSupport = support;
     }
-    return finiteSupport;
+    return support;
   }
 
   private double alpha;
   private boolean hasAlpha;
   private double logAlpha;
   private double logOneMinusAlpha;
-  private Object[] finiteSupport = null;
+  private volatile Object[] finiteSupport = null;
 }
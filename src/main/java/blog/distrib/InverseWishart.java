@@ -3,8 +3,11 @@
  */
 package blog.distrib;
 
+import blog.common.Util;
+import blog.common.numerical.Cholesky;
 import blog.common.numerical.MatrixFactory;
 import blog.common.numerical.MatrixLib;
+import blog.common.random.RandomStream;
 
 /**
  * Inverse Wishart distribution is the conjugate prior distribution for
@@ -91,8 +94,10 @@ public class InverseWishart implements CondProbDistrib {
     this.logDimFactor = -Math.log(2) * this.freeDeg * this.d * 0.5
         - lgmultivariategamma(this.d, this.freeDeg * 0.5);
 
-    this.normConst = Math.pow(scale.det(), this.freeDeg * 0.5) * dimFactor;
-    this.logNormConst = 0.5 * scale.logDet() * this.freeDeg + logDimFactor;
+    this.scaleCholesky = Cholesky.of(scale);
+    double logDet = scaleCholesky.logDet();
+    this.normConst = Math.exp(logDet * this.freeDeg * 0.5) * dimFactor;
+    this.logNormConst = 0.5 * logDet * this.freeDeg + logDimFactor;
   }
 
   private static double multivariategamma(int p, double x) {
@@ -142,8 +147,9 @@ public class InverseWishart implements CondProbDistrib {
   public double getProb(MatrixLib x) {
     checkHasParams();
     if (x.numRows() == d && x.isSymmetric()) {
-      return Math.exp(-x.logDet() * (freeDeg + d + 1) * 0.5
-          - scale.timesMat(x.inverse()).trace() * 0.5)
+      Cholesky xCholesky = Cholesky.factor(x);
+      return Math.exp(-xCholesky.logDet() * (freeDeg + d + 1) * 0.5
+          - scale.timesMat(xCholesky.inverse()).trace() * 0.5)
           * normConst;
     }
     throw new IllegalArgumentException(
@@ -169,8 +175,9 @@ public class InverseWishart implements CondProbDistrib {
   public double getLogProb(MatrixLib x) {
     checkHasParams();
     if (x.numRows() == d && x.isSymmetric()) {
-      return -x.logDet() * (freeDeg + d + 1) * 0.5
-          - scale.timesMat(x.inverse()).trace() * 0.5 + logNormConst;
+      Cholesky xCholesky = Cholesky.factor(x);
+      return -xCholesky.logDet() * (freeDeg + d + 1) * 0.5
+          - scale.timesMat(xCholesky.inverse()).trace() * 0.5 + logNormConst;
     }
     throw new IllegalArgumentException(
         "The matrix given should be a symmetric one. But it isn't.");
@@ -185,6 +192,16 @@ public class InverseWishart implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /**
    * Samples a value from this Inverse Wishart distribution by generating
    * <i>freeDeg</i> independent samples X_i's from Multivariate Gaussian with
@@ -195,12 +212,17 @@ public class InverseWishart implements CondProbDistrib {
    * <code>initParams</code> is called first).
    */
   public MatrixLib sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public MatrixLib sample_value(RandomStream rng) {
     checkHasParams();
     MatrixLib temp = MatrixFactory.zeros(d, d);
     MultivarGaussian tmp = new MultivarGaussian();
-    tmp.setParams(MatrixFactory.zeros(d, 1), scale.inverse());
+    tmp.setParams(MatrixFactory.zeros(d, 1), scaleCholesky.inverse());
     for (int i = 0; i < freeDeg; i++) {
-      MatrixLib tmpmat = tmp.sample_value();
+      MatrixLib tmpmat = tmp.sample_value(rng);
       temp = temp.plus(tmpmat.timesMat(tmpmat.transpose()));
     }
     return temp.inverse();
@@ -221,4 +243,5 @@ public class InverseWishart implements CondProbDistrib {
   private double logDimFactor;
   private double normConst;
   private double logNormConst;
+  private Cholesky scaleCholesky;
 }
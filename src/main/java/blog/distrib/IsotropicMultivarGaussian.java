@@ -1,7 +1,9 @@
 package blog.distrib;
 
+import blog.common.Util;
 import blog.common.numerical.MatrixFactory;
 import blog.common.numerical.MatrixLib;
+import blog.common.random.RandomStream;
 
 /**
  * Isotropic Multivariate Gaussian (normal) distribution with parameters
@@ -121,11 +123,26 @@ public class IsotropicMultivarGaussian implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   public MatrixLib sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public MatrixLib sample_value(RandomStream rng) {
     checkHasParams();
     double[][] mat = new double[d][1];
     for (int i = 0; i < d; i++) {
-      double z = UnivarGaussian.STANDARD.sample_value();
+      double z = UnivarGaussian.STANDARD.sample_value(rng);
       mat[i][0] = mean.elementAt(i, 0) + z * sqrtCovarianceScale;
     }
     return MatrixFactory.fromArray(mat);
@@ -36,6 +36,7 @@
 package blog.distrib;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * Laplace distribution over real numbers. This CPD can be initialized
@@ -152,8 +153,18 @@ public class Laplace implements CondProbDistrib {
    */
   @Override
   public Object sampleVal() {
+    return sampleVal(Util.getRandomStream());
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
     checkHasParams();
-    double U = Util.random() - 0.5;
+    double U = rng.nextDouble() - 0.5;
     if (U > 0)
       return mean - diversity * Math.log(1 - 2 * U);
     else
@@ -37,11 +37,11 @@ package blog.distrib;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-
-import org.apache.commons.math3.distribution.BinomialDistribution;
+import java.util.List;
 
 import blog.common.Util;
 import blog.common.numerical.MatrixLib;
+import blog.common.random.RandomStream;
 
 /**
  * The multinomial distribution accepts two parameters, an integer
@@ -159,7 +159,7 @@ public class Multinomial implements CondProbDistrib {
    */
   @Override
   public double getProb(Object value) {
-    return getProb((ArrayList<Integer>) value);
+    return getProb((List<Integer>) value);
   }
 
   /**
@@ -168,7 +168,7 @@ public class Multinomial implements CondProbDistrib {
    * 
    * @param value
    */
-  public double getProb(ArrayList<Integer> value) {
+  public double getProb(List<Integer> value) {
     checkHasParams();
     if (!inSupport(value)) {
       return 0.0;
@@ -191,7 +191,7 @@ public class Multinomial implements CondProbDistrib {
    * @throws IllegalArgumentException
    *           if value is not a row vector of the correct dimension (1 by k)
    */
-  private boolean inSupport(ArrayList<Integer> value) {
+  private boolean inSupport(List<Integer> value) {
     if (value.size() != k) {
       throw new IllegalArgumentException(
           "The value provided is of the incorrect dimensions. Expecting a "
@@ -220,7 +220,7 @@ public class Multinomial implements CondProbDistrib {
    */
   @Override
   public double getLogProb(Object value) {
-    return getLogProb((ArrayList<Integer>) value);
+    return getLogProb((List<Integer>) value);
   }
 
   /**
@@ -229,7 +229,7 @@ public class Multinomial implements CondProbDistrib {
    * 
    * @param value
    */
-  public double getLogProb(ArrayList<Integer> value) {
+  public double getLogProb(List<Integer> value) {
     checkHasParams();
     if (!inSupport(value)) {
       return Double.NEGATIVE_INFINITY;
@@ -253,24 +253,39 @@ public class Multinomial implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /** Samples a value from the multinomial. */
   public ArrayList<Integer> sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public ArrayList<Integer> sample_value(RandomStream rng) {
     checkHasParams();
     if (n > 3 * k) // Currently it is a heuristic.
-      return sample_value_use_binomial();
+      return sample_value_use_binomial(rng);
     else
-      return sample_value_use_bsearch();
+      return sample_value_use_bsearch(rng);
   }
 
   /** Samples a value from the multinomial. */
-  private ArrayList<Integer> sample_value_use_bsearch() {
+  private ArrayList<Integer> sample_value_use_bsearch(RandomStream rng) {
     ArrayList<Integer> result = new ArrayList<Integer>(k);
     for (int i = 0; i < k; i++) {
       result.add(0);
     }
 
     for (int trial = 0; trial < n; trial++) {
-      double val = Util.random();
+      double val = rng.nextDouble();
       int bucket = Arrays.binarySearch(pCDF, val);
       if (bucket < 0)
         bucket = -bucket - 1;
@@ -286,8 +301,7 @@ public class Multinomial implements CondProbDistrib {
    * chapter 2.2 of
    * http://www.sciencedirect.com/science/article/pii/016794739390115A
    */
-  private ArrayList<Integer> sample_value_use_binomial() {
-    BinomialDistribution binom = null;
+  private ArrayList<Integer> sample_value_use_binomial(RandomStream rng) {
     int cur = 0;
     double cdf = 0;
     ArrayList<Integer> result = new ArrayList<Integer>(k);
@@ -296,8 +310,7 @@ public class Multinomial implements CondProbDistrib {
         result.add(0);
         continue;
       }
-      binom = new BinomialDistribution(n - cur, p[i] / (1.0 - cdf));
-      int x = binom.sample();
+      int x = Binomial.sample_value(n - cur, p[i] / (1.0 - cdf), rng);
       cur += x;
       cdf += p[i];
       result.add(x);
@@ -308,7 +321,8 @@ public class Multinomial implements CondProbDistrib {
 
   @Override
   public Object[] getFiniteSupport() {
-    if (finiteSupport == null) {
+    Object[] support = finiteSupport;
+    if (support == null) {
       checkHasParams();
       int kPos = 0;
       for (int i = 0; i < p.length; i++) {
@@ -316,37 +330,37 @@ public class Multinomial implements CondProbDistrib {
           kPos++;
         }
       }
-      finiteSupport = new Object[Util.multichoose(kPos, n)];
+      List<Object> values = new ArrayList<Object>(Util.multichoose(kPos, n));
       ArrayList<Integer> currentList = new ArrayList<Integer>();
-      supportNum = 0;
-      calculateFiniteSupport(currentList, 0, n);
+      calculateFiniteSupport(values, currentList, 0, n);
+      support = values.toArray();
+      finiteSupport = support;
     }
-    return finiteSupport;
+    return support;
   }
 
-  private void calculateFiniteSupport(ArrayList<Integer> currentList,
-      int depth, int remain) {
+  private void calculateFiniteSupport(List<Object> values,
+      ArrayList<Integer> currentList, int depth, int remain) {
     if (depth == k) {
-      finiteSupport[supportNum] = currentList.clone();
-      supportNum++;
+      values.add(currentList.clone());
     } else if (depth == k - 1) {
       if (remain == 0) {
         currentList.add(0);
-        calculateFiniteSupport(currentList, depth + 1, 0);
+        calculateFiniteSupport(values, currentList, depth + 1, 0);
         currentList.remove(depth);
       } else if (!Util.closeToZero(p[depth])) {
         currentList.add(remain);
-        calculateFiniteSupport(currentList, depth + 1, 0);
+        calculateFiniteSupport(values, currentList, depth + 1, 0);
         currentList.remove(depth);
       }
     } else {
       currentList.add(0);
-      calculateFiniteSupport(currentList, depth + 1, remain);
+      calculateFiniteSupport(values, currentList, depth + 1, remain);
       currentList.remove(depth);
       if (!Util.closeToZero(p[depth])) {
         for (int i = 1; i <= remain; i++) {
           currentList.add(i);
-          calculateFiniteSupport(currentList, depth + 1, remain - i);
+          calculateFiniteSupport(values, currentList, depth + 1, remain - i);
           currentList.remove(depth);
         }
       }
@@ -359,6 +373,5 @@ public class Multinomial implements CondProbDistrib {
   private double[] pCDF;
   private boolean hasP;
   private int k; // the number of categories; dimension of p
-  private int supportNum;
-  private Object[] finiteSupport = null;
+  private volatile Object[] finiteSupport = null;
 }
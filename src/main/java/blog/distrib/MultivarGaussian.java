@@ -35,8 +35,10 @@
 
 package blog.distrib;
 
-import blog.common.numerical.MatrixFactory;
+import blog.common.Util;
+import blog.common.numerical.Cholesky;
 import blog.common.numerical.MatrixLib;
+import blog.common.random.RandomStream;
 
 /**
  * Multivariate Gaussian (normal) distribution over real column vectors of some
@@ -117,16 +119,18 @@ public class MultivarGaussian implements CondProbDistrib {
    * Initializes constants for the Multivariate Gaussian.
    * Precondition: The current covariance and mean parameters constitute a legal
    * assignment.
+   * 
+   * The Cholesky factorization of the covariance is shared between all
+   * distributions with the same covariance matrix (see {@link Cholesky}).
    */
   private void initializeConstants() {
     this.d = mean.numRows();
     this.dimFactor = Math.pow(2 * Math.PI, d / 2.0);
     this.logDimFactor = Math.log(2 * Math.PI) * d / 2.0;
 
-    this.normConst = Math.sqrt(covariance.det()) * dimFactor;
-    this.logNormConst = 0.5 * covariance.logDet() + logDimFactor;
-    this.inverseCovariance = covariance.inverse();
-    this.sqrtCovariance = covariance.choleskyFactor();
+    this.cholesky = Cholesky.of(covariance);
+    this.logNormConst = 0.5 * cholesky.logDet() + logDimFactor;
+    this.normConst = Math.exp(0.5 * cholesky.logDet()) * dimFactor;
   }
 
   private void checkHasParams() {
@@ -164,10 +168,7 @@ public class MultivarGaussian implements CondProbDistrib {
   public double getProb(MatrixLib x) {
     checkHasParams();
     if (x.numRows() == d && x.numCols() == 1) {
-      return Math.exp(-0.5
-          * x.minus(mean).transpose().timesMat(inverseCovariance)
-              .timesMat(x.minus(mean)).elementAt(0, 0))
-          / normConst;
+      return Math.exp(-0.5 * cholesky.quadraticForm(x, mean)) / normConst;
     }
     throw new IllegalArgumentException("The matrix given is " + x.numRows()
         + " by " + x.numCols() + " but should be a " + d + " by 1 vector.");
@@ -192,8 +193,7 @@ public class MultivarGaussian implements CondProbDistrib {
   public double getLogProb(MatrixLib x) {
     checkHasParams();
     if (x.numRows() == d && x.numCols() == 1) {
-      return ((-0.5 * x.minus(mean).transpose().timesMat(inverseCovariance)
-          .timesMat(x.minus(mean)).elementAt(0, 0)) - logNormConst);
+      return -0.5 * cholesky.quadraticForm(x, mean) - logNormConst;
     }
     throw new IllegalArgumentException("The matrix given is " + x.numRows()
         + " by " + x.numCols() + " but should be a " + d + " by 1 vector.");
@@ -208,6 +208,16 @@ public class MultivarGaussian implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /**
    * Samples a value from this multivariate Gaussian by generating <i>d</i>
    * independent samples from univariate Gaussians with unit variance, one for
@@ -218,13 +228,17 @@ public class MultivarGaussian implements CondProbDistrib {
    * method <code>initParams</code> is called first).
    */
   public MatrixLib sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public MatrixLib sample_value(RandomStream rng) {
     checkHasParams();
-    double[][] mat = new double[d][1];
+    double[] z = new double[d];
     for (int i = 0; i < d; i++) {
-      mat[i][0] = UnivarGaussian.STANDARD.sample_value();
+      z[i] = UnivarGaussian.STANDARD.sample_value(rng);
     }
-    MatrixLib temp = MatrixFactory.fromArray(mat);
-    return mean.plus(sqrtCovariance.timesMat(temp));
+    return cholesky.transform(mean, z);
 
   }
 
@@ -243,6 +257,5 @@ public class MultivarGaussian implements CondProbDistrib {
   private double logDimFactor;
   private double normConst;
   private double logNormConst;
-  private MatrixLib inverseCovariance;
-  private MatrixLib sqrtCovariance;
+  private Cholesky cholesky;
 }
@@ -36,6 +36,7 @@
 package blog.distrib;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * A Negative Binomial distribution with parameters <code>r</code> (number of
@@ -169,11 +170,26 @@ public class NegativeBinomial implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /** Samples from the Negative Binomial distribution. */
   public int sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public int sample_value(RandomStream rng) {
     checkHasParams();
-    double theta = Gamma.sample_value(this.r, (this.p / (1 - this.p)));
-    return Poisson.sample_value(theta);
+    double theta = Gamma.sample_value(this.r, (this.p / (1 - this.p)), rng);
+    return Poisson.sample_value(theta, rng);
   }
 
   @Override
@@ -183,21 +199,23 @@ public class NegativeBinomial implements CondProbDistrib {
 
   @Override
   public Object[] getFiniteSupport() {
-    if (finiteSupport == null) {
+    Object[] support = finiteSupport;
+    if (support == null) {
       checkHasParams();
       int supportSize = 0;
       while (!Util.closeToZero(getProb(supportSize)))
         supportSize++;
-      finiteSupport = new Object[supportSize];
+      support = new Object[supportSize];
       for (int i = 0; i < supportSize; i++)
-        finiteSupport[i] = i;
+        support[i] = i;
+      finiteSupport = support;
     }
-    return finiteSupport;
+    return support;
   }
 
   private int r;
   private boolean hasR;
   private double p;
   private boolean hasP;
-  private Object[] finiteSupport = null;
+  private volatile Object[] finiteSupport = null;
 }
@@ -36,6 +36,7 @@
 package blog.distrib;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * A Poisson distribution with mean and variance lambda. This is a distribution
@@ -63,12 +64,12 @@ public class Poisson implements CondProbDistrib {
    * @param lambda
    * @return
    */
-  private static int sampleSmall(double lambda) {
+  private static int sampleSmall(double lambda, RandomStream rng) {
     int n = 0;
     double probOfN = Math.exp(-lambda); // start with prob of 0
     double cumProb = probOfN;
 
-    double u = Util.random();
+    double u = rng.nextDouble();
 
     while (cumProb < u) {
       n++;
@@ -80,7 +81,7 @@ public class Poisson implements CondProbDistrib {
     return n;
   }
 
-  private double[] cdf_table = null;
+  private volatile double[] cdf_table = null;
 
   private static double[] ensureSize(int n, double[] table) {
     double[] tb = table;
@@ -93,23 +94,25 @@ public class Poisson implements CondProbDistrib {
     return tb;
   }
 
-  private void ensureCDFTable(int n) {
-    int oldn = 0;
-    double w;
-    if (cdf_table != null) {
-      oldn = cdf_table.length;
-    }
-    if ((cdf_table == null) || (n >= cdf_table.length)) {
-      cdf_table = ensureSize(n, cdf_table);
+  /**
+   * Returns a cdf table covering at least 0..n. A table that has to grow is
+   * filled in before it is published, so concurrent readers never see a
+   * partially computed table.
+   */
+  private double[] ensureCDFTable(int n) {
+    double[] table = cdf_table;
+    if ((table != null) && (n < table.length)) {
+      return table;
     }
-    if (oldn > 0)
-      w = cdf_table[oldn - 1];
-    else
-      w = 0;
-    for (; oldn < cdf_table.length; oldn++) {
+    int oldn = (table == null) ? 0 : table.length;
+    table = ensureSize(n, table);
+    double w = (oldn > 0) ? table[oldn - 1] : 0;
+    for (; oldn < table.length; oldn++) {
       w += Math.exp(computeLogProb(lambda, oldn));
-      cdf_table[oldn] = w;
+      table[oldn] = w;
     }
+    cdf_table = table;
+    return table;
   }
 
   /**
@@ -122,12 +125,12 @@ public class Poisson implements CondProbDistrib {
    * @return
    */
   public double cdf(int a, int b) {
-    ensureCDFTable(b);
+    double[] table = ensureCDFTable(b);
 
     if (a <= 0)
-      return cdf_table[b];
+      return table[b];
     else
-      return cdf_table[b] - cdf_table[a - 1];
+      return table[b] - table[a - 1];
   }
 
   public static double cdf(double lambda, int a, int b) {
@@ -170,6 +173,7 @@ public class Poisson implements CondProbDistrib {
       this.lambda = lambda.doubleValue();
       this.hasLambda = true;
       this.finiteSupport = null;
+      this.cdf_table = null;
     }
   }
 
@@ -233,10 +237,25 @@ public class Poisson implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /** Samples from the Poisson distribution. */
   public int sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public int sample_value(RandomStream rng) {
     checkHasParams();
-    return sample_value(lambda);
+    return sample_value(lambda, rng);
   }
 
   /**
@@ -247,16 +266,21 @@ public class Poisson implements CondProbDistrib {
    * http://www.columbia.edu/~ak2108/ta/summer2003/poisson1.c </blockquote>
    */
   public static int sample_value(double lambda) {
+    return sample_value(lambda, Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value(double)}, but draws from <code>rng</code>. */
+  public static int sample_value(double lambda, RandomStream rng) {
     if (lambda < 15)
-      return sampleSmall(lambda);
+      return sampleSmall(lambda, rng);
     double alpha = 7.0 / 8.0;
     int m = (int) Math.floor(alpha * lambda);
-    double x = Gamma.sample_value(m, 1);
+    double x = Gamma.sample_value(m, 1, rng);
     int r;
     if (x < lambda) {
-      r = m + Poisson.sample_value(lambda - x);
+      r = m + Poisson.sample_value(lambda - x, rng);
     } else {
-      r = Binomial.sample_value(m - 1, lambda / x);
+      r = Binomial.sample_value(m - 1, lambda / x, rng);
     }
     return r;
   }
@@ -268,19 +292,21 @@ public class Poisson implements CondProbDistrib {
 
   @Override
   public Object[] getFiniteSupport() {
-    if (finiteSupport == null) {
+    Object[] support = finiteSupport;
+    if (support == null) {
       checkHasParams();
       int supportSize = 0;
       while (!Util.closeToZero(getProb(supportSize)))
         supportSize++;
-      finiteSupport = new Object[supportSize];
+      support = new Object[supportSize];
       for (int i = 0; i < supportSize; i++)
-        finiteSupport[i] = i;
+        support[i] = i;
+      finiteSupport = support;
     }
-    return finiteSupport;
+    return support;
   }
 
   private double lambda;
   private boolean hasLambda;
-  private Object[] finiteSupport = null;
+  private volatile Object[] finiteSupport = null;
 }
@@ -37,7 +37,9 @@ package blog.distrib;
 
 import java.util.Collection;
 
+import blog.common.IdentityCache;
 import blog.common.Util;
+import blog.common.random.RandomStream;
 import blog.model.Model;
 
 /**
@@ -69,13 +71,19 @@ public class UniformChoice implements CondProbDistrib {
 
   /**
    * If the method parameter <code>set</code> is non-null, sets the distribution
-   * parameter <code>S</code> to <code>set</code>
-   * 
+   * parameter <code>S</code> to <code>set</code>. The array of its elements is
+   * cached by the identity of <code>set</code>, which must not be modified
+   * afterwards.
    */
   public void setParams(Collection<?> set) {
     if (set != null) {
       this.set = set;
-      elements = set.toArray();
+      Object[] cached = CACHE.get(set);
+      if (cached == null) {
+        cached = set.toArray();
+        CACHE.put(set, cached);
+      }
+      elements = cached;
       this.hasS = true;
       prob = set.isEmpty() ? 1 : 1.0 / set.size();
       logprob = set.isEmpty() ? 0 : (-Math.log(set.size()));
@@ -129,13 +137,28 @@ public class UniformChoice implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /** Samples uniformly from <code>S</code>, a set of object. */
   public Object sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public Object sample_value(RandomStream rng) {
     checkHasParams();
     if (elements.length <= 0) {
       return Model.NULL;
     }
-    int n = Util.randInt(elements.length);
+    int n = rng.nextInt(elements.length);
     return elements[n];
   }
 
@@ -161,4 +184,7 @@ public class UniformChoice implements CondProbDistrib {
   private double prob; // pre-calculated probability
   private double logprob; // pre-calculated log of probability
   private boolean hasS;
+
+  private static final IdentityCache<Collection<?>, Object[]> CACHE = new IdentityCache<Collection<?>, Object[]>(
+      256);
 }
@@ -36,6 +36,7 @@
 package blog.distrib;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * This distribution has two
@@ -158,9 +159,24 @@ public class UniformInt implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   public int sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public int sample_value(RandomStream rng) {
     checkHasParams();
-    return lower + Util.randInt(upper - lower + 1);
+    return lower + rng.nextInt(upper - lower + 1);
   }
 
   @Override
@@ -170,14 +186,16 @@ public class UniformInt implements CondProbDistrib {
 
   @Override
   public Object[] getFiniteSupport() {
-    if (finiteSupport == null) {
+    Object[] support = finiteSupport;
+    if (support == null) {
       checkHasParams();
-      finiteSupport = new Object[upper - lower + 1];
+      support = new Object[upper - lower + 1];
       for (int i = lower; i <= upper; i++) {
-        finiteSupport[i - lower] = i;
+        support[i - lower] = i;
       }
+      finiteSupport = support;
     }
-    return finiteSupport;
+    return support;
   }
 
   /** Parameter <code>lower</code>. */
@@ -198,5 +216,5 @@ public class UniformInt implements CondProbDistrib {
    * <code>upper</code> inclusive.
    */
   private double logProb;
-  private Object[] finiteSupport = null;
+  private volatile Object[] finiteSupport = null;
 }
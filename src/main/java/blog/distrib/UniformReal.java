@@ -1,6 +1,7 @@
 package blog.distrib;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * Uniform distribution over a range of real numbers [<code>lower</code>,
@@ -107,11 +108,26 @@ public class UniformReal implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /** Samples uniformly between <code>lower</code> and <code>upper</code>. */
   public double sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public double sample_value(RandomStream rng) {
     checkHasParams();
-    // rely on the fact that Util.random() returns a value in [0, 1)
-    return (lower + (Util.random() * (upper - lower)));
+    // rely on the fact that rng.nextDouble() returns a value in [0, 1)
+    return (lower + (rng.nextDouble() * (upper - lower)));
   }
 
   @Override
@@ -38,6 +38,7 @@ package blog.distrib;
 import blog.common.Util;
 import blog.common.numerical.MatrixFactory;
 import blog.common.numerical.MatrixLib;
+import blog.common.random.RandomStream;
 
 /**
  * The uniform distribution over n-dimensional column vectors coming from a
@@ -202,12 +203,27 @@ public class UniformVector implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /** Samples from a UniformVector distribution. */
   public MatrixLib sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public MatrixLib sample_value(RandomStream rng) {
     checkHasParams();
     MatrixLib sample = MatrixFactory.fromArray(new double[dim][1]);
     for (int i = 0; i < dim; ++i) {
-      sample.setElement(i, 0, mins[i] + (Util.random() * (maxes[i] - mins[i])));
+      sample.setElement(i, 0, mins[i] + (rng.nextDouble() * (maxes[i] - mins[i])));
     }
     return sample;
   }
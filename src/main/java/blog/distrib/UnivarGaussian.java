@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.Iterator;
 
 import blog.common.Util;
+import blog.common.random.RandomStream;
 
 /**
  * Univariate Gaussian distribution with a given <code>mean</code> and
@@ -120,14 +121,29 @@ public class UnivarGaussian implements CondProbDistrib {
     return sample_value();
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see blog.distrib.CondProbDistrib#sampleVal(blog.common.random.RandomStream)
+   */
+  @Override
+  public Object sampleVal(RandomStream rng) {
+    return sample_value(rng);
+  }
+
   /**
    * Samples a value from the Univariate gaussian.
    * Intended for human use.
    */
   public double sample_value() {
+    return sample_value(Util.getRandomStream());
+  }
+
+  /** Same as {@link #sample_value()}, but draws from <code>rng</code>. */
+  public double sample_value(RandomStream rng) {
     checkHasParams();
-    double U = Util.random();
-    double V = Util.random();
+    double U = rng.nextDouble();
+    double V = rng.nextDouble();
     return (mean + (sqrtVariance * Math.sin(2 * Math.PI * V) * Math
         .sqrt((-2 * Math.log(U)))));
   }
@@ -0,0 +1,179 @@
+package blog.engine;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import blog.common.Histogram;
+import blog.common.StreamingStats;
+
+/**
+ * Convergence diagnostics computed across several independent chains: the
+ * potential scale reduction factor R-hat and the between-chain effective
+ * sample size, as defined by Gelman et al., <i>Bayesian Data Analysis</i> (2nd
+ * edition), section 11.6.
+ *
+ * Both are computed from the per-chain mean and variance of a scalar
+ * quantity, so they can be obtained from query histograms without keeping the
+ * sample traces. For queries with numeric values the quantity is the value
+ * itself; otherwise it is the indicator of each value, and the worst value is
+ * reported.
+ *
+ * @since Oct 18, 2026
+ */
+public class ConvergenceDiagnostics {
+  private ConvergenceDiagnostics() {
+  }
+
+  /**
+   * Returns R-hat for chains with the given means and (within-chain) sample
+   * variances, each chain having <code>n</code> samples. Values close to 1
+   * indicate that the chains agree.
+   */
+  public static double rHat(double[] means, double[] variances, double n) {
+    double w = average(variances);
+    double b = betweenChainVariance(means, n);
+    if (w <= 0) {
+      return (b <= 0) ? 1 : Double.POSITIVE_INFINITY;
+    }
+    return Math.sqrt(pooledVariance(w, b, n) / w);
+  }
+
+  /**
+   * Returns the effective number of samples of <code>means.length</code>
+   * chains with <code>n</code> samples each, estimated from the ratio of
+   * pooled to between-chain variance. The result is at most the total number
+   * of samples.
+   */
+  public static double effectiveSampleSize(double[] means, double[] variances,
+      double n) {
+    double total = means.length * n;
+    double b = betweenChainVariance(means, n);
+    if (b <= 0) {
+      return total;
+    }
+    double w = average(variances);
+    return Math.min(total, total * pooledVariance(w, b, n) / b);
+  }
+
+  /**
+   * Computes R-hat and effective sample size for one query, given the
+   * histogram it has in every chain and the average number of samples per
+   * chain. Returns an array holding R-hat followed by the effective sample
+   * size.
+   */
+  public static double[] forHistograms(List<Histogram> chains, double n) {
+    int m = chains.size();
+    double[] means = new double[m];
+    double[] variances = new double[m];
+    double correction = (n > 1) ? n / (n - 1) : 1;
+
+    if (isNumeric(chains)) {
+      for (int c = 0; c < m; c++) {
+        Histogram hist = chains.get(c);
+        double mean = 0;
+        double sq = 0;
+        for (Iterator iter = hist.entrySet().iterator(); iter.hasNext();) {
+          Histogram.Entry entry = (Histogram.Entry) iter.next();
+          double p = Math.exp(entry.getLogWeight() - hist.getTotalLogWeight());
+          double x = ((Number) entry.getElement()).doubleValue();
+          mean += p * x;
+          sq += p * x * x;
+        }
+        means[c] = mean;
+        variances[c] = Math.max(0, sq - mean * mean) * correction;
+      }
+      return new double[] { rHat(means, variances, n),
+          effectiveSampleSize(means, variances, n) };
+    }
+
+    Set<Object> values = new LinkedHashSet<Object>();
+    for (Histogram hist : chains) {
+      values.addAll(hist.elementSet());
+    }
+    double worstRHat = 1;
+    double worstEss = m * n;
+    for (Object value : values) {
+      for (int c = 0; c < m; c++) {
+        double p = chains.get(c).getProb(value);
+        means[c] = p;
+        variances[c] = p * (1 - p) * correction;
+      }
+      worstRHat = Math.max(worstRHat, rHat(means, variances, n));
+      worstEss = Math.min(worstEss, effectiveSampleSize(means, variances, n));
+    }
+    return new double[] { worstRHat, worstEss };
+  }
+
+  /**
+   * Computes R-hat and effective sample size for one query that keeps
+   * streaming statistics, given its statistics in every chain and the average
+   * number of samples per chain. For matrix-valued queries the worst element
+   * is reported. Returns an array holding R-hat followed by the effective
+   * sample size.
+   */
+  public static double[] forStats(List<StreamingStats> chains, double n) {
+    int m = chains.size();
+    double[] means = new double[m];
+    double[] variances = new double[m];
+    double correction = (n > 1) ? n / (n - 1) : 1;
+    double worstRHat = 1;
+    double worstEss = m * n;
+    for (StreamingStats stats : chains) {
+      if (stats.isEmpty()) {
+        return new double[] { Double.NaN, Double.NaN };
+      }
+    }
+    StreamingStats first = chains.get(0);
+    for (int i = 0; i < first.numRows(); i++) {
+      for (int j = 0; j < first.numCols(); j++) {
+        for (int c = 0; c < m; c++) {
+          StreamingStats stats = chains.get(c);
+          means[c] = stats.getMean(i, j);
+          variances[c] = stats.getVariance(i, j) * correction;
+        }
+        worstRHat = Math.max(worstRHat, rHat(means, variances, n));
+        worstEss = Math.min(worstEss, effectiveSampleSize(means, variances, n));
+      }
+    }
+    return new double[] { worstRHat, worstEss };
+  }
+
+  private static boolean isNumeric(List<Histogram> chains) {
+    for (Histogram hist : chains) {
+      for (Object value : hist.elementSet()) {
+        if (!(value instanceof Number)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static double average(double[] xs) {
+    double sum = 0;
+    for (double x : xs) {
+      sum += x;
+    }
+    return sum / xs.length;
+  }
+
+  /** B in Gelman et al.: n times the variance of the chain means. */
+  private static double betweenChainVariance(double[] means, double n) {
+    int m = means.length;
+    if (m < 2) {
+      return 0;
+    }
+    double grand = average(means);
+    double sum = 0;
+    for (double mean : means) {
+      sum += (mean - grand) * (mean - grand);
+    }
+    return n * sum / (m - 1);
+  }
+
+  private static double pooledVariance(double w, double b, double n) {
+    return (n - 1) / n * w + b / n;
+  }
+}
@@ -41,6 +41,7 @@ import java.util.Properties;
 
 import blog.common.Util;
 import blog.io.ResultWriter;
+import blog.model.ArgSpecQuery;
 import blog.model.Evidence;
 import blog.model.Model;
 import blog.model.ModelEvidenceQueries;
@@ -60,6 +61,13 @@ import blog.model.Query;
  * arguments, of types blog.Model and java.util.Properties. The properties
  * argument specifies configuration parameters for the inference engine; it may
  * be ignored if the engine has no such parameters.
+ * 
+ * <p>
+ * Engines built by <code>constructEngine</code> also look at the
+ * <code>queryStats</code> property. If it is <code>streaming</code>, queries on
+ * real numbers or real matrices keep streaming moments and quantile sketches
+ * instead of a histogram with one entry per distinct value. The default is
+ * <code>histogram</code>.
  */
 public abstract class InferenceEngine {
   /**
@@ -79,7 +87,14 @@ public abstract class InferenceEngine {
       Constructor<?> constructor = engineClass.getConstructor(paramTypes);
 
       Object[] args = { model, properties };
-      return (InferenceEngine) constructor.newInstance(args);
+      InferenceEngine engine = (InferenceEngine) constructor.newInstance(args);
+      String queryStats = properties.getProperty("queryStats", "histogram");
+      if (queryStats.equals("streaming")) {
+        engine.setStreamingStats(true);
+      } else if (!queryStats.equals("histogram")) {
+        Util.fatalErrorWithoutStack("Invalid query statistics: " + queryStats);
+      }
+      return engine;
     } catch (Exception e) {
       Util.fatalError(e);
     }
@@ -144,6 +159,26 @@ public abstract class InferenceEngine {
   public void setQueries(Collection<? extends Query> queries) {
     this.queries.clear();
     this.queries.addAll(queries);
+    applyStreamingStats();
+  }
+
+  /**
+   * If <code>streaming</code> is true, queries on real numbers or real
+   * matrices keep streaming statistics (see {@link ArgSpecQuery#setUseStats})
+   * rather than exact histograms.
+   */
+  public void setStreamingStats(boolean streaming) {
+    this.streamingStats = streaming;
+    applyStreamingStats();
+  }
+
+  private void applyStreamingStats() {
+    for (Query query : queries) {
+      if (query instanceof ArgSpecQuery) {
+        ArgSpecQuery q = (ArgSpecQuery) query;
+        q.setUseStats(streamingStats && q.isContinuous());
+      }
+    }
   }
 
   /**
@@ -153,6 +188,13 @@ public abstract class InferenceEngine {
    */
   public abstract void answerQueries();
 
+  /**
+   * Releases the threads or other resources this engine holds between calls.
+   * The default implementation does nothing.
+   */
+  public void shutdown() {
+  }
+
   /**
    * The BLOG model on which this engine performs inference.
    */
@@ -174,4 +216,9 @@ public abstract class InferenceEngine {
    * to print out the results.
    */
   protected ResultWriter writer = null;
+
+  /**
+   * Whether continuous queries keep streaming statistics.
+   */
+  protected boolean streamingStats = false;
 }
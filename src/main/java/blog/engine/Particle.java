@@ -40,6 +40,8 @@ import java.util.Iterator;
 
 import blog.BLOGUtil;
 import blog.DBLOGUtil;
+import blog.common.Util;
+import blog.common.random.RandomStream;
 import blog.model.Evidence;
 import blog.model.Queries;
 import blog.model.Query;
@@ -53,12 +55,25 @@ import blog.world.PartialWorld;
  * evidence and queries with calls to methods {@link #take(Evidence)} and
  * {@link #answer(Collection)}. Providing evidence also reweights the particle
  * according to it. A method {@link #copy()} can be used for resampling.
+ * 
+ * Every particle owns a {@link RandomStream}, split off the global stream when
+ * the particle is created and off its parent's stream when it is copied. All
+ * sampling done on behalf of the particle draws from that stream, so the
+ * results do not depend on how particles are scheduled over threads.
  */
 public class Particle {
 
   public Particle(Sampler sampler, PartialWorld world) {
+    this(sampler, world, Util.splitRandomStream());
+  }
+
+  /**
+   * Creates a particle that draws its random numbers from <code>rng</code>.
+   */
+  public Particle(Sampler sampler, PartialWorld world, RandomStream rng) {
     this.sampler = sampler;
     this.curWorld = world;
+    this.rng = rng;
     logWeight = 1; // FIXME: shouldn't it be 0???
   }
 
@@ -67,12 +82,26 @@ public class Particle {
    * on it, and recalculates particle logWeight according to its probability.
    */
   public void take(Evidence evidence) {
-    sampler.initialize(evidence, new Queries(null));
-    sampler.setBaseWorld(curWorld);
+    take(evidence, sampler);
+  }
 
-    sampler.nextSample();
-    logWeight = sampler.getLatestLogWeight();
-    curWorld = sampler.getLatestWorld();
+  /**
+   * Same as {@link #take(Evidence)}, but advances this particle with the given
+   * sampler instead of its own. Used by multi-threaded filters, where every
+   * worker thread owns a sampler.
+   */
+  public void take(Evidence evidence, Sampler sampler) {
+    RandomStream prev = Util.setRandomStream(rng);
+    try {
+      sampler.initialize(evidence, new Queries(null));
+      sampler.setBaseWorld(curWorld);
+
+      sampler.nextSample();
+      logWeight = sampler.getLatestLogWeight();
+      curWorld = sampler.getLatestWorld();
+    } finally {
+      Util.setRandomStream(prev);
+    }
   }
 
   /**
@@ -80,11 +109,24 @@ public class Particle {
    */
   public void answer(Collection queries) {
     // System.out.println("Particle.answer");
-    Collection queriesVars = BLOGUtil.getQueriesVars(queries);
-    BLOGUtil.ensureDetAndSupported(queriesVars, curWorld);
+    supportQueries(queries);
     updateQueriesStats(queries);
   }
 
+  /**
+   * Instantiates in the current world the variables needed to answer the given
+   * queries, without updating the query statistics.
+   */
+  public void supportQueries(Collection queries) {
+    Collection queriesVars = BLOGUtil.getQueriesVars(queries);
+    RandomStream prev = Util.setRandomStream(rng);
+    try {
+      BLOGUtil.ensureDetAndSupported(queriesVars, curWorld);
+    } finally {
+      Util.setRandomStream(prev);
+    }
+  }
+
   /**
    * remove all the temporal variables in this particle (possible world) that
    * are prior to the specified timestep (not including the current timestep)
@@ -106,10 +148,17 @@ public class Particle {
     return logWeight;
   }
 
+  /**
+   * Returns the random stream this particle samples from.
+   */
+  public RandomStream getRandomStream() {
+    return rng;
+  }
+
   public Particle copy() {
     DefaultPartialWorld worldCopy = (DefaultPartialWorld) ((DefaultPartialWorld) curWorld)
         .clone();
-    Particle copy = new Particle(sampler, worldCopy);
+    Particle copy = new Particle(sampler, worldCopy, rng.split());
     copy.logWeight = logWeight;
     return copy;
   }
@@ -134,4 +183,5 @@ public class Particle {
   public PartialWorld curWorld = null;
   protected double logWeight;
   private Sampler sampler;
+  private RandomStream rng;
 }
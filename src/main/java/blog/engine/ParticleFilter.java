@@ -43,8 +43,14 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import blog.DBLOGUtil;
+import blog.TimeSliceReader;
 import blog.common.Util;
 import blog.model.Evidence;
 import blog.model.Model;
@@ -53,12 +59,31 @@ import blog.model.Type;
 import blog.sample.Sampler;
 import blog.type.Timestep;
 import blog.world.DefaultPartialWorld;
+import blog.world.WorldFactory;
 
 /**
  * A Particle Filter. It works by keeping a set of {@link Particles}, each
  * representing a partial world, weighted by the
  * evidence. It uses the following properties: <code>numParticles</code> or
- * <code>numSamples</code>: number of particles (default is <code>1000</code>).
+ * <code>numSamples</code>: number of particles (default is <code>1000</code>);
+ * <code>numThreads</code>: number of worker threads used to propagate the
+ * particles and support their queries (default is <code>1</code>, meaning
+ * everything runs on the calling thread); <code>resampleThreshold</code>: the
+ * particles are resampled after taking evidence only if the effective sample
+ * size of their weights falls below this fraction of the number of particles,
+ * and otherwise keep their weights for the next evidence (default is
+ * <code>1</code>, meaning they are resampled after every evidence);
+ * <code>resampleScheme</code>: <code>stratified</code> (the default),
+ * <code>systematic</code> or <code>residual</code>.
+ * 
+ * When <code>numThreads</code> is greater than one, the particles are split
+ * into contiguous blocks, one per worker, and each worker advances its block
+ * with its own {@link Sampler} instance. Weight reduction, query statistics
+ * and resampling always run on the calling thread, in particle order, so they
+ * do not depend on how the work was scheduled. Note that the particle event
+ * handlers ({@link #beforeParticleTakesEvidence} and
+ * {@link #afterParticleTakesEvidence}) are then invoked from the worker
+ * threads.
  * 
  * The ParticleFilter is an unusual {@link InferenceEngine} in that it takes
  * evidence and queries additional to the ones taken by
@@ -104,6 +129,48 @@ public class ParticleFilter extends InferenceEngine {
     System.out.println("Constructing sampler of class " + samplerClassName);
     particleSampler = Sampler.make(samplerClassName, model, properties);
 
+    worldFactory = new WorldFactory(properties);
+
+    String numThreadsStr = properties.getProperty("numThreads", "1");
+    try {
+      numThreads = Integer.parseInt(numThreadsStr);
+    } catch (NumberFormatException e) {
+      Util.fatalErrorWithoutStack("Invalid number of threads: "
+          + numThreadsStr);
+    }
+    if (numThreads < 1) {
+      Util.fatalErrorWithoutStack("Invalid number of threads: "
+          + numThreadsStr);
+    }
+    if (numThreads > 1) {
+      System.out.println("Propagating particles with " + numThreads
+          + " threads");
+      workerSamplers = new Sampler[numThreads];
+      for (int i = 0; i < numThreads; i++) {
+        workerSamplers[i] = Sampler.make(samplerClassName, model, properties);
+      }
+    }
+
+    String resampleThresholdStr = properties.getProperty("resampleThreshold",
+        "1");
+    try {
+      resampleThreshold = Double.parseDouble(resampleThresholdStr);
+    } catch (NumberFormatException e) {
+      resampleThreshold = -1;
+    }
+    if (!(resampleThreshold >= 0 && resampleThreshold <= 1)) {
+      Util.fatalErrorWithoutStack("Invalid resampling threshold: "
+          + resampleThresholdStr);
+    }
+
+    resampleScheme = properties.getProperty("resampleScheme", STRATIFIED);
+    if (!resampleScheme.equals(STRATIFIED)
+        && !resampleScheme.equals(SYSTEMATIC)
+        && !resampleScheme.equals(RESIDUAL)) {
+      Util.fatalErrorWithoutStack("Invalid resampling scheme: "
+          + resampleScheme);
+    }
+
     String queryReportIntervalStr = properties.getProperty(
         "queryReportInterval", "10");
     try {
@@ -124,10 +191,40 @@ public class ParticleFilter extends InferenceEngine {
     }
     System.out.println("Report every: " + queryReportInterval + " timesteps");
     reset();
-    takeEvidenceAndAnswerQuery();
+    try {
+      if (timeSlices != null) {
+        takeStreamingEvidenceAndAnswerQuery();
+      } else {
+        takeEvidenceAndAnswerQuery();
+      }
+    } finally {
+      shutdown();
+    }
     System.out.println("Log likelihood of data: " + dataLogLik);
   }
 
+  /**
+   * Stops the worker threads, if any. They are started again by the next
+   * call that needs them, so a filter fed through {@link #take(Evidence)}
+   * directly should call this once it is done.
+   */
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Makes {@link #answerQueries()} read its evidence and queries from the
+   * given reader, one time step at a time, in addition to those set by
+   * {@link #setEvidence(Evidence)} and {@link #setQueries(List)}. The reader
+   * must be past its declarations (see {@link TimeSliceReader#readModel()}).
+   */
+  public void setTimeSliceReader(TimeSliceReader timeSlices) {
+    this.timeSlices = timeSlices;
+  }
+
   private void reset() {
     System.out.println("Using " + numParticles + " particles...");
     if (evidence == null) {
@@ -142,6 +239,7 @@ public class ParticleFilter extends InferenceEngine {
       particles.add(newParticle);
     }
     needsToBeResampledBeforeFurtherSampling = false;
+    weightsAreUniform = true;
   }
 
   private void takeEvidenceAndAnswerQuery() {
@@ -170,9 +268,7 @@ public class ParticleFilter extends InferenceEngine {
       }
       if (slicedQueries.containsKey(timestep)) {
         Queries currentQueries = slicedQueries.get(timestep);
-        for (Particle particle : particles) {
-          particle.answer(currentQueries);
-        }
+        answer(currentQueries);
         if (currentQueries != null) {
           writer.writeAllResults(currentQueries);
           currentQueries.reset();
@@ -182,9 +278,7 @@ public class ParticleFilter extends InferenceEngine {
       // HACK: Answer atemporal queries at every timestep:
       if (slicedQueries.containsKey(null)) {
         Queries currentQueries = slicedQueries.get(null);
-        for (Particle particle : particles) {
-          particle.answer(currentQueries);
-        }
+        answer(currentQueries);
         writer.writeAllResults(currentQueries);
         currentQueries.reset();
       }
@@ -205,13 +299,45 @@ public class ParticleFilter extends InferenceEngine {
      */
   }
 
+  /**
+   * Processes the evidence and queries set on this engine as usual, and then
+   * those from the time slice reader, reading each time step's evidence and
+   * queries only when the previous one is done.
+   */
+  private void takeStreamingEvidenceAndAnswerQuery() {
+    takeEvidenceAndAnswerQuery();
+    while (timeSlices.next()) {
+      take(timeSlices.getEvidence());
+      Timestep timestep = timeSlices.getTimestep();
+      if (timestep == null) {
+        continue; // evidence about no time step, at the start of the input
+      }
+      Queries currentQueries = timeSlices.getQueries();
+      if (!currentQueries.isEmpty()) {
+        answer(currentQueries);
+        writer.writeAllResults(currentQueries);
+        currentQueries.reset();
+      }
+
+      // As above, answer atemporal queries at every timestep.
+      Queries atemporalQueries = timeSlices.getAtemporalQueries();
+      if (!atemporalQueries.isEmpty()) {
+        answer(atemporalQueries);
+        writer.writeAllResults(atemporalQueries);
+        atemporalQueries.reset();
+      }
+
+      removePriorTimeSlice(timestep);
+    }
+  }
+
   /**
    * A method making a particle (by default, {@link Particle}). Useful for
    * extensions using specialized particles (don't forget to specialize
    * {@link Particle#copy()} for it to return an object of its own class).
    */
   protected Particle makeParticle(Set<? extends Type> idTypes) {
-    DefaultPartialWorld world = new DefaultPartialWorld(idTypes, false, false);
+    DefaultPartialWorld world = worldFactory.makeWorld(idTypes, false, false);
     return new Particle(particleSampler, world);
   }
 
@@ -221,31 +347,73 @@ public class ParticleFilter extends InferenceEngine {
    * @param timestep
    *          Timestep before which the vars should be removed
    */
-  public void removePriorTimeSlice(Timestep timestep) {
-    for (Particle p : particles) {
-      p.removePriorTimeSlice(timestep);
+  public void removePriorTimeSlice(final Timestep timestep) {
+    forEachParticle(new ParticleTask() {
+      public void run(Particle particle, Sampler sampler) {
+        particle.removePriorTimeSlice(timestep);
+      }
+    });
+  }
+
+  /**
+   * Answers the given queries with the current particles. The variables needed
+   * by the queries are instantiated in each particle (possibly in parallel),
+   * and the query statistics are then updated in particle order.
+   */
+  protected void answer(final Queries queries) {
+    forEachParticle(new ParticleTask() {
+      public void run(Particle particle, Sampler sampler) {
+        particle.supportQueries(queries);
+      }
+    });
+    for (Particle particle : particles) {
+      particle.updateQueriesStats(queries);
     }
   }
 
   /** Takes more evidence. */
-  public void take(Evidence evidence) {
+  public void take(final Evidence evidence) {
     if (evidence.isEmpty()) {
       return;
     }
 
     if (needsToBeResampledBeforeFurtherSampling) {
       resample();
+      weightsAreUniform = true;
+    }
+
+    // Weights not reset by resampling are carried over to this evidence.
+    double[] priorLogWeights = null;
+    double logSumPriorWeights = 0;
+    if (!weightsAreUniform) {
+      priorLogWeights = new double[particles.size()];
+      logSumPriorWeights = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < priorLogWeights.length; i++) {
+        priorLogWeights[i] = particles.get(i).getLatestLogWeight();
+        logSumPriorWeights = Util.logSum(logSumPriorWeights,
+            priorLogWeights[i]);
+      }
     }
 
     if (beforeTakesEvidence != null)
       beforeTakesEvidence.evaluate(evidence, this);
 
-    for (Particle p : particles) {
-      if (beforeParticleTakesEvidence != null)
-        beforeParticleTakesEvidence.evaluate(p, evidence, this);
-      p.take(evidence);
-      if (afterParticleTakesEvidence != null)
-        afterParticleTakesEvidence.evaluate(p, evidence, this);
+    forEachParticle(new ParticleTask() {
+      public void run(Particle p, Sampler sampler) {
+        if (beforeParticleTakesEvidence != null)
+          beforeParticleTakesEvidence.evaluate(p, evidence,
+              ParticleFilter.this);
+        p.take(evidence, sampler);
+        if (afterParticleTakesEvidence != null)
+          afterParticleTakesEvidence.evaluate(p, evidence,
+              ParticleFilter.this);
+      }
+    });
+
+    if (priorLogWeights != null) {
+      for (int i = 0; i < priorLogWeights.length; i++) {
+        particles.get(i).logWeight += priorLogWeights[i];
+      }
     }
 
     double logSumWeights = Double.NEGATIVE_INFINITY;
@@ -264,17 +432,53 @@ public class ParticleFilter extends InferenceEngine {
     if (particles.size() == 0)
       throw new IllegalArgumentException("All particles have zero weight");
 
-    dataLogLik += logSumWeights;
+    if (priorLogWeights == null) {
+      dataLogLik += logSumWeights;
+    } else {
+      // as if the prior weights had been normalized to sum to numParticles
+      dataLogLik += logSumWeights - logSumPriorWeights
+          + Math.log(particles.size());
+    }
 
-    needsToBeResampledBeforeFurtherSampling = true;
+    weightsAreUniform = false;
+    needsToBeResampledBeforeFurtherSampling = (resampleThreshold >= 1)
+        || !(getEffectiveSampleSize() >= resampleThreshold * particles.size());
 
     if (afterTakesEvidence != null)
       afterTakesEvidence.evaluate(evidence, this);
   }
 
+  /**
+   * Returns the effective sample size of the current particle weights,
+   * <code>(sum w)^2 / (sum w^2)</code>: the number of particles if their
+   * weights are equal, and close to 1 if one of them dominates.
+   */
+  public double getEffectiveSampleSize() {
+    double maxLogWeight = Double.NEGATIVE_INFINITY;
+    for (Particle particle : particles) {
+      maxLogWeight = Math.max(maxLogWeight, particle.getLatestLogWeight());
+    }
+    if (maxLogWeight == Double.NEGATIVE_INFINITY) {
+      return 0;
+    }
+    double sum = 0;
+    double sumSquares = 0;
+    for (Particle particle : particles) {
+      double w = Math.exp(particle.getLatestLogWeight() - maxLogWeight);
+      sum += w;
+      sumSquares += w * w;
+    }
+    return sum * sum / sumSquares;
+  }
+
+  /**
+   * Replaces the particles by <code>numParticles</code> particles drawn in
+   * proportion to their weights, with the scheme given by the
+   * <code>resampleScheme</code> property. The first draw of a particle reuses
+   * it; further draws are {@link Particle#copy() copies}.
+   */
   protected void resample() {
     double[] logWeights = new double[particles.size()];
-    boolean[] alreadySampled = new boolean[particles.size()];
     double maxLogWeight = Double.NEGATIVE_INFINITY;
     double sumWeights = 0;
     double[] normalizedWeights = new double[particles.size()];
@@ -310,28 +514,154 @@ public class ParticleFilter extends InferenceEngine {
 
     sumWeights = normalizedWeights[particles.size() - 1];
 
+    int[] counts;
+    if (resampleScheme.equals(RESIDUAL)) {
+      counts = residualCounts(normalizedWeights, sumWeights);
+    } else {
+      counts = new int[particles.size()];
+      drawCounts(normalizedWeights, sumWeights, numParticles,
+          resampleScheme.equals(SYSTEMATIC), counts);
+    }
+
+    for (int i = 0; i < counts.length; i++) {
+      for (int j = 0; j < counts[i]; j++) {
+        Particle particle = particles.get(i);
+        newParticles.add((j == 0) ? particle : particle.copy());
+      }
+    }
+
+    particles = newParticles;
+  }
+
+  /**
+   * Draws <code>n</code> indices from the cumulative weights
+   * <code>cumWeights</code>, summing to <code>sum</code>, and adds the number of times each index is drawn to
+   * <code>counts</code>. The range of weights is split into <code>n</code>
+   * equal strata, and one point is drawn in each: uniformly and independently
+   * (stratified), or at the same offset in all of them (systematic).
+   */
+  private static void drawCounts(double[] cumWeights, double sum, int n,
+      boolean systematic, int[] counts) {
     /*
      * Modified by yiwu on Oct.8.2014
-     * Use systematic resample scheme
+     * Use stratified resample scheme (a uniform draw per stratum)
      */
-    double ratio = sumWeights / numParticles;
+    double ratio = sum / n;
+    double offset = systematic ? Util.random() * ratio : 0;
     double basis = 0;
     double sampleKey = 0;
     int selection = 0;
-    for (int i = 0; i < numParticles; i++) {
-      sampleKey = basis + Util.random() * ratio;
+    for (int i = 0; i < n; i++) {
+      sampleKey = basis + (systematic ? offset : Util.random() * ratio);
       basis += ratio;
-      while (normalizedWeights[selection] < sampleKey)
+      while (selection < cumWeights.length - 1
+          && cumWeights[selection] < sampleKey)
         ++selection;
-      if (!alreadySampled[selection]) {
-        newParticles.add(particles.get(selection));
-        alreadySampled[selection] = true;
-      } else {
-        newParticles.add(particles.get(selection).copy());
+      ++counts[selection];
+    }
+  }
+
+  /**
+   * Residual resampling: each particle is first kept
+   * <code>floor(numParticles * w)</code> times for its normalized weight
+   * <code>w</code>, and the remaining particles are drawn by stratified
+   * resampling from the leftover weights.
+   */
+  private int[] residualCounts(double[] cumWeights, double sumWeights) {
+    int[] counts = new int[cumWeights.length];
+    double[] residuals = new double[cumWeights.length];
+    int numKept = 0;
+    double previous = 0;
+    for (int i = 0; i < cumWeights.length; i++) {
+      double expected = (cumWeights[i] - previous) / sumWeights * numParticles;
+      previous = cumWeights[i];
+      counts[i] = (int) expected;
+      numKept += counts[i];
+      residuals[i] = expected - counts[i];
+      if (i > 0)
+        residuals[i] += residuals[i - 1];
+    }
+    if (numKept < numParticles) {
+      drawCounts(residuals, residuals[residuals.length - 1], numParticles
+          - numKept, false, counts);
+    }
+    return counts;
+  }
+
+  /**
+   * A unit of work applied to a single particle by
+   * {@link ParticleFilter#forEachParticle(ParticleTask)}. The sampler passed
+   * in is the one owned by the thread running the task.
+   */
+  protected static interface ParticleTask {
+    public void run(Particle particle, Sampler sampler);
+  }
+
+  /**
+   * Applies <code>task</code> to every particle. With a single thread this is
+   * a plain loop using the filter's sampler. Otherwise the particle list is
+   * split into <code>numThreads</code> contiguous blocks which are processed
+   * concurrently, each with its worker's sampler, and this method returns
+   * once every block is done. An exception thrown by a task is rethrown on the
+   * calling thread.
+   */
+  protected void forEachParticle(final ParticleTask task) {
+    if (workerSamplers == null) {
+      for (Particle particle : particles) {
+        task.run(particle, particleSampler);
+      }
+      return;
+    }
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(numThreads,
+          new WorkerThreadFactory());
+    }
+
+    int size = particles.size();
+    int blockSize = (size + numThreads - 1) / numThreads;
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    for (int i = 0; i < numThreads; i++) {
+      final List<Particle> block = particles.subList(
+          Math.min(size, i * blockSize), Math.min(size, (i + 1) * blockSize));
+      final Sampler sampler = workerSamplers[i];
+      futures.add(executor.submit(new Runnable() {
+        public void run() {
+          for (Particle particle : block) {
+            task.run(particle, sampler);
+          }
+        }
+      }));
+    }
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for "
+            + "particle workers", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        if (cause instanceof Error)
+          throw (Error) cause;
+        throw new IllegalStateException(cause);
       }
     }
+  }
 
-    particles = newParticles;
+  /**
+   * Creates daemon worker threads, so an idle pool never keeps the JVM alive.
+   */
+  private static class WorkerThreadFactory implements ThreadFactory {
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "ParticleFilter-worker-" + (count++));
+      thread.setDaemon(true);
+      return thread;
+    }
+
+    private int count = 0;
   }
 
   // PARTICLE TAKES EVIDENCE EVENT HANDLING
@@ -378,11 +708,23 @@ public class ParticleFilter extends InferenceEngine {
   public TakesEvidenceHandler afterTakesEvidence;
 
   private Set<Type> idTypes; // of Type
+  private WorldFactory worldFactory;
+
+  private static final String STRATIFIED = "stratified";
+  private static final String SYSTEMATIC = "systematic";
+  private static final String RESIDUAL = "residual";
 
   private int numParticles;
   protected List<Particle> particles;
   private boolean needsToBeResampledBeforeFurtherSampling = false;
+  private boolean weightsAreUniform = true; // since the last resampling
+  private double resampleThreshold;
+  private String resampleScheme;
   private Sampler particleSampler;
+  private int numThreads = 1;
+  private Sampler[] workerSamplers; // one per worker, null if single-threaded
+  private ExecutorService executor; // null when no workers are running
   private int queryReportInterval;
+  private TimeSliceReader timeSlices = null;
   private double dataLogLik; // log likelihood of the data
 }
@@ -10,6 +10,7 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import blog.DBLOGUtil;
+import blog.TimeSliceReader;
 import blog.common.Util;
 import blog.model.Evidence;
 import blog.model.Model;
@@ -20,6 +21,7 @@ import blog.sample.MHSampler;
 import blog.sample.Sampler;
 import blog.type.Timestep;
 import blog.world.DefaultPartialWorld;
+import blog.world.WorldFactory;
 import blog.world.PartialWorldDiff;
 
 /**
@@ -63,6 +65,8 @@ public class ResampleMovePF extends InferenceEngine {
       Util.fatalErrorWithoutStack("Fatal error: invalid idTypes list.");
     }
 
+    worldFactory = new WorldFactory(properties);
+
     String samplerClassName = properties.getProperty("samplerClass",
         "blog.sample.LWSampler");
     System.out.println("Constructing sampler of class " + samplerClassName);
@@ -82,7 +86,12 @@ public class ResampleMovePF extends InferenceEngine {
     // TODO: make this a parameter
     numMHIters = 10;
 
-    mhSampler = new MHSampler(model, new Properties());
+    Properties mhProperties = new Properties();
+    String worldDiffClass = properties.getProperty("worldDiffClass");
+    if (worldDiffClass != null) {
+      mhProperties.setProperty("worldDiffClass", worldDiffClass);
+    }
+    mhSampler = new MHSampler(model, mhProperties);
     mhSampler.initialize(new Evidence(null), new Queries(null));
   }
 
@@ -94,10 +103,24 @@ public class ResampleMovePF extends InferenceEngine {
     }
     System.out.println("Report every: " + queryReportInterval + " timesteps");
     reset();
-    takeEvidenceAndAnswerQuery();
+    if (timeSlices != null) {
+      takeStreamingEvidenceAndAnswerQuery();
+    } else {
+      takeEvidenceAndAnswerQuery();
+    }
     System.out.println("Log likelihood of data: " + dataLogLik);
   }
 
+  /**
+   * Makes {@link #answerQueries()} read its evidence and queries from the
+   * given reader, one time step at a time, in addition to those set by
+   * {@link #setEvidence(Evidence)} and {@link #setQueries(List)}. The reader
+   * must be past its declarations (see {@link TimeSliceReader#readModel()}).
+   */
+  public void setTimeSliceReader(TimeSliceReader timeSlices) {
+    this.timeSlices = timeSlices;
+  }
+
   private void reset() {
     System.out.println("Using " + numParticles + " particles...");
     if (evidence == null) {
@@ -173,13 +196,47 @@ public class ResampleMovePF extends InferenceEngine {
      */
   }
 
+  /**
+   * Processes the evidence and queries set on this engine as usual, and then
+   * those from the time slice reader, reading each time step's evidence and
+   * queries only when the previous one is done.
+   */
+  private void takeStreamingEvidenceAndAnswerQuery() {
+    takeEvidenceAndAnswerQuery();
+    while (timeSlices.next()) {
+      take(timeSlices.getEvidence());
+      Timestep timestep = timeSlices.getTimestep();
+      if (timestep == null) {
+        continue; // evidence about no time step, at the start of the input
+      }
+      Queries currentQueries = timeSlices.getQueries();
+      if (!currentQueries.isEmpty()) {
+        for (Particle particle : particles) {
+          particle.answer(currentQueries);
+        }
+        writer.writeAllResults(currentQueries);
+        currentQueries.reset();
+      }
+
+      // As above, answer atemporal queries at every timestep.
+      Queries atemporalQueries = timeSlices.getAtemporalQueries();
+      if (!atemporalQueries.isEmpty()) {
+        for (Particle particle : particles) {
+          particle.answer(atemporalQueries);
+        }
+        writer.writeAllResults(atemporalQueries);
+        atemporalQueries.reset();
+      }
+    }
+  }
+
   /**
    * A method making a particle (by default, {@link Particle}). Useful for
    * extensions using specialized particles (don't forget to specialize
    * {@link Particle#copy()} for it to return an object of its own class).
    */
   protected Particle makeParticle(Set<? extends Type> idTypes) {
-    DefaultPartialWorld world = new DefaultPartialWorld(idTypes, false, true);
+    DefaultPartialWorld world = worldFactory.makeWorld(idTypes, false, true);
     return new Particle(particleSampler, world);
   }
 
@@ -293,12 +350,13 @@ public class ResampleMovePF extends InferenceEngine {
         mhSampler.nextSample();
       }
       PartialWorldDiff world = (PartialWorldDiff) mhSampler.getLatestWorld();
-      particle.curWorld = world.getSaved();
+      particle.curWorld = world.detach();
       particle.logWeight = 0.0;
     }
   }
 
   private Set<Type> idTypes; // of Type
+  private WorldFactory worldFactory;
 
   private int numParticles;
   private int numMHIters;
@@ -307,5 +365,6 @@ public class ResampleMovePF extends InferenceEngine {
   private boolean needsToBeResampledBeforeFurtherSampling = false;
   private Sampler particleSampler;
   private int queryReportInterval;
+  private TimeSliceReader timeSlices = null;
   private double dataLogLik; // log likelihood of the data
 }
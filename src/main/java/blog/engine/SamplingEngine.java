@@ -36,12 +36,24 @@
 package blog.engine;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import blog.BLOGUtil;
+import blog.common.Histogram;
+import blog.common.StreamingStats;
 import blog.common.Util;
+import blog.common.random.RandomStream;
 import blog.io.TableWriter;
+import blog.model.ArgSpecQuery;
 import blog.model.Model;
+import blog.model.Queries;
 import blog.model.Query;
 import blog.sample.Sampler;
 import blog.world.PartialWorld;
@@ -74,6 +86,13 @@ import blog.world.PartialWorld;
  * <dd>Number of samples between progress reports (-1 for no report). A progress
  * report just involves printing how many samples have been done and how long
  * the sampler has been running. Default is 500.
+ * 
+ * <dt>numChains
+ * <dd>Number of independent copies of the sampler to run, each on its own
+ * thread. Every chain draws <code>numSamples</code> samples into its own copy
+ * of the queries; the copies are merged every <code>queryReportInterval</code>
+ * samples, and the report also gives R-hat and the effective sample size
+ * across chains (see {@link ConvergenceDiagnostics}). Default is 1.
  * </dl>
  * The property list is also passed to the sampler's constructor.
  */
@@ -85,8 +104,9 @@ public class SamplingEngine extends InferenceEngine {
   public SamplingEngine(Model model, Properties properties) {
     super(model);
 
-    String samplerClassName = properties.getProperty("samplerClass",
+    samplerClassName = properties.getProperty("samplerClass",
         "blog.sample.LWSampler");
+    this.properties = properties;
     System.out.println("Constructing sampler of class " + samplerClassName);
 
     try {
@@ -122,6 +142,16 @@ public class SamplingEngine extends InferenceEngine {
     } catch (NumberFormatException e) {
       Util.fatalError("Invalid number of burn-in samples: " + burnInStr, false);
     }
+
+    String numChainsStr = properties.getProperty("numChains", "1");
+    try {
+      numChains = Integer.parseInt(numChainsStr);
+    } catch (NumberFormatException e) {
+      Util.fatalErrorWithoutStack("Invalid number of chains: " + numChainsStr);
+    }
+    if (numChains < 1) {
+      Util.fatalErrorWithoutStack("Invalid number of chains: " + numChainsStr);
+    }
   }
 
   public SamplingEngine(Model model) {
@@ -141,6 +171,11 @@ public class SamplingEngine extends InferenceEngine {
   }
 
   public void answerQueries() {
+    if (numChains > 1) {
+      answerQueriesWithChains();
+      return;
+    }
+
     boolean printed = false;
     sampler.initialize(evidence, queries);
 
@@ -198,8 +233,215 @@ public class SamplingEngine extends InferenceEngine {
     writer.writeAllResults(queries);
   }
 
+  /**
+   * Answers the queries with <code>numChains</code> independent chains, run
+   * concurrently in blocks of <code>queryReportInterval</code> samples. After
+   * each block the chains' query statistics are merged into the engine's
+   * queries and reported together with the convergence diagnostics.
+   */
+  private void answerQueriesWithChains() {
+    System.out.println("Evidence: " + evidence);
+    System.out.println("Query: " + queries);
+    System.out.println("Running " + numChains + " chains for " + numSamples
+        + " samples each...");
+    System.out.println("Query Reporting interval is " + queryReportInterval);
+    if (numBurnIn != 0) {
+      System.out.println("(Burn-in samples: " + numBurnIn + ")");
+    }
+
+    List<Chain> chains = new ArrayList<Chain>();
+    for (int c = 0; c < numChains; c++) {
+      Sampler chainSampler = (c == 0) ? sampler : Sampler.make(
+          samplerClassName, model, properties);
+      chains.add(new Chain(chainSampler, copyQueries(),
+          Util.splitRandomStream()));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(numChains,
+        new ChainThreadFactory());
+    try {
+      int done = 0;
+      while (done < numSamples) {
+        int end = Math.min(numSamples, (done / queryReportInterval + 1)
+            * queryReportInterval + 1);
+        runChains(executor, chains, end);
+        done = end;
+        mergeQueries(chains);
+        int i = done - 1;
+        if ((i != 0) && (i % queryReportInterval == 0)) {
+          TableWriter tableWriter = new TableWriter();
+          tableWriter.setHeader("Iteration " + i + ":");
+          tableWriter.setOutput(System.out);
+          tableWriter.writeAllResults(queries);
+          printDiagnostics(chains);
+          System.out.println("Samples done: " + done + " per chain.");
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int c = 0; c < numChains; c++) {
+      System.out.println("Chain " + c + ":");
+      chains.get(c).sampler.printStats();
+    }
+    printDiagnostics(chains);
+    writer.writeAllResults(queries);
+  }
+
+  /**
+   * Returns a copy of the engine's queries with empty statistics, for one
+   * chain.
+   */
+  private Queries copyQueries() {
+    Queries copies = new Queries(queries.model);
+    for (Query query : queries) {
+      if (!(query instanceof ArgSpecQuery)) {
+        Util.fatalErrorWithoutStack("Cannot run several chains for query "
+            + query);
+      }
+      copies.add(new ArgSpecQuery((ArgSpecQuery) query));
+    }
+    return copies;
+  }
+
+  private void runChains(ExecutorService executor, List<Chain> chains,
+      final int end) {
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    for (final Chain chain : chains) {
+      futures.add(executor.submit(new Runnable() {
+        public void run() {
+          chain.runTo(end);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for chains",
+            e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        if (cause instanceof Error)
+          throw (Error) cause;
+        throw new IllegalStateException(cause);
+      }
+    }
+  }
+
+  private void mergeQueries(List<Chain> chains) {
+    for (int q = 0; q < queries.size(); q++) {
+      ArgSpecQuery merged = (ArgSpecQuery) queries.get(q);
+      merged.clear();
+      for (Chain chain : chains) {
+        ArgSpecQuery chainQuery = (ArgSpecQuery) chain.queries.get(q);
+        merged.getHistogram().addAll(chainQuery.getHistogram());
+        if (merged.getStats() != null) {
+          merged.getStats().addAll(chainQuery.getStats());
+        }
+      }
+    }
+  }
+
+  private void printDiagnostics(List<Chain> chains) {
+    double n = 0;
+    for (Chain chain : chains) {
+      n += chain.numCounted;
+    }
+    n /= chains.size();
+    if (n < 2) {
+      return;
+    }
+    System.out.println("Convergence across " + chains.size() + " chains:");
+    for (int q = 0; q < queries.size(); q++) {
+      double[] diag;
+      if (((ArgSpecQuery) queries.get(q)).getStats() != null) {
+        List<StreamingStats> stats = new ArrayList<StreamingStats>();
+        for (Chain chain : chains) {
+          stats.add(((ArgSpecQuery) chain.queries.get(q)).getStats());
+        }
+        diag = ConvergenceDiagnostics.forStats(stats, n);
+      } else {
+        List<Histogram> hists = new ArrayList<Histogram>();
+        for (Chain chain : chains) {
+          hists.add(chain.queries.get(q).getHistogram());
+        }
+        diag = ConvergenceDiagnostics.forHistograms(hists, n);
+      }
+      System.out.println("  " + queries.get(q) + "\tR-hat = " + diag[0]
+          + "\tESS = " + diag[1]);
+    }
+  }
+
+  /**
+   * One of several independent chains: a sampler with its own queries and
+   * random stream.
+   */
+  private class Chain {
+    Chain(Sampler sampler, Queries queries, RandomStream rng) {
+      this.sampler = sampler;
+      this.queries = queries;
+      this.rng = rng;
+    }
+
+    /**
+     * Draws samples until <code>end</code> samples have been drawn,
+     * initializing the sampler first if this chain has not started yet.
+     */
+    void runTo(int end) {
+      RandomStream prev = Util.setRandomStream(rng);
+      try {
+        if (!started) {
+          sampler.initialize(evidence, queries);
+          started = true;
+        }
+        for (; next < end; ++next) {
+          sampler.nextSample();
+          double logWeight = sampler.getLatestLogWeight();
+          if (next >= numBurnIn && logWeight > Sampler.NEGLIGIBLE_LOG_WEIGHT) {
+            for (Query query : queries) {
+              BLOGUtil.ensureDetAndSupported(query.getVariables(),
+                  sampler.getLatestWorld());
+              query.updateStats(sampler.getLatestWorld(), logWeight);
+            }
+            ++numCounted;
+          }
+        }
+      } finally {
+        Util.setRandomStream(prev);
+      }
+    }
+
+    final Sampler sampler;
+    final Queries queries;
+    final RandomStream rng;
+    boolean started = false;
+    int next = 0;
+    int numCounted = 0;
+  }
+
+  /**
+   * Creates daemon chain threads, so an idle pool never keeps the JVM alive.
+   */
+  private static class ChainThreadFactory implements ThreadFactory {
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "SamplingEngine-chain-" + (count++));
+      thread.setDaemon(true);
+      return thread;
+    }
+
+    private int count = 0;
+  }
+
   private Sampler sampler;
+  private String samplerClassName;
+  private Properties properties;
   private int numSamples;
   private int queryReportInterval;
   private int numBurnIn;
+  private int numChains = 1;
 }
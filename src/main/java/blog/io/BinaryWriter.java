@@ -0,0 +1,210 @@
+package blog.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import blog.common.Histogram;
+import blog.common.StreamingStats;
+import blog.common.Util;
+import blog.model.ArgSpec;
+import blog.model.ArgSpecQuery;
+import blog.model.Query;
+import blog.type.Timestep;
+
+/**
+ * Write query results in a compact binary format.
+ *
+ * This is a machine-readable format meant for large outputs, such as particle
+ * filters reporting on many time steps. Results are streamed to the output as
+ * fixed-size records, one per (query, time step, value, log weight), with
+ * every string stored once. Since stdout also carries progress messages, use
+ * this writer together with <code>--output</code>.
+ *
+ * The output is big-endian, as written by DataOutputStream, and every chunk
+ * starts at a multiple of 8 bytes. It begins with the 8 bytes
+ * <code>BLOGRES1</code>, followed by chunks that each start with an int tag:
+ * <dl>
+ * <dt>1 (string)
+ * <dd>int id, int length, then the string in UTF-8, padded with zeros. Ids are
+ * assigned in order from 0, and a string's chunk comes before its first use.
+ * <dt>2 (records)
+ * <dd>int count, then count records of 24 bytes each: int query (string id of
+ * the query), int time step (of the query, or -1 if it has none), int kind,
+ * int value (string id), double number.
+ * </dl>
+ * For records of kind 0 the value is a value of the query and the number is
+ * its log weight. For queries that keep streaming statistics, records of kind
+ * 1 hold a statistic named by the value ("mean", "variance" or "quantile q",
+ * followed by "[i][j]" for matrix-valued queries), while the values kept
+ * outside the statistics are written with kind 0 as usual.
+ *
+ * @since Oct 18, 2026
+ */
+public class BinaryWriter extends ResultWriter {
+  public static final byte[] MAGIC = "BLOGRES1"
+      .getBytes(StandardCharsets.US_ASCII);
+  public static final int STRING_CHUNK = 1;
+  public static final int RECORD_CHUNK = 2;
+  public static final int VALUE_RECORD = 0;
+  public static final int STAT_RECORD = 1;
+
+  public BinaryWriter() {
+  }
+
+  @Override
+  public void setOutput(PrintStream out) {
+    super.setOutput(out);
+    data = null;
+  }
+
+  @Override
+  public void setOutput(String outputPath) {
+    super.setOutput(outputPath);
+    data = null;
+  }
+
+  /**
+   * Ignored, since the output is not text.
+   */
+  @Override
+  public void setHeader(String header) {
+  }
+
+  @Override
+  public void writeResult(Query query) {
+    ArgSpec spec = ((ArgSpecQuery) query).getArgSpec();
+    Histogram histogram = query.getHistogram();
+    StreamingStats stats = ((ArgSpecQuery) query).getStats();
+    try {
+      if (data == null) {
+        data = new DataOutputStream(new BufferedOutputStream(out));
+        data.write(MAGIC);
+        stringIds.clear();
+      }
+      int queryId = stringId(spec.toString());
+      Timestep timestep = spec.maxTimestep();
+      int timestepValue = (timestep == null) ? -1 : timestep.getValue();
+
+      int numStats = 0;
+      if ((stats != null) && !stats.isEmpty()) {
+        numStats = (2 + QUANTILES.length) * stats.numRows() * stats.numCols();
+      }
+      // strings must be written before the record chunk begins
+      int[] valueIds = new int[histogram.size()];
+      int i = 0;
+      for (Object entry_obj : histogram.entrySet()) {
+        valueIds[i++] = stringId(((Histogram.Entry) entry_obj).getElement()
+            .toString());
+      }
+      int[] statIds = statNameIds(stats, numStats);
+
+      data.writeInt(RECORD_CHUNK);
+      data.writeInt(valueIds.length + numStats);
+      i = 0;
+      for (Object entry_obj : histogram.entrySet()) {
+        writeRecord(queryId, timestepValue, VALUE_RECORD, valueIds[i++],
+            ((Histogram.Entry) entry_obj).getLogWeight());
+      }
+      if (numStats > 0) {
+        i = writeStats(queryId, timestepValue, statIds, 0, stats.getMeans());
+        i = writeStats(queryId, timestepValue, statIds, i,
+            stats.getVariances());
+        for (double q : QUANTILES) {
+          i = writeStats(queryId, timestepValue, statIds, i,
+              stats.getQuantiles(q));
+        }
+      }
+    } catch (IOException e) {
+      Util.fatalError(e);
+    }
+  }
+
+  @Override
+  public void flush() {
+    if (data != null) {
+      try {
+        data.flush();
+      } catch (IOException e) {
+        Util.fatalError(e);
+      }
+    }
+  }
+
+  private int[] statNameIds(StreamingStats stats, int numStats)
+      throws IOException {
+    int[] ids = new int[numStats];
+    if (numStats == 0) {
+      return ids;
+    }
+    String[] names = new String[2 + QUANTILES.length];
+    names[0] = "mean";
+    names[1] = "variance";
+    for (int k = 0; k < QUANTILES.length; k++) {
+      names[2 + k] = "quantile " + QUANTILES[k];
+    }
+    int i = 0;
+    for (String name : names) {
+      for (int row = 0; row < stats.numRows(); row++) {
+        for (int col = 0; col < stats.numCols(); col++) {
+          ids[i++] = stringId(stats.isMatrix() ? name + "[" + row + "][" + col
+              + "]" : name);
+        }
+      }
+    }
+    return ids;
+  }
+
+  private int writeStats(int queryId, int timestep, int[] statIds, int i,
+      double[][] values) throws IOException {
+    for (double[] row : values) {
+      for (double value : row) {
+        writeRecord(queryId, timestep, STAT_RECORD, statIds[i++], value);
+      }
+    }
+    return i;
+  }
+
+  private void writeRecord(int queryId, int timestep, int kind, int valueId,
+      double number) throws IOException {
+    data.writeInt(queryId);
+    data.writeInt(timestep);
+    data.writeInt(kind);
+    data.writeInt(valueId);
+    data.writeDouble(number);
+  }
+
+  /**
+   * Returns the id of the given string, writing a string chunk for it if it
+   * has none yet.
+   */
+  private int stringId(String s) throws IOException {
+    Integer id = stringIds.get(s);
+    if (id != null) {
+      return id;
+    }
+    id = stringIds.size();
+    stringIds.put(s, id);
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    data.writeInt(STRING_CHUNK);
+    data.writeInt(id);
+    data.writeInt(bytes.length);
+    data.write(bytes);
+    int padding = (8 - (12 + bytes.length) % 8) % 8;
+    for (int k = 0; k < padding; k++) {
+      data.writeByte(0);
+    }
+    return id;
+  }
+
+  /**
+   * The stream being written to, or null if nothing has been written to the
+   * current output yet.
+   */
+  private DataOutputStream data = null;
+  private Map<String, Integer> stringIds = new HashMap<String, Integer>();
+}
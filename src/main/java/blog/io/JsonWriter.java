@@ -3,14 +3,17 @@
  */
 package blog.io;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
 
 import blog.common.Histogram;
+import blog.common.StreamingStats;
+import blog.common.Util;
 import blog.model.ArgSpecQuery;
 import blog.model.Query;
 
-import com.google.gson.Gson;
-
 /**
  * Write query results in JSON format.
  * 
@@ -33,6 +36,23 @@ import com.google.gson.Gson;
  * ]
  * </code>
  * 
+ * For queries that keep streaming statistics, the pair list is replaced by an
+ * object with the mean, the variance and a list of (quantile, value) pairs;
+ * for matrix-valued queries each statistic is a list of rows. Values kept
+ * outside the statistics (such as null) are listed under "values" as
+ * (value, log_weight) pairs.
+ * 
+ * Results are streamed to the output as they are written; the list for one
+ * call of {@link #writeAllResults} is completed by {@link #flush()}.
+ * Strings are escaped as Gson.toJson escapes them. Infinite and NaN numbers,
+ * such as the log weight of a value with zero weight, are written as the bare
+ * tokens -Infinity, Infinity and NaN, which Gson.toJson would reject.
+ * 
+ * <code>
+ * ["Height(A)", {"mean": 1.71, "variance": 0.0094,
+ *     "quantiles": [[0.025, 1.52], ..., [0.975, 1.90]]}]
+ * </code>
+ * 
  * @author cberzan
  * @since Jun 9, 2014
  *
@@ -44,35 +64,151 @@ public class JsonWriter extends ResultWriter {
 
   public JsonWriter() {
     super();
-    allResults = new ArrayList<Object>();
   }
 
+  /**
+   * Writes the result straight to the output. The list of results is opened
+   * by the first call after a flush and closed by {@link #flush()}, so
+   * nothing is kept in memory in between.
+   */
   @Override
   public void writeResult(Query query) {
-    Histogram histogram = query.getHistogram();
-    ArrayList<Object> histogramEntries = new ArrayList<Object>();
+    try {
+      if (json == null) {
+        json = new com.google.gson.stream.JsonWriter(new PrintStreamWriter(out));
+        json.setLenient(true); // lets value(Number) write -Infinity and NaN
+        json.setHtmlSafe(true); // escape strings as Gson.toJson does
+        json.beginArray();
+      }
+      json.beginArray();
+      json.value(((ArgSpecQuery) query).getArgSpec().toString());
+      StreamingStats stats = ((ArgSpecQuery) query).getStats();
+      if (stats != null) {
+        writeStats(stats, query.getHistogram());
+      } else {
+        writeEntries(query.getHistogram());
+      }
+      json.endArray();
+    } catch (IOException e) {
+      Util.fatalError(e);
+    }
+  }
+
+  private void writeEntries(Histogram histogram) throws IOException {
+    json.beginArray();
     for (Object entry_obj : histogram.entrySet()) {
       Histogram.Entry entry = (Histogram.Entry) entry_obj;
-      ArrayList<Object> entryPair = new ArrayList<Object>();
-      entryPair.add(entry.getElement().toString());
-      entryPair.add(entry.getLogWeight());
-      histogramEntries.add(entryPair);
+      json.beginArray();
+      json.value(entry.getElement().toString());
+      writeNumber(entry.getLogWeight());
+      json.endArray();
+    }
+    json.endArray();
+  }
+
+  private void writeStats(StreamingStats stats, Histogram otherValues)
+      throws IOException {
+    json.beginObject();
+    if (!stats.isEmpty()) {
+      json.name("mean");
+      writeValue(stats, stats.getMeans());
+      json.name("variance");
+      writeValue(stats, stats.getVariances());
+      json.name("quantiles");
+      json.beginArray();
+      for (double q : QUANTILES) {
+        json.beginArray();
+        writeNumber(q);
+        writeValue(stats, stats.getQuantiles(q));
+        json.endArray();
+      }
+      json.endArray();
+    }
+    if (otherValues.size() > 0) {
+      json.name("values");
+      writeEntries(otherValues);
+    }
+    json.endObject();
+  }
+
+  private void writeValue(StreamingStats stats, double[][] values)
+      throws IOException {
+    if (!stats.isMatrix()) {
+      writeNumber(values[0][0]);
+      return;
+    }
+    json.beginArray();
+    for (double[] row : values) {
+      json.beginArray();
+      for (double value : row) {
+        writeNumber(value);
+      }
+      json.endArray();
     }
-    ArrayList<Object> results = new ArrayList<Object>();
-    results.add(((ArgSpecQuery) query).getArgSpec().toString());
-    results.add(histogramEntries);
-    allResults.add(results);
+    json.endArray();
+  }
+
+  /**
+   * Writes a number, which may be infinite or NaN. Unlike value(double),
+   * value(Number) accepts those in a lenient writer.
+   */
+  private void writeNumber(double value) throws IOException {
+    json.value(Double.valueOf(value));
   }
 
   @Override
   public void flush() {
-    if (!allResults.isEmpty()) {
-      Gson gson = new Gson();
-      String json = gson.toJson(allResults);
-      allResults.clear();
-      out.println(json);
+    if (json != null) {
+      try {
+        json.endArray();
+        json.flush();
+      } catch (IOException e) {
+        Util.fatalError(e);
+      }
+      json = null;
+      out.println();
+    }
+  }
+
+  /**
+   * Passes characters to a PrintStream, which encodes them with its own
+   * charset.
+   */
+  private static class PrintStreamWriter extends Writer {
+    PrintStreamWriter(PrintStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int c) {
+      out.print((char) c);
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+      out.append(str, off, off + len);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+      out.append(CharBuffer.wrap(cbuf, off, len));
+    }
+
+    @Override
+    public void flush() {
+      out.flush();
+    }
+
+    @Override
+    public void close() {
     }
+
+    private final PrintStream out;
   }
 
-  protected ArrayList<Object> allResults;
+  /**
+   * The stream the current list of results is being written to, or null if
+   * no list is open.
+   */
+  private com.google.gson.stream.JsonWriter json = null;
 }
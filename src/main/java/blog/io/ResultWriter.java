@@ -88,6 +88,12 @@ public abstract class ResultWriter {
    */
   abstract public void writeResult(Query query);
 
+  /**
+   * Quantiles reported for queries that keep streaming statistics.
+   */
+  protected static final double[] QUANTILES = { 0.025, 0.25, 0.5, 0.75,
+      0.975 };
+
   protected PrintStream out;
   protected String header;
 }
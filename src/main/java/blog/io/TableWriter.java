@@ -1,12 +1,15 @@
 package blog.io;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
 import blog.common.Histogram;
+import blog.common.StreamingStats;
+import blog.common.Util;
 import blog.model.ArgSpec;
 import blog.model.ArgSpecQuery;
 import blog.model.Model;
@@ -30,6 +33,10 @@ import blog.model.Query;
  * ======== Done ========
  * </code>
  * 
+ * For queries that keep streaming statistics, the mean, variance and a few
+ * quantiles are printed instead of the distribution. Matrix-valued statistics
+ * are printed as nested lists in row-major order.
+ * 
  * @author cberzan
  * @since Jun 9, 2014
  * 
@@ -47,6 +54,11 @@ public class TableWriter extends ResultWriter {
     ArgSpecQuery q = (ArgSpecQuery) query;
     ArgSpec spec = q.getArgSpec();
     Histogram histogram = query.getHistogram();
+    StreamingStats stats = q.getStats();
+    if (stats != null) {
+      writeStats(spec, stats, histogram);
+      return;
+    }
     out.println("Distribution of values for " + spec);
     List<?> entries = new ArrayList(histogram.entrySet());
 
@@ -55,9 +67,10 @@ public class TableWriter extends ResultWriter {
     else
       Collections.sort(entries, WEIGHT_COMPARATOR);
 
+    double total = histogram.getTotalLogWeight();
     for (Iterator<?> iter = entries.iterator(); iter.hasNext();) {
       Histogram.Entry entry = (Histogram.Entry) iter.next();
-      double prob = histogram.getProb(entry.getElement());
+      double prob = Math.exp(entry.getLogWeight() - total);
       out.print("\t");
       out.print(entry.getElement());
       out.print("\t");
@@ -65,6 +78,36 @@ public class TableWriter extends ResultWriter {
     }
   }
 
+  private void writeStats(ArgSpec spec, StreamingStats stats,
+      Histogram histogram) {
+    out.println("Summary of values for " + spec);
+    if (!stats.isEmpty()) {
+      out.println("\tmean\t" + format(stats, stats.getMeans()));
+      out.println("\tvariance\t" + format(stats, stats.getVariances()));
+      for (double q : QUANTILES) {
+        out.println("\tquantile " + q + "\t"
+            + format(stats, stats.getQuantiles(q)));
+      }
+    }
+    // values kept out of the statistics, such as null
+    double total = Util.logSum(stats.getTotalLogWeight(),
+        histogram.getTotalLogWeight());
+    for (Iterator<?> iter = histogram.entrySet().iterator(); iter.hasNext();) {
+      Histogram.Entry entry = (Histogram.Entry) iter.next();
+      out.print("\t");
+      out.print(entry.getElement());
+      out.print("\t");
+      out.println(Math.exp(entry.getLogWeight() - total));
+    }
+  }
+
+  private static String format(StreamingStats stats, double[][] values) {
+    if (stats.isMatrix()) {
+      return Arrays.deepToString(values);
+    }
+    return String.valueOf(values[0][0]);
+  }
+
   private static Comparator WEIGHT_COMPARATOR = new Comparator() {
     public int compare(Object o1, Object o2) {
       double diff = (((Histogram.Entry) o1).getLogWeight() - ((Histogram.Entry) o2)
@@ -41,6 +41,7 @@ import java.util.LinkedHashSet;
 
 import blog.bn.BayesNetVar;
 import blog.common.Histogram;
+import blog.common.StreamingStats;
 import blog.common.UnaryFunction;
 import blog.world.PartialWorld;
 
@@ -64,6 +65,7 @@ public class ArgSpecQuery extends AbstractQuery {
       this.setNormalizer(another.getNormalizer());
     if (another.variable != null)
       compile(); // if another is compiled, compile this one too.
+    setUseStats(another.stats != null);
   }
 
   public ArgSpec argSpec() {
@@ -115,7 +117,57 @@ public class ArgSpecQuery extends AbstractQuery {
   @Override
   public void updateStats(PartialWorld world, double logWeight) {
     Object value = getArgSpec().evaluate(world);
-    histogram.increaseWeight(value, logWeight);
+    if (stats == null || !stats.add(value, logWeight)) {
+      histogram.increaseWeight(value, logWeight);
+    }
+  }
+
+  /**
+   * Returns true if this query is on real numbers or real matrices, so that it
+   * can keep streaming statistics instead of an exact histogram.
+   */
+  public boolean isContinuous() {
+    if (!(getArgSpec() instanceof Term)) {
+      return false;
+    }
+    Type type = ((Term) getArgSpec()).getType();
+    if (type == null) {
+      return false;
+    }
+    return (type.isSubtypeOf(BuiltInTypes.REAL) && !type
+        .isSubtypeOf(BuiltInTypes.INTEGER))
+        || type.isSubtypeOf(BuiltInTypes.REAL_MATRIX);
+  }
+
+  /**
+   * If <code>useStats</code> is true, numeric values of this query are
+   * recorded in streaming statistics rather than in the histogram from now on.
+   * If it is false, any statistics collected so far are discarded.
+   */
+  public void setUseStats(boolean useStats) {
+    if (!useStats) {
+      stats = null;
+    } else if (stats == null) {
+      stats = new StreamingStats();
+    }
+  }
+
+  /**
+   * Returns the streaming statistics of this query, or null if it only keeps a
+   * histogram.
+   */
+  public StreamingStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Discards all results recorded by this query.
+   */
+  public void clear() {
+    histogram.clear();
+    if (stats != null) {
+      stats.clear();
+    }
   }
 
   public Histogram getHistogram() {
@@ -176,4 +228,5 @@ public class ArgSpecQuery extends AbstractQuery {
   protected ArgSpec argSpec;
   protected BayesNetVar variable;
   protected Histogram histogram = new Histogram();
+  protected StreamingStats stats = null;
 }
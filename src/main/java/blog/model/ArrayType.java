@@ -20,7 +20,16 @@ public class ArrayType extends Type {
    *          in Real[]
    */
   public ArrayType(Type elementType) {
-    super("Array<" + elementType.getName() + ">");
+    this(elementType, true);
+  }
+
+  /**
+   * @param register
+   *          whether the type is returned by {@link Type#getType(String)}; see
+   *          {@link Model#getArrayType(Type)}
+   */
+  ArrayType(Type elementType, boolean register) {
+    super("Array<" + elementType.getName() + ">", register);
     this.elementType = elementType;
   }
 
@@ -599,24 +599,26 @@ public class BuiltInFunctions {
   public static FixedFunction IOTA;
 
   /**
-   * Load RealMatrix from space-separeted text file.
+   * Load RealMatrix from space-separeted text file, or from a numpy .npy file
+   * if the file name ends with .npy.
    */
   public static FixedFunction LOAD_REAL_MATRIX;
 
   /**
-   * Load i-th row of RealMatrix from space-separeted text file.
+   * Load i-th row of RealMatrix from space-separeted text file or .npy file.
+   * Only that row is read from a .npy file.
    */
   public static FixedFunction LOAD_REAL_MATRIX_ROW;
 
   /**
    * Load i-th to j-th rows (inclusive) RealMatrix from space-separeted text
-   * file.
+   * file or .npy file.
    */
   public static FixedFunction LOAD_REAL_MATRIX_ROWS;
 
   /**
    * Load submatrix (inclusive) RealMatrix from space-separeted text
-   * file.
+   * file or .npy file. Only the submatrix is read from a .npy file.
    */
   public static FixedFunction LOAD_REAL_MATRIX_SUB;
 
@@ -640,7 +642,7 @@ public class BuiltInFunctions {
    * a numeric, character, or string literal that is only created as needed by
    * the parser.
    */
-  public static FixedFunction getFunction(FunctionSignature sig) {
+  public static synchronized FixedFunction getFunction(FunctionSignature sig) {
 
     // TODO change to another hashmap from signature to function
     List funcsWithName = (List) functions.get(sig.getName());
@@ -669,7 +671,8 @@ public class BuiltInFunctions {
    * given return type and denotes the given value. Creates the constant symbol
    * automatically if it hasn't been created yet.
    */
-  public static FixedFunction getLiteral(String name, Type type, Object value) {
+  public static synchronized FixedFunction getLiteral(String name, Type type,
+      Object value) {
     FixedFunction f = getFunction(new FunctionSignature(name));
     if (f == null) {
       List params = Collections.singletonList(value);
@@ -685,13 +688,13 @@ public class BuiltInFunctions {
    * 
    * @return unmodifiable List of Function
    */
-  public static List getFuncsWithName(String name) {
+  public static synchronized List getFuncsWithName(String name) {
     List funcsWithName = (List) functions.get(name);
     return (funcsWithName == null) ? Collections.EMPTY_LIST : Collections
         .unmodifiableList(funcsWithName);
   }
 
-  private static void addFunction(Function f) {
+  private static synchronized void addFunction(Function f) {
     List funcsWithName = (List) functions.get(f.getName());
     if (funcsWithName != null) {
       for (Iterator iter = funcsWithName.iterator(); iter.hasNext();) {
@@ -1063,7 +1066,7 @@ public class BuiltInFunctions {
     // Array subscription (aka indexing)
     FunctionInterp subDoubleInterp = new AbstractFunctionInterp() {
       public Object getValue(List args) {
-        ArrayList<?> array = (ArrayList<?>) args.get(0);
+        List<?> array = (List<?>) args.get(0);
         int i = (Integer) args.get(1);
         return (Double) array.get(i);
       }
@@ -1081,7 +1084,7 @@ public class BuiltInFunctions {
     // Array subscription (aka indexing)
     FunctionInterp subIntInterp = new AbstractFunctionInterp() {
       public Object getValue(List args) {
-        ArrayList<?> array = (ArrayList<?>) args.get(0);
+        List<?> array = (List<?>) args.get(0);
         int i = (Integer) args.get(1);
         return (Integer) array.get(i);
       }
@@ -1848,27 +1851,27 @@ public class BuiltInFunctions {
     FunctionInterp loadRealMatrixInterp = new AbstractFunctionInterp() {
       public Object getValue(List args) {
         String filename = (String) args.get(0);
-        MatrixLib mat = MatrixFactory.fromTxt(filename);
         if (args.size() == 1)
-          return mat;
+          return MatrixFactory.load(filename);
         // return a specific row
         if (args.size() == 2) {
           Integer row = (Integer) args.get(1);
-          return mat.sliceRow(row.intValue());
+          return MatrixFactory.loadRows(filename, row.intValue(),
+              row.intValue());
         }
         // return consecutive rows
         if (args.size() <= 4) {
           Integer lo = (Integer) args.get(1);
           Integer hi = (Integer) args.get(2);
-          return mat.sliceCols(lo.intValue(), hi.intValue());
+          return MatrixFactory.loadRows(filename, lo.intValue(), hi.intValue());
         } else {
           // return submatrix
           Integer x1 = (Integer) args.get(1);
           Integer y1 = (Integer) args.get(2);
           Integer x2 = (Integer) args.get(3);
           Integer y2 = (Integer) args.get(4);
-          return mat.subMat(x1.intValue(), y1.intValue(), x2.intValue(),
-              y2.intValue());
+          return MatrixFactory.loadSub(filename, x1.intValue(), y1.intValue(),
+              x2.intValue(), y2.intValue());
         }
       }
     };
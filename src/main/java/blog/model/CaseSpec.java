@@ -3,12 +3,15 @@
  */
 package blog.model;
 
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
 import blog.common.UnaryProcedure;
+import blog.sample.DefaultEvalContext;
 import blog.sample.EvalContext;
+import blog.world.PartialWorld;
 
 /**
  * @author Yi Wu
@@ -31,6 +34,10 @@ public class CaseSpec extends ArgSpec {
    */
   boolean isInRandomFuncBody = true;
 
+  // built on first evaluation after compilation, if the clause is constant
+  private volatile DispatchTable dispatchTable;
+  private volatile boolean noDispatchTable = false;
+
   public void setInFixedFuncBody(boolean flag) {
     isInFixedFuncBody = flag;
   }
@@ -56,14 +63,152 @@ public class CaseSpec extends ArgSpec {
     if (t == null) {
       return null;
     }
-    Map<Object, Object> mp = clause.evaluate(context);
-    if (mp.containsKey(t)) {
-      Object ret = mp.get(t);
-      if (ret instanceof ArgSpec) // lazy evaluate
-        return ((ArgSpec) ret).evaluate(context);
-      return ret;
-    } else
+    Object ret = choose(t, context);
+    if (ret == NO_CASE) {
       return Model.NULL;
+    }
+    if (ret instanceof ArgSpec) // lazy evaluate
+      return ((ArgSpec) ret).evaluate(context);
+    return ret;
+  }
+
+  /**
+   * Returns the value that the clause map, evaluated in the given context,
+   * gives to the test value <code>t</code>, or NO_CASE if the map has no such
+   * key. If the clause is constant (its keys, and its values unless they are
+   * evaluated lazily, contain no random symbols or logical variables), this is
+   * a lookup in a table built on first use instead of a new map per call.
+   */
+  Object choose(Object t, EvalContext context) {
+    DispatchTable table = getDispatchTable();
+    if (table != null) {
+      return table.get(t);
+    }
+    Map<Object, Object> mp = clause.evaluate(context);
+    return mp.containsKey(t) ? mp.get(t) : NO_CASE;
+  }
+
+  private DispatchTable getDispatchTable() {
+    DispatchTable table = dispatchTable;
+    if ((table == null) && !noDispatchTable && compiled) {
+      if (Evaluator.isConstant(clause)) {
+        table = DispatchTable.build(clause.evaluate(new DefaultEvalContext(
+            PartialWorld.EMPTY_INST, false)));
+        dispatchTable = table;
+      }
+      noDispatchTable = (table == null);
+    }
+    return table;
+  }
+
+  /** Returned by <code>choose</code> when the clause has no matching key. */
+  static final Object NO_CASE = new Object();
+
+  /**
+   * Map from the key values of a constant clause to their cases. Boolean
+   * keys, Integer keys within a small range, and enumerated objects of one type
+   * are looked up by array index, everything else in a HashMap.
+   */
+  private static class DispatchTable {
+    /**
+     * Returns a table for the given map, or null if some key is not
+     * determined.
+     */
+    static DispatchTable build(Map<Object, Object> cases) {
+      if (cases.containsKey(null)) {
+        return null;
+      }
+      boolean allBoolean = true;
+      boolean allInteger = true;
+      boolean allEnumerated = true;
+      Type enumType = null;
+      int min = Integer.MAX_VALUE;
+      int max = Integer.MIN_VALUE;
+      for (Object key : cases.keySet()) {
+        allBoolean &= (key instanceof Boolean);
+        if (key instanceof Integer) {
+          min = Math.min(min, ((Integer) key).intValue());
+          max = Math.max(max, ((Integer) key).intValue());
+        } else {
+          allInteger = false;
+        }
+        if (key instanceof EnumeratedObject) {
+          EnumeratedObject obj = (EnumeratedObject) key;
+          allEnumerated &= (enumType == null) || (enumType == obj.getType());
+          enumType = obj.getType();
+          max = Math.max(max, obj.getIndex());
+        } else {
+          allEnumerated = false;
+        }
+      }
+
+      if (allBoolean) {
+        return new DispatchTable(BOOLEAN, 0, 2, null, cases);
+      }
+      if (allInteger && ((long) max - min < 2L * cases.size() + 8)) {
+        return new DispatchTable(INTEGER, min, max - min + 1, null, cases);
+      }
+      if (allEnumerated && (max < 2L * cases.size() + 8)) {
+        return new DispatchTable(ENUMERATED, 0, max + 1, enumType, cases);
+      }
+      return new DispatchTable(HASHED, 0, 0, null, cases);
+    }
+
+    private DispatchTable(int kind, int offset, int size, Type enumType,
+        Map<Object, Object> cases) {
+      this.kind = kind;
+      this.offset = offset;
+      this.enumType = enumType;
+      keys = new Object[size];
+      values = new Object[size];
+      if (kind == HASHED) {
+        hashed = new HashMap<Object, Object>(cases);
+      } else {
+        for (Map.Entry<Object, Object> entry : cases.entrySet()) {
+          int i = index(entry.getKey());
+          keys[i] = entry.getKey();
+          values[i] = entry.getValue();
+        }
+      }
+    }
+
+    Object get(Object t) {
+      if (kind == HASHED) {
+        Object ret = hashed.get(t);
+        return ((ret != null) || hashed.containsKey(t)) ? ret : NO_CASE;
+      }
+      int i = index(t);
+      if ((i < 0) || (i >= keys.length) || (keys[i] == null)
+          || !keys[i].equals(t)) {
+        return NO_CASE;
+      }
+      return values[i];
+    }
+
+    private int index(Object t) {
+      switch (kind) {
+      case BOOLEAN:
+        return (t instanceof Boolean) ? (((Boolean) t).booleanValue() ? 1 : 0)
+            : -1;
+      case INTEGER:
+        return (t instanceof Integer) ? ((Integer) t).intValue() - offset : -1;
+      default: // ENUMERATED
+        return ((t instanceof EnumeratedObject) && (((EnumeratedObject) t)
+            .getType() == enumType)) ? ((EnumeratedObject) t).getIndex() : -1;
+      }
+    }
+
+    private static final int BOOLEAN = 0;
+    private static final int INTEGER = 1;
+    private static final int ENUMERATED = 2;
+    private static final int HASHED = 3;
+
+    private final int kind;
+    private final int offset;
+    private final Object[] keys;
+    private final Object[] values;
+    private final Type enumType;
+    private HashMap<Object, Object> hashed;
   }
 
   /*
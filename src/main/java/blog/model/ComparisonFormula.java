@@ -76,6 +76,18 @@ public class ComparisonFormula extends Formula {
     compator = t;
   }
 
+  public Term getLeft() {
+    return left;
+  }
+
+  public Term getRight() {
+    return right;
+  }
+
+  public Operator getOperator() {
+    return compator;
+  }
+
   protected Formula getEquivToNegationInternal() {
     Operator oppositeOp = null;
     switch (compator) {
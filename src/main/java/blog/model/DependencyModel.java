@@ -62,12 +62,9 @@ public class DependencyModel {
 
   /**
    * Nested class representing a distribution over child values, in the form of
-   * a CPD and a list of values for the CPD's arguments.
-   * 
-   * TODO: This class is no longer necessary after the new distribution
-   * interface is implemented. Instead of storing the args in this container, we
-   * can just call setParams() on the distribution. So we only need to pass
-   * around a CondProbDistrib, not a CondProbDistrib + args.
+   * a CPD and a list of values for the CPD's arguments. The CPD already has its
+   * parameters set to those values and must not be modified, so a Distrib can
+   * be evaluated concurrently by several threads.
    */
   public static class Distrib {
     public Distrib(CondProbDistrib cpd, List argValues) {
@@ -131,7 +128,8 @@ public class DependencyModel {
         return null;
       }
       if (!exists.booleanValue()) {
-        return new DependencyModel.Distrib(EqualsCPD.CPD,
+        return new DependencyModel.Distrib(new EqualsCPD(
+            valueWhenArgsDontExist),
             Collections.singletonList(valueWhenArgsDontExist));
       }
     }
@@ -148,11 +146,13 @@ public class DependencyModel {
    * satisfied clause and its argument values, then this method returns null.
    */
   public Distrib getDistrib(EvalContext context) {
-    Object tmp = clause.evaluate(context);
+    Object tmp = evaluateClause(context);
     if (tmp == null)
       return null;
     if (tmp == Model.NULL)
       return defaultClause.getDistrib(context);
+    if (tmp instanceof Evaluator.Distrib)
+      return ((Evaluator.Distrib) tmp).getDistrib(context);
     if (tmp instanceof DistribSpec)
       return ((DistribSpec) tmp).getDistrib(context);
     else
@@ -166,7 +166,9 @@ public class DependencyModel {
    * context is not complete enough to determine the equal parent.
    */
   public BasicVar getEqualParent(EvalContext context) {
-    Object tmp = clause.evaluate(context);
+    Object tmp = evaluateClause(context);
+    if (tmp instanceof Evaluator.Distrib)
+      return ((Evaluator.Distrib) tmp).getSpec().getEqualParent(context);
     if (tmp instanceof DistribSpec)
       return ((DistribSpec) tmp).getEqualParent(context);
 
@@ -200,9 +202,24 @@ public class DependencyModel {
     callStack.add(this);
     int errors = clause.compile(callStack);
     callStack.remove(this);
+    if (errors == 0) {
+      evaluator = Evaluator.compile(clause);
+    }
     return errors;
   }
 
+  /**
+   * Evaluates the clause with its compiled evaluator, or with the interpreter
+   * if this dependency model has not been compiled.
+   */
+  private Object evaluateClause(EvalContext context) {
+    Evaluator e = evaluator;
+    if (e == null) {
+      return clause.evaluate(context);
+    }
+    return e.evaluate(context);
+  }
+
   /**
    * Returns an index indicating when this dependency model was defined.
    */
@@ -212,6 +229,7 @@ public class DependencyModel {
 
   private ArgSpec clause; // of Clause, not including the default clause
   private DistribSpec defaultClause;
+  private Evaluator evaluator; // compiled clause, null until compiled
   private Type childType;
   private Object defaultVal;
   private int creationIndex = Model.nextCreationIndex();
@@ -6,6 +6,7 @@ package blog.model;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -13,7 +14,6 @@ import java.util.Map;
 import java.util.Set;
 
 import blog.bn.BasicVar;
-import blog.bn.RandFuncAppVar;
 import blog.common.UnaryProcedure;
 import blog.distrib.CondProbDistrib;
 import blog.distrib.EqualsCPD;
@@ -30,15 +30,70 @@ public class DistribSpec extends ArgSpec {
   private ArgSpec[] args;
   private CondProbDistrib cpd;
   private Class<? extends CondProbDistrib> cpdClass;
+  private volatile Binding lastBinding;
+  // set by initCPD, or by bindCPD if it is called first
+  private volatile Constructor<? extends CondProbDistrib> cpdConstructor;
+
+  /** A distribution together with the argument values it was bound to. */
+  private static class Binding {
+    Binding(Object[] argValues, CondProbDistrib cpd) {
+      this.argValues = argValues;
+      this.cpd = cpd;
+    }
+
+    final Object[] argValues;
+    final CondProbDistrib cpd;
+  }
 
   public String getName() {
     return cpdName;
   }
 
+  /**
+   * Returns the expressions for the arguments of the distribution.
+   */
+  public ArgSpec[] getArgs() {
+    return args;
+  }
+
+  /**
+   * Returns the distribution created when this clause was compiled. Only the
+   * arguments that are fixed at compile time are set on it; it is shared by
+   * every evaluation of the clause and must not be modified. Use
+   * {@link #bindCPD(Object[])} to get a distribution with all its parameters.
+   */
   public CondProbDistrib getCPD() {
     return cpd;
   }
 
+  /**
+   * Returns a distribution of this clause's class whose parameters are the
+   * given argument values. The returned distribution is never modified
+   * afterwards, so it may be used from several threads at once; callers must
+   * not call <code>setParams</code> on it. The most recently bound
+   * distribution is reused when the argument values are unchanged, which
+   * saves rebuilding its internal tables.
+   */
+  public CondProbDistrib bindCPD(Object[] argValues) {
+    Binding last = lastBinding;
+    if (last != null && Arrays.equals(last.argValues, argValues)) {
+      return last.cpd;
+    }
+    CondProbDistrib bound;
+    try {
+      if (cpdConstructor == null) {
+        cpdConstructor = cpdClass.getConstructor();
+      }
+      bound = cpdConstructor.newInstance();
+    } catch (Exception e) {
+      throw new IllegalStateException("couldn't instantiate class " + cpdClass,
+          e);
+    }
+    bound.setParams(argValues);
+    lastBinding = new Binding(argValues, bound);
+    return bound;
+  }
+
   public DistribSpec(Class<? extends CondProbDistrib> cpdClass, ArgSpec arg0) {
     cpdName = cpdClass.getName();
     this.cpdClass = cpdClass;
@@ -94,7 +149,8 @@ public class DistribSpec extends ArgSpec {
     context.popEvaluee();
     if (argValues.size() == args.length) {
       // all CPD args were determined
-      return new DependencyModel.Distrib(cpd, argValues);
+      return new DependencyModel.Distrib(bindCPD(argValues.toArray()),
+          argValues);
     }
     return null;
   }
@@ -112,7 +168,8 @@ public class DistribSpec extends ArgSpec {
               return null;
             }
           }
-          return new RandFuncAppVar((RandomFunction) t.getFunction(), argValues);
+          return ((RandomFunction) t.getFunction()).rvWithArgs(argValues,
+              true);
         }
       }
     }
@@ -194,6 +251,7 @@ public class DistribSpec extends ArgSpec {
     int errors = 0;
     try {
       Constructor<? extends CondProbDistrib> ct = cpdClass.getConstructor();
+      cpdConstructor = ct;
       cpd = (CondProbDistrib) ct.newInstance();
     } catch (InvocationTargetException e) {
       e.printStackTrace();
@@ -250,6 +308,7 @@ public class DistribSpec extends ArgSpec {
 
     try {
       Constructor<? extends CondProbDistrib> ct = cpdClass.getConstructor();
+      cpdConstructor = ct;
       cpd = (CondProbDistrib) ct.newInstance();
       cpd.setParams(constructionArgValues.toArray());
     } catch (InvocationTargetException e) {
@@ -0,0 +1,628 @@
+package blog.model;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import blog.sample.EvalContext;
+
+/**
+ * A dependency clause compiled into a tree of evaluators, one per expression.
+ * An evaluator returns the same value as <code>ArgSpec.evaluate</code> on the
+ * expression it was compiled from, including null when the context does not
+ * determine the value and Model.NULL when a function is applied to null, and
+ * asks the context for the values of random variables in the same order.
+ *
+ * Compared to the interpreter, function applications are bound to their
+ * functions once, terms without random symbols are evaluated only once, the
+ * built-in Integer and Real arithmetic and comparisons are computed on
+ * primitive values without boxing the intermediate results or building
+ * argument lists, and distribution arguments are collected into an array
+ * without going through the evaluee stack (which only serves error messages).
+ * Expressions with no specialized evaluator are left to the interpreter.
+ *
+ * @see DependencyModel#compile(java.util.LinkedHashSet)
+ * @since Oct 18, 2026
+ */
+abstract class Evaluator {
+  /**
+   * Returns the value of the expression in the given context, as
+   * <code>ArgSpec.evaluate</code> would.
+   */
+  abstract Object evaluate(EvalContext context);
+
+  /**
+   * Returns the value of a numeric expression as a double.
+   *
+   * @throws Missing
+   *           if the value is not determined or is Model.NULL
+   */
+  double realValue(EvalContext context) throws Missing {
+    Object value = evaluate(context);
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    throw Missing.of(value);
+  }
+
+  /**
+   * Returns the value of an Integer expression as an int.
+   *
+   * @throws Missing
+   *           if the value is not determined or is Model.NULL
+   */
+  int intValue(EvalContext context) throws Missing {
+    Object value = evaluate(context);
+    if (value instanceof Number) {
+      return ((Number) value).intValue();
+    }
+    throw Missing.of(value);
+  }
+
+  /**
+   * Compiles the given expression, which must already have been compiled
+   * itself.
+   */
+  static Evaluator compile(ArgSpec spec) {
+    if (isConstant(spec)) {
+      return new Constant(spec);
+    }
+    if (spec instanceof FuncAppTerm) {
+      return compileFuncApp((FuncAppTerm) spec);
+    }
+    if (spec instanceof DistribSpec) {
+      return new Distrib((DistribSpec) spec);
+    }
+    if (spec instanceof CaseSpec) {
+      return new Case((CaseSpec) spec);
+    }
+    if (spec instanceof EqualityFormula) {
+      EqualityFormula eq = (EqualityFormula) spec;
+      return new Equality(compile(eq.getTerm1()), compile(eq.getTerm2()));
+    }
+    if (spec instanceof ComparisonFormula) {
+      ComparisonFormula cmp = (ComparisonFormula) spec;
+      if (isNumeric(cmp.getLeft()) && isNumeric(cmp.getRight())) {
+        return new Comparison(cmp.getOperator(), compile(cmp.getLeft()),
+            compile(cmp.getRight()));
+      }
+    }
+    if (spec instanceof NegFormula) {
+      return new Neg(compile(((NegFormula) spec).getNeg()));
+    }
+    if (spec instanceof ConjFormula) {
+      return new Junction(compileAll(((ConjFormula) spec).getConjuncts()),
+          false);
+    }
+    if (spec instanceof DisjFormula) {
+      return new Junction(compileAll(((DisjFormula) spec).getDisjuncts()),
+          true);
+    }
+    if (spec instanceof ImplicFormula) {
+      ImplicFormula implic = (ImplicFormula) spec;
+      return new Implic(compile(implic.getAntecedent()),
+          compile(implic.getConsequent()));
+    }
+    if (spec instanceof LogicalVar) {
+      return new Var((LogicalVar) spec);
+    }
+    return new Interpreted(spec);
+  }
+
+  private static Evaluator compileFuncApp(FuncAppTerm term) {
+    Function f = term.getFunction();
+    Evaluator[] args = compileAll(Arrays.asList(term.getArgs()));
+    if (args.length == 2) {
+      if (f == BuiltInFunctions.RPLUS || f == BuiltInFunctions.RMINUS
+          || f == BuiltInFunctions.RMULT || f == BuiltInFunctions.RDIV
+          || f == BuiltInFunctions.POWER) {
+        return new RealOp(f, args[0], args[1]);
+      }
+      if (f == BuiltInFunctions.PLUS || f == BuiltInFunctions.MINUS
+          || f == BuiltInFunctions.MULT || f == BuiltInFunctions.DIV
+          || f == BuiltInFunctions.MOD) {
+        return new IntOp(f, args[0], args[1]);
+      }
+      if (f == BuiltInFunctions.LT || f == BuiltInFunctions.LEQ
+          || f == BuiltInFunctions.GT || f == BuiltInFunctions.GEQ) {
+        return new RealComparison(f, args[0], args[1]);
+      }
+    }
+    return new Apply(f, args);
+  }
+
+  private static Evaluator[] compileAll(List specs) {
+    Evaluator[] evaluators = new Evaluator[specs.size()];
+    int i = 0;
+    for (Iterator iter = specs.iterator(); iter.hasNext();) {
+      evaluators[i++] = compile((ArgSpec) iter.next());
+    }
+    return evaluators;
+  }
+
+  /**
+   * Returns true if the given expression is a term, or a compiled list, map or
+   * matrix, whose value does not depend on the world or on logical variables.
+   * The values of a map that evaluates them lazily do not matter.
+   */
+  static boolean isConstant(ArgSpec spec) {
+    if (spec instanceof TrueFormula) {
+      return true;
+    }
+    if (spec instanceof MatrixSpec) {
+      return ((MatrixSpec) spec).matrix != null;
+    }
+    if (spec instanceof ListSpec) {
+      ListSpec list = (ListSpec) spec;
+      if (!list.compiled) {
+        return false;
+      }
+      for (ArgSpec element : list.elements) {
+        if (!isConstant(element)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (spec instanceof MapSpec) {
+      MapSpec map = (MapSpec) spec;
+      if (!map.compiled) {
+        return false;
+      }
+      for (Map.Entry<ArgSpec, Object> entry : map.getMap().entrySet()) {
+        if (!isConstant(entry.getKey())) {
+          return false;
+        }
+        if (!map.lazyEval
+            && !((entry.getValue() instanceof ArgSpec) && isConstant((ArgSpec) entry
+                .getValue()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (spec instanceof SymbolTerm) {
+      return !spec.containsRandomSymbol();
+    }
+    if (spec instanceof FuncAppTerm) {
+      FuncAppTerm term = (FuncAppTerm) spec;
+      if (!(term.getFunction() instanceof FixedFunction)) {
+        return false;
+      }
+      ArgSpec[] args = term.getArgs();
+      for (int i = 0; i < args.length; ++i) {
+        if (!isConstant(args[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean isNumeric(Term term) {
+    Type type = term.getType();
+    return (type == BuiltInTypes.REAL) || (type == BuiltInTypes.INTEGER);
+  }
+
+  /**
+   * Thrown by the primitive accessors when a value is missing. There are only
+   * two instances, and they carry no stack trace, so throwing one is cheap.
+   */
+  static final class Missing extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private Missing(Object value) {
+      this.value = value;
+    }
+
+    public Throwable fillInStackTrace() {
+      return this;
+    }
+
+    static Missing of(Object value) {
+      return (value == Model.NULL) ? NULL_VALUE : UNDETERMINED;
+    }
+
+    /** The value that <code>evaluate</code> returns in this case. */
+    final Object value;
+
+    static final Missing UNDETERMINED = new Missing(null);
+    static final Missing NULL_VALUE = new Missing(Model.NULL);
+  }
+
+  /** An expression left to the interpreter. */
+  private static class Interpreted extends Evaluator {
+    Interpreted(ArgSpec spec) {
+      this.spec = spec;
+    }
+
+    Object evaluate(EvalContext context) {
+      return spec.evaluate(context);
+    }
+
+    private final ArgSpec spec;
+  }
+
+  /** A term with no random symbols, evaluated the first time it is needed. */
+  private static class Constant extends Evaluator {
+    Constant(ArgSpec spec) {
+      this.spec = spec;
+    }
+
+    Object evaluate(EvalContext context) {
+      Object v = value;
+      if (v == null) {
+        v = spec.getValueIfNonRandom();
+        if (v == null) {
+          return spec.evaluate(context);
+        }
+        value = v;
+      }
+      return v;
+    }
+
+    private final ArgSpec spec;
+    private volatile Object value;
+  }
+
+  private static class Var extends Evaluator {
+    Var(LogicalVar var) {
+      this.var = var;
+    }
+
+    Object evaluate(EvalContext context) {
+      return context.getLogicalVarValue(var);
+    }
+
+    private final LogicalVar var;
+  }
+
+  /** A function applied to arguments, as in FuncAppTerm. */
+  private static class Apply extends Evaluator {
+    Apply(Function f, Evaluator[] args) {
+      this.f = f;
+      this.args = args;
+    }
+
+    Object evaluate(EvalContext context) {
+      // a new array each time: it may become the arguments of a variable
+      Object[] argValues = new Object[args.length];
+      for (int i = 0; i < args.length; ++i) {
+        argValues[i] = args[i].evaluate(context);
+        if (argValues[i] == null) {
+          return null;
+        }
+        if (argValues[i] == Model.NULL) {
+          return Model.NULL;
+        }
+      }
+      return f.getValueInContext(argValues, context, false);
+    }
+
+    private final Function f;
+    private final Evaluator[] args;
+  }
+
+  /** The built-in arithmetic on Reals. */
+  private static class RealOp extends Evaluator {
+    RealOp(Function f, Evaluator left, Evaluator right) {
+      this.f = f;
+      this.left = left;
+      this.right = right;
+    }
+
+    Object evaluate(EvalContext context) {
+      try {
+        return Double.valueOf(realValue(context));
+      } catch (Missing e) {
+        return e.value;
+      }
+    }
+
+    double realValue(EvalContext context) throws Missing {
+      double x = left.realValue(context);
+      double y = right.realValue(context);
+      if (f == BuiltInFunctions.RPLUS) {
+        return x + y;
+      } else if (f == BuiltInFunctions.RMINUS) {
+        return x - y;
+      } else if (f == BuiltInFunctions.RMULT) {
+        return x * y;
+      } else if (f == BuiltInFunctions.RDIV) {
+        return x / y;
+      }
+      return Math.pow(x, y);
+    }
+
+    private final Function f;
+    private final Evaluator left;
+    private final Evaluator right;
+  }
+
+  /** The built-in arithmetic on Integers. */
+  private static class IntOp extends Evaluator {
+    IntOp(Function f, Evaluator left, Evaluator right) {
+      this.f = f;
+      this.left = left;
+      this.right = right;
+    }
+
+    Object evaluate(EvalContext context) {
+      try {
+        return Integer.valueOf(intValue(context));
+      } catch (Missing e) {
+        return e.value;
+      }
+    }
+
+    double realValue(EvalContext context) throws Missing {
+      return intValue(context);
+    }
+
+    int intValue(EvalContext context) throws Missing {
+      int x = left.intValue(context);
+      int y = right.intValue(context);
+      if (f == BuiltInFunctions.PLUS) {
+        return x + y;
+      } else if (f == BuiltInFunctions.MINUS) {
+        return x - y;
+      } else if (f == BuiltInFunctions.MULT) {
+        return x * y;
+      } else if (f == BuiltInFunctions.DIV) {
+        return x / y;
+      }
+      return x % y;
+    }
+
+    private final Function f;
+    private final Evaluator left;
+    private final Evaluator right;
+  }
+
+  /** The built-in comparison functions on Reals. */
+  private static class RealComparison extends Evaluator {
+    RealComparison(Function f, Evaluator left, Evaluator right) {
+      this.f = f;
+      this.left = left;
+      this.right = right;
+    }
+
+    Object evaluate(EvalContext context) {
+      double x;
+      double y;
+      try {
+        x = left.realValue(context);
+        y = right.realValue(context);
+      } catch (Missing e) {
+        return e.value;
+      }
+      if (f == BuiltInFunctions.LT) {
+        return Boolean.valueOf(x < y);
+      } else if (f == BuiltInFunctions.LEQ) {
+        return Boolean.valueOf(x <= y);
+      } else if (f == BuiltInFunctions.GT) {
+        return Boolean.valueOf(x > y);
+      }
+      return Boolean.valueOf(x >= y);
+    }
+
+    private final Function f;
+    private final Evaluator left;
+    private final Evaluator right;
+  }
+
+  /**
+   * A ComparisonFormula between numeric terms. Like the interpreter, it orders
+   * doubles as <code>Double.compareTo</code> does, and is undetermined rather
+   * than Model.NULL when a side is Model.NULL.
+   */
+  private static class Comparison extends Evaluator {
+    Comparison(ComparisonFormula.Operator op, Evaluator left, Evaluator right) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+    }
+
+    Object evaluate(EvalContext context) {
+      int cmp;
+      try {
+        double x = left.realValue(context);
+        cmp = Double.compare(x, right.realValue(context));
+      } catch (Missing e) {
+        return null;
+      }
+      switch (op) {
+      case LT:
+        return Boolean.valueOf(cmp < 0);
+      case LEQ:
+        return Boolean.valueOf(cmp <= 0);
+      case GT:
+        return Boolean.valueOf(cmp > 0);
+      case GEQ:
+        return Boolean.valueOf(cmp >= 0);
+      }
+      return null;
+    }
+
+    private final ComparisonFormula.Operator op;
+    private final Evaluator left;
+    private final Evaluator right;
+  }
+
+  private static class Equality extends Evaluator {
+    Equality(Evaluator left, Evaluator right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    Object evaluate(EvalContext context) {
+      Object x = left.evaluate(context);
+      if (x == null) {
+        return null;
+      }
+      Object y = right.evaluate(context);
+      if (y == null) {
+        return null;
+      }
+      if (x == y) {
+        return Boolean.TRUE;
+      }
+      if ((x instanceof GenericObject) || (y instanceof GenericObject)) {
+        return null;
+      }
+      return Boolean.valueOf(x.equals(y));
+    }
+
+    private final Evaluator left;
+    private final Evaluator right;
+  }
+
+  private static class Neg extends Evaluator {
+    Neg(Evaluator neg) {
+      this.neg = neg;
+    }
+
+    Object evaluate(EvalContext context) {
+      Boolean value = (Boolean) neg.evaluate(context);
+      if (value == null) {
+        return null;
+      }
+      return Boolean.valueOf(!value.booleanValue());
+    }
+
+    private final Evaluator neg;
+  }
+
+  /**
+   * A conjunction or disjunction, evaluated left to right until a conjunct is
+   * false or a disjunct is true.
+   */
+  private static class Junction extends Evaluator {
+    Junction(Evaluator[] parts, boolean disjunction) {
+      this.parts = parts;
+      this.shortCircuit = Boolean.valueOf(disjunction);
+    }
+
+    Object evaluate(EvalContext context) {
+      for (int i = 0; i < parts.length; ++i) {
+        Boolean value = (Boolean) parts[i].evaluate(context);
+        if (value == null) {
+          return null;
+        }
+        if (value.equals(shortCircuit)) {
+          return shortCircuit;
+        }
+      }
+      return Boolean.valueOf(!shortCircuit.booleanValue());
+    }
+
+    private final Evaluator[] parts;
+    private final Boolean shortCircuit;
+  }
+
+  private static class Implic extends Evaluator {
+    Implic(Evaluator antecedent, Evaluator consequent) {
+      this.antecedent = antecedent;
+      this.consequent = consequent;
+    }
+
+    Object evaluate(EvalContext context) {
+      Boolean value = (Boolean) antecedent.evaluate(context);
+      if (value == null) {
+        return null;
+      }
+      if (value.booleanValue()) {
+        return (Boolean) consequent.evaluate(context);
+      }
+      return Boolean.TRUE;
+    }
+
+    private final Evaluator antecedent;
+    private final Evaluator consequent;
+  }
+
+  /**
+   * A CaseSpec (which is also what if-then-else compiles to). The case is
+   * chosen with <code>CaseSpec.choose</code>, which uses a prebuilt dispatch
+   * table when the keys are constants, as they are for if-then-else; the
+   * chosen case is then evaluated by its compiled evaluator.
+   */
+  private static class Case extends Evaluator {
+    Case(CaseSpec spec) {
+      this.spec = spec;
+      test = compile(spec.test);
+      for (Map.Entry<ArgSpec, Object> entry : spec.clause.getMap().entrySet()) {
+        if (entry.getValue() instanceof ArgSpec) {
+          cases.put(entry.getValue(), compile((ArgSpec) entry.getValue()));
+        }
+      }
+    }
+
+    Object evaluate(EvalContext context) {
+      Object t = test.evaluate(context);
+      if (t == null) {
+        return null;
+      }
+      Object ret = spec.choose(t, context);
+      if (ret == CaseSpec.NO_CASE) {
+        return Model.NULL;
+      }
+      if (ret instanceof ArgSpec) {
+        Evaluator compiled = cases.get(ret);
+        if (compiled != null) {
+          return compiled.evaluate(context);
+        }
+        return ((ArgSpec) ret).evaluate(context);
+      }
+      return ret;
+    }
+
+    private final CaseSpec spec;
+    private final Evaluator test;
+    private final Map<Object, Evaluator> cases = new IdentityHashMap<Object, Evaluator>();
+  }
+
+  /**
+   * A distribution clause. Like DistribSpec, it evaluates to itself; the
+   * distribution is obtained with {@link #getDistrib(EvalContext)}.
+   */
+  static class Distrib extends Evaluator {
+    Distrib(DistribSpec spec) {
+      this.spec = spec;
+      args = compileAll(Arrays.asList(spec.getArgs()));
+    }
+
+    Object evaluate(EvalContext context) {
+      return this;
+    }
+
+    /**
+     * Returns the distribution with its arguments evaluated in the given
+     * context, or null if they are not all determined.
+     */
+    DependencyModel.Distrib getDistrib(EvalContext context) {
+      if (spec.getCPD() == null) {
+        throw new IllegalStateException("CPD not initialized");
+      }
+      Object[] argValues = new Object[args.length];
+      for (int i = 0; i < args.length; ++i) {
+        argValues[i] = args[i].evaluate(context);
+        if (argValues[i] == null) {
+          return null;
+        }
+      }
+      return new DependencyModel.Distrib(spec.bindCPD(argValues),
+          Arrays.asList(argValues));
+    }
+
+    DistribSpec getSpec() {
+      return spec;
+    }
+
+    private final DistribSpec spec;
+    private final Evaluator[] args;
+  }
+}
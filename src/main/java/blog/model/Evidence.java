@@ -140,6 +140,62 @@ public class Evidence {
     // it is considered compiled as well.
   }
 
+  /**
+   * Adds the value evidence statement <code>f(args) = value</code>, built
+   * directly from the given function and objects rather than parsed from a
+   * string. Arguments and value are converted as in
+   * {@link FuncAppTerm#fromObjects(Function, Object...)}, so a caller that
+   * looks up its functions once can add an observation per time step by
+   * varying only the Timestep argument and the value.
+   * 
+   * @return the new statement, which is compiled right away if this evidence
+   *         has already been compiled
+   */
+  public ValueEvidenceStatement addValueEvidence(Function f, Object[] args,
+      Object value) {
+    ValueEvidenceStatement stmt = new ValueEvidenceStatement(
+        FuncAppTerm.fromObjects(f, args), FuncAppTerm.toArgSpec(
+            f.getRetType(), value));
+    addValueEvidence(stmt);
+    if (compiled) {
+      compile();
+    }
+    return stmt;
+  }
+
+  /**
+   * Adds the symbol evidence statement
+   * <code>{type x : f(x) == value} = {symbols}</code>, built directly rather
+   * than parsed from a string. The function <code>f</code> (typically an origin
+   * function such as the time step of an observation) must take one argument
+   * of the given type; <code>value</code> is converted as in
+   * {@link FuncAppTerm#toArgSpec(Type, Object)}. The Skolem constants for the
+   * symbols can then be used as arguments of further value evidence.
+   * 
+   * @return the new statement, which is compiled right away if this evidence
+   *         has already been compiled
+   */
+  public SymbolEvidenceStatement addSymbolEvidence(Type type, Function f,
+      Object value, List<String> symbols) {
+    if (f.getArgTypes().length != 1 || !type.isSubtypeOf(f.getArgTypes()[0])) {
+      throw new IllegalArgumentException("Function " + f
+          + " does not apply to a single object of type " + type);
+    }
+    LogicalVar var = new LogicalVar("x", type);
+    Formula cond = new EqualityFormula(new FuncAppTerm(f, var),
+        (Term) FuncAppTerm.toArgSpec(f.getRetType(), value));
+    SymbolEvidenceStatement stmt = new SymbolEvidenceStatement(
+        new ImplicitSetSpec(var, cond), symbols);
+    if (!addSymbolEvidence(stmt)) {
+      Util.fatalError("Symbol evidence \"" + stmt
+          + "\" reuses an existing symbol.", false);
+    }
+    if (compiled) {
+      compile();
+    }
+    return stmt;
+  }
+
   /**
    * Returns an unmodifiable Collection of ValueEvidenceStatement objects.
    */
@@ -368,8 +424,10 @@ public class Evidence {
     int errors = 0;
     LinkedHashSet callStack = new LinkedHashSet();
 
-    for (Iterator iter = symbolEvidence.iterator(); iter.hasNext();) {
-      SymbolEvidenceStatement stmt = (SymbolEvidenceStatement) iter.next();
+    // Statements compiled by an earlier call are skipped, so that evidence
+    // added a time step at a time is compiled once rather than once per step.
+    for (; numSymbolCompiled < symbolEvidence.size(); ++numSymbolCompiled) {
+      SymbolEvidenceStatement stmt = symbolEvidence.get(numSymbolCompiled);
       int thisStmtErrors = stmt.compile(callStack);
       if (thisStmtErrors == 0) {
         recordEvidence(stmt.getObservedVar(), stmt.getObservedValue(), stmt);
@@ -377,8 +435,8 @@ public class Evidence {
       errors += thisStmtErrors;
     }
 
-    for (Iterator iter = valueEvidence.iterator(); iter.hasNext();) {
-      ValueEvidenceStatement stmt = (ValueEvidenceStatement) iter.next();
+    for (; numValueCompiled < valueEvidence.size(); ++numValueCompiled) {
+      ValueEvidenceStatement stmt = valueEvidence.get(numValueCompiled);
       int thisStmtErrors = stmt.compile(callStack);
       if (thisStmtErrors == 0) {
         recordEvidence(stmt.getObservedVar(), stmt.getObservedValue(), stmt);
@@ -442,6 +500,10 @@ public class Evidence {
 
   private boolean compiled = false;
 
+  // number of leading statements in each list that have been compiled
+  private int numSymbolCompiled = 0;
+  private int numValueCompiled = 0;
+
   // The model that this evidence is for.
   final public Model model;
 }
@@ -97,6 +97,56 @@ public class FuncAppTerm extends Term {
     this.args = args;
   }
 
+  /**
+   * Creates a function application term from a function and argument objects,
+   * without going through the parser. Each argument is converted with
+   * {@link #toArgSpec(Type, Object)} using the function's argument type, so
+   * the arguments may be terms, zero-ary functions such as Skolem constants,
+   * or plain values such as a Timestep.
+   *
+   * @throws IllegalArgumentException
+   *           if the number of arguments does not match the function
+   */
+  public static FuncAppTerm fromObjects(Function f, Object... args) {
+    Type[] argTypes = f.getArgTypes();
+    if (args.length != argTypes.length) {
+      throw new IllegalArgumentException("Function " + f + " expects "
+          + argTypes.length + " arguments, got " + args.length);
+    }
+    ArgSpec[] argSpecs = new ArgSpec[args.length];
+    for (int i = 0; i < args.length; ++i) {
+      argSpecs[i] = toArgSpec(argTypes[i], args[i]);
+    }
+    return new FuncAppTerm(f, argSpecs);
+  }
+
+  /**
+   * Returns an ArgSpec for the given object. An ArgSpec is returned as is, a
+   * zero-ary function becomes an application of that function, and any other
+   * object becomes a constant of the given type. Enumerated objects use their
+   * canonical terms; other constants are not registered as built-in literals,
+   * so building many of them (say, one observed real per time step) does not
+   * grow the global function table.
+   */
+  public static ArgSpec toArgSpec(Type type, Object obj) {
+    if (obj instanceof ArgSpec) {
+      return (ArgSpec) obj;
+    }
+    if (obj instanceof Function) {
+      return new FuncAppTerm((Function) obj);
+    }
+    if ((obj == Model.NULL) || (obj instanceof EnumeratedObject)) {
+      return type.getCanonicalTerm(obj);
+    }
+    if ((type == BuiltInTypes.REAL) && (obj instanceof Number)) {
+      obj = Double.valueOf(((Number) obj).doubleValue());
+    }
+    FixedFunction c = new FixedFunction(String.valueOf(obj),
+        Collections.EMPTY_LIST, type, new ConstantInterp(
+            Collections.singletonList(obj)));
+    return new FuncAppTerm(c);
+  }
+
   /**
    * Returns the function in this function application term.
    */
@@ -133,12 +183,10 @@ public class FuncAppTerm extends Term {
   }
 
   public Object evaluate(EvalContext context) {
-    // if (argValues == null) { // Not reusing anymore since this array was
-    // being used for being argument arrays for RandFuncAppVars and had to be
-    // cloned anyway.
-    Object[] oldArgValues = argValues;
-    argValues = new Object[args.length];
-    // }
+    // The argument array is local rather than a scratch field: it becomes the
+    // argument array of a RandFuncAppVar, and terms may be evaluated by
+    // several threads at once.
+    Object[] argValues = new Object[args.length];
 
     for (int i = 0; i < args.length; ++i) {
       argValues[i] = args[i].evaluate(context);
@@ -148,14 +196,11 @@ public class FuncAppTerm extends Term {
 
       if (argValues[i] == Model.NULL) {
         // short-circuit, don't evaluate other args
-        argValues = oldArgValues;
         return Model.NULL;
       }
     }
 
-    Object result = f.getValueInContext(argValues, context, false);
-    argValues = oldArgValues;
-    return result;
+    return f.getValueInContext(argValues, context, false);
   }
 
   /**
@@ -165,33 +210,28 @@ public class FuncAppTerm extends Term {
    * a BasicVar (specifically, a RandFuncAppVar). Otherwise, it's a DerivedVar.
    */
   public BayesNetVar getVariable() {
-    Object[] oldArgValues = argValues;
     if (f instanceof RandomFunction) {
-      if (loadArgValuesIfNonRandom()) {
-        RandFuncAppVar randFuncAppVar = new RandFuncAppVar((RandomFunction) f,
-            argValues, true);
-        argValues = oldArgValues;
-        return randFuncAppVar;
+      Object[] argValues = getArgValuesIfNonRandom();
+      if (argValues != null) {
+        return ((RandomFunction) f).rvWithArgs(argValues, true);
       }
     }
-    argValues = oldArgValues;
     return new DerivedVar(this);
   }
 
-  private boolean loadArgValuesIfNonRandom() {
-    // if (argValues == null) { // Not reusing anymore since this array was
-    // being used for being argument arrays for RandFuncAppVars and had to be
-    // cloned anyway.
-    argValues = new Object[args.length];
-    // }
-
+  /**
+   * Returns a new array holding the values of the arguments, or null if some
+   * argument is random.
+   */
+  private Object[] getArgValuesIfNonRandom() {
+    Object[] argValues = new Object[args.length];
     for (int i = 0; i < args.length; ++i) {
       argValues[i] = args[i].getValueIfNonRandom();
       if (argValues[i] == null) {
-        return false;
+        return null;
       }
     }
-    return true;
+    return argValues;
   }
 
   public Collection getSubExprs() {
@@ -441,6 +481,5 @@ public class FuncAppTerm extends Term {
   private String funcName;
   private Function f;
   private ArgSpec[] args;
-  private Object[] argValues; // scratch space for storing arg values
   private boolean compiled = false;
 }
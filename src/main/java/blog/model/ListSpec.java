@@ -2,6 +2,7 @@ package blog.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +25,10 @@ public class ListSpec extends ArgSpec {
   Type listType;
   boolean compiled;
 
+  // set on the first evaluation after compilation
+  private volatile List<Object> constantValue;
+  private volatile boolean notConstant = false;
+
   public ListSpec() {
     elements = new ArrayList<ArgSpec>();
     compiled = false;
@@ -46,6 +51,8 @@ public class ListSpec extends ArgSpec {
    */
   public int compile(LinkedHashSet callStack) {
     compiled = true;
+    constantValue = null;
+    notConstant = false;
     callStack.add(this);
     int errors = 0;
 
@@ -62,12 +69,29 @@ public class ListSpec extends ArgSpec {
     return errors;
   }
 
+  /**
+   * Returns the list of element values. If every element is constant, the
+   * list is evaluated once and the same unmodifiable list is returned from then
+   * on.
+   */
   @Override
   public Object evaluate(EvalContext context) {
+    List<Object> folded = constantValue;
+    if (folded != null) {
+      return folded;
+    }
     List<Object> evalContents = new ArrayList<Object>();
     for (ArgSpec element : elements) {
       evalContents.add(element.evaluate(context));
     }
+    if (compiled && !notConstant) {
+      if (Evaluator.isConstant(this) && !evalContents.contains(null)) {
+        folded = Collections.unmodifiableList(evalContents);
+        constantValue = folded;
+        return folded;
+      }
+      notConstant = true;
+    }
     return evalContents;
   }
 
@@ -1,5 +1,6 @@
 package blog.model;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -32,6 +33,10 @@ public class MapSpec extends ArgSpec {
   // if this flag is true, the values will not be evaluated
   boolean lazyEval = false;
 
+  // set on the first evaluation after compilation
+  private volatile Map<Object, Object> constantValue;
+  private volatile boolean notConstant = false;
+
   public void setLazyEval(boolean flag) {
     lazyEval = flag;
   }
@@ -66,6 +71,8 @@ public class MapSpec extends ArgSpec {
    */
   public int compile(LinkedHashSet callStack) {
     compiled = true;
+    constantValue = null;
+    notConstant = false;
     callStack.add(this);
     int errors = 0;
     if (keys.isEmpty()) {
@@ -102,9 +109,31 @@ public class MapSpec extends ArgSpec {
   }
 
   /**
-	 * 
-	 */
+   * Returns a map from the values of the keys to the values of the values (or
+   * the value ArgSpecs themselves, if they are evaluated lazily). If this map
+   * is constant (see <code>Evaluator.isConstant</code>), it is evaluated once,
+   * and the same unmodifiable map is returned from then on; distributions that
+   * cache work per parameter map, such as Categorical, can then reuse it.
+   */
   public Map<Object, Object> evaluate(EvalContext context) {
+    Map<Object, Object> folded = constantValue;
+    if (folded != null) {
+      return folded;
+    }
+    Map<Object, Object> newmap = evaluateEntries(context);
+    if (compiled && !notConstant) {
+      if (Evaluator.isConstant(this) && !newmap.containsKey(null)
+          && !newmap.containsValue(null)) {
+        folded = Collections.unmodifiableMap(newmap);
+        constantValue = folded;
+        return folded;
+      }
+      notConstant = true;
+    }
+    return newmap;
+  }
+
+  private Map<Object, Object> evaluateEntries(EvalContext context) {
     HashMap<Object, Object> newmap = new HashMap<Object, Object>();
     for (Map.Entry<ArgSpec, Object> entry : map.entrySet()) {
       Object k = entry.getKey().evaluate(context);
@@ -176,6 +205,8 @@ public class MapSpec extends ArgSpec {
         map.put(keys.get(i), dis);
       }
     }
+    constantValue = null;
+    notConstant = false;
     return errors;
   }
 
@@ -95,7 +95,10 @@ public class Model {
    * Copy constructor.
    */
   public Model(Model another) {
-    types = new ArrayList<Type>(another.types);
+    synchronized (another) {
+      types = new ArrayList<Type>(another.types);
+      typesByName = new HashMap<String, Type>(another.typesByName);
+    }
     functions = new ArrayList<Function>(another.functions);
     functionsByName = new HashMap<String, List<Function>>(
         another.functionsByName);
@@ -144,13 +147,51 @@ public class Model {
 
   /**
    * Creates a new user-defined type with the given name and adds it to this
-   * model.
+   * model. Synchronized with {@link #getType(String)}, since a model can be
+   * shared by concurrent requests to the inference server.
    * 
    * @return the newly created type
    */
-  public Type addType(String typeName) {
-    Type type = new Type(typeName);
+  public synchronized Type addType(String typeName) {
+    Type type = new Type(typeName, false);
     types.add(type);
+    typesByName.put(typeName, type);
+    return type;
+  }
+
+  /**
+   * Returns the type with the given name: a user-defined type of this model,
+   * or else a built-in type. Returns null if there is no such type.
+   * 
+   * <p>
+   * User-defined types are not shared between models (unlike those returned
+   * by {@link Type#getType(String)}), so that models declaring types of the
+   * same name can be used side by side.
+   */
+  public synchronized Type getType(String typeName) {
+    Type type = typesByName.get(typeName);
+    if (type == null) {
+      type = Type.getType(typeName);
+    }
+    return type;
+  }
+
+  /**
+   * Returns the type of arrays of the given element type, creating it if
+   * necessary.
+   */
+  public synchronized Type getArrayType(Type elementType) {
+    String name = "Array<" + elementType.getName() + ">";
+    Type type = getType(name);
+    if (type == null) {
+      if (types.contains(elementType)) {
+        type = new ArrayType(elementType, false);
+        typesByName.put(name, type);
+      } else {
+        new ArrayType(elementType);
+        type = Type.getType(name);
+      }
+    }
     return type;
   }
 
@@ -189,7 +230,7 @@ public class Model {
     StringTokenizer st = new StringTokenizer(typeList, ", ", false);
     while (st.hasMoreTokens()) {
       String typeName = st.nextToken();
-      Type type = Type.getType(typeName);
+      Type type = getType(typeName);
       if (type == null) {
         System.err.println("Undefined type: " + typeName);
         correct = false;
@@ -543,7 +584,7 @@ public class Model {
    * Returns a number that is one greater than the last number returned by this
    * method.
    */
-  public static int nextCreationIndex() {
+  public static synchronized int nextCreationIndex() {
     return creationIndex++;
   }
 
@@ -702,6 +743,11 @@ public class Model {
    */
   protected List<Type> types = new ArrayList<Type>(); // of Type
 
+  /**
+   * Maps names to the user-defined types, and arrays of them, in this model.
+   */
+  protected Map<String, Type> typesByName = new HashMap<String, Type>();
+
   /**
    * Stores user-defined Function objects in the order they were declared.
    */
@@ -62,7 +62,8 @@ public class NonGuaranteedObject {
 	 * @param num This object is the i'th generated from the above mentiond
 	 * POP/generating objects in this world (using 1-based indexing).
 	 */
-	public static NonGuaranteedObject get(POP pop, Object[] genObjs, int num) {
+	public static synchronized NonGuaranteedObject get(POP pop, Object[] genObjs,
+			int num) {
 		// Clean any cleared references out of the map
 		while (true) {
 			NGORef clearedRef = (NGORef) clearedRefs.poll();
@@ -145,7 +146,7 @@ public class NonGuaranteedObject {
 	public NumberVar getNumberVar() {
 		// genObjs array is stable because it was cloned by the get method
 		// before this NonGuaranteedObject was constructed
-		return new NumberVar(key.pop, key.genObjs, true);
+		return key.pop.rvWithArgs(key.genObjs, true);
 	}
 
 	/**
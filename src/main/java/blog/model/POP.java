@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 
 import blog.bn.NumberVar;
+import blog.bn.VarInterner;
 
 /**
  * Represents a potential object pattern (POP), which includes the type of
@@ -150,37 +151,54 @@ public class POP {
 	}
 
 	/**
-	 * Returns a basic random variable for this POP with no generating objects.
+	 * Returns the canonical basic random variable for this POP with no generating objects.
 	 */
 	public NumberVar rv() {
 		Object[] originObjs = {};
-		return new NumberVar(this, originObjs, true);
+		return vars.intern(new NumberVar(this, originObjs, true));
 	}
 
 	/**
-	 * Returns a basic random variable for this POP with the given single
+	 * Returns the canonical basic random variable for this POP with the given single
 	 * generating object.
 	 */
 	public NumberVar rv(Object genObj) {
 		Object[] genObjs = { genObj };
-		return new NumberVar(this, genObjs, true);
+		return vars.intern(new NumberVar(this, genObjs, true));
 	}
 
 	/**
-	 * Returns a basic random variable for this POP with the given two generating
+	 * Returns the canonical basic random variable for this POP with the given two generating
 	 * objects.
 	 */
 	public NumberVar rv(Object genObj1, Object genObj2) {
 		Object[] genObjs = { genObj1, genObj2 };
-		return new NumberVar(this, genObjs, true);
+		return vars.intern(new NumberVar(this, genObjs, true));
 	}
 
 	/**
-	 * Returns a basic random variable for this POP with the given array of
+	 * Returns the canonical basic random variable for this POP with the given array of
 	 * generating objects.
 	 */
 	public NumberVar rvWithArgs(Object[] genObjs) {
-		return new NumberVar(this, genObjs);
+		return vars.intern(new NumberVar(this, genObjs));
+	}
+
+	/**
+	 * Returns the canonical number variable equal to <code>var</code>, which
+	 * must be a number variable of this POP, or null if it has not been made
+	 * yet.
+	 */
+	public NumberVar findInterned(NumberVar var) {
+		return vars.find(var);
+	}
+
+	/**
+	 * Same as {@link #rvWithArgs(Object[])}; if <code>stable</code> is true,
+	 * the caller guarantees that <code>genObjs</code> will not be modified.
+	 */
+	public NumberVar rvWithArgs(Object[] genObjs, boolean stable) {
+		return vars.intern(new NumberVar(this, genObjs, stable));
 	}
 
 	/**
@@ -241,4 +259,5 @@ public class POP {
 	private Type[] argTypes;
 	private DependencyModel numberst;
 	private LogicalVar[] genObjVars;
+	private final VarInterner<NumberVar> vars = new VarInterner<NumberVar>();
 }
@@ -38,6 +38,19 @@ public class Queries extends ArrayList<Query> {
     sem.transProg(parse.getResult());
   }
 
+  /**
+   * Adds and compiles a query for <code>f(args)</code>, built directly from the
+   * given function and argument objects rather than parsed from a string.
+   * Arguments are converted as in
+   * {@link FuncAppTerm#fromObjects(Function, Object...)}.
+   */
+  public ArgSpecQuery addQuery(Function f, Object... args) {
+    ArgSpecQuery query = new ArgSpecQuery(FuncAppTerm.fromObjects(f, args));
+    query.compile();
+    add(query);
+    return query;
+  }
+
   public boolean checkTypesAndScope() {
     for (Query q : this) {
       if (!q.checkTypesAndScope(model)) {
@@ -60,7 +73,11 @@ public class Queries extends ArrayList<Query> {
    */
   public void reset() {
     for (Query q : this) {
-      q.getHistogram().clear();
+      if (q instanceof ArgSpecQuery) {
+        ((ArgSpecQuery) q).clear();
+      } else {
+        q.getHistogram().clear();
+      }
     }
   }
 
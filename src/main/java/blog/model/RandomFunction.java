@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 
 import blog.bn.RandFuncAppVar;
+import blog.bn.VarInterner;
 import blog.sample.EvalContext;
 
 /**
@@ -132,6 +133,25 @@ public class RandomFunction extends Function {
     return errors;
   }
 
+  /**
+   * Returns the canonical basic random variable for this function applied to
+   * the given arguments. If <code>stable</code> is true, the caller guarantees
+   * that <code>args</code> will not be modified.
+   * 
+   * @see VarInterner
+   */
+  public RandFuncAppVar rvWithArgs(Object[] args, boolean stable) {
+    return vars.intern(new RandFuncAppVar(this, args, stable));
+  }
+
+  /**
+   * Returns the canonical variable equal to <code>var</code>, which must be a
+   * variable of this function, or null if it has not been made yet.
+   */
+  public RandFuncAppVar findInterned(RandFuncAppVar var) {
+    return vars.find(var);
+  }
+
   /**
    * Prints the dependency statement for this function to the given stream.
    */
@@ -169,10 +189,10 @@ public class RandomFunction extends Function {
       }
     }
 
-    RandFuncAppVar rv = new RandFuncAppVar(this, args, stable);
-    return context.getValue(rv);
+    return context.getValue(rvWithArgs(args, stable));
   }
 
   private DependencyModel depmodel = null;
+  private final VarInterner<RandFuncAppVar> vars = new VarInterner<RandFuncAppVar>();
   private boolean compiled = false;
 }
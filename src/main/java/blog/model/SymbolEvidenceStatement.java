@@ -46,6 +46,7 @@ import java.util.Set;
 import blog.bn.BasicVar;
 import blog.bn.DerivedVar;
 import blog.bn.RandFuncAppVar;
+import blog.sample.EvalContext;
 import blog.world.PartialWorld;
 
 /**
@@ -187,6 +188,34 @@ public class SymbolEvidenceStatement {
    */
   public boolean isTrue(PartialWorld w) {
     Set satisfiers = setSpec.getSatisfyingSet(w);
+    List referents = new ArrayList();
+    for (Iterator iter = skolemConstants.iterator(); iter.hasNext();) {
+      SkolemConstant sym = (SkolemConstant) iter.next();
+      referents.add(w.getValue(new RandFuncAppVar(sym, Collections.EMPTY_LIST)));
+    }
+    return isTrue(satisfiers, referents);
+  }
+
+  /**
+   * Like <code>isTrue(PartialWorld)</code>, but reads the world through the
+   * given context, so that the context can record which variables were used.
+   * Returns false if the context cannot determine the satisfying set.
+   */
+  public boolean isTrue(EvalContext context) {
+    Set satisfiers = (Set) setSpec.evaluate(context);
+    if (satisfiers == null) {
+      return false;
+    }
+    List referents = new ArrayList();
+    for (Iterator iter = skolemConstants.iterator(); iter.hasNext();) {
+      SkolemConstant sym = (SkolemConstant) iter.next();
+      referents.add(context.getValue(new RandFuncAppVar(sym,
+          Collections.EMPTY_LIST)));
+    }
+    return isTrue(satisfiers, referents);
+  }
+
+  private boolean isTrue(Set satisfiers, List referents) {
     if (satisfiers.size() != skolemConstants.size()) {
       // System.out.println("Symbol evidence statement should be "
       // + "satisfied by " + skolemConstants.size()
@@ -194,23 +223,21 @@ public class SymbolEvidenceStatement {
       return false;
     }
 
-    Set referents = new HashSet();
-    for (Iterator iter = skolemConstants.iterator(); iter.hasNext();) {
-      SkolemConstant sym = (SkolemConstant) iter.next();
-      BasicVar symVar = new RandFuncAppVar(sym, Collections.EMPTY_LIST);
-      Object referent = w.getValue(symVar);
+    Set seen = new HashSet();
+    for (int i = 0; i < referents.size(); ++i) {
+      Object referent = referents.get(i);
       if (referent != null) {
-        if (referents.contains(referent)) {
-          // System.out.println("Skolem constant " + sym
+        if (seen.contains(referent)) {
+          // System.out.println("Skolem constant " + skolemConstants.get(i)
           // + " corefers with earlier constant.");
           return false;
         }
         if (!satisfiers.contains(referent)) {
-          System.out.println("Skolem constant " + sym + " refers to "
-              + referent + " which doesn't satisfy set spec.");
+          System.out.println("Skolem constant " + skolemConstants.get(i)
+              + " refers to " + referent + " which doesn't satisfy set spec.");
           return false;
         }
-        referents.add(referent);
+        seen.add(referent);
       }
     }
 
@@ -42,7 +42,6 @@ import java.util.Set;
 
 import blog.bn.BayesNetVar;
 import blog.bn.DerivedVar;
-import blog.bn.RandFuncAppVar;
 import blog.common.Util;
 import blog.sample.EvalContext;
 
@@ -160,7 +159,7 @@ public class SymbolTerm extends Term {
    */
   public BayesNetVar getVariable() {
     if (func instanceof RandomFunction) {
-      return new RandFuncAppVar((RandomFunction) func, NO_ARGS, true);
+      return ((RandomFunction) func).rvWithArgs(NO_ARGS, true);
     }
     return new DerivedVar(this);
   }
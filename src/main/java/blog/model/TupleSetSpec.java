@@ -220,8 +220,8 @@ public class TupleSetSpec extends ArgSpec {
     List argValues = ArgSpec.evaluate(context, Arrays.asList(fTerm.getArgs()));
     if (argValues.contains(null))
       return null;
-    RandFuncAppVar var = new RandFuncAppVar(
-        (RandomFunction) fTerm.getFunction(), argValues);
+    RandFuncAppVar var = ((RandomFunction) fTerm.getFunction()).rvWithArgs(
+        argValues.toArray(), true);
     return var;
   }
 
@@ -69,8 +69,20 @@ public class Type {
    * guaranteed objects.
    */
   public Type(String name) {
-    if (!allTypes.containsKey(name))
-      Type.allTypes.put(name, this);
+    this(name, true);
+  }
+
+  /**
+   * Creates a new type with the given name that is not a sub-type of any other
+   * type. If <code>register</code> is false, the type is not returned by
+   * {@link #getType(String)}; this is how models create their user-defined
+   * types, which they look up themselves.
+   */
+  Type(String name, boolean register) {
+    synchronized (allTypes) {
+      if (register && !allTypes.containsKey(name))
+        Type.allTypes.put(name, this);
+    }
     this.name = name;
   }
 
@@ -89,7 +101,9 @@ public class Type {
    *          a Type object or null
    */
   public Type(String name, Type supertype) {
-    Type.allTypes.put(name, this);
+    synchronized (allTypes) {
+      Type.allTypes.put(name, this);
+    }
     this.name = name;
     this.supertype = supertype;
   }
@@ -104,7 +118,9 @@ public class Type {
    *          a Type object or null
    */
   public Type(String name, Type supertype, boolean infinite) {
-    Type.allTypes.put(name, this);
+    synchronized (allTypes) {
+      Type.allTypes.put(name, this);
+    }
     this.name = name;
     this.supertype = supertype;
     this.infiniteGuaranteed = infinite;
@@ -416,8 +432,14 @@ public class Type {
     private boolean includesNull;
   }
 
+  /**
+   * Returns the built-in type with the given name, or null if there is none.
+   * User-defined types are looked up with {@link Model#getType(String)}.
+   */
   public static Type getType(String typeName) {
-    return allTypes.get(typeName);
+    synchronized (allTypes) {
+      return allTypes.get(typeName);
+    }
   }
 
   // Static variables: provide handling for all types
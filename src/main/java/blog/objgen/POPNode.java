@@ -97,7 +97,7 @@ public class POPNode extends Node {
 				// Have tuple of generating objects;
 				// see what they generate
 				List genObjs = (List) parentTupleIter.next();
-				NumberVar nv = new NumberVar(pop, genObjs);
+				NumberVar nv = pop.rvWithArgs(genObjs.toArray(), true);
 				if (returnPOPApps) {
 					if (context.getValue(nv) == null) {
 						canDetermineNext = false;
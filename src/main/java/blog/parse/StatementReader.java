@@ -0,0 +1,164 @@
+package blog.parse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits BLOG source read from a Reader into top-level statements, without
+ * parsing them. A statement ends at a semicolon that is not nested in
+ * parentheses, brackets or braces, and not inside a string, character literal
+ * or comment. The input is read lazily, so a large file of evidence can be
+ * consumed one statement at a time.
+ *
+ * @since Oct 18, 2026
+ */
+public class StatementReader {
+  public StatementReader(Reader reader) {
+    this.reader = new BufferedReader(reader);
+  }
+
+  /**
+   * Returns the text of the next statement, including its terminating
+   * semicolon, or null at the end of the input. Comments are dropped. Text
+   * after the last semicolon is returned as a statement of its own if it is
+   * not blank.
+   */
+  public String next() throws IOException {
+    StringBuilder buf = new StringBuilder();
+    int depth = 0;
+    boolean blank = true;
+    startLine = -1;
+    int c;
+    while ((c = read()) != -1) {
+      if (c == '/') {
+        int d = peek();
+        if (d == '/') {
+          skipLineComment();
+          buf.append('\n');
+          continue;
+        } else if (d == '*') {
+          read();
+          skipBlockComment(buf);
+          buf.append(' ');
+          continue;
+        }
+      }
+      if (blank && !Character.isWhitespace(c)) {
+        blank = false;
+        startLine = line;
+      }
+      buf.append((char) c);
+      switch (c) {
+      case '"':
+      case '\'':
+        copyQuoted(c, buf);
+        break;
+      case '(':
+      case '[':
+      case '{':
+        depth++;
+        break;
+      case ')':
+      case ']':
+      case '}':
+        depth--;
+        break;
+      case ';':
+        if (depth <= 0) {
+          return buf.toString();
+        }
+        break;
+      }
+    }
+    return blank ? null : buf.toString();
+  }
+
+  /**
+   * Returns the line (counting from 1) on which the statement last returned by
+   * {@link #next()} starts.
+   */
+  public int getStartLine() {
+    return startLine;
+  }
+
+  /**
+   * Returns true if the given statement is evidence or a query, rather than a
+   * declaration.
+   */
+  public static boolean isEvidenceOrQuery(String statement) {
+    String s = statement.trim();
+    return startsWithWord(s, "obs") || startsWithWord(s, "query");
+  }
+
+  private static boolean startsWithWord(String s, String word) {
+    return s.startsWith(word)
+        && (s.length() == word.length() || !Character.isJavaIdentifierPart(s
+            .charAt(word.length())));
+  }
+
+  private void copyQuoted(int quote, StringBuilder buf) throws IOException {
+    int c;
+    while ((c = read()) != -1) {
+      buf.append((char) c);
+      if (c == '\\') {
+        c = read();
+        if (c == -1) {
+          return;
+        }
+        buf.append((char) c);
+      } else if (c == quote || c == '\n') {
+        return;
+      }
+    }
+  }
+
+  private void skipLineComment() throws IOException {
+    int c;
+    while ((c = read()) != -1 && c != '\n') {
+    }
+  }
+
+  // keeps the line breaks, so that line numbers within a statement stay right
+  private void skipBlockComment(StringBuilder buf) throws IOException {
+    int prev = 0;
+    int c;
+    while ((c = read()) != -1) {
+      if (prev == '*' && c == '/') {
+        return;
+      }
+      if (c == '\n') {
+        buf.append('\n');
+      }
+      prev = c;
+    }
+  }
+
+  private int read() throws IOException {
+    int c;
+    if (lookahead != NONE) {
+      c = lookahead;
+      lookahead = NONE;
+    } else {
+      c = reader.read();
+    }
+    if (c == '\n') {
+      line++;
+    }
+    return c;
+  }
+
+  private int peek() throws IOException {
+    if (lookahead == NONE) {
+      lookahead = reader.read();
+    }
+    return lookahead;
+  }
+
+  private static final int NONE = -2;
+
+  private final BufferedReader reader;
+  private int lookahead = NONE;
+  private int line = 1;
+  private int startLine = -1;
+}
@@ -15,7 +15,8 @@ import blog.model.Evidence;
 import blog.model.Model;
 import blog.model.Queries;
 import blog.model.Query;
-import blog.world.DefaultPartialWorld;
+import blog.world.WorldDiffFactory;
+import blog.world.WorldFactory;
 import blog.world.PartialWorld;
 import blog.world.PartialWorldDiff;
 
@@ -29,6 +30,8 @@ public abstract class AbstractProposer implements Proposer {
   public AbstractProposer(Model model, Properties properties) {
     this.model = model;
     this.properties = properties;
+    worldFactory = new WorldFactory(properties);
+    worldDiffFactory = new WorldDiffFactory(properties);
   }
 
   public PartialWorldDiff initialize(Evidence evidence, List queries) {
@@ -50,6 +53,9 @@ public abstract class AbstractProposer implements Proposer {
    */
   public void add(Evidence evidence) {
     this.evidence.addAll(evidence);
+    // replace the set rather than change it, so that worlds using it as
+    // their observed variables notice the change
+    evidenceVars = new HashSet(evidenceVars);
     evidenceVars.addAll(evidence.getEvidenceVars());
     // Recompute numBasicEvidenceVars.
     numBasicEvidenceVars = 0;
@@ -95,9 +101,10 @@ public abstract class AbstractProposer implements Proposer {
           initWorld.print(System.out);
         }
 
-        PartialWorld underlying = new DefaultPartialWorld(
-            initWorld.getIdTypes());
-        return new PartialWorldDiff(underlying, initWorld);
+        // MH tracks parent changes against the underlying world's CBN
+        PartialWorld underlying = worldFactory.makeWorld(
+            initWorld.getIdTypes(), false, true);
+        return worldDiffFactory.makeDiff(underlying, initWorld);
       } else { // world is inconsistent with evidence, try again
         if (Util.verbose()) {
           System.out.println(numInitialStateTriesThisTrial
@@ -138,6 +145,8 @@ public abstract class AbstractProposer implements Proposer {
   protected Model model;
 
   protected Properties properties;
+  protected WorldFactory worldFactory;
+  protected WorldDiffFactory worldDiffFactory;
 
   // TODO: it seems wasteful to keep evidence and queries
   // since a proposer is typically used by a sampler that also keeps them.
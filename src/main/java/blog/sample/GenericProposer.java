@@ -35,7 +35,6 @@
 
 package blog.sample;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Properties;
@@ -43,6 +42,7 @@ import java.util.Set;
 
 import blog.bn.BayesNetVar;
 import blog.bn.VarWithDistrib;
+import blog.common.IndexedSet;
 import blog.common.Util;
 import blog.distrib.CondProbDistrib;
 import blog.model.DependencyModel;
@@ -94,12 +94,15 @@ public class GenericProposer extends AbstractProposer {
   }
 
   protected PickVarToSampleResult pickVarToSample(PartialWorld world) {
-    Set eligibleVars = new HashSet(world.getInstantiatedVars());
-    eligibleVars.removeAll(evidenceVars);
+    world.setObservedVars(evidenceVars);
+    IndexedSet eligibleVars = world.getUnobservedVars();
+    if (eligibleVars.isEmpty()) {
+      return new PickVarToSampleResult(null, 0);
+    }
 
     // Uniformly sample a random variable from the support network.
-    VarWithDistrib varToSample = (VarWithDistrib) Util
-        .uniformSample(eligibleVars);
+    VarWithDistrib varToSample = (VarWithDistrib) eligibleVars.get(Util
+        .randInt(eligibleVars.size()));
 
     return new PickVarToSampleResult(varToSample, eligibleVars.size());
   }
@@ -182,8 +185,7 @@ public class GenericProposer extends AbstractProposer {
     }
 
     // Uniform sampling from new world.
-    logProbBackward += (-Math.log(world.getInstantiatedVars().size()
-        - numBasicEvidenceVars));
+    logProbBackward += (-Math.log(world.getUnobservedVars().size()));
     return (logProbBackward - logProbForward);
   }
 
@@ -200,7 +202,6 @@ public class GenericProposer extends AbstractProposer {
     DependencyModel.Distrib distrib = varToSample
         .getDistrib(new DefaultEvalContext(world, true));
     CondProbDistrib cpd = distrib.getCPD();
-    cpd.setParams(distrib.getArgValues());
     Object oldValue = world.getValue(varToSample);
     chosenVarOldValue = oldValue;
     logProbBackward += Math.log(cpd.getProb(oldValue));
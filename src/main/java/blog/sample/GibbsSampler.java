@@ -35,37 +35,39 @@
 
 package blog.sample;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
-import blog.bn.BayesNetVar;
-import blog.bn.VarWithDistrib;
-import blog.bn.NumberVar;
 import blog.bn.RandFuncAppVar;
-import blog.model.Type;
+import blog.bn.VarWithDistrib;
+import blog.common.IndexedSet;
 import blog.common.Util;
+import blog.distrib.CondProbDistrib;
 import blog.model.Model;
-import blog.model.Evidence;
+import blog.model.Type;
 import blog.world.PartialWorld;
-import blog.world.PartialWorldDiff;
-import blog.model.Query;
-import java.util.List;
-import java.util.Properties;
+import blog.world.WorldDiffFactory;
 
 /**
- * An implementation of the open universe Gibbs Sampler described by 
- * Arora et. al. This sampler differs from a standard Gibbs sampler 
- * in the fact that it shrinks and expands the CBN during sampling steps
- * to account for the changes in CBN structure as the values of random
- * variables change.
+ * An implementation of the open universe Gibbs Sampler described by Arora et.
+ * al. This sampler differs from a standard Gibbs sampler in the fact that it
+ * shrinks and expands the CBN during sampling steps to account for the changes
+ * in CBN structure as the values of random variables change.
  *
- * This implementation is built as a modification of the MH sampler since
- * many of the CBN manipulations are the same for Gibbs as for MH and since this
+ * This implementation is built as a modification of the MH sampler since many
+ * of the CBN manipulations are the same for Gibbs as for MH and since this
  * Gibbs sampler reverts to MH sampling for variables of infinite domain.
  *
- * TODO: Although the structure of this class is correct, a number of the 
- * called methods are only stubs. These will be filled in over the next few
- * commits. This class will probably have MHSampler as superclass in the next
- * iteration since both classes share significant amounts of structure.
+ * A variable with a finite domain is resampled from its conditional given its
+ * Markov blanket, which is computed locally: the log probability of each
+ * candidate value is the variable's own log probability given its parents
+ * plus the log probabilities of its children in the CBN, and the weights are
+ * normalized in log space. The candidates are all tried in the current world
+ * diff, which is reverted after each one. If some candidate value would make
+ * a child or the evidence depend on an uninstantiated variable, the step
+ * falls back to MH.
  *
  * @author rbharath
  * @date Aug 10, 2012
@@ -73,142 +75,139 @@ import java.util.Properties;
 
 public class GibbsSampler extends MHSampler {
 
-    /**
-     *  Creates a new Gibbs Sampler for a given BLOG model.
-     */
-    public GibbsSampler(Model model, Properties properties) {
-        super(model);
-        // For now, only the generic proposer is allowed
-        properties.setProperty("proposerClass", "blog.GenericProposer");
-        constructProposer(properties);
+  /**
+   * Creates a new Gibbs Sampler for a given BLOG model.
+   */
+  public GibbsSampler(Model model, Properties properties) {
+    super(model);
+    // For now, only the generic proposer is allowed
+    properties.setProperty("proposerClass", "blog.sample.GenericProposer");
+    worldDiffFactory = new WorldDiffFactory(properties);
+    constructProposer(properties);
+  }
+
+  /**
+   * Generates the next partial world by Gibbs sampling: Randomly selects a
+   * non-evidence variable X. If X has a finite domain, resamples X from its
+   * conditional distribution given its Markov blanket; otherwise takes an MH
+   * step.
+   */
+  public void nextSample() {
+    curWorld.save(); // make sure we start with saved world.
+
+    // Find Nonevidence Variables in Current World
+    curWorld.setObservedVars(evidence.getEvidenceVars());
+    IndexedSet eligibleVars = curWorld.getUnobservedVars();
+
+    // Return if no vars to sample
+    if (eligibleVars.isEmpty()) {
+      ++totalNumSamples;
+      ++numSamplesThisTrial;
+      return;
     }
 
-    /**
-     * Generates the next partial world by Gibbs sampling: Randomly selects a
-     * non-evidence variable X. Reduces the current instantiation
-     * to its core, and resamples X from this core. Ensures that the resulting
-     * world is minimal and self supported.
-     */
-    public void nextSample() {
-        // Find Nonevidence Variables in Current World
-		Set eligibleVars = new HashSet(curWorld.getInstantiatedVars());
-		eligibleVars.removeAll(evidenceVars);
-		++totalNumSamples;
-		++numSamplesThisTrial;
-
-        // Return if no vars to sample
-        if (eligibleVars.isEmpty())
-            return;
-
-        // Find Variable to Sample
-        VarWithDistrib varToSample = 
-                (VarWithDistrib) Util.uniformSample(eligibleVars);
-
-		if (Util.verbose())
-			System.out.println("Sampling " + varToSample);
-
-        int domSize = 0;
-
-        // Find the domain size of this variable
-        if (varToSample instanceof NumberVar) {
-            // Number Variables have infinite domain
-            // TODO: If evidence restricts this number var, does it still
-            //       have infinite domain?
-            domSize = -1;
-        } else {
-            RandFuncAppVar randFunc = (RandFuncAppVar) varToSample;
-            Type retType = randFunc.getType();
-            if (!retType.hasFiniteGuaranteed()) {
-                domSize = -1;
-            } else {
-                domSize = retType.range().size();
-            }
-        }
-
-        // If domain size is finite
-        if (domSize >= 0) {
-            // Calculate possible transitions and their weights
-            double[] weights = new double[domSize];
-            PartialWorldDiff[] diffs = new PartialWorldDiff[domSize];
-
-            for (int i = 0; i < domSize; i++) {
-                PartialWorldDiff reducedWorld = 
-                    proposer.reduceToCore(curWorld, varToSample);
-                // Set varToSample to i-th value in domain
-                // Ensure Minimal Self-Supported Instantiation
-                double logProposalRatio = 
-                        proposer.proposeNextState(reducedWorld, varToSample, i);
-                double weight = evidence.getEvidenceProb(curWorld);
-                weights[i] = weight;
-                diffs[i] = reducedWorld;
-            }
-
-            int idx = Util.sampleWithProbs(weights);
-            PartialWorldDiff selected = diffs[idx];
-
-            // Save the selected world
-            selected.save();
-        } else { 
-            // Infinite Domain Size so we fall back to MH Sampling
-            curWorld.save(); // make sure we start with saved world.
-            double logProposalRatio = 
-                proposer.proposeNextState(curWorld, varToSample);
-
-            if (Util.verbose()) {
-                System.out.println();
-                System.out.println("\tlog proposal ratio: " + logProposalRatio);
-            }
+    // Find Variable to Sample
+    VarWithDistrib varToSample = (VarWithDistrib) eligibleVars.get(Util
+        .randInt(eligibleVars.size()));
+
+    if (Util.verbose())
+      System.out.println("Sampling " + varToSample);
+
+    // Number variables and variables of infinite or random domain are
+    // handled by MH
+    List domain = null;
+    if (varToSample instanceof RandFuncAppVar) {
+      Type retType = ((RandFuncAppVar) varToSample).getType();
+      if (retType.hasFiniteGuaranteed() && retType.getPOPs().isEmpty()) {
+        domain = retType.range();
+      }
+    }
 
-            double logProbRatio = 
-                computeLogProbRatio(curWorld.getSaved(), curWorld);
-            if (Util.verbose()) {
-                System.out.println("\tlog probability ratio: " + logProbRatio);
+    if ((domain == null) || !sampleFromConditional(varToSample, domain)) {
+      super.nextSample();
+    }
+  }
+
+  /**
+   * Sets <code>var</code> to a value sampled from its conditional distribution
+   * given the rest of the current world, and saves the world. Returns false,
+   * leaving the world unchanged, if the conditional cannot be computed without
+   * instantiating more variables.
+   */
+  private boolean sampleFromConditional(VarWithDistrib var, List domain) {
+    acceptProbTimer.start();
+
+    // Changing var's value does not change its parents or its children, so
+    // both can be looked up once in the saved world.
+    CondProbDistrib cpd = var.getDistrib(
+        new DefaultEvalContext(curWorld, true)).getCPD();
+    List children = new ArrayList(curWorld.getCBN().getChildren(var));
+
+    double[] logWeights = new double[domain.size()];
+    double maxLogWeight = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < domain.size(); ++i) {
+      Object value = domain.get(i);
+      double logWeight = cpd.getLogProb(value);
+      if (logWeight > Double.NEGATIVE_INFINITY) {
+        curWorld.setValue(var, value);
+        boolean evidenceTrue = evidenceIsTrue(curWorld);
+        if (!evidenceIsDetermined()) {
+          curWorld.revert();
+          acceptProbTimer.stop();
+          return false;
+        }
+        if (!evidenceTrue) {
+          logWeight = Double.NEGATIVE_INFINITY;
+        } else {
+          Map logProbs = curWorld.varToLogProbMap();
+          for (int j = 0; j < children.size(); ++j) {
+            Double childLogProb = (Double) logProbs.get(children.get(j));
+            if (childLogProb == PartialWorld.UNDET) {
+              curWorld.revert();
+              acceptProbTimer.stop();
+              return false;
             }
-            double logAcceptRatio = logProbRatio + logProposalRatio;
-            if (Util.verbose()) {
-                System.out.println("\tlog acceptance ratio: " + logAcceptRatio);
+            if (childLogProb != null) { // null for derived vars
+              logWeight += childLogProb.doubleValue();
             }
-
-            // Accept or reject proposal
-            if ((logAcceptRatio >= 0) || 
-                    (Util.random() < Math.exp(logAcceptRatio))) {
-                curWorld.save();
-                if (Util.verbose()) {
-                    System.out.println("\taccepted");
-                }
-                ++totalNumAccepted;
-                ++numAcceptedThisTrial;
-                proposer.updateStats(true);
-            } else {
-			curWorld.revert(); // clean slate for next proposal
-			if (Util.verbose()) {
-				System.out.println("\trejected");
-			}
-			proposer.updateStats(false);
-		}
-
+          }
         }
+        curWorld.revert();
+      }
+      logWeights[i] = logWeight;
+      maxLogWeight = Math.max(maxLogWeight, logWeight);
     }
 
-    // Num Samples Drawn Thus Far
-    protected int totalNumSamples = 0;
-    protected int totalNumAccepted = 0;
-	protected int numSamplesThisTrial = 0;
-	protected int numAcceptedThisTrial = 0;
-
-    // Generic Proposer to Handle State Transitions
-	protected GenericProposer proposer;
-
-    // Properties
-    protected Properties properties;
-
-    // Types of Identifiers
-	protected Set<Type> idTypes; 
-    // The set of query variables
-    protected List<BayesNetVar> queryVars = new ArrayList<BayesNetVar>();
-    protected Set evidenceVars = new HashSet();
-
-    // Generic Proposer to Handle the
+    if (maxLogWeight == Double.NEGATIVE_INFINITY) {
+      Util.fatalError("All values of " + var + " have zero probability given "
+          + "the rest of the world.", false);
+    }
+    double[] probs = new double[logWeights.length];
+    double total = 0;
+    for (int i = 0; i < logWeights.length; ++i) {
+      probs[i] = Math.exp(logWeights[i] - maxLogWeight);
+      total += probs[i];
+    }
+    for (int i = 0; i < probs.length; ++i) {
+      probs[i] /= total;
+    }
+    acceptProbTimer.stop();
 
-    protected PartialWorldDiff curWorld = null;
+    Object value = domain.get(Util.sampleWithProbs(probs));
+    if (Util.verbose()) {
+      System.out.println("\tsampled value: " + value);
+    }
+    worldUpdateTimer.start();
+    curWorld.setValue(var, value);
+    evidenceIsTrue(curWorld); // lets the checker update incrementally
+    curWorld.save();
+    worldUpdateTimer.stop();
+
+    ++totalNumSamples;
+    ++numSamplesThisTrial;
+    ++totalNumAccepted;
+    ++numAcceptedThisTrial;
+    latestAccepted = true;
+    return true;
+  }
 }
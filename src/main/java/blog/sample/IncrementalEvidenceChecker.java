@@ -0,0 +1,237 @@
+package blog.sample;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import blog.ObjectIdentifier;
+import blog.bn.BasicVar;
+import blog.bn.BayesNetVar;
+import blog.bn.DerivedVar;
+import blog.bn.NumberVar;
+import blog.bn.OriginVar;
+import blog.common.HashMultiMap;
+import blog.common.MultiMap;
+import blog.model.Evidence;
+import blog.model.SymbolEvidenceStatement;
+import blog.model.ValueEvidenceStatement;
+import blog.world.PartialWorld;
+import blog.world.PartialWorldDiff;
+import blog.world.WorldDiffListener;
+import blog.world.WorldListener;
+
+/**
+ * Checks whether the evidence holds in the current version of a
+ * PartialWorldDiff, re-evaluating only the evidence statements that may have
+ * changed since the diff was last saved.
+ *
+ * For each statement, the checker records the variables that its evaluation
+ * in the saved world used, and indexes the statement by them. A statement can
+ * only change truth value if one of those variables changes, so
+ * <code>isTrue</code> re-evaluates just the statements indexed by the diff's
+ * changed variables, identifiers and POP applications (plus any statement
+ * that could not be fully evaluated). The results become the recorded state
+ * when the diff is saved, and are dropped when it is reverted. If the world
+ * changes after <code>isTrue</code> and is then saved, the checker evaluates
+ * all statements again.
+ *
+ * @since Oct 18, 2026
+ */
+public class IncrementalEvidenceChecker implements WorldDiffListener,
+    WorldListener {
+  /**
+   * Creates a checker for the given evidence in the given world, and
+   * evaluates every evidence statement in the world's saved version.
+   */
+  public IncrementalEvidenceChecker(Evidence evidence, PartialWorldDiff world) {
+    this.evidence = evidence;
+    this.world = world;
+    statements.addAll(evidence.getSymbolEvidence());
+    statements.addAll(evidence.getValueEvidence());
+    int n = statements.size();
+    truth = new boolean[n];
+    parents = new Set[n];
+    for (int i = 0; i < n; ++i) {
+      Result result = evaluate(statements.get(i), world.getSaved());
+      record(i, result);
+    }
+    world.addDiffListener(this);
+    world.addListener(this);
+  }
+
+  /**
+   * Returns true if this checker was created for the given evidence and world,
+   * and no evidence statements have been added since.
+   */
+  public boolean isFor(Evidence evidence, PartialWorldDiff world) {
+    return (evidence == this.evidence)
+        && (world == this.world)
+        && (statements.size() == evidence.getSymbolEvidence().size()
+            + evidence.getValueEvidence().size());
+  }
+
+  /**
+   * Stops listening to the world; this checker must not be used afterwards.
+   */
+  public void detach() {
+    world.removeDiffListener(this);
+    world.removeListener(this);
+  }
+
+  /**
+   * Returns true if all the evidence statements are true in the current
+   * version of the world.
+   */
+  public boolean isTrue() {
+    pending = new ArrayList<Result>();
+    changedSinceCheck = false;
+    int falseAfter = numFalse;
+    for (Iterator iter = statementsToCheck().iterator(); iter.hasNext();) {
+      int i = ((Integer) iter.next()).intValue();
+      Result result = evaluate(statements.get(i), world);
+      result.index = i;
+      pending.add(result);
+      if (truth[i] != result.truth) {
+        falseAfter += result.truth ? -1 : 1;
+      }
+    }
+    return (falseAfter == 0);
+  }
+
+  /**
+   * Returns true if every statement checked by the last call to
+   * {@link #isTrue()} was determined by the instantiated variables, so that
+   * instantiating more variables cannot change the answer.
+   */
+  public boolean isDetermined() {
+    for (Result result : pending) {
+      if (!result.complete) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void notifySaved() {
+    if (changedSinceCheck) {
+      // the world changed without being checked; start over
+      for (int i = 0; i < statements.size(); ++i) {
+        record(i, evaluate(statements.get(i), world));
+      }
+    } else if (pending != null) {
+      for (Result result : pending) {
+        record(result.index, result);
+      }
+    }
+    pending = null;
+    changedSinceCheck = false;
+  }
+
+  public void notifyReverted() {
+    pending = null;
+    changedSinceCheck = false;
+  }
+
+  public void varChanged(BasicVar rv, Object oldValue, Object newValue) {
+    changedSinceCheck = true;
+  }
+
+  public void identifierChanged(ObjectIdentifier id, NumberVar oldPOPApp,
+      NumberVar newPOPApp) {
+    changedSinceCheck = true;
+  }
+
+  private Set statementsToCheck() {
+    Set indices = new HashSet(unknown);
+    for (Iterator iter = world.getChangedVars().iterator(); iter.hasNext();) {
+      indices.addAll((Set) statementsByParent.get(iter.next()));
+    }
+    for (Iterator iter = world.getPOPAppsWithChangedIds().iterator(); iter
+        .hasNext();) {
+      indices.addAll((Set) statementsByParent.get(iter.next()));
+    }
+    for (Iterator iter = world.getIdsWithChangedPOPApps().iterator(); iter
+        .hasNext();) {
+      OriginVar var = new OriginVar((ObjectIdentifier) iter.next());
+      indices.addAll((Set) statementsByParent.get(var));
+    }
+    return indices;
+  }
+
+  private void record(int i, Result result) {
+    if (parents[i] != null) {
+      for (Iterator iter = parents[i].iterator(); iter.hasNext();) {
+        statementsByParent.remove(iter.next(), i);
+      }
+      if (!truth[i]) {
+        --numFalse;
+      }
+    }
+    if (!result.truth) {
+      ++numFalse;
+    }
+    truth[i] = result.truth;
+    parents[i] = result.parents;
+    for (Iterator iter = result.parents.iterator(); iter.hasNext();) {
+      statementsByParent.add(iter.next(), i);
+    }
+    if (result.complete) {
+      unknown.remove(i);
+    } else {
+      unknown.add(i);
+    }
+  }
+
+  private static Result evaluate(Object statement, PartialWorld world) {
+    ParentRecEvalContext context = new ParentRecEvalContext(world, false);
+    Result result = new Result();
+    if (statement instanceof SymbolEvidenceStatement) {
+      result.truth = ((SymbolEvidenceStatement) statement).isTrue(context);
+    } else {
+      ValueEvidenceStatement stmt = (ValueEvidenceStatement) statement;
+      BayesNetVar var = stmt.getObservedVar();
+      Object value;
+      if (var instanceof BasicVar) {
+        value = context.getValue((BasicVar) var);
+      } else if (var instanceof DerivedVar) {
+        context.pushEvaluee(var);
+        value = ((DerivedVar) var).getValue(context);
+        context.popEvaluee();
+      } else {
+        value = var.getValue(world);
+        result.complete = false; // parents unknown
+      }
+      result.truth = stmt.getObservedValue().equals(value);
+    }
+    result.parents = context.getParents();
+    if (context.getLatestUninstParent() != null) {
+      result.complete = false;
+    }
+    return result;
+  }
+
+  /**
+   * Outcome of evaluating one statement.
+   */
+  private static class Result {
+    int index;
+    boolean truth;
+    Set parents; // variables used by the evaluation
+    boolean complete = true; // false if other variables could matter
+  }
+
+  private Evidence evidence;
+  private PartialWorldDiff world;
+  private List statements = new ArrayList();
+
+  private boolean[] truth; // in the saved world
+  private Set[] parents; // in the saved world, null if not evaluated yet
+  private int numFalse = 0; // number of statements false in the saved world
+  private MultiMap statementsByParent = new HashMultiMap(); // var -> indices
+  private Set unknown = new HashSet(); // indices that are always checked
+
+  private List<Result> pending = null; // results for the current version
+  private boolean changedSinceCheck = false;
+}
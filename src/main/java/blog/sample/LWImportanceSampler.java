@@ -24,5 +24,5 @@ public class LWImportanceSampler extends LWSampler {
 				.weightedLikelihood();
 	}
 
-	private static EvidenceLikelihoodWeighter weighter;
+	private EvidenceLikelihoodWeighter weighter;
 }
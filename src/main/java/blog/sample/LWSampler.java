@@ -48,7 +48,7 @@ import blog.model.Model;
 import blog.model.Queries;
 import blog.model.Query;
 import blog.model.Type;
-import blog.world.DefaultPartialWorld;
+import blog.world.WorldFactory;
 import blog.world.PartialWorld;
 
 /**
@@ -68,6 +68,9 @@ import blog.world.PartialWorld;
  * tuples. The value can also be "none", indicating that no objects should be
  * represented by identifiers, or "all", indicating that all non-guaranteed
  * objects should be represented by identifiers. Default: "none".
+ * <dt>worldClass
+ * <dd>Class of the partial worlds to sample, see {@link WorldFactory}.
+ * Default: "blog.world.DefaultPartialWorld".
  * </dl>
  */
 public class LWSampler extends Sampler {
@@ -83,6 +86,7 @@ public class LWSampler extends Sampler {
     if (idTypes == null) {
       Util.fatalErrorWithoutStack("Invalid idTypes list.");
     }
+    worldFactory = new WorldFactory(properties);
   }
 
   @Override
@@ -115,7 +119,7 @@ public class LWSampler extends Sampler {
     if (baseWorld != null)
       curWorld = baseWorld;
     else
-      curWorld = new DefaultPartialWorld(idTypes);
+      curWorld = worldFactory.makeWorld(idTypes, false, false);
 
     latestSampleLogWeight = supportEvidenceAndCalculateLogWeight();
     BLOGUtil.ensureDetAndSupported(queryVars, curWorld);
@@ -179,6 +183,7 @@ public class LWSampler extends Sampler {
   }
 
   protected Set<Type> idTypes; // of Type
+  protected WorldFactory worldFactory;
   protected List<BayesNetVar> queryVars = new ArrayList<BayesNetVar>();
 
   protected PartialWorld curWorld = null;
@@ -49,6 +49,7 @@ import blog.model.Model;
 import blog.model.Queries;
 import blog.world.PartialWorld;
 import blog.world.PartialWorldDiff;
+import blog.world.WorldDiffFactory;
 
 /**
  * Generates samples from a Markov chain over possible worlds using a
@@ -62,6 +63,9 @@ import blog.world.PartialWorldDiff;
  * <dt>proposerClass
  * <dd>Name of the proposer class to use. This class must implement the Proposer
  * interface. Default: blog.GenericProposer.
+ * <dt>worldDiffClass
+ * <dd>Name of the PartialWorldDiff subclass that proposals are made in; see
+ * {@link WorldDiffFactory}. Default: blog.world.PartialWorldDiff.
  * </dl>
  * The property table is also passed to the proposer's constructor.
  */
@@ -79,6 +83,7 @@ public class MHSampler extends Sampler {
    */
   public MHSampler(Model model, Properties properties) {
     super(model);
+    worldDiffFactory = new WorldDiffFactory(properties);
     constructProposer(properties);
   }
 
@@ -137,7 +142,7 @@ public class MHSampler extends Sampler {
     if (world instanceof PartialWorldDiff) {
       curWorld = (PartialWorldDiff) world;
     } else {
-      curWorld = new PartialWorldDiff(world);
+      curWorld = worldDiffFactory.makeDiff(world);
     }
   }
 
@@ -261,7 +266,7 @@ public class MHSampler extends Sampler {
   public double computeLogProbRatio(PartialWorld savedWorld,
       PartialWorldDiff proposedWorld) {
     double logProbRatio = 0;
-    if (!evidence.isTrue(proposedWorld)) {
+    if (!evidenceIsTrue(proposedWorld)) {
       logProbRatio = Double.NEGATIVE_INFINITY;
       return logProbRatio;
     }
@@ -307,6 +312,28 @@ public class MHSampler extends Sampler {
     return logProbRatio;
   }
 
+  /**
+   * Checks the evidence in the given world, re-evaluating only the evidence
+   * statements that depend on variables changed since the world was saved.
+   */
+  protected boolean evidenceIsTrue(PartialWorldDiff world) {
+    if ((evidenceChecker == null) || !evidenceChecker.isFor(evidence, world)) {
+      if (evidenceChecker != null) {
+        evidenceChecker.detach();
+      }
+      evidenceChecker = new IncrementalEvidenceChecker(evidence, world);
+    }
+    return evidenceChecker.isTrue();
+  }
+
+  /**
+   * Returns true if the last call to {@link #evidenceIsTrue} did not depend on
+   * any uninstantiated variable.
+   */
+  protected boolean evidenceIsDetermined() {
+    return evidenceChecker.isDetermined();
+  }
+
   private double computeLogMultRatio(PartialWorld savedWorld,
       PartialWorldDiff proposedWorld) {
     double logMultRatio = 0;
@@ -418,6 +445,9 @@ public class MHSampler extends Sampler {
   protected Proposer proposer;
 
   protected PartialWorldDiff curWorld;
+  protected WorldDiffFactory worldDiffFactory = new WorldDiffFactory(
+      WorldDiffFactory.DEFAULT_WORLD_DIFF_CLASS);
+  private IncrementalEvidenceChecker evidenceChecker = null;
   protected PartialWorld baseWorld = null;
 
   protected int numTrials = 0;
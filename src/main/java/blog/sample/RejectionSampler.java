@@ -35,20 +35,29 @@
 
 package blog.sample;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
+import blog.bn.BasicVar;
 import blog.bn.BayesNetVar;
+import blog.bn.DerivedVar;
 import blog.bn.VarWithDistrib;
 import blog.common.Util;
-import blog.distrib.CondProbDistrib;
 import blog.model.DependencyModel;
 import blog.model.Evidence;
 import blog.model.Model;
 import blog.model.Queries;
 import blog.model.Query;
+import blog.model.SymbolEvidenceStatement;
+import blog.model.ValueEvidenceStatement;
 import blog.world.PartialWorld;
-import blog.world.UninstVarIterator;
 import blog.world.WorldInProgress;
 
 /**
@@ -56,7 +65,8 @@ import blog.world.WorldInProgress;
  * does not depend on the evidence or queries, but only on which basic RVs are
  * supported by the instantiation created so far. If it was initialized with the
  * usual <code>initialize</code> method, the RejectionSampler stops when all the
- * query and evidence variables have been instantiated. If it was initialized
+ * query and evidence variables have been instantiated, or as soon as some
+ * evidence statement is false in the world so far. If it was initialized
  * with <code>initializeCompleteSampling</code>, however, it keeps going until
  * it has instantiated all the basic RVs whose arguments exist in the generated
  * world.
@@ -162,60 +172,249 @@ public class RejectionSampler extends Sampler {
     }
     curWorld = new WorldInProgress(model, evidence, intBound, depthBound,
         timestepBound);
+    startChecks();
+
+    // Instantiate the first variable (in the order of the world's list of
+    // uninstantiated variables) that is supported, and repeat until all
+    // evidence and query variables are determined, or until some evidence
+    // turns out false.
+    curWorldAccepted = true;
+    while (true) {
+      takeNewVars();
+      if (!runChecks()) {
+        curWorldAccepted = false;
+        if (Util.verbose()) {
+          System.out.println("Rejected: evidence is false");
+        }
+        break;
+      }
 
-    // Find the first variable that is supported but not instantiated.
-    // Instantiate it. Repeat until all evidence and query variables
-    // are determined.
-    while (!isCurWorldSufficient()) {
-      boolean varInstantiated = false;
-
-      if (curWorld.isComplete()) {
-        Util.fatalError("World is complete (up to specified integer "
-            + "and depth bounds) but does not determine "
-            + "values for evidence and queries.", false);
+      if (requireComplete) {
+        if (curWorld.isComplete()) {
+          break;
+        }
+      } else {
+        if (numPendingChecks == 0) {
+          break;
+        }
+        if (curWorld.isComplete()) {
+          Util.fatalError("World is complete (up to specified integer "
+              + "and depth bounds) but does not determine "
+              + "values for evidence and queries.", false);
+        }
       }
 
-      for (UninstVarIterator iter = curWorld.uninstVarIterator(); iter
-          .hasNext();) {
-        VarWithDistrib var = (VarWithDistrib) iter.next();
-        DependencyModel.Distrib distrib = var
-            .getDistrib(new DefaultEvalContext(curWorld, false));
-        CondProbDistrib cpd = distrib.getCPD();
-        cpd.setParams(distrib.getArgValues());
-        if (distrib == null) {
-          if (Util.verbose()) {
-            System.out.println("Not supported yet: " + var);
-          }
-        } else {
-          // var is supported
-          if (Util.verbose()) {
-            System.out.println("Instantiating: " + var);
+      instantiateNextVar();
+    }
+
+    ++numSamplesThisTrial;
+    if (curWorldAccepted) {
+      ++numAcceptedThisTrial;
+    }
+  }
+
+  /**
+   * Instantiates the first supported variable in list order. Only variables
+   * that have never been checked, or one of whose missing parents has been
+   * instantiated since they were last checked, can be supported; the others
+   * would be unsupported for the same reason as before.
+   */
+  private void instantiateNextVar() {
+    int i = dirtyVars.nextSetBit(0);
+    while (true) {
+      if (i < 0) {
+        // Every listed variable is unsupported; the old scan would
+        // now reach the end of the list and extend it.
+        if (!curWorld.extendUninstVars()) {
+          String msg = ("World is not complete, but no basic random "
+              + "variable is supported.  Please check for "
+              + "a possible cycle in your model.");
+          if ((intBound >= 0) || (depthBound >= 0)) {
+            msg = (msg + "  This problem could also be caused by " + "the intBound and depthBound flags.");
           }
-          iter.setValue(cpd.sampleVal());
+          Util.fatalError(msg, false);
+        }
+        takeNewVars();
+        i = dirtyVars.nextSetBit(0);
+        continue;
+      }
 
-          varInstantiated = true;
-          break; // start again from first uninstantiated var
+      dirtyVars.clear(i);
+      VarWithDistrib var = vars.get(i);
+      if (curWorld.getValue(var) != null) {
+        // woken by another parent after it was instantiated
+        i = dirtyVars.nextSetBit(i + 1);
+        continue;
+      }
+      MissingVarContext context = new MissingVarContext(curWorld);
+      DependencyModel.Distrib distrib = var.getDistrib(context);
+      if (distrib == null) {
+        if (Util.verbose()) {
+          System.out.println("Not supported yet: " + var);
+        }
+        waitFor(context.missing, Integer.valueOf(i));
+        i = dirtyVars.nextSetBit(i + 1);
+      } else {
+        if (Util.verbose()) {
+          System.out.println("Instantiating: " + var);
         }
+        curWorld.setValue(var, distrib.getCPD().sampleVal());
+        recheckAlways.remove(Integer.valueOf(i));
+        wake(var);
+        return;
       }
+    }
+  }
 
-      if (!varInstantiated) {
-        String msg = ("World is not complete, but no basic random "
-            + "variable is supported.  Please check for "
-            + "a possible cycle in your model.");
-        if ((intBound >= 0) || (depthBound >= 0)) {
-          msg = (msg + "  This problem could also be caused by " + "the intBound and depthBound flags.");
+  /**
+   * Gives sequence numbers to the variables the world has added to its list
+   * of uninstantiated variables since the last call.
+   */
+  private void takeNewVars() {
+    for (VarWithDistrib var : curWorld.takeNewUninstVars()) {
+      dirtyVars.set(vars.size());
+      vars.add(var);
+    }
+  }
+
+  /**
+   * Creates a check for each evidence statement and each query variable.
+   */
+  private void startChecks() {
+    vars.clear();
+    dirtyVars.clear();
+    waiting.clear();
+    checks.clear();
+    recheckAlways.clear();
+    checks.addAll(evidence.getValueEvidence());
+    checks.addAll(evidence.getSymbolEvidence());
+    numEvidenceChecks = checks.size();
+    for (Iterator iter = queries.iterator(); iter.hasNext();) {
+      Query q = (Query) iter.next();
+      checks.addAll(q.getVariables());
+    }
+    numPendingChecks = checks.size();
+    determinedChecks.clear();
+    dirtyChecks.clear();
+    dirtyChecks.set(0, checks.size());
+  }
+
+  /**
+   * Evaluates the checks whose missing parents have been instantiated. Returns
+   * false if an evidence statement is false.
+   */
+  private boolean runChecks() {
+    for (int i = dirtyChecks.nextSetBit(0); i >= 0; i = dirtyChecks
+        .nextSetBit(i + 1)) {
+      dirtyChecks.clear(i);
+      if (determinedChecks.get(i)) {
+        continue;
+      }
+      MissingVarContext context = new MissingVarContext(curWorld);
+      Boolean truth = check(checks.get(i), context);
+      if (truth == null) {
+        waitFor(context.missing, Integer.valueOf(-1 - i));
+      } else {
+        determinedChecks.set(i);
+        --numPendingChecks;
+        recheckAlways.remove(Integer.valueOf(-1 - i));
+        if ((i < numEvidenceChecks) && !truth.booleanValue()) {
+          return false;
         }
-        Util.fatalError(msg, false);
       }
     }
+    return true;
+  }
 
-    // See if world happens to satisfy the evidence
-    curWorldAccepted = evidence.isTrue(curWorld);
+  /**
+   * Returns whether the given evidence statement is true, or Boolean.TRUE for
+   * a query variable that is determined; returns null if the world does not
+   * determine that yet.
+   */
+  private Boolean check(Object target, MissingVarContext context) {
+    if (target instanceof ValueEvidenceStatement) {
+      ValueEvidenceStatement stmt = (ValueEvidenceStatement) target;
+      Object value = getValue(stmt.getObservedVar(), context);
+      if (value == null) {
+        return null;
+      }
+      return Boolean.valueOf(stmt.getObservedValue().equals(value));
+    }
+    if (target instanceof SymbolEvidenceStatement) {
+      SymbolEvidenceStatement stmt = (SymbolEvidenceStatement) target;
+      if (!stmt.isDetermined(curWorld)) {
+        return null;
+      }
+      return Boolean.valueOf(stmt.isTrue(curWorld));
+    }
+    return (getValue((BayesNetVar) target, context) == null) ? null
+        : Boolean.TRUE;
+  }
 
-    ++numSamplesThisTrial;
-    if (curWorldAccepted) {
-      ++numAcceptedThisTrial;
+  private Object getValue(BayesNetVar var, MissingVarContext context) {
+    if (var instanceof BasicVar) {
+      return context.getValue((BasicVar) var);
+    }
+    if (var instanceof DerivedVar) {
+      return ((DerivedVar) var).getValue(context);
     }
+    return var.isDetermined(curWorld) ? var.getValue(curWorld) : null;
+  }
+
+  /**
+   * Records that the given waiter (a variable's sequence number, or -1 minus
+   * a check's index) must be looked at again when one of the given variables
+   * is instantiated. If no missing variable was recorded, the waiter is looked
+   * at again after every instantiation.
+   */
+  private void waitFor(List<BayesNetVar> missing, Integer waiter) {
+    if (missing.isEmpty()) {
+      recheckAlways.add(waiter);
+    }
+    for (BayesNetVar parent : missing) {
+      List<Integer> waiters = waiting.get(parent);
+      if (waiters == null) {
+        waiters = new ArrayList<Integer>();
+        waiting.put(parent, waiters);
+      }
+      waiters.add(waiter);
+    }
+  }
+
+  private void wake(BayesNetVar var) {
+    List<Integer> waiters = waiting.remove(var);
+    if (waiters != null) {
+      for (Integer waiter : waiters) {
+        markDirty(waiter.intValue());
+      }
+    }
+    for (Integer waiter : recheckAlways) {
+      markDirty(waiter.intValue());
+    }
+  }
+
+  private void markDirty(int waiter) {
+    if (waiter >= 0) {
+      dirtyVars.set(waiter);
+    } else {
+      dirtyChecks.set(-1 - waiter);
+    }
+  }
+
+  /**
+   * Evaluation context that records the uninstantiated variables whose values
+   * were asked for.
+   */
+  private static class MissingVarContext extends DefaultEvalContext {
+    MissingVarContext(PartialWorld world) {
+      super(world, false);
+    }
+
+    protected void handleMissingVar(BayesNetVar var) {
+      missing.add(var);
+    }
+
+    List<BayesNetVar> missing = new ArrayList<BayesNetVar>();
   }
 
   public PartialWorld getLatestWorld() {
@@ -242,27 +441,6 @@ public class RejectionSampler extends Sampler {
     }
   }
 
-  private boolean isCurWorldSufficient() {
-    if (requireComplete) {
-      return curWorld.isComplete();
-    }
-
-    if (!evidence.isDetermined(curWorld)) {
-      return false;
-    }
-
-    for (Iterator iter = queries.iterator(); iter.hasNext();) {
-      Query q = (Query) iter.next();
-      for (BayesNetVar var : q.getVariables()) {
-        if (!var.isDetermined(curWorld)) {
-          return false;
-        }
-      }
-    }
-
-    return true;
-  }
-
   private int intBound = -1;
   private int depthBound = -1;
   private int timestepBound = 0;
@@ -271,6 +449,20 @@ public class RejectionSampler extends Sampler {
   private WorldInProgress curWorld;
   private boolean curWorldAccepted;
 
+  // Variables of the current world in list order, indexed by sequence number
+  private List<VarWithDistrib> vars = new ArrayList<VarWithDistrib>();
+  private BitSet dirtyVars = new BitSet(); // may have become supported
+  // Evidence statements, then query variables
+  private List<Object> checks = new ArrayList<Object>();
+  private int numEvidenceChecks;
+  private int numPendingChecks; // not determined yet
+  private BitSet dirtyChecks = new BitSet(); // may have become determined
+  private BitSet determinedChecks = new BitSet();
+  // Waiters that recorded no missing variable
+  private Set<Integer> recheckAlways = new LinkedHashSet<Integer>();
+  // From uninstantiated variable to the waiters that asked for its value
+  private Map<BayesNetVar, List<Integer>> waiting = new HashMap<BayesNetVar, List<Integer>>();
+
   private int numSamplesThisTrial;
   private int numAcceptedThisTrial;
 }
@@ -131,6 +131,11 @@ public class Semant {
    */
   private List<String> packages;
 
+  /**
+   * whether literals are registered as built-in constants (and thus shared)
+   */
+  private boolean registerLiterals = true;
+
   public Semant(ErrorMsg msg) {
     model = new Model();
     evidence = new Evidence(model);
@@ -244,7 +249,7 @@ public class Semant {
   Type getNameType(NameTy type) {
     Type ty = null;
     String name = type.name.toString();
-    ty = Type.getType(name);
+    ty = model.getType(name);
     if (ty == null) {
       error(type.line, type.col, "Type " + name + " undefined!");
     }
@@ -274,12 +279,10 @@ public class Semant {
 
     if (termType == null) {
       error(type.line, type.col, "Type " + type.typ.toString() + " undefined!");
+      return null;
     }
 
-    ArrayType arrType = new ArrayType(termType);
-    arrType = (ArrayType) Type.getType(arrType.getName());
-
-    return arrType;
+    return (ArrayType) model.getArrayType(termType);
   }
 
   /**
@@ -337,6 +340,29 @@ public class Semant {
     packages.addAll(pkgs);
   }
 
+  /**
+   * Sets whether literals are registered as built-in constants, which is the
+   * default. Registered literals live as long as the program, so a caller that
+   * translates an unbounded stream of statements (each observing a new real
+   * value at a new time step, say) turns registration off; each literal is then
+   * a constant of its own.
+   */
+  public void setRegisterLiterals(boolean registerLiterals) {
+    this.registerLiterals = registerLiterals;
+  }
+
+  /**
+   * Returns the constant symbol for a literal with the given name, type and
+   * value.
+   */
+  private FixedFunction getLiteral(String name, Type type, Object value) {
+    if (registerLiterals) {
+      return BuiltInFunctions.getLiteral(name, type, value);
+    }
+    return new FixedFunction(name, Collections.EMPTY_LIST, type,
+        new ConstantInterp(Collections.singletonList(value)));
+  }
+
   void transDec(Dec e) {
     if (e instanceof TypeDec) {
       transDec((TypeDec) e);
@@ -738,7 +764,7 @@ public class Semant {
    */
   void transDec(TypeDec e) {
     String name = e.name.toString();
-    if (Type.getType(name) != null) {
+    if (model.getType(name) != null) {
       error(e.line, e.col, "Type " + name + " already defined!");
     } else {
       model.addType(name);
@@ -788,7 +814,7 @@ public class Semant {
 
   ArgSpec transExpr(DoubleExpr e) {
     // TODO is there a better way than using function?
-    Term t = new FuncAppTerm(BuiltInFunctions.getLiteral(
+    Term t = new FuncAppTerm(getLiteral(
         String.valueOf(e.value), BuiltInTypes.REAL, e.value), new ArgSpec[0]);
     t.setLocation(e.line);
     return t;
@@ -932,7 +958,6 @@ public class Semant {
     } else {
       error(e.test.line, e.test.col,
           "Cannot use non-Boolean value as predicate for if clause");
-      System.exit(1);
     }
     CaseSpec ret = new CaseSpec(t, m);
     ret.setInFixedFuncBody(isFixedFuncBody);
@@ -941,21 +966,21 @@ public class Semant {
   }
 
   ArgSpec transExpr(BooleanExpr e) {
-    Term t = new FuncAppTerm(BuiltInFunctions.getLiteral(
+    Term t = new FuncAppTerm(getLiteral(
         String.valueOf(e.value), BuiltInTypes.BOOLEAN, e.value));
     t.setLocation(e.line);
     return t;
   }
 
   ArgSpec transExpr(IntExpr e) {
-    Term t = new FuncAppTerm(BuiltInFunctions.getLiteral(
+    Term t = new FuncAppTerm(getLiteral(
         String.valueOf(e.value), BuiltInTypes.INTEGER, e.value));
     t.setLocation(e.line);
     return t;
   }
 
   ArgSpec transExpr(StringExpr e) {
-    Term t = new FuncAppTerm(BuiltInFunctions.getLiteral("\"" + e.value + "\"",
+    Term t = new FuncAppTerm(getLiteral("\"" + e.value + "\"",
         BuiltInTypes.STRING, e.value));
     t.setLocation(e.line);
     return t;
@@ -1165,7 +1190,7 @@ public class Semant {
     case OpExpr.AT:
       if (e.left == null && e.right instanceof IntExpr) {
         Timestep t = Timestep.at(((IntExpr) e.right).value);
-        term = new FuncAppTerm(BuiltInFunctions.getLiteral(t.toString(),
+        term = new FuncAppTerm(getLiteral(t.toString(),
             BuiltInTypes.TIMESTEP, t));
         term.setLocation(e.line);
         return term;
@@ -0,0 +1,421 @@
+package blog.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import blog.common.Util;
+import blog.common.cmdline.IntOption;
+import blog.common.cmdline.Parser;
+import blog.common.cmdline.StringListOption;
+import blog.common.cmdline.StringOption;
+import blog.common.random.RandomStream;
+import blog.engine.InferenceEngine;
+import blog.io.JsonWriter;
+import blog.model.Evidence;
+import blog.model.Model;
+import blog.model.Queries;
+import blog.model.Query;
+import blog.msg.ErrorMsg;
+import blog.parse.Parse;
+import blog.parse.StatementReader;
+import blog.semant.Semant;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A resident HTTP inference service. Unlike running {@link blog.Main} once per
+ * program, it keeps compiled models in a {@link ModelCache}, so a request only
+ * pays for translating its evidence and queries, and for inference.
+ *
+ * <p>
+ * A request is a <code>POST</code> to <code>/infer</code> whose body is a BLOG
+ * program. The declarations of the program are looked up in the cache by
+ * their hash; the evidence and queries are translated for this request only.
+ * The inference options are given as URL parameters, with the long names of
+ * the command line options of {@link blog.Main} (<code>engine</code>,
+ * <code>num_samples</code>, <code>burn_in</code>, <code>sampler</code>,
+ * <code>proposer</code>, <code>interval</code>,
+ * <code>query_report_interval</code>, <code>max_timestep</code> and
+ * <code>rng</code>) and the same defaults, plus <code>seed</code>. Unlike
+ * <code>-P</code>, other inference properties cannot be set, so that a
+ * request cannot ask for unbounded particles, chains or threads; requests
+ * with other parameters are turned away with status 400. The response holds
+ * the results in the format of {@link JsonWriter}, one line each time the
+ * engine reports them.
+ *
+ * <p>
+ * Inference runs on a fixed number of worker threads, with a bounded queue of
+ * waiting requests; when the queue is full, requests are turned away with
+ * status 503. Requests asking for more samples than the server allows are
+ * turned away with status 400, so that no request can hold a worker for
+ * long. Each request samples from its own random stream, so requests
+ * against the same model do not interfere, and a request with a given seed
+ * gets the same answer however many others run alongside it.
+ *
+ * @since Oct 18, 2026
+ */
+public class InferenceServer {
+  /**
+   * Creates a server listening at the given address; it does not accept
+   * requests until {@link #start()} is called.
+   *
+   * @param numWorkers
+   *          the number of requests run at the same time
+   * @param queueLength
+   *          the number of requests that may wait for a worker
+   * @param cacheSize
+   *          the number of compiled models to keep
+   * @param maxSamples
+   *          the largest number of samples a request may ask for
+   * @param packages
+   *          extra packages in which to look for distribution classes
+   */
+  public InferenceServer(InetSocketAddress address, int numWorkers,
+      int queueLength, int cacheSize, int maxSamples, List<String> packages)
+      throws IOException {
+    this.maxSamples = maxSamples;
+    this.packages = packages;
+    models = new ModelCache(cacheSize, packages);
+    workers = new ThreadPoolExecutor(numWorkers, numWorkers, 0L,
+        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueLength));
+    server = HttpServer.create(address, 0);
+    server.createContext("/infer", new HttpHandler() {
+      public void handle(HttpExchange exchange) throws IOException {
+        submit(exchange);
+      }
+    });
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops accepting requests, waits up to <code>delay</code> seconds for those
+   * being answered, and shuts down the workers.
+   */
+  public void stop(int delay) {
+    server.stop(delay);
+    workers.shutdownNow();
+  }
+
+  /**
+   * Returns the port the server listens on.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Returns the cache of compiled models.
+   */
+  public ModelCache getModelCache() {
+    return models;
+  }
+
+  /**
+   * Answers the queries of <code>program</code> with the given options (as
+   * URL parameters of a request), and returns the results in the format of
+   * {@link JsonWriter}.
+   *
+   * @throws IllegalArgumentException
+   *           if the program or the options are invalid
+   */
+  public String infer(String program, Map<String, String> options) {
+    Properties props = inferenceProperties(options);
+    long numSamples = parseLong("num_samples", props.getProperty("numSamples"));
+    if (numSamples > maxSamples) {
+      throw new IllegalArgumentException("num_samples may be at most "
+          + maxSamples + ", not " + numSamples);
+    }
+    String generator = options.containsKey("rng") ? options.get("rng")
+        : RandomStream.JAVA;
+    long seed = Util.DEFAULT_SEED;
+    if (options.containsKey("seed")) {
+      seed = parseLong("seed", options.get("seed"));
+    }
+    RandomStream stream = RandomStream.make(generator, seed);
+
+    // Split the program into the declarations, which are cached, and the
+    // evidence and queries. Each part keeps the line breaks of the other as
+    // blank lines, so that errors are reported at their lines in the program.
+    StringBuilder key = new StringBuilder();
+    StringBuilder declarations = new StringBuilder();
+    StringBuilder statements = new StringBuilder();
+    StatementReader reader = new StatementReader(new StringReader(program));
+    try {
+      String text;
+      while ((text = reader.next()) != null) {
+        if (StatementReader.isEvidenceOrQuery(text)) {
+          statements.append(text);
+          declarations.append(lineBreaks(text));
+        } else {
+          key.append(text.trim()).append('\n');
+          declarations.append(text);
+          statements.append(lineBreaks(text));
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    Model model = models.get(ModelCache.hash(key.toString()),
+        declarations.toString());
+
+    Evidence evidence = new Evidence(model);
+    Queries queries = new Queries(model);
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    ErrorMsg msg = new ErrorMsg("program", new PrintStream(errors, true));
+    Parse parse = new Parse(new StringReader(statements.toString()), msg,
+        "program");
+    Semant sem = new Semant(model, evidence, queries, msg);
+    sem.addPackages(packages);
+    // the model is shared, so nothing about this request may be added to it
+    sem.setRegisterLiterals(false);
+    if (msg.OK()) {
+      sem.transProg(parse.getResult());
+    }
+    if (!msg.OK()) {
+      throw new IllegalArgumentException(errors.toString());
+    }
+    int numErrors = evidence.compile();
+    for (Query q : queries) {
+      numErrors += q.compile();
+    }
+    if (numErrors > 0) {
+      throw new IllegalArgumentException("Encountered " + numErrors
+          + " errors in compilation phase.");
+    }
+
+    ByteArrayOutputStream results = new ByteArrayOutputStream();
+    RandomStream previous = Util.setRandomStream(stream);
+    InferenceEngine engine = null;
+    try {
+      engine = InferenceEngine.constructEngine(model, props);
+      engine.setEvidence(evidence);
+      engine.setQueries(queries);
+      JsonWriter writer = new JsonWriter();
+      writer.setOutput(new PrintStream(results, true, "UTF-8"));
+      engine.setResultWriter(writer);
+      engine.answerQueries();
+      return results.toString("UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      if (engine != null) {
+        engine.shutdown();
+      }
+      Util.setRandomStream(previous);
+    }
+  }
+
+  /**
+   * Returns the inference properties for the given request options, with the
+   * defaults of {@link blog.Main}.
+   */
+  static Properties inferenceProperties(Map<String, String> options) {
+    Properties props = new Properties();
+    props.setProperty("engineClass", "blog.engine.SamplingEngine");
+    props.setProperty("numSamples", "10000");
+    props.setProperty("queryReportInterval", "10000");
+    props.setProperty("reportInterval", "1000");
+    props.setProperty("burnIn", "0");
+    props.setProperty("samplerClass", "blog.sample.LWSampler");
+    props.setProperty("proposerClass", "blog.sample.GenericProposer");
+    props.setProperty("timestepBound", "10");
+    for (Map.Entry<String, String> entry : options.entrySet()) {
+      String name = entry.getKey();
+      if (name.equals("seed") || name.equals("rng")) {
+        continue;
+      }
+      String property = OPTION_PROPERTIES.get(name);
+      if (property == null) {
+        throw new IllegalArgumentException("Unknown option: " + name);
+      } else if (!property.endsWith("Class")) {
+        parseLong(name, entry.getValue());
+      }
+      props.setProperty(property, entry.getValue());
+    }
+    return props;
+  }
+
+  private static long parseLong(String name, String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value for " + name + ": "
+          + value);
+    }
+  }
+
+  private static String lineBreaks(String text) {
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') {
+        buf.append('\n');
+      }
+    }
+    return buf.toString();
+  }
+
+  /**
+   * Hands the request to a worker, or turns it away if too many are waiting.
+   */
+  private void submit(final HttpExchange exchange) throws IOException {
+    if (!exchange.getRequestMethod().equals("POST")) {
+      exchange.getResponseHeaders().set("Allow", "POST");
+      respond(exchange, 405, "Use POST to send a BLOG program.\n");
+      return;
+    }
+    try {
+      workers.execute(new Runnable() {
+        public void run() {
+          answer(exchange);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      respond(exchange, 503, "Too many requests; try again later.\n");
+    }
+  }
+
+  private void answer(HttpExchange exchange) {
+    try {
+      int status = 200;
+      String body;
+      try {
+        Map<String, String> options = parseQuery(exchange.getRequestURI()
+            .getRawQuery());
+        body = infer(readBody(exchange), options);
+      } catch (IllegalArgumentException e) {
+        status = 400;
+        body = e.getMessage() + "\n";
+      } catch (Throwable e) {
+        // Util.fatalError throws an Error for invalid input, too
+        status = 500;
+        body = e + "\n";
+      }
+      if (status == 200) {
+        exchange.getResponseHeaders().set("Content-Type",
+            "application/json; charset=utf-8");
+      }
+      respond(exchange, status, body);
+    } catch (IOException e) {
+      exchange.close();
+    }
+  }
+
+  private static String readBody(HttpExchange exchange) throws IOException {
+    InputStream in = exchange.getRequestBody();
+    Reader reader = new InputStreamReader(in, "UTF-8");
+    StringBuilder buf = new StringBuilder();
+    char[] chars = new char[4096];
+    int n;
+    while ((n = reader.read(chars)) != -1) {
+      buf.append(chars, 0, n);
+    }
+    reader.close();
+    return buf.toString();
+  }
+
+  static Map<String, String> parseQuery(String query)
+      throws UnsupportedEncodingException {
+    Map<String, String> options = new HashMap<String, String>();
+    if (query == null) {
+      return options;
+    }
+    for (String pair : query.split("&")) {
+      if (pair.length() == 0) {
+        continue;
+      }
+      int eq = pair.indexOf('=');
+      String name = (eq < 0) ? pair : pair.substring(0, eq);
+      String value = (eq < 0) ? "" : pair.substring(eq + 1);
+      options.put(URLDecoder.decode(name, "UTF-8"),
+          URLDecoder.decode(value, "UTF-8"));
+    }
+    return options;
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body)
+      throws IOException {
+    byte[] bytes = body.getBytes("UTF-8");
+    if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+      exchange.getResponseHeaders().set("Content-Type",
+          "text/plain; charset=utf-8");
+    }
+    exchange.sendResponseHeaders(status, bytes.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(bytes);
+    out.close();
+  }
+
+  public static void main(String[] args) throws IOException {
+    Parser.setProgramDesc("BLOG inference server");
+    Parser.setUsageLine("Usage: blog-server [options]");
+    StringOption optHost = new StringOption(null, "host", "localhost",
+        "Listen on the interface with address <s>; use 0.0.0.0 for all");
+    IntOption optPort = new IntOption(null, "port", 8090,
+        "Listen on port <n>");
+    IntOption optWorkers = new IntOption(null, "workers", Runtime.getRuntime()
+        .availableProcessors(), "Answer <n> requests at a time");
+    IntOption optQueue = new IntOption(null, "queue", 16,
+        "Let <n> requests wait for a worker");
+    IntOption optCache = new IntOption(null, "cache", 32,
+        "Keep <n> compiled models");
+    IntOption optMaxSamples = new IntOption(null, "max_samples", 1000000,
+        "Let requests ask for at most <n> samples");
+    StringListOption optPackages = new StringListOption(null, "package",
+        "Parser looks for classes in package <s>");
+    Parser.parse(args);
+
+    List<String> packages = new LinkedList<String>(optPackages.getValue());
+    InferenceServer server = new InferenceServer(new InetSocketAddress(
+        optHost.getValue(), optPort.getValue()), optWorkers.getValue(),
+        optQueue.getValue(), optCache.getValue(), optMaxSamples.getValue(),
+        packages);
+    server.start();
+    System.out.println("BLOG inference server listening on "
+        + optHost.getValue() + " port " + server.getPort());
+  }
+
+  /**
+   * Maps the URL parameters taken from the command line options of
+   * {@link blog.Main} to inference properties.
+   */
+  private static final Map<String, String> OPTION_PROPERTIES = new HashMap<String, String>();
+  static {
+    OPTION_PROPERTIES.put("engine", "engineClass");
+    OPTION_PROPERTIES.put("num_samples", "numSamples");
+    OPTION_PROPERTIES.put("query_report_interval", "queryReportInterval");
+    OPTION_PROPERTIES.put("interval", "reportInterval");
+    OPTION_PROPERTIES.put("burn_in", "burnIn");
+    OPTION_PROPERTIES.put("sampler", "samplerClass");
+    OPTION_PROPERTIES.put("proposer", "proposerClass");
+    OPTION_PROPERTIES.put("max_timestep", "timestepBound");
+  }
+
+  private final int maxSamples;
+  private final List<String> packages;
+  private final ModelCache models;
+  private final ThreadPoolExecutor workers;
+  private final HttpServer server;
+}
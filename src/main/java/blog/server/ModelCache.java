@@ -0,0 +1,157 @@
+package blog.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import blog.model.Evidence;
+import blog.model.Model;
+import blog.model.Queries;
+import blog.msg.ErrorMsg;
+import blog.parse.Parse;
+import blog.semant.Semant;
+
+/**
+ * A bounded cache of compiled models, keyed by a hash of their declarations.
+ * Each model is built once, by the first request that needs it; requests that
+ * arrive while it is being built wait for it instead of building their own
+ * copy. When the cache is full, the least recently used model is dropped.
+ *
+ * A model that fails to build is not cached, so the error is reported again to
+ * every request that sends it.
+ *
+ * @since Oct 18, 2026
+ */
+public class ModelCache {
+  /**
+   * @param capacity
+   *          the number of models to keep
+   * @param packages
+   *          extra packages in which to look for distribution classes
+   */
+  public ModelCache(final int capacity, List<String> packages) {
+    this.packages = packages;
+    models = new LinkedHashMap<String, FutureTask<Model>>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(
+          Map.Entry<String, FutureTask<Model>> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Returns the compiled model with the given key, building it from
+   * <code>source</code> if it is not in the cache.
+   *
+   * @param key
+   *          the hash of the declarations, as returned by {@link #hash(String)}
+   * @param source
+   *          the declarations, laid out as in the original program so that
+   *          errors are reported at the right lines
+   * @throws IllegalArgumentException
+   *           if the declarations are not a valid model; the message lists the
+   *           errors
+   */
+  public Model get(String key, final String source) {
+    FutureTask<Model> task;
+    boolean build = false;
+    synchronized (models) {
+      task = models.get(key);
+      if (task == null) {
+        task = new FutureTask<Model>(new Callable<Model>() {
+          public Model call() {
+            return build(source);
+          }
+        });
+        models.put(key, task);
+        build = true;
+      }
+    }
+    if (build) {
+      task.run();
+    }
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      synchronized (models) {
+        if (models.get(key) == task) {
+          models.remove(key);
+        }
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw (Error) cause;
+    }
+  }
+
+  /**
+   * Returns the number of models in the cache, including those being built.
+   */
+  public int size() {
+    synchronized (models) {
+      return models.size();
+    }
+  }
+
+  /**
+   * Returns the hex-encoded SHA-256 hash of <code>text</code>.
+   */
+  public static String hash(String text) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] bytes = digest.digest(text.getBytes("UTF-8"));
+      StringBuilder buf = new StringBuilder();
+      for (byte b : bytes) {
+        buf.append(Character.forDigit((b >> 4) & 0xf, 16));
+        buf.append(Character.forDigit(b & 0xf, 16));
+      }
+      return buf.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Model build(String source) {
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    ErrorMsg msg = new ErrorMsg("model", new PrintStream(errors, true));
+    Parse parse = new Parse(new StringReader(source), msg, "model");
+    Model model = new Model();
+    Semant sem = new Semant(model, new Evidence(model), new Queries(model),
+        msg);
+    sem.addPackages(packages);
+    if (msg.OK()) {
+      sem.transProg(parse.getResult());
+    }
+    if (!msg.OK()) {
+      throw new IllegalArgumentException(errors.toString());
+    }
+    if (!model.checkCompleteness()) {
+      throw new IllegalArgumentException("The model failed one or more checks.");
+    }
+    int numErrors = model.compile();
+    if (numErrors > 0) {
+      throw new IllegalArgumentException("Encountered " + numErrors
+          + " errors in compilation phase.");
+    }
+    return model;
+  }
+
+  private final List<String> packages;
+  private final Map<String, FutureTask<Model>> models;
+}
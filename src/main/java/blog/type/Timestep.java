@@ -106,7 +106,7 @@ public class Timestep extends Number implements Comparable<Timestep> {
     return existing;
   }
 
-  public static Timestep at(int t) {
+  public static synchronized Timestep at(int t) {
     Timestep ts = generatedTimesteps.get(t);
     if (ts == null) {
       ts = new Timestep(t);
@@ -62,7 +62,10 @@ import blog.common.HashMapWithPreimages;
 import blog.common.HashMultiMap;
 import blog.common.IndexedHashMultiMap;
 import blog.common.IndexedMultiMap;
+import blog.common.IndexedHashSet;
 import blog.common.IndexedSet;
+import blog.common.LayeredHashMap;
+import blog.common.LayeredHashSet;
 import blog.common.MapWithPreimages;
 import blog.common.MultiMap;
 import blog.common.Util;
@@ -77,6 +80,7 @@ import blog.objgen.AbstractObjectSet;
 import blog.objgen.ObjectIterator;
 import blog.objgen.ObjectSet;
 import blog.sample.ParentRecEvalContext;
+import blog.type.Timestep;
 
 /**
  * An implementation of the PartialWorld interface that just requires concrete
@@ -102,6 +106,53 @@ public abstract class AbstractPartialWorld implements PartialWorld {
     return Collections.unmodifiableSet(basicVarToValue.keySet());
   }
 
+  public void setObservedVars(Set vars) {
+    if (vars != observedVars) {
+      observedVars = vars;
+      unobservedVars = null; // rebuilt when next needed
+    }
+  }
+
+  public Set getObservedVars() {
+    return observedVars;
+  }
+
+  public IndexedSet getUnobservedVars() {
+    if (unobservedVars == null) {
+      unobservedVars = makeUnobservedVarIndex();
+    }
+    return unobservedVars;
+  }
+
+  /**
+   * Returns a new IndexedSet of the instantiated basic variables that are not
+   * in <code>observedVars</code>.
+   */
+  protected IndexedSet makeUnobservedVarIndex() {
+    IndexedSet index = new IndexedHashSet();
+    for (Iterator iter = basicVarToValue.keySet().iterator(); iter.hasNext();) {
+      Object var = iter.next();
+      if (!observedVars.contains(var)) {
+        index.add(var);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Brings <code>unobservedVars</code>, if it has been built, up to date
+   * with the instantiation status of <code>var</code>.
+   */
+  protected void updateUnobservedVars(BasicVar var) {
+    if (unobservedVars != null) {
+      if (basicVarToValue.containsKey(var) && !observedVars.contains(var)) {
+        unobservedVars.add(var);
+      } else {
+        unobservedVars.remove(var);
+      }
+    }
+  }
+
   public boolean isInstantiated(BayesNetVar var) {
     return basicVarToValue.containsKey(var)
         || derivedVarToValue.containsKey(var);
@@ -148,7 +199,7 @@ public abstract class AbstractPartialWorld implements PartialWorld {
 
     if (value == null) {
       basicVarToValue.remove(var);
-      varToUninstParent.remove(var);
+      removeUninstParent(var);
       nameToBasicVar.remove(var.toString());
       varToLogProb.remove(var);
     } else {
@@ -156,6 +207,16 @@ public abstract class AbstractPartialWorld implements PartialWorld {
       basicVarToValue.put(var, value);
       nameToBasicVar.put(var.toString(), var);
     }
+    if ((value == null) || (oldValue == null)) {
+      updateUnobservedVars(var);
+      if (timestepIndex != null) {
+        if (value == null) {
+          timestepIndex.remove(var);
+        } else {
+          timestepIndex.add(var);
+        }
+      }
+    }
 
     dirtyVars.add(var);
     updateUsageForChange(var, oldValue, value);
@@ -167,10 +228,72 @@ public abstract class AbstractPartialWorld implements PartialWorld {
   
   @Override
   public void forceRemoveVar(BasicVar var) {
-    basicVarToValue.remove(var);
-    varToUninstParent.remove(var);
+    if (timestepIndex != null) {
+      timestepIndex.remove(var);
+    }
+    removeBasicVar(var);
+  }
+
+  /**
+   * Does the work of <code>forceRemoveVar</code> except for the timestep
+   * index. Also removes the variable from the CBN and from the object usage
+   * maps; its children keep their parent sets and log probabilities until
+   * they are next changed.
+   */
+  private void removeBasicVar(BasicVar var) {
+    Object oldValue = basicVarToValue.remove(var);
+    removeUninstParent(var);
     nameToBasicVar.remove(var.toString());
     varToLogProb.remove(var);
+    updateUnobservedVars(var);
+    dirtyVars.remove(var);
+    if (oldValue != null) {
+      updateUsageForChange(var, oldValue, null);
+    }
+    if ((cbn != null) && cbn.nodes().contains(var)) {
+      ensureUnshared();
+      cbn.removeNode(var);
+    }
+  }
+
+  public void removeVarsBefore(Timestep timestep) {
+    if (timestepIndex == null) {
+      List vars = new ArrayList(getInstantiatedVars());
+      vars.addAll(getDerivedVars());
+      for (Iterator iter = vars.iterator(); iter.hasNext();) {
+        BayesNetVar var = (BayesNetVar) iter.next();
+        Timestep varTimestep = var.maxTimestep();
+        if ((varTimestep != null) && (varTimestep.compareTo(timestep) < 0)) {
+          removeVar(var);
+        }
+      }
+      return;
+    }
+    for (BayesNetVar var : timestepIndex.removeBefore(timestep)) {
+      removeVar(var);
+    }
+  }
+
+  private void removeVar(BayesNetVar var) {
+    if (var instanceof BasicVar) {
+      removeBasicVar((BasicVar) var);
+    } else {
+      removeDerivedVar((DerivedVar) var);
+    }
+  }
+
+  private void removeUninstParent(BayesNetVar var) {
+    if (varToUninstParent.containsKey(var)) {
+      ensureUnshared();
+      varToUninstParent.remove(var);
+    }
+  }
+
+  private void putUninstParent(BayesNetVar var, BasicVar parent) {
+    if (varToUninstParent.get(var) != parent) {
+      ensureUnshared();
+      varToUninstParent.put(var, parent);
+    }
   }
 
   public BasicVar getBasicVarByName(String name) {
@@ -181,13 +304,13 @@ public abstract class AbstractPartialWorld implements PartialWorld {
     Object[] args = new Object[initialArgs.length + 1];
     System.arraycopy(initialArgs, 0, args, 0, initialArgs.length);
     args[initialArgs.length] = new Integer(len);
-    BasicVar var = new RandFuncAppVar(f, args);
+    BasicVar var = f.rvWithArgs(args, false);
 
     int i = len;
     while (getValue(var) != null) {
       setValue(var, null);
       args[initialArgs.length] = new Integer(++i);
-      var = new RandFuncAppVar(f, args);
+      var = f.rvWithArgs(args, false);
     }
   }
 
@@ -195,13 +318,13 @@ public abstract class AbstractPartialWorld implements PartialWorld {
     Object[] args = new Object[initialArgs.length + 1];
     System.arraycopy(initialArgs, 0, args, 0, initialArgs.length);
     args[initialArgs.length] = new Integer(len);
-    BasicVar var = new NumberVar(pop, args);
+    BasicVar var = pop.rvWithArgs(args, false);
 
     int i = len;
     while (getValue(var) != null) {
       setValue(var, null);
       args[initialArgs.length] = new Integer(++i);
-      var = new NumberVar(pop, args);
+      var = pop.rvWithArgs(args, false);
     }
   }
 
@@ -312,6 +435,7 @@ public abstract class AbstractPartialWorld implements PartialWorld {
       throw new IllegalArgumentException("Identifier " + id
           + " cannot satisfy POP " + newPOPApp.pop());
     }
+    ensureUnshared();
 
     NumberVar oldPOPApp = (NumberVar) commIdToPOPApp.get(id);
     if (!newPOPApp.equals(oldPOPApp)) {
@@ -346,6 +470,7 @@ public abstract class AbstractPartialWorld implements PartialWorld {
       throw new IllegalArgumentException("Identifier not in common ground: "
           + id);
     }
+    ensureUnshared();
 
     if (assertedIdToPOPApp.put(id, popApp) == null) {
       // assertion was not made already
@@ -360,6 +485,7 @@ public abstract class AbstractPartialWorld implements PartialWorld {
   }
 
   public ObjectIdentifier addIdentifierForPOPApp(NumberVar popApp) {
+    ensureUnshared();
     ObjectIdentifier id = new ObjectIdentifier(popApp.pop().type());
 
     Integer nvValue = (Integer) basicVarToValue.get(popApp);
@@ -379,6 +505,7 @@ public abstract class AbstractPartialWorld implements PartialWorld {
   public void removeIdentifier(ObjectIdentifier id) {
     NumberVar popApp = (NumberVar) commIdToPOPApp.remove(id);
     if (popApp != null) {
+      ensureUnshared();
       popAppToCommIds.remove(popApp, id);
 
       if (assertedIdToPOPApp.remove(id) != null) {
@@ -401,6 +528,9 @@ public abstract class AbstractPartialWorld implements PartialWorld {
 
   public CBN getCBN() {
     updateParentsAndProbs();
+    if (cbn != null) {
+      ensureUnshared(); // the caller may change it
+    }
     return cbn;
   }
 
@@ -416,18 +546,32 @@ public abstract class AbstractPartialWorld implements PartialWorld {
   }
 
   public boolean addDerivedVar(DerivedVar var) {
-    if ((cbn != null) && cbn.addNode(var)) {
+    if (cbn == null) {
+      return false;
+    }
+    ensureUnshared();
+    if (cbn.addNode(var)) {
       derivedVarToValue.put(var, PartialWorld.UNDET);
       dirtyVars.add(var);
+      if (timestepIndex != null) {
+        timestepIndex.add(var);
+      }
       return true;
     }
     return false;
   }
 
   public boolean removeDerivedVar(DerivedVar var) {
-    if ((cbn != null) && cbn.removeNode(var)) {
+    if (cbn == null) {
+      return false;
+    }
+    ensureUnshared();
+    if (cbn.removeNode(var)) {
       derivedVarToValue.remove(var);
       dirtyVars.remove(var);
+      if (timestepIndex != null) {
+        timestepIndex.remove(var);
+      }
       return true;
     }
     return false;
@@ -487,10 +631,12 @@ public abstract class AbstractPartialWorld implements PartialWorld {
   }
 
   public void addListener(WorldListener listener) {
+    ensureUnshared();
     listeners.add(listener);
   }
 
   public void removeListener(WorldListener listener) {
+    ensureUnshared();
     listeners.remove(listener);
   }
 
@@ -807,7 +953,6 @@ public abstract class AbstractPartialWorld implements PartialWorld {
             // System.out.println("AbstractPartialWorld: var: " + var +
             // ", basicVarToValue(var): " + basicVarToValue.get(var));
             CondProbDistrib cpd = distrib.getCPD();
-            cpd.setParams(distrib.getArgValues());
             double logProb = cpd.getLogProb(basicVarToValue.get(var));
             /*
              * if (Util.verbose() && (logProb == Double.NEGATIVE_INFINITY)) {
@@ -830,9 +975,9 @@ public abstract class AbstractPartialWorld implements PartialWorld {
         cbn.setParents(var, context.getParents());
       }
       if (context.getLatestUninstParent() == null) {
-        varToUninstParent.remove(var);
+        removeUninstParent(var);
       } else {
-        varToUninstParent.put(var, context.getLatestUninstParent());
+        putUninstParent(var, context.getLatestUninstParent());
       }
     }
   }
@@ -858,9 +1003,9 @@ public abstract class AbstractPartialWorld implements PartialWorld {
       }
       BasicVar uninstParent = (BasicVar) givenVarUninstParents.get(var);
       if (uninstParent == null) {
-        varToUninstParent.remove(var);
+        removeUninstParent(var);
       } else {
-        varToUninstParent.put(var, uninstParent);
+        putUninstParent(var, uninstParent);
       }
 
       if (var instanceof VarWithDistrib) {
@@ -890,6 +1035,9 @@ public abstract class AbstractPartialWorld implements PartialWorld {
     if (dirtyVars.isEmpty()) {
       return;
     }
+    if (cbn != null) {
+      ensureUnshared();
+    }
 
     // If a variable has changed, we need to update the information for
     // all its children as well. To avoid invalidating our iterator
@@ -925,7 +1073,11 @@ public abstract class AbstractPartialWorld implements PartialWorld {
       }
     }
 
-    dirtyVars = new LinkedHashSet();
+    if (dirtyVars instanceof LayeredHashSet) {
+      dirtyVars.clear();
+    } else {
+      dirtyVars = new LinkedHashSet();
+    }
   }
 
   private void checkIdentifiers(BasicVar var, Object value) {
@@ -944,6 +1096,7 @@ public abstract class AbstractPartialWorld implements PartialWorld {
   }
 
   private ObjectIdentifier addCommId(NumberVar popApp) {
+    ensureUnshared();
     ObjectIdentifier id = new ObjectIdentifier(popApp.pop().type());
     commIdToPOPApp.put(id, popApp);
     popAppToCommIds.add(popApp, id);
@@ -955,6 +1108,7 @@ public abstract class AbstractPartialWorld implements PartialWorld {
     if (!recordObjectUsage) {
       return;
     }
+    ensureUnshared();
     // update usage of arguments
     Object[] args = var.args();
     if ((oldValue == null) && (newValue != null)) {
@@ -1040,27 +1194,76 @@ public abstract class AbstractPartialWorld implements PartialWorld {
    * meant to be invoked by clone methods of extending classes, allowing their
    * writing without access to all, and detailed knowledge of,
    * <code>AbstractPartialWorld</code> fields.
+   *
+   * Maps that can be forked (LayeredHashMap and LayeredHashSet) are forked.
+   * If this world uses copy-on-write, the remaining structures are shared
+   * with <code>newWorld</code> and each world copies them before it first
+   * changes them; otherwise they are copied now.
    */
   public void cloneFields(AbstractPartialWorld newWorld) {
-    newWorld.basicVarToValue = (Map) ((HashMap) basicVarToValue).clone();
-    newWorld.nameToBasicVar = (Map) ((HashMap) nameToBasicVar).clone();
-    newWorld.objToUsesAsValue = (MultiMap) ((HashMultiMap) objToUsesAsValue)
-        .clone();
-    newWorld.objToUsesAsArg = (MultiMap) ((HashMultiMap) objToUsesAsArg)
-        .clone();
-    newWorld.assertedIdToPOPApp = (Map) ((HashMap) assertedIdToPOPApp).clone();
-    newWorld.popAppToAssertedIds = new IndexedHashMultiMap(popAppToAssertedIds);
-    newWorld.commIdToPOPApp = (Map) ((HashMap) commIdToPOPApp).clone();
-    newWorld.popAppToCommIds = new IndexedHashMultiMap(popAppToCommIds);
-    newWorld.cbn = (cbn == null) ? null : (CBN) ((DefaultCBN) cbn).clone();
-    newWorld.varToUninstParent = (MapWithPreimages) ((HashMapWithPreimages) varToUninstParent)
-        .clone();
-    newWorld.varToLogProb = (Map) ((HashMap) varToLogProb).clone();
-    newWorld.derivedVarToValue = (Map) ((HashMap) derivedVarToValue).clone();
-
-    newWorld.dirtyVars = (Set) ((LinkedHashSet) dirtyVars).clone();
-    newWorld.listeners = (List) ((ArrayList) listeners).clone();
+    newWorld.basicVarToValue = cloneMap(basicVarToValue);
+    newWorld.nameToBasicVar = cloneMap(nameToBasicVar);
+    newWorld.assertedIdToPOPApp = cloneMap(assertedIdToPOPApp);
+    newWorld.commIdToPOPApp = cloneMap(commIdToPOPApp);
+    newWorld.varToLogProb = cloneMap(varToLogProb);
+    newWorld.derivedVarToValue = cloneMap(derivedVarToValue);
+    if (dirtyVars instanceof LayeredHashSet) {
+      newWorld.dirtyVars = ((LayeredHashSet) dirtyVars).fork();
+    } else {
+      newWorld.dirtyVars = (Set) ((LinkedHashSet) dirtyVars).clone();
+    }
     newWorld.idTypes = new HashSet(idTypes);
+    newWorld.observedVars = observedVars; // unobservedVars is rebuilt lazily
+    newWorld.timestepIndex = (timestepIndex == null) ? null : timestepIndex
+        .copy();
+
+    newWorld.objToUsesAsValue = objToUsesAsValue;
+    newWorld.objToUsesAsArg = objToUsesAsArg;
+    newWorld.popAppToAssertedIds = popAppToAssertedIds;
+    newWorld.popAppToCommIds = popAppToCommIds;
+    newWorld.cbn = cbn;
+    newWorld.varToUninstParent = varToUninstParent;
+    newWorld.listeners = listeners;
+    newWorld.copyOnWrite = copyOnWrite;
+    if (copyOnWrite) {
+      shared = true;
+      newWorld.shared = true;
+    } else {
+      newWorld.copySharedStructures();
+    }
+  }
+
+  private static Map cloneMap(Map map) {
+    if (map instanceof LayeredHashMap) {
+      return ((LayeredHashMap) map).fork();
+    }
+    if (map instanceof IntIndexedVarMap) {
+      return ((IntIndexedVarMap) map).copy();
+    }
+    return (Map) ((HashMap) map).clone();
+  }
+
+  /**
+   * Makes sure that this world has its own copy of the structures that
+   * <code>cloneFields</code> shares between copy-on-write worlds. Must be
+   * called before any of them is changed.
+   */
+  protected void ensureUnshared() {
+    if (shared) {
+      copySharedStructures();
+      shared = false;
+    }
+  }
+
+  private void copySharedStructures() {
+    objToUsesAsValue = (MultiMap) ((HashMultiMap) objToUsesAsValue).clone();
+    objToUsesAsArg = (MultiMap) ((HashMultiMap) objToUsesAsArg).clone();
+    popAppToAssertedIds = new IndexedHashMultiMap(popAppToAssertedIds);
+    popAppToCommIds = new IndexedHashMultiMap(popAppToCommIds);
+    cbn = (cbn == null) ? null : (CBN) ((DefaultCBN) cbn).clone();
+    varToUninstParent = (MapWithPreimages) ((HashMapWithPreimages) varToUninstParent)
+        .clone();
+    listeners = (List) ((ArrayList) listeners).clone();
   }
 
   public String toString() {
@@ -1144,6 +1347,35 @@ public abstract class AbstractPartialWorld implements PartialWorld {
    */
   protected Set dirtyVars = new LinkedHashSet();
 
+  /**
+   * Basic variables whose values are fixed by evidence.
+   */
+  protected Set observedVars = Collections.EMPTY_SET;
+
+  /**
+   * Instantiated basic variables that are not in observedVars, or null if
+   * this index has not been built yet.
+   */
+  protected IndexedSet unobservedVars = null;
+
+  /**
+   * Instantiated temporal basic variables and temporal derived variables,
+   * bucketed by largest timestep, or null if this world does not keep them
+   * (then <code>removeVarsBefore</code> scans all variables).
+   */
+  protected TimestepIndex timestepIndex = null;
+
+  /**
+   * Whether cloneFields shares structures with the new world instead of
+   * copying them (see {@link #ensureUnshared()}).
+   */
+  protected boolean copyOnWrite = false;
+
+  /**
+   * True if some structures may be shared with another world.
+   */
+  private boolean shared = false;
+
   private VarInfoUpdater defaultUpdater = new DefaultInfoUpdater();
 
   protected List listeners = new ArrayList(); // of WorldListener
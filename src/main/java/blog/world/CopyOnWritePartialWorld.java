@@ -0,0 +1,55 @@
+package blog.world;
+
+import java.util.Collections;
+import java.util.Set;
+
+import blog.common.LayeredHashMap;
+import blog.common.LayeredHashSet;
+
+/**
+ * A DefaultPartialWorld whose <code>clone</code> method takes time that does
+ * not grow with the size of the world. Its maps are LayeredHashMaps, which a
+ * clone shares with the original until either world changes them, and the
+ * remaining structures are shared until one of the worlds first changes them
+ * (see {@link AbstractPartialWorld#cloneFields(AbstractPartialWorld)}).
+ *
+ * This suits particle filters, where resampling clones many particles of
+ * which most are never changed again, or only in a few variables.
+ *
+ * Select it with the property
+ * <code>worldClass=blog.world.CopyOnWritePartialWorld</code>.
+ *
+ * @since Oct 18, 2026
+ */
+public class CopyOnWritePartialWorld extends DefaultPartialWorld {
+  /**
+   * Creates a new CopyOnWritePartialWorld with no instantiated variables. This
+   * world will not use object identifiers for any types.
+   */
+  public CopyOnWritePartialWorld() {
+    this(Collections.EMPTY_SET, false, false);
+  }
+
+  /**
+   * Creates a new CopyOnWritePartialWorld with no instantiated variables. The
+   * parameters are as for DefaultPartialWorld.
+   */
+  public CopyOnWritePartialWorld(Set idTypes, boolean recordUsage,
+      boolean useCBN) {
+    super(idTypes, recordUsage, useCBN);
+    basicVarToValue = new LayeredHashMap();
+    nameToBasicVar = new LayeredHashMap();
+    assertedIdToPOPApp = new LayeredHashMap();
+    commIdToPOPApp = new LayeredHashMap();
+    varToLogProb = new LayeredHashMap();
+    derivedVarToValue = new LayeredHashMap();
+    dirtyVars = new LayeredHashSet(true);
+    copyOnWrite = true;
+  }
+
+  public Object clone() {
+    CopyOnWritePartialWorld newWorld = new CopyOnWritePartialWorld();
+    cloneFields(newWorld);
+    return newWorld;
+  }
+}
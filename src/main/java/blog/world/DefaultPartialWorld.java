@@ -85,6 +85,7 @@ public class DefaultPartialWorld extends AbstractPartialWorld implements
     varToUninstParent = new HashMapWithPreimages();
     varToLogProb = new HashMap();
     derivedVarToValue = new HashMap();
+    timestepIndex = new TimestepIndex();
     if (useCBN) {
       cbn = new DefaultCBN();
     }
@@ -0,0 +1,57 @@
+package blog.world;
+
+import java.util.BitSet;
+
+/**
+ * Map from basic variables to their log probabilities, stored in a
+ * <code>double[]</code> indexed by slot. The value
+ * {@link PartialWorld#UNDET} is recorded with a flag, so that reading it back
+ * returns that same object.
+ *
+ * @since Oct 18, 2026
+ */
+public class IntIndexedLogProbMap extends IntIndexedVarMap {
+  public IntIndexedLogProbMap() {
+    logProbs = new double[capacity()];
+  }
+
+  protected Object getSlot(int slot) {
+    if (undet.get(slot)) {
+      return PartialWorld.UNDET;
+    }
+    return Double.valueOf(logProbs[slot]);
+  }
+
+  protected void setSlot(int slot, Object value) {
+    if (value == PartialWorld.UNDET) {
+      undet.set(slot);
+    } else {
+      undet.clear(slot);
+      logProbs[slot] = ((Number) value).doubleValue();
+    }
+  }
+
+  protected void moveSlot(int from, int to) {
+    logProbs[to] = logProbs[from];
+    undet.set(to, undet.get(from));
+    undet.clear(from);
+  }
+
+  protected void clearSlot(int slot) {
+    undet.clear(slot);
+  }
+
+  protected void resizeSlots(int capacity, int size) {
+    double[] newLogProbs = new double[capacity];
+    System.arraycopy(logProbs, 0, newLogProbs, 0, size);
+    logProbs = newLogProbs;
+  }
+
+  protected void copySlots() {
+    logProbs = logProbs.clone();
+    undet = (BitSet) undet.clone();
+  }
+
+  private double[] logProbs;
+  private BitSet undet = new BitSet(); // slots holding UNDET
+}
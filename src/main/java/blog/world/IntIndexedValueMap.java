@@ -0,0 +1,98 @@
+package blog.world;
+
+/**
+ * Map from basic variables to their values, stored in int-indexed arrays.
+ * Integer, Double and Boolean values are kept unboxed in a <code>long[]</code>
+ * and boxed again when read; other values are kept as references, in an array
+ * that is only allocated once such a value is stored.
+ *
+ * @since Oct 18, 2026
+ */
+public class IntIndexedValueMap extends IntIndexedVarMap {
+  public IntIndexedValueMap() {
+    kinds = new byte[capacity()];
+    bits = new long[capacity()];
+  }
+
+  protected Object getSlot(int slot) {
+    switch (kinds[slot]) {
+    case INTEGER:
+      return Integer.valueOf((int) bits[slot]);
+    case REAL:
+      return Double.valueOf(Double.longBitsToDouble(bits[slot]));
+    case BOOLEAN:
+      return Boolean.valueOf(bits[slot] != 0);
+    default:
+      return refs[slot];
+    }
+  }
+
+  protected void setSlot(int slot, Object value) {
+    if (value instanceof Integer) {
+      kinds[slot] = INTEGER;
+      bits[slot] = ((Integer) value).intValue();
+    } else if (value instanceof Double) {
+      kinds[slot] = REAL;
+      bits[slot] = Double.doubleToRawLongBits(((Double) value).doubleValue());
+    } else if (value instanceof Boolean) {
+      kinds[slot] = BOOLEAN;
+      bits[slot] = ((Boolean) value).booleanValue() ? 1 : 0;
+    } else {
+      if (refs == null) {
+        refs = new Object[capacity()];
+      }
+      kinds[slot] = OBJECT;
+      refs[slot] = value;
+      return;
+    }
+    if (refs != null) {
+      refs[slot] = null;
+    }
+  }
+
+  protected void moveSlot(int from, int to) {
+    kinds[to] = kinds[from];
+    bits[to] = bits[from];
+    if (refs != null) {
+      refs[to] = refs[from];
+      refs[from] = null;
+    }
+  }
+
+  protected void clearSlot(int slot) {
+    if (refs != null) {
+      refs[slot] = null;
+    }
+  }
+
+  protected void resizeSlots(int capacity, int size) {
+    byte[] newKinds = new byte[capacity];
+    System.arraycopy(kinds, 0, newKinds, 0, size);
+    kinds = newKinds;
+    long[] newBits = new long[capacity];
+    System.arraycopy(bits, 0, newBits, 0, size);
+    bits = newBits;
+    if (refs != null) {
+      Object[] newRefs = new Object[capacity];
+      System.arraycopy(refs, 0, newRefs, 0, size);
+      refs = newRefs;
+    }
+  }
+
+  protected void copySlots() {
+    kinds = kinds.clone();
+    bits = bits.clone();
+    if (refs != null) {
+      refs = refs.clone();
+    }
+  }
+
+  private static final byte OBJECT = 0;
+  private static final byte INTEGER = 1;
+  private static final byte REAL = 2;
+  private static final byte BOOLEAN = 3;
+
+  private byte[] kinds;
+  private long[] bits; // primitive values
+  private Object[] refs; // other values, or null if there are none yet
+}
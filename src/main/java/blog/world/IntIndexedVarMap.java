@@ -0,0 +1,414 @@
+package blog.world;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import blog.bn.BasicVar;
+
+/**
+ * Base class for maps keyed by basic variables that store their entries in
+ * dense, int-indexed arrays instead of entry objects. Keys are canonical
+ * variables (see {@link BasicVar#canonical()}); entries occupy slots
+ * <code>0..n-1</code> of parallel arrays, and an open-addressing table of
+ * <code>int</code>s maps a variable id to its slot. Subclasses keep their
+ * values in arrays indexed by slot.
+ *
+ * Keys that have no id (variables that are not interned, or objects that are
+ * not variables at all) are kept in an ordinary HashMap on the side.
+ *
+ * @since Oct 18, 2026
+ */
+public abstract class IntIndexedVarMap extends AbstractMap implements
+    Cloneable {
+  protected IntIndexedVarMap() {
+    keys = new BasicVar[INITIAL_CAPACITY];
+    table = new int[2 * INITIAL_CAPACITY];
+  }
+
+  /**
+   * Returns the number of slots the value arrays must have room for.
+   */
+  protected final int capacity() {
+    return keys.length;
+  }
+
+  /**
+   * Returns the value stored in the given slot.
+   */
+  protected abstract Object getSlot(int slot);
+
+  /**
+   * Stores a value in the given slot.
+   */
+  protected abstract void setSlot(int slot, Object value);
+
+  /**
+   * Moves the value in slot <code>from</code> to slot <code>to</code> and
+   * releases any reference held by slot <code>from</code>.
+   */
+  protected abstract void moveSlot(int from, int to);
+
+  /**
+   * Releases any reference held by the given slot.
+   */
+  protected abstract void clearSlot(int slot);
+
+  /**
+   * Resizes the value arrays to the given capacity, keeping the first
+   * <code>size</code> slots.
+   */
+  protected abstract void resizeSlots(int capacity, int size);
+
+  /**
+   * Makes the value arrays of this map, which is a shallow clone, independent
+   * of the ones of the original map.
+   */
+  protected abstract void copySlots();
+
+  public int size() {
+    return count + ((overflow == null) ? 0 : overflow.size());
+  }
+
+  public boolean containsKey(Object key) {
+    BasicVar var = existingKey(key);
+    if (var == null) {
+      return (overflow != null) && overflow.containsKey(key);
+    }
+    return (find(var) >= 0);
+  }
+
+  public Object get(Object key) {
+    BasicVar var = existingKey(key);
+    if (var == null) {
+      return (overflow == null) ? null : overflow.get(key);
+    }
+    int slot = find(var);
+    return (slot < 0) ? null : getSlot(slot);
+  }
+
+  public Object put(Object key, Object value) {
+    BasicVar var = canonicalKey(key);
+    if (var == null) {
+      if (overflow == null) {
+        overflow = new HashMap();
+      }
+      return overflow.put(key, value);
+    }
+
+    int bucket = bucketFor(var.getId());
+    while (table[bucket] != 0) {
+      int slot = table[bucket] - 1;
+      if (keys[slot] == var) {
+        Object oldValue = getSlot(slot);
+        setSlot(slot, value);
+        return oldValue;
+      }
+      bucket = (bucket + 1) & (table.length - 1);
+    }
+
+    if (count == keys.length) {
+      growSlots();
+    }
+    if (4 * (count + 1) > 3 * table.length) {
+      rehash(2 * table.length);
+      bucket = bucketFor(var.getId());
+      while (table[bucket] != 0) {
+        bucket = (bucket + 1) & (table.length - 1);
+      }
+    }
+    keys[count] = var;
+    setSlot(count, value);
+    table[bucket] = ++count;
+    return null;
+  }
+
+  public Object remove(Object key) {
+    BasicVar var = existingKey(key);
+    if (var == null) {
+      return (overflow == null) ? null : overflow.remove(key);
+    }
+    int slot = find(var);
+    if (slot < 0) {
+      return null;
+    }
+    Object oldValue = getSlot(slot);
+    removeSlot(slot);
+    return oldValue;
+  }
+
+  public void clear() {
+    for (int i = 0; i < count; ++i) {
+      keys[i] = null;
+      clearSlot(i);
+    }
+    Arrays.fill(table, 0);
+    count = 0;
+    overflow = null;
+  }
+
+  public Set entrySet() {
+    return new EntrySet();
+  }
+
+  /**
+   * Returns a copy of this map that shares no mutable state with it.
+   */
+  public IntIndexedVarMap copy() {
+    try {
+      IntIndexedVarMap newMap = (IntIndexedVarMap) super.clone();
+      newMap.keys = keys.clone();
+      newMap.table = table.clone();
+      newMap.overflow = (overflow == null) ? null : new HashMap(overflow);
+      newMap.copySlots();
+      return newMap;
+    } catch (CloneNotSupportedException e) {
+      throw new InternalError(e.toString());
+    }
+  }
+
+  public Object clone() {
+    return copy();
+  }
+
+  /**
+   * Returns the canonical variable to use for <code>key</code>, or null if
+   * the key has no id and belongs in the overflow map.
+   */
+  private static BasicVar canonicalKey(Object key) {
+    if (!(key instanceof BasicVar)) {
+      return null;
+    }
+    BasicVar var = (BasicVar) key;
+    if (var.getId() < 0) {
+      var = var.canonical();
+      if (var.getId() < 0) {
+        return null;
+      }
+    }
+    return var;
+  }
+
+  /**
+   * Like {@link #canonicalKey}, but for lookups: never interns
+   * <code>key</code>, so that looking up a variable no world has does not
+   * give it an id. Such a variable is in no map, and looking it up in the
+   * overflow map finds nothing.
+   */
+  private static BasicVar existingKey(Object key) {
+    if (!(key instanceof BasicVar)) {
+      return null;
+    }
+    BasicVar var = (BasicVar) key;
+    if (var.getId() < 0) {
+      var = var.findCanonical();
+      if ((var == null) || (var.getId() < 0)) {
+        return null;
+      }
+    }
+    return var;
+  }
+
+  private int find(BasicVar var) {
+    int bucket = bucketFor(var.getId());
+    while (table[bucket] != 0) {
+      int slot = table[bucket] - 1;
+      if (keys[slot] == var) {
+        return slot;
+      }
+      bucket = (bucket + 1) & (table.length - 1);
+    }
+    return -1;
+  }
+
+  private int bucketFor(int id) {
+    int h = id * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & (table.length - 1);
+  }
+
+  /**
+   * Removes the entry in the given slot, moving the last entry into its place
+   * so that the occupied slots stay contiguous.
+   */
+  private void removeSlot(int slot) {
+    deleteBucket(bucketOf(slot));
+    int last = count - 1;
+    if (slot != last) {
+      table[bucketOf(last)] = slot + 1;
+      keys[slot] = keys[last];
+      moveSlot(last, slot);
+    } else {
+      clearSlot(last);
+    }
+    keys[last] = null;
+    count = last;
+  }
+
+  private int bucketOf(int slot) {
+    int bucket = bucketFor(keys[slot].getId());
+    while (table[bucket] != slot + 1) {
+      bucket = (bucket + 1) & (table.length - 1);
+    }
+    return bucket;
+  }
+
+  /**
+   * Empties the given bucket, shifting later buckets of the same probe
+   * sequence back so that lookups need no tombstones.
+   */
+  private void deleteBucket(int hole) {
+    int mask = table.length - 1;
+    int bucket = hole;
+    while (true) {
+      bucket = (bucket + 1) & mask;
+      if (table[bucket] == 0) {
+        break;
+      }
+      int home = bucketFor(keys[table[bucket] - 1].getId());
+      // move the entry into the hole unless its home lies cyclically in
+      // (hole, bucket]
+      boolean stays = (hole <= bucket) ? (hole < home && home <= bucket)
+          : (hole < home || home <= bucket);
+      if (!stays) {
+        table[hole] = table[bucket];
+        hole = bucket;
+      }
+    }
+    table[hole] = 0;
+  }
+
+  private void growSlots() {
+    int newCapacity = keys.length + (keys.length >> 1);
+    BasicVar[] newKeys = new BasicVar[newCapacity];
+    System.arraycopy(keys, 0, newKeys, 0, count);
+    keys = newKeys;
+    resizeSlots(newCapacity, count);
+  }
+
+  private void rehash(int tableSize) {
+    table = new int[tableSize];
+    for (int slot = 0; slot < count; ++slot) {
+      int bucket = bucketFor(keys[slot].getId());
+      while (table[bucket] != 0) {
+        bucket = (bucket + 1) & (tableSize - 1);
+      }
+      table[bucket] = slot + 1;
+    }
+  }
+
+  private class EntrySet extends AbstractSet {
+    public int size() {
+      return IntIndexedVarMap.this.size();
+    }
+
+    public boolean contains(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry entry = (Map.Entry) o;
+      Object value = get(entry.getKey());
+      return (value == null) ? false : value.equals(entry.getValue());
+    }
+
+    public Iterator iterator() {
+      return new EntryIterator();
+    }
+
+    public void clear() {
+      IntIndexedVarMap.this.clear();
+    }
+  }
+
+  /**
+   * Iterates over the slots from the last one down, so that removing the
+   * current entry (which moves the last entry into its slot) does not disturb
+   * the entries still to come, and then over the overflow map.
+   */
+  private class EntryIterator implements Iterator {
+    public boolean hasNext() {
+      return (next > 0) || ((overflowIter != null) && overflowIter.hasNext());
+    }
+
+    public Object next() {
+      if (next > 0) {
+        --next;
+        current = next;
+        return new Entry(keys[next], getSlot(next));
+      }
+      if (overflowIter == null) {
+        throw new NoSuchElementException();
+      }
+      current = -1;
+      return overflowIter.next();
+    }
+
+    public void remove() {
+      if (current >= 0) {
+        removeSlot(current);
+        current = -1;
+      } else {
+        overflowIter.remove();
+      }
+    }
+
+    private int next = count;
+    private int current = -1;
+    private Iterator overflowIter = (overflow == null) ? null : overflow
+        .entrySet().iterator();
+  }
+
+  private class Entry implements Map.Entry {
+    Entry(BasicVar key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    public Object getKey() {
+      return key;
+    }
+
+    public Object getValue() {
+      return value;
+    }
+
+    public Object setValue(Object newValue) {
+      Object oldValue = value;
+      put(key, newValue);
+      value = newValue;
+      return oldValue;
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry other = (Map.Entry) o;
+      return key.equals(other.getKey())
+          && ((value == null) ? (other.getValue() == null) : value
+              .equals(other.getValue()));
+    }
+
+    public int hashCode() {
+      return key.hashCode() ^ ((value == null) ? 0 : value.hashCode());
+    }
+
+    public String toString() {
+      return key + "=" + value;
+    }
+
+    private final BasicVar key;
+    private Object value;
+  }
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private BasicVar[] keys; // canonical variable in each slot
+  private int[] table; // slot + 1 for each bucket, 0 if empty; at most 3/4 full
+  private int count;
+  private Map overflow; // entries whose keys have no id
+}
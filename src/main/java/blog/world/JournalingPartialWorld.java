@@ -0,0 +1,258 @@
+package blog.world;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import blog.bn.BasicVar;
+import blog.bn.BayesNetVar;
+import blog.bn.CBN;
+import blog.bn.JournaledCBN;
+import blog.common.IndexedMultiMap;
+import blog.common.IndexedSet;
+import blog.common.Journaled;
+import blog.common.JournaledIndexedMultiMap;
+import blog.common.JournaledMap;
+import blog.common.JournaledMapWithPreimages;
+import blog.common.JournaledMultiMap;
+import blog.common.MapWithPreimages;
+
+/**
+ * A PartialWorldDiff that changes its underlying world in place and keeps an
+ * undo log of the entries it overwrites, instead of keeping the changes in
+ * overlay maps. Reads go straight to the underlying structures, saving just
+ * clears the log, and reverting replays it backwards, so both cost time
+ * proportional to the size of the change rather than to the number of
+ * lookups made while it was in effect. <code>getSaved</code> returns a
+ * read-only view that answers from the log where it has an entry.
+ *
+ * <p>
+ * The underlying world must be an AbstractPartialWorld, and must not be
+ * changed or copied except through this world until <code>detach</code> is
+ * called.
+ *
+ * @since Oct 18, 2026
+ */
+public class JournalingPartialWorld extends PartialWorldDiff {
+  /**
+   * Creates a new JournalingPartialWorld over the given world, whose current
+   * and saved versions both equal that world.
+   */
+  public JournalingPartialWorld(PartialWorld underlying) {
+    super(underlying, journal(underlying));
+    this.underlying = (AbstractPartialWorld) underlying;
+    basicVarToValue = new JournaledMap(this.underlying.basicVarToValue);
+    nameToBasicVar = new JournaledMap(this.underlying.nameToBasicVar);
+    objToUsesAsValue = new JournaledMultiMap(this.underlying.objToUsesAsValue);
+    objToUsesAsArg = new JournaledMultiMap(this.underlying.objToUsesAsArg);
+    assertedIdToPOPApp = new JournaledMap(this.underlying.assertedIdToPOPApp);
+    popAppToAssertedIds = new JournaledIndexedMultiMap(
+        this.underlying.popAppToAssertedIds);
+    commIdToPOPApp = new JournaledMap(this.underlying.commIdToPOPApp);
+    popAppToCommIds = new JournaledIndexedMultiMap(
+        this.underlying.popAppToCommIds);
+    varToUninstParent = new JournaledMapWithPreimages(
+        this.underlying.varToUninstParent);
+    varToLogProb = new JournaledMap(this.underlying.varToLogProb);
+    derivedVarToValue = new JournaledMap(this.underlying.derivedVarToValue);
+    timestepIndex = this.underlying.timestepIndex;
+    unobservedVars = this.underlying.unobservedVars;
+
+    journals = new Journaled[] { (Journaled) basicVarToValue,
+        (Journaled) nameToBasicVar, (Journaled) objToUsesAsValue,
+        (Journaled) objToUsesAsArg, (Journaled) assertedIdToPOPApp,
+        (Journaled) popAppToAssertedIds, (Journaled) commIdToPOPApp,
+        (Journaled) popAppToCommIds, (Journaled) varToUninstParent,
+        (Journaled) varToLogProb, (Journaled) derivedVarToValue };
+  }
+
+  /**
+   * Creates a new JournalingPartialWorld over <code>underlying</code>, whose
+   * current version is set equal to <code>toCopy</code>.
+   */
+  public JournalingPartialWorld(PartialWorld underlying, PartialWorld toCopy) {
+    this(underlying);
+    copyFrom(toCopy);
+  }
+
+  /**
+   * Makes the underlying world ready to be changed in place and returns its
+   * CBN wrapped in a journal, or null if it has no CBN.
+   */
+  private static CBN journal(PartialWorld underlying) {
+    if (!(underlying instanceof AbstractPartialWorld)) {
+      throw new IllegalArgumentException(
+          "JournalingPartialWorld needs an AbstractPartialWorld, not "
+              + underlying.getClass().getName());
+    }
+    ((AbstractPartialWorld) underlying).ensureUnshared();
+    CBN cbn = underlying.getCBN(); // also brings parents and probs up to date
+    return (cbn == null) ? null : new JournaledCBN(cbn);
+  }
+
+  /**
+   * Returns a read-only view of the saved version of this world. The view
+   * follows later saves and reverts.
+   */
+  public PartialWorld getSaved() {
+    if (savedView == null) {
+      savedView = new SavedWorld(this);
+    }
+    return savedView;
+  }
+
+  /**
+   * Returns the underlying world, reverted to the saved version. This world
+   * must not be used afterwards.
+   */
+  public PartialWorld detach() {
+    revert();
+    return underlying;
+  }
+
+  /**
+   * Changes the saved version of this world to equal the current version.
+   * Since the changes are already in the underlying world, this just brings
+   * the parents and probabilities up to date and clears the undo log.
+   */
+  public void save() {
+    updateParentsAndProbs();
+    for (int i = 0; i < journals.length; ++i) {
+      journals[i].clearJournal();
+    }
+    if (cbn != null) {
+      ((JournaledCBN) cbn).clearJournal();
+    }
+    notifySaved();
+  }
+
+  /**
+   * Changes this world to equal the saved version by undoing the logged
+   * changes. Warning: WorldListener objects will not be notified of changes to
+   * the values of basic variables made by this method.
+   */
+  public void revert() {
+    List basicVars = ((JournaledMap) basicVarToValue).getJournaledKeys();
+    List derivedVars = ((JournaledMap) derivedVarToValue).getJournaledKeys();
+    for (int i = 0; i < journals.length; ++i) {
+      journals[i].revert();
+    }
+    if (cbn != null) {
+      ((JournaledCBN) cbn).revert();
+    }
+
+    for (Iterator iter = basicVars.iterator(); iter.hasNext();) {
+      BasicVar var = (BasicVar) iter.next();
+      updateUnobservedVars(var);
+      updateTimestepIndex(var, basicVarToValue.containsKey(var));
+    }
+    for (Iterator iter = derivedVars.iterator(); iter.hasNext();) {
+      BayesNetVar var = (BayesNetVar) iter.next();
+      updateTimestepIndex(var, derivedVarToValue.containsKey(var));
+    }
+    dirtyVars.clear();
+    notifyReverted();
+  }
+
+  public Set getChangedVars() {
+    return ((JournaledMap) basicVarToValue).getChangedKeys();
+  }
+
+  public Set getObjsWithChangedUsesAsValue() {
+    return ((JournaledMultiMap) objToUsesAsValue).getChangedKeys();
+  }
+
+  public Set getIdsWithChangedPOPApps() {
+    return ((JournaledMap) assertedIdToPOPApp).getChangedKeys();
+  }
+
+  public Set getPOPAppsWithChangedIds() {
+    return ((JournaledMultiMap) popAppToAssertedIds).getChangedKeys();
+  }
+
+  public Set getVarsWithChangedProbs() {
+    updateParentsAndProbs();
+
+    HashSet results = new HashSet();
+    results.addAll(((JournaledMap) varToLogProb).getChangedKeys());
+    results.addAll(((JournaledMap) derivedVarToValue).getChangedKeys());
+    return results;
+  }
+
+  public Set getNewlyBarrenVars() {
+    updateParentsAndProbs();
+    if (cbn == null) {
+      return Collections.EMPTY_SET;
+    }
+    return ((JournaledCBN) cbn).getNewlyBarrenNodes();
+  }
+
+  /**
+   * Sets the observed variables of both this world and the underlying world,
+   * which share their index of unobserved variables.
+   */
+  public void setObservedVars(Set vars) {
+    underlying.setObservedVars(vars);
+    observedVars = vars;
+    unobservedVars = underlying.unobservedVars;
+  }
+
+  public IndexedSet getUnobservedVars() {
+    unobservedVars = underlying.getUnobservedVars();
+    return unobservedVars;
+  }
+
+  private void updateTimestepIndex(BayesNetVar var, boolean present) {
+    if (timestepIndex != null) {
+      if (present) {
+        timestepIndex.add(var);
+      } else {
+        timestepIndex.remove(var);
+      }
+    }
+  }
+
+  /**
+   * Read-only view of the saved version of a JournalingPartialWorld.
+   */
+  private static class SavedWorld extends AbstractPartialWorld {
+    SavedWorld(JournalingPartialWorld world) {
+      super(world.getIdTypes(), (world.cbn == null) ? null
+          : ((JournaledCBN) world.cbn).getSaved(), true);
+      this.world = world;
+      basicVarToValue = ((JournaledMap) world.basicVarToValue).getSaved();
+      nameToBasicVar = ((JournaledMap) world.nameToBasicVar).getSaved();
+      objToUsesAsValue = ((JournaledMultiMap) world.objToUsesAsValue)
+          .getSaved();
+      objToUsesAsArg = ((JournaledMultiMap) world.objToUsesAsArg).getSaved();
+      assertedIdToPOPApp = ((JournaledMap) world.assertedIdToPOPApp)
+          .getSaved();
+      popAppToAssertedIds = (IndexedMultiMap) ((JournaledMultiMap) world.popAppToAssertedIds)
+          .getSaved();
+      commIdToPOPApp = ((JournaledMap) world.commIdToPOPApp).getSaved();
+      popAppToCommIds = (IndexedMultiMap) ((JournaledMultiMap) world.popAppToCommIds)
+          .getSaved();
+      varToUninstParent = (MapWithPreimages) ((JournaledMap) world.varToUninstParent)
+          .getSaved();
+      varToLogProb = ((JournaledMap) world.varToLogProb).getSaved();
+      derivedVarToValue = ((JournaledMap) world.derivedVarToValue).getSaved();
+    }
+
+    public Set getObservedVars() {
+      return world.getObservedVars();
+    }
+
+    public IndexedSet getUnobservedVars() {
+      observedVars = world.getObservedVars();
+      return makeUnobservedVarIndex(); // the view may have changed
+    }
+
+    private final JournalingPartialWorld world;
+  }
+
+  private final AbstractPartialWorld underlying;
+  private final Journaled[] journals;
+  private PartialWorld savedView = null;
+}
@@ -53,6 +53,7 @@ import blog.common.MultiMap;
 import blog.model.POP;
 import blog.model.RandomFunction;
 import blog.objgen.ObjectSet;
+import blog.type.Timestep;
 
 /**
  * A partial description of a possible world in a BLOG model. A PartialWorld
@@ -148,6 +149,31 @@ public interface PartialWorld {
    */
   Set getInstantiatedVars();
 
+  /**
+   * Sets the basic variables that are observed, that is, whose values are
+   * fixed by evidence. Has no effect if <code>vars</code> is the set that
+   * is already in use, so callers that replace their set of observed
+   * variables whenever it changes can call this method freely.
+   */
+  void setObservedVars(Set vars);
+
+  /**
+   * Returns the set of basic variables that are observed (see
+   * <code>setObservedVars</code>), which is empty by default.
+   */
+  Set getObservedVars();
+
+  /**
+   * Returns an IndexedSet of the basic variables that are instantiated in
+   * this world but not observed, so that one can be chosen uniformly at
+   * random in constant time. The set is built when this method is first
+   * called and is kept up to date as variables are instantiated and
+   * uninstantiated.
+   * 
+   * @return unmodifiable IndexedSet of BasicVar
+   */
+  IndexedSet getUnobservedVars();
+
   /**
    * Indicates whether var is instantiated in this world or not.
    */
@@ -191,6 +217,13 @@ public interface PartialWorld {
    */
   public void forceRemoveVar(BasicVar var);
 
+  /**
+   * Removes every temporal basic and derived variable whose largest timestep
+   * is before <code>timestep</code>, as <code>forceRemoveVar</code> would.
+   * Atemporal variables are kept.
+   */
+  public void removeVarsBefore(Timestep timestep);
+
   /**
    * Uninstantiates the variables for the values of <code>f</code> on all tuples
    * of arguments of the form (arg1, ..., argK, i) where (arg1, ..., argK) are
@@ -44,11 +44,15 @@ import java.util.Set;
 
 import blog.ObjectIdentifier;
 import blog.bn.BasicVar;
+import blog.bn.CBN;
 import blog.bn.DerivedVar;
 import blog.bn.NumberVar;
 import blog.bn.PatchCBN;
 import blog.common.HashMapDiff;
 import blog.common.HashMultiMapDiff;
+import blog.common.IndexedHashSetDiff;
+import blog.common.IndexedSet;
+import blog.common.IndexedSetDiff;
 import blog.common.IndexedMultiMapDiff;
 import blog.common.MapDiff;
 import blog.common.MapWithPreimagesDiff;
@@ -68,7 +72,7 @@ public class PartialWorldDiff extends AbstractPartialWorld {
    * uses object identifiers for the same types as the underlying world does.
    */
   public PartialWorldDiff(PartialWorld underlying) {
-    super(underlying.getIdTypes(), new PatchCBN(underlying.getCBN()), true);
+    this(underlying, new PatchCBN(underlying.getCBN()));
     basicVarToValue = new HashMapDiff(underlying.basicVarToValueMap());
     nameToBasicVar = new HashMapDiff(underlying.nameToBasicVarMap());
     objToUsesAsValue = new HashMultiMapDiff(underlying.objToUsesAsValueMap());
@@ -83,7 +87,16 @@ public class PartialWorldDiff extends AbstractPartialWorld {
         underlying.varToUninstParentMap());
     varToLogProb = new HashMapDiff(underlying.varToLogProbMap());
     derivedVarToValue = new HashMapDiff(underlying.derivedVarToValueMap());
+  }
 
+  /**
+   * Creates a PartialWorldDiff over <code>underlying</code> with the given
+   * CBN, leaving the structures that hold the current version for the
+   * subclass to set.
+   */
+  protected PartialWorldDiff(PartialWorld underlying, CBN cbn) {
+    super(underlying.getIdTypes(), cbn, true);
+    observedVars = underlying.getObservedVars();
     savedWorld = underlying;
   }
 
@@ -94,7 +107,14 @@ public class PartialWorldDiff extends AbstractPartialWorld {
    */
   public PartialWorldDiff(PartialWorld underlying, PartialWorld toCopy) {
     this(underlying);
+    copyFrom(toCopy);
+  }
 
+  /**
+   * Makes the current version of this world equal to <code>toCopy</code>,
+   * assuming it starts out empty.
+   */
+  protected void copyFrom(PartialWorld toCopy) {
     for (Iterator iter = toCopy.getAssertedIdentifiers().iterator(); iter
         .hasNext();) {
       ObjectIdentifier id = (ObjectIdentifier) iter.next();
@@ -120,6 +140,14 @@ public class PartialWorldDiff extends AbstractPartialWorld {
     return savedWorld;
   }
 
+  /**
+   * Returns the saved version of this world as a world that the caller may
+   * change directly. This PartialWorldDiff must not be used afterwards.
+   */
+  public PartialWorld detach() {
+    return savedWorld;
+  }
+
   /**
    * Changes the saved version of this world to equal the current version.
    */
@@ -152,11 +180,7 @@ public class PartialWorldDiff extends AbstractPartialWorld {
         derivedVarToValue);
 
     clearChanges(); // since underlying is now updated
-
-    for (Iterator iter = diffListeners.iterator(); iter.hasNext();) {
-      WorldDiffListener listener = (WorldDiffListener) iter.next();
-      listener.notifySaved();
-    }
+    notifySaved();
   }
 
   /**
@@ -167,11 +191,7 @@ public class PartialWorldDiff extends AbstractPartialWorld {
   public void revert() {
     clearChanges();
     clearCommIdChanges();
-
-    for (Iterator iter = diffListeners.iterator(); iter.hasNext();) {
-      WorldDiffListener listener = (WorldDiffListener) iter.next();
-      listener.notifyReverted();
-    }
+    notifyReverted();
   }
 
   /**
@@ -368,6 +388,60 @@ public class PartialWorldDiff extends AbstractPartialWorld {
     diffListeners.remove(listener);
   }
 
+  /**
+   * Tells the diff listeners that this world has been saved.
+   */
+  protected void notifySaved() {
+    for (Iterator iter = diffListeners.iterator(); iter.hasNext();) {
+      WorldDiffListener listener = (WorldDiffListener) iter.next();
+      listener.notifySaved();
+    }
+  }
+
+  /**
+   * Tells the diff listeners that this world has been reverted.
+   */
+  protected void notifyReverted() {
+    for (Iterator iter = diffListeners.iterator(); iter.hasNext();) {
+      WorldDiffListener listener = (WorldDiffListener) iter.next();
+      listener.notifyReverted();
+    }
+  }
+
+  /**
+   * Sets the observed variables of both this world and the saved world.
+   */
+  public void setObservedVars(Set vars) {
+    savedWorld.setObservedVars(vars);
+    super.setObservedVars(vars);
+  }
+
+  public IndexedSet getUnobservedVars() {
+    if ((unobservedVars != null)
+        && (savedWorld.getUnobservedVars() != savedUnobservedVars)) {
+      unobservedVars = null; // the saved world rebuilt its index
+    }
+    return super.getUnobservedVars();
+  }
+
+  /**
+   * Returns an IndexedSetDiff over the saved world's index, with the changes
+   * made in this world so far.
+   */
+  protected IndexedSet makeUnobservedVarIndex() {
+    savedUnobservedVars = savedWorld.getUnobservedVars();
+    IndexedSet index = new IndexedHashSetDiff(savedUnobservedVars);
+    for (Iterator iter = getChangedVars().iterator(); iter.hasNext();) {
+      Object var = iter.next();
+      if (basicVarToValue.containsKey(var) && !observedVars.contains(var)) {
+        index.add(var);
+      } else {
+        index.remove(var);
+      }
+    }
+    return index;
+  }
+
   private void clearChanges() {
     ((MapDiff) basicVarToValue).clearChanges();
     ((MultiMapDiff) objToUsesAsValue).clearChanges();
@@ -377,6 +451,9 @@ public class PartialWorldDiff extends AbstractPartialWorld {
     ((PatchCBN) cbn).clearChanges();
     ((MapDiff) varToLogProb).clearChanges();
     ((MapDiff) derivedVarToValue).clearChanges();
+    if (unobservedVars != null) {
+      ((IndexedSetDiff) unobservedVars).clearChanges();
+    }
 
     dirtyVars.clear();
   }
@@ -387,6 +464,7 @@ public class PartialWorldDiff extends AbstractPartialWorld {
   }
 
   private PartialWorld savedWorld;
+  private IndexedSet savedUnobservedVars; // what unobservedVars is a diff over
   // private PatchCBN cbn;
 
   private List diffListeners = new ArrayList(); // of WorldDiffListener
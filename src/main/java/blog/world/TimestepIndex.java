@@ -0,0 +1,101 @@
+package blog.world;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import blog.bn.BayesNetVar;
+import blog.type.Timestep;
+
+/**
+ * The temporal variables of a world, bucketed by their largest timestep
+ * argument, so that all the variables of the past time slices can be found in
+ * time proportional to their number. Atemporal variables are not kept.
+ *
+ * A copy shares the buckets with the original; each copies a bucket before it
+ * first changes it, so copying a world costs time proportional to the number
+ * of time slices rather than the number of variables.
+ *
+ * @since Oct 18, 2026
+ */
+class TimestepIndex {
+  /**
+   * Adds <code>var</code> to the bucket for its largest timestep, if it has
+   * one.
+   */
+  void add(BayesNetVar var) {
+    Timestep timestep = var.maxTimestep();
+    if (timestep != null) {
+      getWritableBucket(timestep).add(var);
+    }
+  }
+
+  /**
+   * Removes <code>var</code> from the bucket for its largest timestep, if it is
+   * there.
+   */
+  void remove(BayesNetVar var) {
+    Timestep timestep = var.maxTimestep();
+    if ((timestep != null) && buckets.containsKey(timestep)) {
+      Set<BayesNetVar> bucket = getWritableBucket(timestep);
+      bucket.remove(var);
+      if (bucket.isEmpty()) {
+        buckets.remove(timestep);
+      }
+    }
+  }
+
+  /**
+   * Removes the buckets for all timesteps before <code>timestep</code>, and
+   * returns the variables they contained.
+   */
+  List<BayesNetVar> removeBefore(Timestep timestep) {
+    List<BayesNetVar> removed = new ArrayList<BayesNetVar>();
+    Map<Timestep, Bucket> prior = buckets.headMap(timestep);
+    for (Iterator<Bucket> iter = prior.values().iterator(); iter.hasNext();) {
+      removed.addAll(iter.next().vars);
+      iter.remove();
+    }
+    return removed;
+  }
+
+  /**
+   * Returns a copy of this index that shares its buckets until one of the two
+   * changes them.
+   */
+  TimestepIndex copy() {
+    TimestepIndex copy = new TimestepIndex();
+    for (Map.Entry<Timestep, Bucket> entry : buckets.entrySet()) {
+      entry.getValue().shared = true;
+      copy.buckets.put(entry.getKey(), entry.getValue());
+    }
+    return copy;
+  }
+
+  private Set<BayesNetVar> getWritableBucket(Timestep timestep) {
+    Bucket bucket = buckets.get(timestep);
+    if (bucket == null) {
+      bucket = new Bucket(new LinkedHashSet<BayesNetVar>());
+      buckets.put(timestep, bucket);
+    } else if (bucket.shared) {
+      bucket = new Bucket(new LinkedHashSet<BayesNetVar>(bucket.vars));
+      buckets.put(timestep, bucket);
+    }
+    return bucket.vars;
+  }
+
+  private static class Bucket {
+    Bucket(Set<BayesNetVar> vars) {
+      this.vars = vars;
+    }
+
+    final Set<BayesNetVar> vars;
+    boolean shared = false; // by several indexes, so read-only
+  }
+
+  private TreeMap<Timestep, Bucket> buckets = new TreeMap<Timestep, Bucket>();
+}
@@ -4,6 +4,7 @@
 package blog.world;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import blog.bn.VarWithDistrib;
 
@@ -27,16 +28,30 @@ public class UninstVarIterator implements Iterator<VarWithDistrib> {
 	}
 
 	public boolean hasNext() {
-		ensureListExtended();
-		return listIter.hasNext();
+		while (nextVar == null) {
+			ensureListExtended();
+			if (!listIter.hasNext()) {
+				return false;
+			}
+			VarWithDistrib var = (VarWithDistrib) listIter.next();
+			if (this.worldInProgress.isUninstantiated(var)) {
+				nextVar = var;
+			} else {
+				listIter.remove(); // instantiated without this iterator
+			}
+		}
+		return true;
 	}
 
 	/**
 	 * Always returns an object of class VarWithDistrib.
 	 */
 	public VarWithDistrib next() {
-		ensureListExtended();
-		lastVar = (VarWithDistrib) listIter.next();
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		lastVar = nextVar;
+		nextVar = null;
 		return lastVar;
 	}
 
@@ -66,7 +81,9 @@ public class UninstVarIterator implements Iterator<VarWithDistrib> {
 		}
 
 		this.worldInProgress.setValue(lastVar, value);
-		listIter.remove(); // no longer uninstantiated
+		if (nextVar == null) {
+			listIter.remove(); // no longer uninstantiated
+		} // else the list cell is removed by the next iterator that passes it
 
 		lastVar = null;
 	}
@@ -81,4 +98,5 @@ public class UninstVarIterator implements Iterator<VarWithDistrib> {
 
 	private Iterator listIter;
 	VarWithDistrib lastVar = null;
+	private VarWithDistrib nextVar = null; // found by hasNext, not returned yet
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package blog.world;
+
+import java.lang.reflect.Constructor;
+import java.util.Properties;
+
+import blog.common.Util;
+
+/**
+ * Creates the PartialWorldDiff objects that MH samplers propose changes in.
+ * The class is given by the property <code>worldDiffClass</code>; it must
+ * extend PartialWorldDiff and have constructors taking
+ * <code>(PartialWorld)</code> and <code>(PartialWorld, PartialWorld)</code>
+ * like PartialWorldDiff's. The default is {@link PartialWorldDiff}, which
+ * keeps changes in overlay maps; {@link JournalingPartialWorld} changes the
+ * underlying world in place and keeps an undo log.
+ *
+ * @since Oct 18, 2026
+ */
+public class WorldDiffFactory {
+  public static final String DEFAULT_WORLD_DIFF_CLASS = "blog.world.PartialWorldDiff";
+
+  /**
+   * Creates a factory for the class named by the <code>worldDiffClass</code>
+   * property.
+   */
+  public WorldDiffFactory(Properties properties) {
+    this(properties.getProperty("worldDiffClass", DEFAULT_WORLD_DIFF_CLASS));
+  }
+
+  /**
+   * Creates a factory for the class with the given name.
+   */
+  public WorldDiffFactory(String worldDiffClassName) {
+    try {
+      Class worldDiffClass = Class.forName(worldDiffClassName);
+      if (!PartialWorldDiff.class.isAssignableFrom(worldDiffClass)) {
+        Util.fatalErrorWithoutStack("World diff class " + worldDiffClassName
+            + " does not extend PartialWorldDiff.");
+      }
+      constructor = worldDiffClass
+          .getConstructor(new Class[] { PartialWorld.class });
+      copyingConstructor = worldDiffClass.getConstructor(new Class[] {
+          PartialWorld.class, PartialWorld.class });
+    } catch (Exception e) {
+      Util.fatalError(e);
+    }
+  }
+
+  /**
+   * Returns a new diff whose current and saved versions both equal
+   * <code>underlying</code>.
+   */
+  public PartialWorldDiff makeDiff(PartialWorld underlying) {
+    try {
+      return (PartialWorldDiff) constructor
+          .newInstance(new Object[] { underlying });
+    } catch (Exception e) {
+      Util.fatalError(e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns a new diff over <code>underlying</code> whose current version
+   * equals <code>toCopy</code>.
+   */
+  public PartialWorldDiff makeDiff(PartialWorld underlying, PartialWorld toCopy) {
+    try {
+      return (PartialWorldDiff) copyingConstructor.newInstance(new Object[] {
+          underlying, toCopy });
+    } catch (Exception e) {
+      Util.fatalError(e);
+      return null;
+    }
+  }
+
+  private Constructor constructor;
+  private Constructor copyingConstructor;
+}
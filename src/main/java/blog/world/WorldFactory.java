@@ -0,0 +1,63 @@
+package blog.world;
+
+import java.lang.reflect.Constructor;
+import java.util.Properties;
+import java.util.Set;
+
+import blog.common.Util;
+
+/**
+ * Creates the partial worlds used by samplers and particle filters. The class
+ * of world is given by the property <code>worldClass</code>; it must extend
+ * DefaultPartialWorld and have a constructor taking the same
+ * <code>(Set, boolean, boolean)</code> arguments. The default is
+ * {@link DefaultPartialWorld}; {@link IntIndexedPartialWorld} uses less
+ * memory.
+ *
+ * @since Oct 18, 2026
+ */
+public class WorldFactory {
+  public static final String DEFAULT_WORLD_CLASS = "blog.world.DefaultPartialWorld";
+
+  /**
+   * Creates a factory for the world class named by the
+   * <code>worldClass</code> property.
+   */
+  public WorldFactory(Properties properties) {
+    this(properties.getProperty("worldClass", DEFAULT_WORLD_CLASS));
+  }
+
+  /**
+   * Creates a factory for the world class with the given name.
+   */
+  public WorldFactory(String worldClassName) {
+    try {
+      Class worldClass = Class.forName(worldClassName);
+      if (!DefaultPartialWorld.class.isAssignableFrom(worldClass)) {
+        Util.fatalErrorWithoutStack("World class " + worldClassName
+            + " does not extend DefaultPartialWorld.");
+      }
+      constructor = worldClass.getConstructor(new Class[] { Set.class,
+          boolean.class, boolean.class });
+    } catch (Exception e) {
+      Util.fatalError(e);
+    }
+  }
+
+  /**
+   * Returns a new world with no instantiated variables; the parameters are as
+   * for {@link DefaultPartialWorld#DefaultPartialWorld(Set, boolean, boolean)}.
+   */
+  public DefaultPartialWorld makeWorld(Set idTypes, boolean recordUsage,
+      boolean useCBN) {
+    try {
+      return (DefaultPartialWorld) constructor.newInstance(new Object[] {
+          idTypes, recordUsage, useCBN });
+    } catch (Exception e) {
+      Util.fatalError(e);
+      return null;
+    }
+  }
+
+  private Constructor constructor;
+}
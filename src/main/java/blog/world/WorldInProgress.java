@@ -40,9 +40,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import blog.bn.NumberVar;
 import blog.bn.RandFuncAppVar;
@@ -124,7 +126,7 @@ public class WorldInProgress extends DefaultPartialWorld {
         }
 
         if (f.getArgTypes().length == 0) {
-          uninstVars.add(new RandFuncAppVar((RandomFunction) f,
+          addUninstVar(new RandFuncAppVar((RandomFunction) f,
               Collections.EMPTY_LIST));
         }
       }
@@ -140,7 +142,7 @@ public class WorldInProgress extends DefaultPartialWorld {
         }
 
         if (pop.getArgTypes().length == 0) {
-          uninstVars.add(new NumberVar(pop, Collections.EMPTY_LIST));
+          addUninstVar(new NumberVar(pop, Collections.EMPTY_LIST));
         }
       }
     }
@@ -148,7 +150,7 @@ public class WorldInProgress extends DefaultPartialWorld {
     for (Iterator skolemIter = evidence.getSkolemConstants().iterator(); skolemIter
         .hasNext();) {
       SkolemConstant c = (SkolemConstant) skolemIter.next();
-      uninstVars.add(new RandFuncAppVar(c, Collections.EMPTY_LIST));
+      addUninstVar(new RandFuncAppVar(c, Collections.EMPTY_LIST));
     }
 
     // Create initial object lists for those types. While doing so,
@@ -179,6 +181,7 @@ public class WorldInProgress extends DefaultPartialWorld {
 
   public void setValue(VarWithDistrib var, Object value) {
     super.setValue(var, value);
+    uninstSet.remove(var);
 
     if (var instanceof NumberVar) {
       int varDepth = getVarDepth(var);
@@ -209,10 +212,48 @@ public class WorldInProgress extends DefaultPartialWorld {
    * exist in this world is instantiated.
    */
   public boolean isComplete() {
-    if (uninstVars.isEmpty()) {
+    if (uninstSet.isEmpty()) {
       increaseMaxInt();
     }
-    return uninstVars.isEmpty(); // no uninstantiated vars -> complete
+    return uninstSet.isEmpty(); // no uninstantiated vars -> complete
+  }
+
+  /**
+   * Returns the variables that have been added to the list of uninstantiated
+   * variables since the last call to this method, in list order, and forgets
+   * them. Variables are added when objects come into existence and when
+   * integer arguments are allowed to grow.
+   */
+  public List<VarWithDistrib> takeNewUninstVars() {
+    List<VarWithDistrib> added = newUninstVars;
+    newUninstVars = new ArrayList<VarWithDistrib>();
+    return added;
+  }
+
+  /**
+   * Allows integer arguments one larger in magnitude, as the iterator does
+   * when it reaches the end of the list. Returns true if this added any
+   * uninstantiated variables.
+   */
+  public boolean extendUninstVars() {
+    int before = numUninstVarsAdded;
+    increaseMaxInt();
+    return numUninstVarsAdded > before;
+  }
+
+  /**
+   * Returns true if the given variable is in the list of uninstantiated
+   * variables and has not been instantiated since.
+   */
+  boolean isUninstantiated(VarWithDistrib var) {
+    return uninstSet.contains(var);
+  }
+
+  private void addUninstVar(VarWithDistrib var) {
+    uninstVars.add(var);
+    uninstSet.add(var);
+    newUninstVars.add(var);
+    ++numUninstVarsAdded;
   }
 
   private int getVarDepth(VarWithDistrib var) {
@@ -304,7 +345,7 @@ public class WorldInProgress extends DefaultPartialWorld {
       List args = (List) iter.next();
       VarWithDistrib v = new RandFuncAppVar(f, args);
       Util.debug("Adding uninstantiated var: ", v);
-      uninstVars.add(v);
+      addUninstVar(v);
     }
   }
 
@@ -314,7 +355,7 @@ public class WorldInProgress extends DefaultPartialWorld {
       List genObjs = (List) iter.next();
       VarWithDistrib v = new NumberVar(pop, genObjs);
       Util.debug("Adding uninstantiated var: ", v);
-      uninstVars.add(v);
+      addUninstVar(v);
     }
   }
 
@@ -338,7 +379,12 @@ public class WorldInProgress extends DefaultPartialWorld {
   protected Model model;
   protected Evidence evidence;
 
+  // Variables instantiated with setValue rather than through an iterator are
+  // removed from this list lazily, by the next iterator that passes them.
   Collection<VarWithDistrib> uninstVars = new ExtensibleLinkedList();
+  private Set<VarWithDistrib> uninstSet = new HashSet<VarWithDistrib>();
+  private List<VarWithDistrib> newUninstVars = new ArrayList<VarWithDistrib>();
+  private int numUninstVarsAdded = 0;
 
   private Map objectsByType = new HashMap(); // from Type to List
   private boolean intsAreArgs = false;
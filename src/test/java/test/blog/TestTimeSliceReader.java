@@ -0,0 +1,83 @@
+package test.blog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import blog.TimeSliceReader;
+import blog.model.Model;
+import blog.parse.StatementReader;
+import blog.type.Timestep;
+
+/**
+ * Unit tests for TimeSliceReader and StatementReader.
+ */
+public class TestTimeSliceReader {
+  private static TimeSliceReader makeReader(Model model, String program) {
+    List<Object[]> readers = new LinkedList<Object[]>();
+    readers.add(new Object[] { new StringReader(program), "test" });
+    return new TimeSliceReader(model, readers,
+        Collections.<String> emptyList());
+  }
+
+  @Test
+  public void testStatementReader() throws Exception {
+    StatementReader reader = new StatementReader(new StringReader(
+        "type A; // a comment; with a semicolon\n"
+            + "fixed RealMatrix m = [1.0; 2.0];\n"
+            + "/* another; comment */ obs S(\"x;y\") = true;\n  query X"));
+    assertEquals("type A;", reader.next().trim());
+    assertEquals(1, reader.getStartLine());
+    assertEquals("fixed RealMatrix m = [1.0; 2.0];", reader.next().trim());
+    assertEquals(2, reader.getStartLine());
+    assertEquals("obs S(\"x;y\") = true;", reader.next().trim());
+    assertEquals(3, reader.getStartLine());
+    assertEquals("query X", reader.next().trim());
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void testSlicesInTimeOrder() {
+    Model model = new Model();
+    TimeSliceReader reader = makeReader(model,
+        "random Boolean Weather(Timestep t) ~ Bernoulli(0.5);"
+            + "random Boolean Dummy ~ Bernoulli(0.5);" + "obs Dummy = true;"
+            + "obs Weather(@0) = true; query Weather(@0);"
+            + "query Dummy; obs Weather(@2) = false;"
+            + "obs Weather(@2) = false; query Weather(@3);");
+    assertTrue(reader.readModel());
+    model.compile();
+
+    assertTrue(reader.next());
+    assertNull(reader.getTimestep());
+    assertEquals("[Dummy = true]", reader.getEvidence().toString());
+    assertTrue(reader.getQueries().isEmpty());
+
+    assertTrue(reader.next());
+    assertEquals(Timestep.at(0), reader.getTimestep());
+    assertEquals("[Weather(@0) = true]", reader.getEvidence().toString());
+    assertEquals(1, reader.getQueries().size());
+    // read before the next time step, so answered from this one on
+    assertEquals(1, reader.getAtemporalQueries().size());
+
+    assertTrue(reader.next());
+    assertEquals(Timestep.at(2), reader.getTimestep());
+    assertEquals(1, reader.getEvidence().getEvidenceVars().size());
+    assertTrue(reader.getQueries().isEmpty());
+
+    assertTrue(reader.next());
+    assertEquals(Timestep.at(3), reader.getTimestep());
+    assertTrue(reader.getEvidence().isEmpty());
+    assertEquals(1, reader.getQueries().size());
+
+    assertFalse(reader.next());
+  }
+}
@@ -0,0 +1,74 @@
+package test.blog.bn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import blog.bn.RandFuncAppVar;
+import blog.model.Model;
+import blog.model.RandomFunction;
+
+/**
+ * Unit tests for interned random variables.
+ */
+public class TestVarInterner {
+  private static final String MODEL = "random Real X(Integer i) ~ UnivarGaussian(0, 1);";
+
+  @Test
+  public void testSameArgsSameInstance() {
+    Model model = Model.fromString(MODEL);
+    RandomFunction x = (RandomFunction) model.getRandomFunc("X", 1);
+    Object[] args = { 3 };
+    RandFuncAppVar a = x.rvWithArgs(args, false);
+    args[0] = 4; // a must have copied its unstable arguments
+    RandFuncAppVar b = x.rvWithArgs(new Object[] { 3 }, true);
+    assertSame(a, b);
+    assertEquals(3, a.args()[0]);
+    assertTrue(a.getId() >= 0);
+  }
+
+  @Test
+  public void testDifferentArgsDifferentIds() {
+    Model model = Model.fromString(MODEL);
+    RandomFunction x = (RandomFunction) model.getRandomFunc("X", 1);
+    RandFuncAppVar a = x.rvWithArgs(new Object[] { 1 }, true);
+    RandFuncAppVar b = x.rvWithArgs(new Object[] { 2 }, true);
+    assertFalse(a.getId() == b.getId());
+    assertFalse(a.equals(b));
+  }
+
+  @Test
+  public void testUninternedEqualsInterned() {
+    Model model = Model.fromString(MODEL);
+    RandomFunction x = (RandomFunction) model.getRandomFunc("X", 1);
+    RandFuncAppVar interned = x.rvWithArgs(new Object[] { 5 }, true);
+    RandFuncAppVar plain = new RandFuncAppVar(x, new Object[] { 5 });
+    assertEquals(-1, plain.getId());
+    assertEquals(interned, plain);
+    assertEquals(plain, interned);
+    assertEquals(interned.hashCode(), plain.hashCode());
+  }
+
+  @Test
+  public void testIdsOfCollectedVarsAreReused() throws InterruptedException {
+    Model model = Model.fromString(MODEL);
+    RandomFunction x = (RandomFunction) model.getRandomFunc("X", 1);
+    int maxId = -1;
+    for (int i = 0; i < 1000; i++) {
+      maxId = Math.max(maxId, x.rvWithArgs(new Object[] { i }, true).getId());
+    }
+    // none of those variables is referenced any more
+    for (int attempt = 0; attempt < 50; attempt++) {
+      System.gc();
+      Thread.sleep(10);
+      int id = x.rvWithArgs(new Object[] { -1 - attempt }, true).getId();
+      if (id <= maxId) {
+        return;
+      }
+    }
+    throw new AssertionError("ids of collected variables were not reused");
+  }
+}
@@ -0,0 +1,101 @@
+package test.blog.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import blog.common.LayeredHashMap;
+import blog.common.LayeredHashSet;
+
+/**
+ * Unit tests for LayeredHashMap and LayeredHashSet.
+ */
+public class TestLayeredHashMap {
+  @Test
+  public void testForksAreIndependent() {
+    LayeredHashMap map = new LayeredHashMap();
+    map.put("a", 1);
+    map.put("b", 2);
+    LayeredHashMap fork = map.fork();
+    fork.put("a", 10);
+    fork.remove("b");
+    fork.put("c", 3);
+    map.put("d", 4);
+
+    assertEquals(Integer.valueOf(1), map.get("a"));
+    assertEquals(Integer.valueOf(2), map.get("b"));
+    assertFalse(map.containsKey("c"));
+    assertEquals(3, map.size());
+
+    assertEquals(Integer.valueOf(10), fork.get("a"));
+    assertNull(fork.get("b"));
+    assertFalse(fork.containsKey("d"));
+    assertEquals(2, fork.size());
+  }
+
+  @Test
+  public void testAgreesWithHashMap() {
+    LayeredHashMap map = new LayeredHashMap();
+    Map expected = new HashMap();
+    for (int i = 0; i < 5000; i++) {
+      Integer key = (i * 7919) % 300;
+      if (i % 3 == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        assertEquals(expected.put(key, i), map.put(key, i));
+      }
+      if (i % 97 == 0) {
+        map = map.fork(); // builds up and flattens layers
+      }
+    }
+    assertEquals(expected.size(), map.size());
+    assertEquals(expected, map);
+    assertEquals(map, expected);
+
+    for (Iterator iter = map.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      if (((Integer) entry.getValue()).intValue() % 2 == 0) {
+        iter.remove();
+        expected.remove(entry.getKey());
+      }
+    }
+    assertEquals(expected, map);
+  }
+
+  @Test
+  public void testSetValueThroughEntry() {
+    LayeredHashMap map = new LayeredHashMap();
+    map.put("a", 1);
+    LayeredHashMap fork = map.fork();
+    for (Iterator iter = fork.entrySet().iterator(); iter.hasNext();) {
+      ((Map.Entry) iter.next()).setValue(5);
+    }
+    assertEquals(Integer.valueOf(5), fork.get("a"));
+    assertEquals(Integer.valueOf(1), map.get("a"));
+  }
+
+  @Test
+  public void testLinkedSetKeepsInsertionOrder() {
+    LayeredHashSet set = new LayeredHashSet(true);
+    set.add("c");
+    set.add("a");
+    LayeredHashSet fork = set.fork();
+    fork.add("b");
+    fork.add("c");
+    List order = new ArrayList(fork);
+    assertEquals(Arrays.asList("c", "a", "b"), order);
+    assertTrue(set.remove("a"));
+    assertEquals(Arrays.asList("c"), new ArrayList(set));
+    assertEquals(3, fork.size());
+  }
+}
@@ -0,0 +1,84 @@
+package test.blog.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import blog.common.random.RandomStream;
+import blog.distrib.UnivarGaussian;
+
+/**
+ * Unit tests for the splittable random streams.
+ */
+public class TestRandomStream {
+  private static final String[] GENERATORS = { RandomStream.JAVA,
+      RandomStream.SPLITMIX, RandomStream.XOROSHIRO };
+
+  @Test
+  public void testSameSeedSameSequence() {
+    for (String gen : GENERATORS) {
+      RandomStream a = RandomStream.make(gen, 42);
+      RandomStream b = RandomStream.make(gen, 42);
+      for (int i = 0; i < 100; i++) {
+        assertEquals(gen, a.nextLong(), b.nextLong());
+      }
+    }
+  }
+
+  @Test
+  public void testSplitIsReproducible() {
+    for (String gen : GENERATORS) {
+      RandomStream a = RandomStream.make(gen, 7).split();
+      RandomStream b = RandomStream.make(gen, 7).split();
+      for (int i = 0; i < 100; i++) {
+        assertEquals(gen, a.nextDouble(), b.nextDouble(), 0);
+      }
+    }
+  }
+
+  @Test
+  public void testSplitDiffersFromParent() {
+    for (String gen : GENERATORS) {
+      RandomStream parent = RandomStream.make(gen, 7);
+      RandomStream child = parent.split();
+      boolean differ = false;
+      for (int i = 0; i < 10; i++) {
+        differ |= parent.nextLong() != child.nextLong();
+      }
+      assertTrue(gen, differ);
+    }
+  }
+
+  @Test
+  public void testRanges() {
+    for (String gen : GENERATORS) {
+      RandomStream rng = RandomStream.make(gen, 1);
+      for (int i = 0; i < 10000; i++) {
+        double d = rng.nextDouble();
+        assertTrue(d >= 0 && d < 1);
+        int n = rng.nextInt(7);
+        assertTrue(n >= 0 && n < 7);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownGenerator() {
+    RandomStream.make("nosuchgenerator", 1);
+  }
+
+  @Test
+  public void testExplicitStreamSampling() {
+    UnivarGaussian gauss = new UnivarGaussian();
+    gauss.setParams(new Object[] { 0.0, 1.0 });
+    RandomStream a = RandomStream.make(RandomStream.XOROSHIRO, 3);
+    RandomStream b = RandomStream.make(RandomStream.XOROSHIRO, 3);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(gauss.sampleVal(a), gauss.sampleVal(b));
+    }
+    assertFalse(gauss.sampleVal(a).equals(
+        gauss.sampleVal(RandomStream.make(RandomStream.XOROSHIRO, 4))));
+  }
+}
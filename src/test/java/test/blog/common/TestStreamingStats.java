@@ -0,0 +1,98 @@
+package test.blog.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import blog.common.QuantileSketch;
+import blog.common.StreamingStats;
+import blog.common.numerical.MatrixFactory;
+
+/**
+ * Unit tests for StreamingStats and QuantileSketch.
+ */
+public class TestStreamingStats {
+  @Test
+  public void testWeightedMoments() {
+    StreamingStats stats = new StreamingStats();
+    assertTrue(stats.add(1.0, Math.log(1)));
+    assertTrue(stats.add(3.0, Math.log(3)));
+    assertTrue(stats.add(5, Math.log(4)));
+    // mean = (1 + 9 + 20) / 8, variance = E[x^2] - mean^2
+    double mean = 30.0 / 8;
+    double variance = (1 + 27 + 100) / 8.0 - mean * mean;
+    assertEquals(mean, stats.getMean(0, 0), 1e-12);
+    assertEquals(variance, stats.getVariance(0, 0), 1e-12);
+    assertEquals(Math.log(8), stats.getTotalLogWeight(), 1e-12);
+    assertFalse(stats.add("a", 0));
+  }
+
+  @Test
+  public void testMergeMatchesSingleStream() {
+    Random rng = new Random(1);
+    StreamingStats all = new StreamingStats();
+    StreamingStats a = new StreamingStats();
+    StreamingStats b = new StreamingStats();
+    for (int i = 0; i < 1000; i++) {
+      double x = rng.nextGaussian();
+      double logWeight = rng.nextDouble() - 500;
+      all.add(x, logWeight);
+      (i % 3 == 0 ? a : b).add(x, logWeight);
+    }
+    a.addAll(b);
+    assertEquals(all.getMean(0, 0), a.getMean(0, 0), 1e-9);
+    assertEquals(all.getVariance(0, 0), a.getVariance(0, 0), 1e-9);
+    assertEquals(all.getTotalLogWeight(), a.getTotalLogWeight(), 1e-9);
+  }
+
+  @Test
+  public void testMatrixShapeIsFixed() {
+    StreamingStats stats = new StreamingStats();
+    assertTrue(stats.add(MatrixFactory.fromArray(new double[][] { { 1 },
+        { 2 } }), 0));
+    assertTrue(stats.add(MatrixFactory.fromArray(new double[][] { { 3 },
+        { 6 } }), 0));
+    assertFalse(stats.add(1.0, 0));
+    assertFalse(stats.add(MatrixFactory.fromArray(new double[][] { { 1, 2 } }),
+        0));
+    assertTrue(stats.isMatrix());
+    assertEquals(2.0, stats.getMean(0, 0), 1e-12);
+    assertEquals(4.0, stats.getMeans()[1][0], 1e-12);
+    assertEquals(4.0, stats.getVariance(1, 0), 1e-12);
+  }
+
+  @Test
+  public void testSketchQuantiles() {
+    QuantileSketch sketch = new QuantileSketch();
+    Random rng = new Random(2);
+    int n = 100000;
+    for (int i = 0; i < n; i++) {
+      sketch.add(rng.nextDouble(), 0);
+    }
+    assertTrue(sketch.numCentroids() <= 100);
+    for (double q = 0.01; q < 1; q += 0.07) {
+      assertEquals(q, sketch.quantile(q), 0.01);
+    }
+    assertEquals(sketch.getMin(), sketch.quantile(0), 0);
+    assertEquals(sketch.getMax(), sketch.quantile(1), 0);
+  }
+
+  @Test
+  public void testSketchUsesWeights() {
+    QuantileSketch sketch = new QuantileSketch();
+    QuantileSketch other = new QuantileSketch();
+    for (int i = 0; i < 1000; i++) {
+      sketch.add(0.0, -1000);
+      other.add(1.0, -1000 + Math.log(9));
+    }
+    sketch.addAll(other);
+    // nine tenths of the weight sits at 1
+    assertEquals(0.0, sketch.quantile(0.05), 1e-9);
+    assertEquals(1.0, sketch.quantile(0.5), 1e-9);
+    assertEquals(-1000 + Math.log(10000), sketch.getTotalLogWeight(), 1e-9);
+  }
+}
@@ -0,0 +1,69 @@
+package test.blog.common.numerical;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import blog.common.numerical.Cholesky;
+import blog.common.numerical.MatrixFactory;
+import blog.common.numerical.MatrixLib;
+
+/**
+ * Unit tests for Cholesky.
+ */
+public class TestCholesky {
+  private static final double ERROR = 1e-10;
+
+  private static MatrixLib makeCovariance() {
+    return MatrixFactory.fromArray(new double[][] { { 4, 2, 0.4 },
+        { 2, 3, 0.5 }, { 0.4, 0.5, 2 } });
+  }
+
+  @Test
+  public void testAgreesWithMatrixLib() {
+    MatrixLib a = makeCovariance();
+    Cholesky chol = Cholesky.of(a);
+    assertEquals(a.logDet(), chol.logDet(), ERROR);
+
+    MatrixLib l = chol.getFactor();
+    MatrixLib product = l.timesMat(l.transpose());
+    MatrixLib inverse = a.inverse();
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(a.elementAt(i, j), product.elementAt(i, j), ERROR);
+        assertEquals(inverse.elementAt(i, j), chol.inverse().elementAt(i, j),
+            ERROR);
+      }
+    }
+
+    MatrixLib x = MatrixFactory.createColumnVector(1, -2, 0.5);
+    MatrixLib mean = MatrixFactory.createColumnVector(0.5, 0.5, 0.5);
+    MatrixLib diff = x.minus(mean);
+    double expected = diff.transpose().timesMat(inverse).timesMat(diff)
+        .elementAt(0, 0);
+    assertEquals(expected, chol.quadraticForm(x, mean), ERROR);
+  }
+
+  @Test
+  public void testEqualMatricesShareFactorization() {
+    MatrixLib a = makeCovariance();
+    assertSame(Cholesky.of(a), Cholesky.of(a));
+    assertSame(Cholesky.of(a), Cholesky.of(makeCovariance()));
+  }
+
+  @Test
+  public void testFactorBypassesCache() {
+    MatrixLib a = makeCovariance();
+    Cholesky chol = Cholesky.factor(a);
+    assertNotSame(chol, Cholesky.factor(a));
+    assertNotSame(chol, Cholesky.of(a));
+    assertEquals(Cholesky.of(a).logDet(), chol.logDet(), ERROR);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotPositiveDefinite() {
+    Cholesky.of(MatrixFactory.fromArray(new double[][] { { 1, 2 }, { 2, 1 } }));
+  }
+}
@@ -0,0 +1,126 @@
+package test.blog.common.numerical;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.junit.After;
+import org.junit.Test;
+
+import blog.common.numerical.MatrixFactory;
+import blog.common.numerical.MatrixLib;
+
+/**
+ * Unit tests for loading matrices with MatrixFactory.
+ */
+public class TestMatrixFactory {
+  private static final double[][] VALUES = { { 1, 2, 3 }, { 4, 5, 6 },
+      { 7, 8, 9 }, { 10, 11, 12 } };
+
+  @After
+  public void tearDown() {
+    MatrixFactory.setCacheCapacity(1L << 24);
+  }
+
+  /**
+   * Writes VALUES to a temporary .npy file, in C or Fortran order.
+   */
+  private static String writeNpy(boolean fortranOrder) throws IOException {
+    File file = File.createTempFile("matrix", ".npy");
+    file.deleteOnExit();
+    String header = "{'descr': '<f8', 'fortran_order': "
+        + (fortranOrder ? "True" : "False") + ", 'shape': (4, 3), }";
+    while ((10 + header.length() + 1) % 64 != 0) {
+      header += " ";
+    }
+    header += "\n";
+    DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+    out.write(new byte[] { (byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0 });
+    out.write(header.length() & 0xff);
+    out.write(header.length() >> 8);
+    out.writeBytes(header);
+    for (int i = 0; i < 12; i++) {
+      int r = fortranOrder ? i % 4 : i / 3;
+      int c = fortranOrder ? i / 4 : i % 3;
+      out.writeLong(Long.reverseBytes(Double.doubleToLongBits(VALUES[r][c])));
+    }
+    out.close();
+    return file.getPath();
+  }
+
+  private static String writeTxt() throws IOException {
+    File file = File.createTempFile("matrix", ".txt");
+    file.deleteOnExit();
+    PrintWriter out = new PrintWriter(file);
+    for (double[] row : VALUES) {
+      out.println(row[0] + " " + row[1] + " " + row[2]);
+    }
+    out.close();
+    return file.getPath();
+  }
+
+  private static void assertMatrix(double[][] expected, MatrixLib actual) {
+    assertEquals(expected.length, actual.numRows());
+    assertEquals(expected[0].length, actual.numCols());
+    for (int i = 0; i < expected.length; i++) {
+      for (int j = 0; j < expected[0].length; j++) {
+        assertEquals(expected[i][j], actual.elementAt(i, j), 0);
+      }
+    }
+  }
+
+  @Test
+  public void testNpy() throws IOException {
+    for (boolean fortranOrder : new boolean[] { false, true }) {
+      String filename = writeNpy(fortranOrder);
+      assertMatrix(new double[][] { { 4, 5, 6 } },
+          MatrixFactory.loadRows(filename, 1, 1));
+      assertMatrix(new double[][] { { 5, 6 }, { 8, 9 } },
+          MatrixFactory.loadSub(filename, 1, 1, 2, 2));
+      assertMatrix(VALUES, MatrixFactory.load(filename));
+      // slices of a cached matrix
+      assertMatrix(new double[][] { { 7, 8, 9 }, { 10, 11, 12 } },
+          MatrixFactory.loadRows(filename, 2, 3));
+    }
+  }
+
+  @Test
+  public void testTxtAgreesWithNpy() throws IOException {
+    String txt = writeTxt();
+    String npy = writeNpy(false);
+    assertMatrix(VALUES, MatrixFactory.load(txt));
+    assertMatrix(new double[][] { { 2 }, { 5 } },
+        MatrixFactory.loadSub(txt, 0, 1, 1, 1));
+    assertMatrix(new double[][] { { 2 }, { 5 } },
+        MatrixFactory.loadSub(npy, 0, 1, 1, 1));
+  }
+
+  @Test
+  public void testCacheIsBounded() throws IOException {
+    MatrixFactory.setCacheCapacity(0);
+    assertEquals(0, MatrixFactory.getCacheSize());
+    MatrixFactory.setCacheCapacity(30);
+    String first = writeTxt();
+    String second = writeNpy(false);
+    String third = writeTxt();
+    MatrixLib mat = MatrixFactory.load(first);
+    assertSame(mat, MatrixFactory.load(first));
+    MatrixFactory.load(second);
+    assertEquals(24, MatrixFactory.getCacheSize());
+    // a third matrix evicts the least recently used
+    MatrixFactory.load(first);
+    MatrixFactory.load(third);
+    assertEquals(24, MatrixFactory.getCacheSize());
+    assertSame(mat, MatrixFactory.load(first));
+    // too large to cache at all
+    MatrixFactory.setCacheCapacity(10);
+    assertEquals(0, MatrixFactory.getCacheSize());
+    MatrixFactory.load(second);
+    assertEquals(0, MatrixFactory.getCacheSize());
+  }
+}
@@ -12,6 +12,7 @@ import java.util.HashSet;
 
 import org.junit.Test;
 
+import blog.common.Util;
 import blog.distrib.Categorical;
 
 /**
@@ -136,4 +137,41 @@ public class TestCategorical implements TestDistributions {
     assertTrue(values.contains("Albert"));
   }
 
+  @Test
+  public void testSampleFrequencies() {
+    Categorical cat = new Categorical();
+    HashMap<String, Object> map = new HashMap<String, Object>();
+    map.put("Albert", 0.5);
+    map.put("Bob", 0.2);
+    map.put("Craig", 0.3);
+    map.put("Andy", 0.0);
+    cat.setParams(new Object[] { map });
+    Util.initRandom(false);
+    HashMap<Object, Integer> counts = new HashMap<Object, Integer>();
+    int n = 100000;
+    for (int i = 0; i < n; i++) {
+      Object value = cat.sampleVal();
+      Integer count = counts.get(value);
+      counts.put(value, (count == null) ? 1 : count + 1);
+    }
+    assertEquals(3, counts.size());
+    assertEquals(0.5, counts.get("Albert") / (double) n, 0.01);
+    assertEquals(0.2, counts.get("Bob") / (double) n, 0.01);
+    assertEquals(0.3, counts.get("Craig") / (double) n, 0.01);
+  }
+
+  @Test
+  public void testSameMapInSeveralDistributions() {
+    HashMap<String, Object> map = new HashMap<String, Object>();
+    map.put("Albert", 5);
+    map.put("Bob", 2);
+    map.put("Craig", 3);
+    Categorical cat1 = new Categorical();
+    Categorical cat2 = new Categorical();
+    cat1.setParams(new Object[] { map });
+    cat2.setParams(new Object[] { map });
+    testCategorical1(cat1);
+    testCategorical1(cat2);
+  }
+
 }
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
+import blog.common.Util;
 import blog.common.numerical.MatrixFactory;
 import blog.distrib.Discrete;
 
@@ -99,4 +100,21 @@ public class TestDiscrete implements TestDistributions {
     assertEquals(list[2], 3);
   }
 
+  @Test
+  public void testSampleFrequencies() {
+    Discrete disc = new Discrete();
+    disc.setParams(new Object[] { MatrixFactory.createColumnVector(0.2, 0, 0.5,
+        0.3) });
+    Util.initRandom(false);
+    int[] counts = new int[4];
+    int n = 100000;
+    for (int i = 0; i < n; i++) {
+      counts[(Integer) disc.sampleVal()]++;
+    }
+    assertEquals(0, counts[1]);
+    assertEquals(0.2, counts[0] / (double) n, 0.01);
+    assertEquals(0.5, counts[2] / (double) n, 0.01);
+    assertEquals(0.3, counts[3] / (double) n, 0.01);
+  }
+
 }
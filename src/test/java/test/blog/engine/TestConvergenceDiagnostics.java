@@ -0,0 +1,67 @@
+package test.blog.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import blog.common.Histogram;
+import blog.engine.ConvergenceDiagnostics;
+
+/**
+ * Unit tests for ConvergenceDiagnostics.
+ */
+public class TestConvergenceDiagnostics {
+  private static final double ERROR = 1e-10;
+
+  @Test
+  public void testAgreeingChains() {
+    double[] means = { 1.0, 1.0, 1.0 };
+    double[] variances = { 2.0, 2.0, 2.0 };
+    // B = 0, so R-hat = sqrt((n - 1) / n) and every sample counts
+    assertEquals(Math.sqrt(99.0 / 100), ConvergenceDiagnostics.rHat(means,
+        variances, 100), ERROR);
+    assertEquals(300, ConvergenceDiagnostics.effectiveSampleSize(means,
+        variances, 100), ERROR);
+  }
+
+  @Test
+  public void testDisagreeingChains() {
+    double[] means = { 0.0, 2.0 };
+    double[] variances = { 1.0, 1.0 };
+    // B = 10 * 2 = 20, W = 1, var+ = 0.9 + 2 = 2.9
+    assertEquals(Math.sqrt(2.9), ConvergenceDiagnostics.rHat(means, variances,
+        10), ERROR);
+    assertEquals(20 * 2.9 / 20, ConvergenceDiagnostics.effectiveSampleSize(
+        means, variances, 10), ERROR);
+  }
+
+  @Test
+  public void testHistograms() {
+    List<Histogram> chains = new ArrayList<Histogram>();
+    for (int c = 0; c < 2; c++) {
+      Histogram hist = new Histogram();
+      hist.increaseWeight(Boolean.TRUE, Math.log(c == 0 ? 1 : 9));
+      hist.increaseWeight(Boolean.FALSE, Math.log(c == 0 ? 9 : 1));
+      chains.add(hist);
+    }
+    double[] diag = ConvergenceDiagnostics.forHistograms(chains, 10);
+    assertTrue(diag[0] > 1.5);
+    assertTrue(diag[1] < 20);
+  }
+
+  @Test
+  public void testHistogramAddAll() {
+    Histogram a = new Histogram();
+    a.increaseWeight("x", Math.log(1));
+    Histogram b = new Histogram();
+    b.increaseWeight("x", Math.log(2));
+    b.increaseWeight("y", Math.log(1));
+    a.addAll(b);
+    assertEquals(0.75, a.getProb("x"), ERROR);
+    assertEquals(0.25, a.getProb("y"), ERROR);
+  }
+}
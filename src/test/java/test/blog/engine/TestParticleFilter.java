@@ -0,0 +1,144 @@
+package test.blog.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Test;
+
+import blog.Main;
+import blog.common.Util;
+import blog.engine.Particle;
+import blog.engine.ParticleFilter;
+import blog.io.ResultWriter;
+import blog.model.ArgSpecQuery;
+import blog.model.Evidence;
+import blog.model.Model;
+import blog.model.Queries;
+import blog.model.Query;
+import blog.model.Type;
+import blog.world.PartialWorld;
+
+/**
+ * Unit tests for the resampling options of ParticleFilter, checked against
+ * the exact filtering distribution of a two-state HMM.
+ */
+public class TestParticleFilter {
+  private static final double[] OBS = { 0.8, -0.3, 1.5, -1.2, 0.4, 1.1 };
+
+  private static final String MODEL = "random Boolean State(Timestep t) ~\n"
+      + "  if t == @0 then BooleanDistrib(0.5)\n"
+      + "  else if State(prev(t)) then BooleanDistrib(0.9)\n"
+      + "  else BooleanDistrib(0.2);\n"
+      + "random Real Reading(Timestep t) ~\n"
+      + "  if State(t) then Gaussian(1.0, 1.0) else Gaussian(-1.0, 1.0);\n";
+
+  private static final int NUM_PARTICLES = 10000;
+
+  /** P(State(t) = true | Obs(0), ..., Obs(t)) for the last t. */
+  private static double exactPosterior() {
+    double pTrue = 0.5;
+    for (int t = 0; t < OBS.length; t++) {
+      if (t > 0) {
+        pTrue = pTrue * 0.9 + (1 - pTrue) * 0.2;
+      }
+      double likTrue = Math.exp(-0.5 * (OBS[t] - 1) * (OBS[t] - 1));
+      double likFalse = Math.exp(-0.5 * (OBS[t] + 1) * (OBS[t] + 1));
+      pTrue = pTrue * likTrue / (pTrue * likTrue + (1 - pTrue) * likFalse);
+    }
+    return pTrue;
+  }
+
+  /** A particle filter that counts the particles copied by resampling. */
+  private static class CountingFilter extends ParticleFilter {
+    CountingFilter(Model model, Properties properties) {
+      super(model, properties);
+    }
+
+    protected Particle makeParticle(Set<? extends Type> idTypes) {
+      final Particle particle = super.makeParticle(idTypes);
+      return new CountingParticle(particle.getLatestWorld());
+    }
+
+    private class CountingParticle extends Particle {
+      CountingParticle(PartialWorld world) {
+        super(null, world);
+      }
+
+      public Particle copy() {
+        ++numCopies;
+        Particle copy = super.copy();
+        CountingParticle result = new CountingParticle(copy.getLatestWorld());
+        result.logWeight = copy.getLatestLogWeight();
+        return result;
+      }
+    }
+
+    int numCopies = 0;
+  }
+
+  /**
+   * Runs a filter with the given resampling properties and returns it, with
+   * the answer to the query in <code>answer[0]</code>.
+   */
+  private static CountingFilter run(String threshold, String scheme,
+      final double[] answer) {
+    StringBuilder program = new StringBuilder(MODEL);
+    for (int t = 0; t < OBS.length; t++) {
+      program.append("obs Reading(@" + t + ") = " + OBS[t] + ";\n");
+    }
+    program.append("query State(@" + (OBS.length - 1) + ");\n");
+    Model model = new Model();
+    Evidence evidence = new Evidence(model);
+    Queries queries = new Queries(model);
+    assertTrue(Main.stringSetup(model, evidence, queries, program.toString()));
+    Util.initRandom(false);
+
+    Properties properties = new Properties();
+    properties.setProperty("numParticles", String.valueOf(NUM_PARTICLES));
+    properties.setProperty("resampleThreshold", threshold);
+    properties.setProperty("resampleScheme", scheme);
+    CountingFilter filter = new CountingFilter(model, properties);
+    filter.setEvidence(evidence);
+    filter.setQueries(queries);
+    filter.setResultWriter(new ResultWriter() {
+      public void writeResult(Query query) {
+        answer[0] = ((ArgSpecQuery) query).getHistogram().getProb(
+            Boolean.TRUE);
+      }
+    });
+    filter.answerQueries();
+    return filter;
+  }
+
+  @Test
+  public void testSchemes() {
+    double exact = exactPosterior();
+    double[] answer = new double[1];
+    for (String scheme : new String[] { "stratified", "systematic",
+        "residual" }) {
+      run("1", scheme, answer);
+      assertEquals(scheme, exact, answer[0], 0.02);
+    }
+  }
+
+  @Test
+  public void testAdaptiveResampling() {
+    double exact = exactPosterior();
+    double[] answer = new double[1];
+    int alwaysCopies = run("1", "stratified", answer).numCopies;
+    assertEquals(exact, answer[0], 0.02);
+
+    // without resampling, the weights are carried over all the evidence
+    CountingFilter filter = run("0", "stratified", answer);
+    assertEquals(0, filter.numCopies);
+    assertEquals(exact, answer[0], 0.02);
+    assertTrue(filter.getEffectiveSampleSize() < NUM_PARTICLES);
+
+    int adaptiveCopies = run("0.5", "systematic", answer).numCopies;
+    assertEquals(exact, answer[0], 0.02);
+    assertTrue(adaptiveCopies < alwaysCopies);
+  }
+}
@@ -0,0 +1,93 @@
+package test.blog.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import blog.io.BinaryWriter;
+import blog.model.ArgSpecQuery;
+import blog.model.Model;
+import blog.model.Queries;
+
+/**
+ * Unit tests for BinaryWriter.
+ */
+public class TestBinaryWriter {
+  private static final String MODEL = "type Person;\n"
+      + "distinct Person Ann, Bob;\n"
+      + "random Person Leader(Timestep t) ~ UniformChoice({p for Person p});\n"
+      + "random Real Height ~ UnivarGaussian(1.7, 0.01);";
+
+  private Model model = Model.fromString(MODEL);
+
+  /**
+   * Reads the output back the way a memory-mapped reader would, checking the
+   * layout and returning the records as strings.
+   */
+  private List<String> read(byte[] output) {
+    ByteBuffer buf = ByteBuffer.wrap(output); // big-endian by default
+    byte[] magic = new byte[8];
+    buf.get(magic);
+    assertEquals("BLOGRES1", new String(magic, StandardCharsets.US_ASCII));
+    List<String> strings = new ArrayList<String>();
+    List<String> records = new ArrayList<String>();
+    while (buf.hasRemaining()) {
+      assertEquals(0, buf.position() % 8);
+      int tag = buf.getInt();
+      if (tag == BinaryWriter.STRING_CHUNK) {
+        assertEquals(strings.size(), buf.getInt());
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        strings.add(new String(bytes, StandardCharsets.UTF_8));
+        buf.position((buf.position() + 7) / 8 * 8);
+      } else {
+        assertEquals(BinaryWriter.RECORD_CHUNK, tag);
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+          String query = strings.get(buf.getInt());
+          int timestep = buf.getInt();
+          int kind = buf.getInt();
+          String value = strings.get(buf.getInt());
+          records.add(query + " " + timestep + " " + kind + " " + value + " "
+              + buf.getDouble());
+        }
+      }
+    }
+    return records;
+  }
+
+  @Test
+  public void testRecords() {
+    Queries queries = new Queries(model);
+    queries.addFromString("query Leader(@3); query Height;");
+    ArgSpecQuery leader = (ArgSpecQuery) queries.get(0);
+    leader.getHistogram().increaseWeight(model.getConstantValue("Ann"), -1.0);
+    ArgSpecQuery height = (ArgSpecQuery) queries.get(1);
+    height.setUseStats(true);
+    height.getStats().add(1.5, 0.0);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryWriter writer = new BinaryWriter();
+    writer.setOutput(new PrintStream(bytes));
+    writer.setHeader("not written");
+    writer.writeAllResults(queries);
+    leader.getHistogram().increaseWeight(model.getConstantValue("Ann"), -1.0);
+    writer.writeAllResults(queries.subList(0, 1));
+
+    List<String> expected = Arrays.asList("Leader(@3) 3 0 Ann -1.0",
+        "Height -1 1 mean 1.5", "Height -1 1 variance 0.0",
+        "Height -1 1 quantile 0.025 1.5", "Height -1 1 quantile 0.25 1.5",
+        "Height -1 1 quantile 0.5 1.5", "Height -1 1 quantile 0.75 1.5",
+        "Height -1 1 quantile 0.975 1.5", "Leader(@3) 3 0 Ann "
+            + (-1.0 + Math.log(2)));
+    assertEquals(expected, read(bytes.toByteArray()));
+  }
+}
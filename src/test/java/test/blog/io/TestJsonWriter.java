@@ -0,0 +1,89 @@
+package test.blog.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import blog.io.JsonWriter;
+import blog.model.ArgSpecQuery;
+import blog.model.Model;
+import blog.model.Queries;
+
+import com.google.gson.Gson;
+
+/**
+ * Unit tests for JsonWriter.
+ */
+public class TestJsonWriter {
+  private static final String MODEL = "type Person;\n"
+      + "distinct Person Ann, Bob;\n"
+      + "random Person Leader(Timestep t) ~ UniformChoice({p for Person p});\n"
+      + "random Real Height ~ UnivarGaussian(1.7, 0.01);";
+
+  private Model model = Model.fromString(MODEL);
+  private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+  private JsonWriter makeWriter() {
+    JsonWriter writer = new JsonWriter();
+    writer.setOutput(new PrintStream(bytes));
+    return writer;
+  }
+
+  private Queries makeQueries() {
+    Queries queries = new Queries(model);
+    queries.addFromString("query Leader(@1); query Height;");
+    ArgSpecQuery leader = (ArgSpecQuery) queries.get(0);
+    leader.getHistogram().increaseWeight(model.getConstantValue("Ann"),
+        Math.log(0.25));
+    leader.getHistogram().increaseWeight(model.getConstantValue("Bob"),
+        Math.log(0.75));
+    ArgSpecQuery height = (ArgSpecQuery) queries.get(1);
+    height.getHistogram().increaseWeight("<none>", Double.NEGATIVE_INFINITY);
+    return queries;
+  }
+
+  @Test
+  public void testMatchesGsonOutput() {
+    Queries queries = makeQueries();
+    makeWriter().writeAllResults(queries);
+
+    Object expected = Arrays.asList(
+        Arrays.asList("Leader(@1)", Arrays.asList(
+            Arrays.asList("Ann", Math.log(0.25)),
+            Arrays.asList("Bob", Math.log(0.75)))),
+        Arrays.asList("Height", Arrays.asList(
+            Arrays.asList("<none>", "-Infinity"))));
+    String json = new Gson().toJson(expected).replace("\"-Infinity\"",
+        "-Infinity");
+    assertEquals(json + System.lineSeparator(), bytes.toString());
+  }
+
+  @Test
+  public void testOneLinePerReport() {
+    Queries queries = makeQueries();
+    JsonWriter writer = makeWriter();
+    writer.writeAllResults(queries.subList(0, 1));
+    writer.writeAllResults(queries.subList(0, 1));
+    writer.flush(); // nothing more to write
+    String[] lines = bytes.toString().split(System.lineSeparator());
+    assertEquals(2, lines.length);
+    assertEquals(lines[0], lines[1]);
+  }
+
+  @Test
+  public void testStats() {
+    Queries queries = makeQueries();
+    ArgSpecQuery height = (ArgSpecQuery) queries.get(1);
+    height.setUseStats(true);
+    height.getStats().add(1.5, 0.0);
+    makeWriter().writeAllResults(queries.subList(1, 2));
+    assertEquals("[[\"Height\",{\"mean\":1.5,\"variance\":0.0,\"quantiles\":"
+        + "[[0.025,1.5],[0.25,1.5],[0.5,1.5],[0.75,1.5],[0.975,1.5]],"
+        + "\"values\":[[\"\\u003cnone\\u003e\",-Infinity]]}]]"
+        + System.lineSeparator(), bytes.toString());
+  }
+}
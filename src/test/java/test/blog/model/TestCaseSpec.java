@@ -0,0 +1,150 @@
+package test.blog.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static test.blog.model.TestDependencyModel.var;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import blog.model.ArgSpec;
+import blog.model.DistribSpec;
+import blog.model.MapSpec;
+import blog.model.Model;
+import blog.model.RandomFunction;
+import blog.model.Type;
+import blog.sample.DefaultEvalContext;
+import blog.sample.EvalContext;
+import blog.world.DefaultPartialWorld;
+
+/**
+ * Unit tests for CaseSpec dispatch and for folding constant MapSpecs and
+ * ListSpecs.
+ *
+ * @since Oct 18, 2026
+ */
+public class TestCaseSpec {
+  private static final String MODEL = "type Color;\n"
+      + "distinct Color Red, Green, Blue;\n"
+      + "random Color c ~ Categorical({Red -> 0.2, Green -> 0.3, Blue -> 0.5});\n"
+      + "random Integer k ~ UniformInt(-1, 6);\n"
+      + "random Real p ~ Beta(1.0, 1.0);\n"
+      + "random Boolean b ~ Categorical({true -> p, false -> 1.0 - p});\n"
+      + "random Real byInt ~ case k in {0 -> Gaussian(0.0, 1.0),\n"
+      + "  1 -> Gaussian(10.0, 1.0), 3 -> Gaussian(30.0, 1.0)};\n"
+      + "random Real byColor ~ case c in {Red -> Gaussian(1.0, 1.0),\n"
+      + "  Blue -> Gaussian(3.0, 1.0)};\n"
+      + "random Real byBool ~ if b then Gaussian(1.0, 1.0)\n"
+      + "  else Gaussian(-1.0, 1.0);\n";
+
+  @Test
+  public void testConstantMapIsFolded() {
+    Model model = new Model();
+    model.augmentFromString(MODEL);
+    RandomFunction c = (RandomFunction) model.getRandomFunc("c", 0);
+    MapSpec map = (MapSpec) ((DistribSpec) c.getDepModel().getClause())
+        .getArgs()[0];
+    EvalContext context = new DefaultEvalContext(new DefaultPartialWorld(),
+        false);
+    Map<Object, Object> first = map.evaluate(context);
+    assertSame(first, map.evaluate(context));
+    assertEquals(3, first.size());
+    try {
+      first.put(Model.NULL, 1.0);
+    } catch (UnsupportedOperationException e) {
+      return;
+    }
+    throw new AssertionError("folded map is modifiable");
+  }
+
+  @Test
+  public void testRandomMapIsNotFolded() {
+    Model model = new Model();
+    model.augmentFromString(MODEL);
+    RandomFunction p = (RandomFunction) model.getRandomFunc("p", 0);
+    RandomFunction b = (RandomFunction) model.getRandomFunc("b", 0);
+    MapSpec map = (MapSpec) ((DistribSpec) b.getDepModel().getClause())
+        .getArgs()[0];
+    DefaultPartialWorld world = new DefaultPartialWorld();
+    EvalContext context = new DefaultEvalContext(world, false);
+    world.setValue(var(p), 0.25);
+    assertEquals(0.75, map.evaluate(context).get(Boolean.FALSE));
+    world.setValue(var(p), 0.5);
+    assertEquals(0.5, map.evaluate(context).get(Boolean.FALSE));
+  }
+
+  @Test
+  public void testIntegerKeys() {
+    Model model = new Model();
+    model.augmentFromString(MODEL);
+    RandomFunction k = (RandomFunction) model.getRandomFunc("k", 0);
+    RandomFunction byInt = (RandomFunction) model.getRandomFunc("byInt", 0);
+    double[] means = { Double.NaN, 0.0, 10.0, Double.NaN, 30.0, Double.NaN,
+        Double.NaN };
+    for (int value = -1; value <= 5; value++) {
+      DefaultPartialWorld world = new DefaultPartialWorld();
+      world.setValue(var(k), value);
+      assertMean(means[value + 1], byInt.getDepModel().getClause(), world);
+    }
+    assertNull(byInt.getDepModel().getClause().evaluate(
+        new DefaultEvalContext(new DefaultPartialWorld(), false)));
+  }
+
+  @Test
+  public void testEnumeratedAndBooleanKeys() {
+    Model model = new Model();
+    model.augmentFromString(MODEL);
+    Type color = model.getType("Color");
+    RandomFunction c = (RandomFunction) model.getRandomFunc("c", 0);
+    RandomFunction b = (RandomFunction) model.getRandomFunc("b", 0);
+    RandomFunction byColor = (RandomFunction) model.getRandomFunc("byColor", 0);
+    RandomFunction byBool = (RandomFunction) model.getRandomFunc("byBool", 0);
+    double[] means = { 1.0, Double.NaN, 3.0 };
+    for (int i = 0; i < 3; i++) {
+      DefaultPartialWorld world = new DefaultPartialWorld();
+      world.setValue(var(c), color.getGuaranteedObject(i));
+      assertMean(means[i], byColor.getDepModel().getClause(), world);
+    }
+    DefaultPartialWorld world = new DefaultPartialWorld();
+    world.setValue(var(b), Boolean.TRUE);
+    assertMean(1.0, byBool.getDepModel().getClause(), world);
+    world.setValue(var(b), Boolean.FALSE);
+    assertMean(-1.0, byBool.getDepModel().getClause(), world);
+  }
+
+  @Test
+  public void testIndexConstantList() {
+    Model model = new Model();
+    model.augmentFromString("random Integer x ~ UniformInt(0, 1);\n"
+        + "random Real y ~ Gaussian([1.0, 2.0][x], 1.0);\n");
+    RandomFunction x = (RandomFunction) model.getRandomFunc("x", 0);
+    RandomFunction y = (RandomFunction) model.getRandomFunc("y", 0);
+    DefaultPartialWorld world = new DefaultPartialWorld();
+    for (int i = 0; i < 2; i++) { // the second pass uses the folded list
+      world.setValue(var(x), 0);
+      assertMean(1.0, y.getDepModel().getClause(), world);
+      world.setValue(var(x), 1);
+      assertMean(2.0, y.getDepModel().getClause(), world);
+    }
+  }
+
+  /**
+   * Checks that the clause evaluates to a Gaussian with the given mean, or to
+   * Model.NULL if the mean is NaN.
+   */
+  private static void assertMean(double mean, ArgSpec clause,
+      DefaultPartialWorld world) {
+    EvalContext context = new DefaultEvalContext(world, false);
+    Object value = clause.evaluate(context);
+    if (Double.isNaN(mean)) {
+      assertSame(Model.NULL, value);
+      return;
+    }
+    assertTrue(value instanceof DistribSpec);
+    Object[] args = ((DistribSpec) value).getDistrib(context).getArgValues();
+    assertEquals(mean, ((Number) args[0]).doubleValue(), 0.0);
+  }
+}
@@ -0,0 +1,122 @@
+package test.blog.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import blog.bn.RandFuncAppVar;
+import blog.model.DependencyModel;
+import blog.model.DistribSpec;
+import blog.model.Model;
+import blog.model.RandomFunction;
+import blog.model.Type;
+import blog.sample.DefaultEvalContext;
+import blog.sample.EvalContext;
+import blog.world.DefaultPartialWorld;
+
+/**
+ * Unit tests for DependencyModel, comparing the distributions computed by the
+ * compiled clauses with those computed by the interpreter.
+ *
+ * @since Oct 18, 2026
+ */
+public class TestDependencyModel {
+  private static final String MODEL = "type Item;\n"
+      + "distinct Item A, B;\n"
+      + "random Boolean flag ~ BooleanDistrib(0.5);\n"
+      + "random Integer n ~ Poisson(3.0);\n"
+      + "random Item best ~ if flag then A else null;\n"
+      + "random Real x(Item i) ~ Gaussian(0.0, 1.0);\n"
+      + "random Real y(Item i) ~\n"
+      + "  if flag & x(i) > 0.5 then Gaussian(x(i) * 2.0 + 1.0, 1.0)\n"
+      + "  else if n % 2 == 1 | x(i) <= -1.0 then Gaussian(x(i) / 3.0 - n, 2.0)\n"
+      + "  else if !(x(i) < 0.0) then Gaussian(x(i) ^ 2.0, 1.0 + n)\n"
+      + "  else if n * 2 + 1 >= 7 then Gaussian(x(i) - 1.5, 0.5);\n";
+  private static final String Z = "random Real z ~\n"
+      + "  if x(best) > 0.0 then Gaussian(x(best), 1.0)\n"
+      + "  else Gaussian(0.0, 1.0);\n";
+
+  @Test
+  public void testCompiledClausesMatchInterpreter() {
+    Model model = new Model();
+    model.augmentFromString(MODEL + Z);
+    Type item = model.getType("Item");
+    Object a = item.getGuaranteedObject(0);
+    Object b = item.getGuaranteedObject(1);
+    RandomFunction flag = (RandomFunction) model.getRandomFunc("flag", 0);
+    RandomFunction n = (RandomFunction) model.getRandomFunc("n", 0);
+    RandomFunction best = (RandomFunction) model.getRandomFunc("best", 0);
+    RandomFunction x = (RandomFunction) model.getRandomFunc("x", 1);
+    RandomFunction y = (RandomFunction) model.getRandomFunc("y", 1);
+    RandomFunction z = (RandomFunction) model.getRandomFunc("z", 0);
+
+    Random rng = new Random(17);
+    for (int trial = 0; trial < 500; trial++) {
+      DefaultPartialWorld world = new DefaultPartialWorld();
+      world.setValue(var(flag), Boolean.valueOf(rng.nextBoolean()));
+      world.setValue(var(n), Integer.valueOf(rng.nextInt(6)));
+      world.setValue(var(best), rng.nextBoolean() ? a : Model.NULL);
+      world.setValue(var(x, a), Double.valueOf(rng.nextGaussian()));
+      if (rng.nextInt(4) > 0) {
+        // otherwise x(B) stays uninstantiated
+        world.setValue(var(x, b), Double.valueOf(rng.nextGaussian()));
+      }
+      EvalContext context = new DefaultEvalContext(world, false);
+      for (Object obj : new Object[] { a, b }) {
+        context.assignTuple(y.getArgVars(), new Object[] { obj });
+        assertSameDistrib(y.getDepModel(), context);
+        context.unassignTuple(y.getArgVars());
+      }
+      assertSameDistrib(z.getDepModel(), context);
+    }
+  }
+
+  @Test
+  public void testUndeterminedParent() {
+    Model model = new Model();
+    model.augmentFromString(MODEL + Z);
+    RandomFunction flag = (RandomFunction) model.getRandomFunc("flag", 0);
+    RandomFunction z = (RandomFunction) model.getRandomFunc("z", 0);
+    DefaultPartialWorld world = new DefaultPartialWorld();
+    world.setValue(var(flag), Boolean.TRUE);
+    // best is not instantiated
+    assertNull(z.getDepModel().getDistrib(
+        new DefaultEvalContext(world, false)));
+  }
+
+  private static void assertSameDistrib(DependencyModel dm,
+      EvalContext context) {
+    DependencyModel.Distrib compiled = dm.getDistrib(context);
+    Object clause = dm.getClause().evaluate(context);
+    if (clause == null) {
+      assertNull(compiled);
+      return;
+    }
+    if (clause == Model.NULL) {
+      // the default clause: deterministically the default value
+      assertArrayEquals(new Object[] { dm.getDefaultValue() },
+          compiled.getArgValues());
+      return;
+    }
+    DependencyModel.Distrib interpreted = ((DistribSpec) clause)
+        .getDistrib(context);
+    if (interpreted == null) {
+      assertNull(compiled);
+      return;
+    }
+    assertEquals(interpreted.getCPD().getClass(), compiled.getCPD().getClass());
+    assertArrayEquals(interpreted.getArgValues(), compiled.getArgValues());
+  }
+
+  /**
+   * Returns the variable for <code>f</code> applied to <code>args</code>; also
+   * used by {@link TestCaseSpec}.
+   */
+  static RandFuncAppVar var(RandomFunction f, Object... args) {
+    return new RandFuncAppVar(f, args, true);
+  }
+}
@@ -0,0 +1,43 @@
+package test.blog.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import blog.distrib.CondProbDistrib;
+import blog.distrib.UnivarGaussian;
+import blog.model.ArgSpec;
+import blog.model.DistribSpec;
+
+/**
+ * Unit tests for DistribSpec.
+ */
+public class TestDistribSpec {
+  private static final double ERROR = 1e-10;
+
+  @Test
+  public void testBindCPDLeavesEarlierBindingsAlone() {
+    List<ArgSpec> noArgs = Collections.emptyList();
+    DistribSpec spec = new DistribSpec(UnivarGaussian.class, noArgs);
+    CondProbDistrib a = spec.bindCPD(new Object[] { 0.0, 1.0 });
+    CondProbDistrib b = spec.bindCPD(new Object[] { 5.0, 1.0 });
+    assertNotSame(a, b);
+    assertEquals(UnivarGaussian.class, a.getClass());
+    double logProbAtZero = -0.5 * Math.log(2 * Math.PI);
+    assertEquals(logProbAtZero, a.getLogProb(0.0), ERROR);
+    assertEquals(logProbAtZero, b.getLogProb(5.0), ERROR);
+  }
+
+  @Test
+  public void testBindCPDReusesEqualArgs() {
+    List<ArgSpec> noArgs = Collections.emptyList();
+    DistribSpec spec = new DistribSpec(UnivarGaussian.class, noArgs);
+    CondProbDistrib a = spec.bindCPD(new Object[] { 0.0, 1.0 });
+    assertSame(a, spec.bindCPD(new Object[] { 0.0, 1.0 }));
+  }
+}
@@ -0,0 +1,97 @@
+package test.blog.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import blog.bn.BayesNetVar;
+import blog.model.ArgSpecQuery;
+import blog.model.Evidence;
+import blog.model.Function;
+import blog.model.FunctionSignature;
+import blog.model.Model;
+import blog.model.Queries;
+import blog.model.SymbolEvidenceStatement;
+import blog.model.ValueEvidenceStatement;
+import blog.type.Timestep;
+
+/**
+ * Unit tests for building Evidence and Queries without the parser.
+ */
+public class TestEvidence {
+  private static final String MODEL = "random Real velocity(Timestep t) ~ Gaussian(0, 1);"
+      + "type Blip; origin Timestep time(Blip);"
+      + "#Blip(time = t) ~ Poisson(2);"
+      + "random Real obs_x(Blip b) ~ Gaussian(0, 1);";
+
+  private static Function func(Model model, String name, int numArgs) {
+    return (Function) model.getRandomFunc(name, numArgs);
+  }
+
+  @Test
+  public void testValueEvidenceMatchesParsed() {
+    Model model = Model.fromString(MODEL);
+    Evidence parsed = new Evidence(model);
+    parsed.addFromString("obs velocity(@3) = 0.5;");
+    parsed.compile();
+
+    Evidence built = new Evidence(model);
+    ValueEvidenceStatement stmt = built.addValueEvidence(
+        func(model, "velocity", 1), new Object[] { Timestep.at(3) }, 0.5);
+    built.compile();
+
+    assertEquals("velocity(@3) = 0.5", stmt.toString());
+    assertEquals(parsed.getEvidenceVars(), built.getEvidenceVars());
+    BayesNetVar var = stmt.getObservedVar();
+    assertEquals(parsed.getObservedValue(var), built.getObservedValue(var));
+  }
+
+  @Test
+  public void testCompiledEvidenceAcceptsMoreStatements() {
+    Model model = Model.fromString(MODEL);
+    Function velocity = func(model, "velocity", 1);
+    Evidence evidence = new Evidence(model);
+    evidence.compile();
+    for (int t = 0; t < 5; t++) {
+      ValueEvidenceStatement stmt = evidence.addValueEvidence(velocity,
+          new Object[] { Timestep.at(t) }, t);
+      assertEquals(Double.valueOf(t), evidence.getObservedValue(stmt
+          .getObservedVar()));
+    }
+    assertEquals(5, evidence.getEvidenceVars().size());
+  }
+
+  @Test
+  public void testSymbolEvidence() {
+    Model model = Model.fromString(MODEL);
+    Evidence evidence = new Evidence(model);
+    Function time = model.getFunction(new FunctionSignature(
+        "time", model.getType("Blip")));
+    SymbolEvidenceStatement stmt = evidence.addSymbolEvidence(
+        model.getType("Blip"), time, Timestep.at(0), Arrays.asList("B1", "B2"));
+    evidence.addValueEvidence(func(model, "obs_x", 1),
+        new Object[] { evidence.getSkolemConstant("B1") }, 1.5);
+    evidence.compile();
+
+    assertEquals(2, stmt.getSkolemConstants().size());
+    assertEquals(Integer.valueOf(2),
+        evidence.getObservedValue(stmt.getObservedVar()));
+    assertEquals(2, evidence.getEvidenceVars().size());
+  }
+
+  @Test
+  public void testQueryMatchesParsed() {
+    Model model = Model.fromString(MODEL);
+    Queries parsed = new Queries(model);
+    parsed.addFromString("query velocity(@2);");
+    parsed.compile();
+
+    Queries built = new Queries(model);
+    ArgSpecQuery query = built.addQuery(func(model, "velocity", 1),
+        Timestep.at(2));
+    assertEquals(((ArgSpecQuery) parsed.get(0)).getVariable(),
+        query.getVariable());
+  }
+}
@@ -0,0 +1,84 @@
+package test.blog.sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static test.blog.sample.TestIncrementalEvidenceChecker.var;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+import blog.bn.BasicVar;
+import blog.common.Util;
+import blog.model.Evidence;
+import blog.model.Model;
+import blog.model.Queries;
+import blog.sample.GibbsSampler;
+
+/**
+ * Unit tests for GibbsSampler.
+ */
+public class TestGibbsSampler {
+  private static final String MODEL = "type Color;"
+      + "distinct Color Red, Green, Blue;"
+      + "random Boolean A ~ BooleanDistrib(0.3);"
+      + "random Boolean C ~ if A then BooleanDistrib(0.9) "
+      + "else BooleanDistrib(0.2);"
+      + "random Color Col ~ Categorical({Red -> 0.5, Green -> 0.3, "
+      + "Blue -> 0.2});"
+      + "random Boolean Bright ~ if Col == Red then BooleanDistrib(0.1) "
+      + "else BooleanDistrib(0.8);"
+      + "random Real X ~ UnivarGaussian(0, 1);";
+
+  /**
+   * Runs the sampler with the given evidence and queries and returns the
+   * fraction of samples in which <code>var</code> has the given value.
+   */
+  private static double frequency(Model model, String obs, String query,
+      BasicVar var, Object value) {
+    Evidence evidence = new Evidence(model);
+    evidence.addFromString(obs);
+    evidence.compile();
+    Queries queries = new Queries(model);
+    queries.addFromString(query);
+    queries.compile();
+    Util.initRandom(false);
+    GibbsSampler sampler = new GibbsSampler(model, new Properties());
+    sampler.initialize(evidence, queries);
+
+    int n = 20000;
+    int count = 0;
+    for (int i = 0; i < n; ++i) {
+      sampler.nextSample();
+      assertTrue(evidence.isTrue(sampler.getLatestWorld()));
+      if (value.equals(sampler.getLatestWorld().getValue(var))) {
+        ++count;
+      }
+    }
+    return count / (double) n;
+  }
+
+  @Test
+  public void testBooleanPosterior() {
+    Model model = Model.fromString(MODEL);
+    assertEquals(0.27 / (0.27 + 0.14), frequency(model, "obs C = true;",
+        "query A;", var(model, "A"), Boolean.TRUE), 0.02);
+  }
+
+  @Test
+  public void testEnumeratedPosterior() {
+    Model model = Model.fromString(MODEL);
+    assertEquals(0.05 / (0.05 + 0.24 + 0.16), frequency(model,
+        "obs Bright = true;", "query Col;", var(model, "Col"), model
+            .getConstantValue("Red")), 0.02);
+  }
+
+  @Test
+  public void testDerivedEvidence() {
+    Model model = Model.fromString(MODEL);
+    // P(A | A or Blue) = 0.3 / (1 - 0.7 * 0.8); querying Col keeps it
+    // instantiated while A is true
+    assertEquals(0.3 / 0.44, frequency(model, "obs (A | Col == Blue) = true;",
+        "query A; query Col;", var(model, "A"), Boolean.TRUE), 0.02);
+  }
+}
@@ -0,0 +1,92 @@
+package test.blog.sample;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import blog.bn.BasicVar;
+import blog.model.Evidence;
+import blog.model.Model;
+import blog.model.RandomFunction;
+import blog.sample.IncrementalEvidenceChecker;
+import blog.world.DefaultPartialWorld;
+import blog.world.PartialWorldDiff;
+
+/**
+ * Unit tests for IncrementalEvidenceChecker.
+ */
+public class TestIncrementalEvidenceChecker {
+  private static final String MODEL = "random Integer X ~ Poisson(2);"
+      + "random Integer Y ~ Poisson(2);" + "random Integer Z ~ Poisson(2);";
+
+  /**
+   * Returns the variable for the zero-ary random function <code>name</code>;
+   * also used by the sampler tests in this package.
+   */
+  static BasicVar var(Model model, String name) {
+    RandomFunction f = (RandomFunction) model.getRandomFunc(name, 0);
+    return f.rvWithArgs(new Object[0], true);
+  }
+
+  @Test
+  public void testRecheckOnSaveAndRevert() {
+    Model model = Model.fromString(MODEL);
+    Evidence evidence = new Evidence(model);
+    evidence.addFromString("obs X = 1; obs Y + Z = 3;");
+    evidence.compile();
+    BasicVar x = var(model, "X");
+    BasicVar y = var(model, "Y");
+    BasicVar z = var(model, "Z");
+
+    DefaultPartialWorld saved = new DefaultPartialWorld(Collections.EMPTY_SET,
+        false, true);
+    saved.setValue(x, 1);
+    saved.setValue(y, 1);
+    saved.setValue(z, 2);
+    PartialWorldDiff world = new PartialWorldDiff(saved);
+    IncrementalEvidenceChecker checker = new IncrementalEvidenceChecker(
+        evidence, world);
+    assertTrue(checker.isTrue());
+
+    world.setValue(z, 3);
+    assertFalse(checker.isTrue());
+    world.revert();
+    assertTrue(checker.isTrue());
+
+    world.setValue(y, 0);
+    world.setValue(z, 3);
+    assertTrue(checker.isTrue());
+    world.save();
+    assertTrue(checker.isTrue());
+
+    world.setValue(y, 1);
+    assertFalse(checker.isTrue());
+    world.save(); // saves a world that violates the evidence
+    assertFalse(checker.isTrue());
+    world.setValue(z, 2);
+    assertTrue(checker.isTrue());
+  }
+
+  @Test
+  public void testUncheckedChangesAreCaught() {
+    Model model = Model.fromString(MODEL);
+    Evidence evidence = new Evidence(model);
+    evidence.addFromString("obs X = 1;");
+    evidence.compile();
+    BasicVar x = var(model, "X");
+
+    DefaultPartialWorld saved = new DefaultPartialWorld(Collections.EMPTY_SET,
+        false, true);
+    saved.setValue(x, 1);
+    PartialWorldDiff world = new PartialWorldDiff(saved);
+    IncrementalEvidenceChecker checker = new IncrementalEvidenceChecker(
+        evidence, world);
+    assertTrue(checker.isTrue());
+    world.setValue(x, 2);
+    world.save();
+    assertFalse(checker.isTrue());
+  }
+}
@@ -0,0 +1,101 @@
+package test.blog.sample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static test.blog.sample.TestIncrementalEvidenceChecker.var;
+
+import java.util.Properties;
+
+import org.junit.Test;
+
+import blog.Main;
+import blog.common.Util;
+import blog.model.Evidence;
+import blog.model.Model;
+import blog.model.Queries;
+import blog.sample.RejectionSampler;
+import blog.world.PartialWorld;
+
+/**
+ * Unit tests for RejectionSampler.
+ */
+public class TestRejectionSampler {
+  private static final String MODEL = "random Boolean A ~ BooleanDistrib(0.3);"
+      + "random Boolean B ~ BooleanDistrib(0.5);"
+      + "random Boolean C ~ if A then BooleanDistrib(0.9) "
+      + "else BooleanDistrib(0.2);";
+
+  /**
+   * Adds the base model and the given evidence and queries to
+   * <code>model</code>, and returns a sampler initialized with them.
+   */
+  private static RejectionSampler makeSampler(Model model, String program) {
+    Evidence evidence = new Evidence(model);
+    Queries queries = new Queries(model);
+    assertTrue(Main.stringSetup(model, evidence, queries, MODEL + program));
+    Util.initRandom(false);
+    RejectionSampler sampler = new RejectionSampler(model, new Properties());
+    sampler.initialize(evidence, queries);
+    return sampler;
+  }
+
+  @Test
+  public void testRejectsAsSoonAsEvidenceIsFalse() {
+    Model model = new Model();
+    RejectionSampler sampler = makeSampler(model, "obs A = true; query B;");
+
+    int numRejected = 0;
+    for (int i = 0; i < 200; ++i) {
+      sampler.nextSample();
+      PartialWorld world = sampler.getLatestWorld();
+      if (sampler.getLatestLogWeight() == 0.0) {
+        assertEquals(Boolean.TRUE, world.getValue(var(model, "A")));
+        assertNotNull(world.getValue(var(model, "B")));
+      } else {
+        // B comes after A in the list, so it is never sampled
+        assertEquals(Boolean.FALSE, world.getValue(var(model, "A")));
+        assertNull(world.getValue(var(model, "B")));
+        ++numRejected;
+      }
+    }
+    assertTrue(numRejected > 0);
+  }
+
+  @Test
+  public void testPosterior() {
+    Model model = new Model();
+    RejectionSampler sampler = makeSampler(model, "obs C = true; query A;");
+
+    int numAccepted = 0;
+    int numATrue = 0;
+    for (int i = 0; i < 20000; ++i) {
+      sampler.nextSample();
+      if (sampler.getLatestLogWeight() == 0.0) {
+        ++numAccepted;
+        if (Boolean.TRUE.equals(sampler.getLatestWorld().getValue(var(model, "A")))) {
+          ++numATrue;
+        }
+      }
+    }
+    double exact = (0.3 * 0.9) / (0.3 * 0.9 + 0.7 * 0.2);
+    assertEquals(exact, numATrue / (double) numAccepted, 0.03);
+  }
+
+  @Test
+  public void testCompleteSampling() {
+    Model model = new Model();
+    assertTrue(Main.stringSetup(model, new Evidence(model), new Queries(model),
+        MODEL));
+    Util.initRandom(false);
+    RejectionSampler sampler = new RejectionSampler(model, new Properties());
+    sampler.initializeCompleteSampling();
+    sampler.nextSample();
+    PartialWorld world = sampler.getLatestWorld();
+    assertEquals(0.0, sampler.getLatestLogWeight(), 0.0);
+    assertNotNull(world.getValue(var(model, "A")));
+    assertNotNull(world.getValue(var(model, "B")));
+    assertNotNull(world.getValue(var(model, "C")));
+  }
+}
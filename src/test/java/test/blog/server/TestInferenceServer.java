@@ -0,0 +1,133 @@
+package test.blog.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import blog.server.InferenceServer;
+
+/**
+ * Unit tests for InferenceServer.
+ */
+public class TestInferenceServer {
+  private static final String MODEL = "type Ball;\n"
+      + "distinct Ball B1, B2;\n"
+      + "random Boolean Blue(Ball b) ~ BooleanDistrib(0.3);\n"
+      + "random Real Size(Ball b) ~ if Blue(b) then Gaussian(2.0, 1.0) else Gaussian(0.0, 1.0);\n";
+
+  private InferenceServer server;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new InferenceServer(new InetSocketAddress("localhost", 0), 2, 4,
+        1, 10000, Collections.<String> emptyList());
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  private String[] post(String program, String options) throws Exception {
+    URL url = new URL("http://localhost:" + server.getPort() + "/infer?"
+        + options);
+    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    conn.setRequestMethod("POST");
+    conn.setDoOutput(true);
+    OutputStream out = conn.getOutputStream();
+    out.write(program.getBytes("UTF-8"));
+    out.close();
+    int status = conn.getResponseCode();
+    InputStream in = (status == 200) ? conn.getInputStream() : conn
+        .getErrorStream();
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    byte[] buf = new byte[4096];
+    int n;
+    while ((n = in.read(buf)) != -1) {
+      body.write(buf, 0, n);
+    }
+    in.close();
+    return new String[] { String.valueOf(status), body.toString("UTF-8") };
+  }
+
+  @Test
+  public void testConcurrentRequestsShareModel() throws Exception {
+    final String program = MODEL + "obs Size(B1) = 1.5;\nquery Blue(B1);\n";
+    final String[][] responses = new String[4][];
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < responses.length; i++) {
+      final int index = i;
+      Thread thread = new Thread() {
+        public void run() {
+          try {
+            responses[index] = post(program, "num_samples=2000&seed=7");
+          } catch (Exception e) {
+            responses[index] = new String[] { "error", e.toString() };
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals("200", responses[0][0]);
+    assertTrue(responses[0][1].startsWith("[[\"Blue(B1)\""));
+    for (String[] response : responses) {
+      assertEquals(responses[0][0], response[0]);
+      assertEquals(responses[0][1], response[1]);
+    }
+    assertEquals(1, server.getModelCache().size());
+
+    // different evidence against the cached model
+    String[] other = post(MODEL + "obs Size(B1) = -1.5;\nquery Blue(B1);\n",
+        "num_samples=2000&seed=7");
+    assertEquals("200", other[0]);
+    assertTrue(!other[1].equals(responses[0][1]));
+    assertEquals(1, server.getModelCache().size());
+  }
+
+  @Test
+  public void testModelsWithSameTypeNames() throws Exception {
+    String[] first = post(MODEL + "query Blue(B2);", "num_samples=100");
+    String[] second = post("type Ball;\ndistinct Ball B3;\n"
+        + "random Boolean Blue(Ball b) ~ BooleanDistrib(1.0);\n"
+        + "query Blue(B3);", "num_samples=100");
+    assertEquals("200", first[0]);
+    assertEquals("200", second[0]);
+    assertTrue(second[1].startsWith("[[\"Blue(B3)\",[[\"true\","));
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    String[] response = post(MODEL + "\nquery Green(B1);", "");
+    assertEquals("400", response[0]);
+    assertTrue(response[1].contains("type checking failed"));
+    // errors are reported at their lines in the program
+    response = post(MODEL + "query Blue(B1);\nobs Size(B1) = ;", "");
+    assertEquals("400", response[0]);
+    assertTrue(response[1].startsWith("program::6"));
+    assertEquals("400", post(MODEL, "num_samples=many")[0]);
+    response = post(MODEL + "query Blue(B1);", "num_samples=10001");
+    assertEquals("400", response[0]);
+    assertTrue(response[1].startsWith("num_samples may be at most 10000"));
+    response = post(MODEL, "numParticles=100000000");
+    assertEquals("400", response[0]);
+    assertTrue(response[1].startsWith("Unknown option: numParticles"));
+  }
+}
@@ -0,0 +1,63 @@
+package test.blog.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import blog.bn.RandFuncAppVar;
+import blog.model.Model;
+import blog.model.RandomFunction;
+import blog.world.CopyOnWritePartialWorld;
+import blog.world.PartialWorld;
+
+/**
+ * Unit tests for CopyOnWritePartialWorld.
+ */
+public class TestCopyOnWritePartialWorld {
+  private static final String MODEL = "random Real X(Integer i) ~ UnivarGaussian(0, 1);\n"
+      + "random Real Y(Integer i) ~ UnivarGaussian(X(i), 1);";
+
+  @Test
+  public void testClonesAreIndependent() {
+    Model model = Model.fromString(MODEL);
+    RandomFunction x = (RandomFunction) model.getRandomFunc("X", 1);
+    RandFuncAppVar x0 = x.rvWithArgs(new Object[] { 0 }, true);
+    RandFuncAppVar x1 = x.rvWithArgs(new Object[] { 1 }, true);
+
+    CopyOnWritePartialWorld world = new CopyOnWritePartialWorld();
+    world.setValue(x0, 0.5);
+    PartialWorld clone = (PartialWorld) world.clone();
+    clone.setValue(x0, 1.0);
+    clone.setValue(x1, 1.5);
+    world.setValue(x1, null);
+
+    assertEquals(0.5, world.getValue(x0));
+    assertNull(world.getValue(x1));
+    assertEquals(1, world.getInstantiatedVars().size());
+    assertEquals(1.0, clone.getValue(x0));
+    assertEquals(1.5, clone.getValue(x1));
+    assertEquals(2, clone.getInstantiatedVars().size());
+  }
+
+  @Test
+  public void testSharedCBNIsCopiedOnWrite() {
+    Model model = Model.fromString(MODEL);
+    RandomFunction x = (RandomFunction) model.getRandomFunc("X", 1);
+    RandomFunction y = (RandomFunction) model.getRandomFunc("Y", 1);
+    RandFuncAppVar x0 = x.rvWithArgs(new Object[] { 0 }, true);
+    RandFuncAppVar y0 = y.rvWithArgs(new Object[] { 0 }, true);
+
+    CopyOnWritePartialWorld world = new CopyOnWritePartialWorld(
+        Collections.EMPTY_SET, false, true);
+    world.setValue(x0, 0.5);
+    PartialWorld clone = (PartialWorld) world.clone();
+    clone.setValue(y0, 0.0);
+
+    assertEquals(Collections.singleton(y0), clone.getCBN().getChildren(x0));
+    assertFalse(world.getCBN().nodes().contains(y0));
+  }
+}
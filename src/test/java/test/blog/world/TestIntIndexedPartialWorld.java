@@ -0,0 +1,153 @@
+package test.blog.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+import blog.bn.BasicVar;
+import blog.bn.RandFuncAppVar;
+import blog.model.Model;
+import blog.model.RandomFunction;
+import blog.world.IntIndexedLogProbMap;
+import blog.world.IntIndexedPartialWorld;
+import blog.world.IntIndexedValueMap;
+import blog.world.IntIndexedVarMap;
+import blog.world.PartialWorld;
+
+/**
+ * Unit tests for IntIndexedPartialWorld and its int-indexed maps.
+ */
+public class TestIntIndexedPartialWorld {
+  private static final String MODEL = "random Real X(Integer i) ~ UnivarGaussian(0, 1);";
+
+  /**
+   * Returns the variables <code>X(0)</code> to <code>X(n - 1)</code> of a new
+   * model with a single real-valued random function; also used by
+   * {@link TestUnobservedVars}.
+   */
+  static RandFuncAppVar[] makeVars(int n) {
+    Model model = Model.fromString(MODEL);
+    RandomFunction x = (RandomFunction) model.getRandomFunc("X", 1);
+    RandFuncAppVar[] vars = new RandFuncAppVar[n];
+    for (int i = 0; i < n; i++) {
+      vars[i] = x.rvWithArgs(new Object[] { i }, true);
+    }
+    return vars;
+  }
+
+  @Test
+  public void testValuesKeepTheirType() {
+    RandFuncAppVar[] vars = makeVars(5);
+    IntIndexedValueMap map = new IntIndexedValueMap();
+    map.put(vars[0], 3);
+    map.put(vars[1], 2.5);
+    map.put(vars[2], Boolean.TRUE);
+    map.put(vars[3], "s");
+    assertEquals(4, map.size());
+    assertEquals(Integer.valueOf(3), map.get(vars[0]));
+    assertEquals(Double.valueOf(2.5), map.get(vars[1]));
+    assertEquals(Boolean.TRUE, map.get(vars[2]));
+    assertEquals("s", map.get(vars[3]));
+    assertNull(map.get(vars[4]));
+
+    map.put(vars[3], 7);
+    assertEquals(Integer.valueOf(7), map.get(vars[3]));
+  }
+
+  @Test
+  public void testUninternedKeysFindCanonicalEntry() {
+    RandFuncAppVar[] vars = makeVars(1);
+    IntIndexedValueMap map = new IntIndexedValueMap();
+    map.put(vars[0], 1.0);
+    BasicVar copy = new RandFuncAppVar(vars[0].func(), new Object[] { 0 });
+    assertEquals(-1, copy.getId());
+    assertTrue(map.containsKey(copy));
+    assertEquals(Double.valueOf(1.0), map.remove(copy));
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testLookupDoesNotIntern() {
+    RandFuncAppVar[] vars = makeVars(1);
+    IntIndexedValueMap map = new IntIndexedValueMap();
+    map.put(vars[0], 1.0);
+    RandomFunction x = vars[0].func();
+    RandFuncAppVar absent = new RandFuncAppVar(x, new Object[] { 7 });
+    assertNull(map.get(absent));
+    assertFalse(map.containsKey(absent));
+    assertNull(map.remove(absent));
+    assertNull(absent.findCanonical());
+    assertEquals(-1, absent.getId());
+  }
+
+  @Test
+  public void testUndetIsPreserved() {
+    RandFuncAppVar[] vars = makeVars(2);
+    IntIndexedLogProbMap map = new IntIndexedLogProbMap();
+    map.put(vars[0], PartialWorld.UNDET);
+    map.put(vars[1], -1.0);
+    assertSame(PartialWorld.UNDET, map.get(vars[0]));
+    assertEquals(Double.valueOf(-1.0), map.get(vars[1]));
+    map.put(vars[0], -2.0);
+    assertEquals(Double.valueOf(-2.0), map.get(vars[0]));
+  }
+
+  @Test
+  public void testAgreesWithHashMap() {
+    RandFuncAppVar[] vars = makeVars(1000);
+    IntIndexedValueMap map = new IntIndexedValueMap();
+    Map expected = new HashMap();
+    for (int i = 0; i < 5000; i++) {
+      RandFuncAppVar var = vars[(i * 7919) % vars.length];
+      if (i % 3 == 0) {
+        assertEquals(expected.remove(var), map.remove(var));
+      } else {
+        assertEquals(expected.put(var, i), map.put(var, i));
+      }
+    }
+    assertEquals(expected, map);
+    assertEquals(map, expected);
+
+    for (Iterator iter = map.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      if (((Integer) entry.getValue()).intValue() % 2 == 0) {
+        iter.remove();
+        expected.remove(entry.getKey());
+      }
+    }
+    assertEquals(expected, map);
+  }
+
+  @Test
+  public void testCopyIsIndependent() {
+    RandFuncAppVar[] vars = makeVars(2);
+    IntIndexedValueMap map = new IntIndexedValueMap();
+    map.put(vars[0], 1);
+    IntIndexedVarMap copy = map.copy();
+    copy.put(vars[0], 2);
+    copy.put(vars[1], 3);
+    assertEquals(Integer.valueOf(1), map.get(vars[0]));
+    assertFalse(map.containsKey(vars[1]));
+    assertEquals(2, copy.size());
+  }
+
+  @Test
+  public void testWorldClone() {
+    RandFuncAppVar[] vars = makeVars(2);
+    IntIndexedPartialWorld world = new IntIndexedPartialWorld();
+    world.setValue(vars[0], 0.5);
+    IntIndexedPartialWorld clone = (IntIndexedPartialWorld) world.clone();
+    clone.setValue(vars[1], 1.5);
+    assertEquals(0.5, clone.getValue(vars[0]));
+    assertEquals(1, world.getInstantiatedVars().size());
+    assertEquals(2, clone.getInstantiatedVars().size());
+  }
+}
@@ -0,0 +1,148 @@
+package test.blog.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import blog.bn.RandFuncAppVar;
+import blog.common.Util;
+import blog.model.Evidence;
+import blog.model.Model;
+import blog.model.Queries;
+import blog.model.RandomFunction;
+import blog.sample.MHSampler;
+import blog.world.DefaultPartialWorld;
+import blog.world.JournalingPartialWorld;
+import blog.world.PartialWorld;
+import blog.world.PartialWorldDiff;
+
+/**
+ * Unit tests for JournalingPartialWorld.
+ */
+public class TestJournalingPartialWorld {
+  private static final String MODEL = "random Real Z ~ UnivarGaussian(0, 1);\n"
+      + "random Real X ~ UnivarGaussian(Z, 1);\n"
+      + "random Real Y ~ UnivarGaussian(X, 1);\n"
+      + "random Boolean B ~ BooleanDistrib(0.5);\n"
+      + "random Real W ~ if B then UnivarGaussian(X, 1) else UnivarGaussian(0, 1);";
+
+  private Model model = Model.fromString(MODEL);
+
+  private RandFuncAppVar var(String name) {
+    RandomFunction f = (RandomFunction) model.getRandomFunc(name, 0);
+    return f.rvWithArgs(new Object[0], true);
+  }
+
+  private DefaultPartialWorld makeWorld() {
+    DefaultPartialWorld world = new DefaultPartialWorld(Collections.EMPTY_SET,
+        true, true);
+    world.setValue(var("Z"), 0.0);
+    world.setValue(var("X"), 1.0);
+    world.setValue(var("Y"), 2.0);
+    world.setValue(var("B"), Boolean.TRUE);
+    world.setValue(var("W"), 1.5);
+    return world;
+  }
+
+  @Test
+  public void testRevertRestoresValuesAndProbs() {
+    DefaultPartialWorld underlying = makeWorld();
+    double logProbY = underlying.getLogProbOfValue(var("Y"));
+    JournalingPartialWorld world = new JournalingPartialWorld(underlying);
+
+    world.setValue(var("X"), 4.0);
+    assertEquals(4.0, underlying.getValue(var("X"))); // changed in place
+    assertEquals(Collections.singleton(var("X")), world.getChangedVars());
+    assertTrue(world.getVarsWithChangedProbs().contains(var("Y")));
+    assertEquals(1.0, world.getSaved().getValue(var("X")));
+    assertEquals(logProbY, world.getSaved().getLogProbOfValue(var("Y")), 0);
+
+    world.revert();
+    assertEquals(1.0, underlying.getValue(var("X")));
+    assertEquals(logProbY, world.getLogProbOfValue(var("Y")), 0);
+    assertTrue(world.getChangedVars().isEmpty());
+  }
+
+  @Test
+  public void testRevertRestoresStructure() {
+    DefaultPartialWorld underlying = makeWorld();
+    JournalingPartialWorld world = new JournalingPartialWorld(underlying);
+    world.setObservedVars(Collections.singleton(var("Y")));
+    assertEquals(4, world.getUnobservedVars().size());
+
+    world.setValue(var("B"), Boolean.FALSE);
+    world.setValue(var("X"), null);
+    assertEquals(3, world.getUnobservedVars().size());
+    assertFalse(world.getCBN().getParents(var("W")).contains(var("X")));
+    assertTrue(world.getSaved().getCBN().getParents(var("W"))
+        .contains(var("X")));
+    assertEquals(4, world.getSaved().getUnobservedVars().size());
+
+    world.revert();
+    assertEquals(4, world.getUnobservedVars().size());
+    assertTrue(world.getCBN().getParents(var("W")).contains(var("X")));
+    assertEquals(2, world.getCBN().getChildren(var("X")).size());
+  }
+
+  @Test
+  public void testSaveKeepsChanges() {
+    DefaultPartialWorld underlying = makeWorld();
+    JournalingPartialWorld world = new JournalingPartialWorld(underlying);
+
+    world.setValue(var("W"), null);
+    assertEquals(Collections.singleton(var("B")), world.getNewlyBarrenVars());
+    world.save();
+    assertNull(world.getSaved().getValue(var("W")));
+    world.setValue(var("X"), 4.0);
+
+    PartialWorld detached = world.detach();
+    assertSame(underlying, detached);
+    assertNull(detached.getValue(var("W")));
+    assertEquals(1.0, detached.getValue(var("X")));
+    assertEquals(1, detached.getCBN().getChildren(var("X")).size());
+    assertTrue(detached.getCBN().getChildren(var("B")).isEmpty());
+  }
+
+  @Test
+  public void testMatchesPartialWorldDiff() {
+    PartialWorldDiff diff = new PartialWorldDiff(makeWorld());
+    JournalingPartialWorld journaling = new JournalingPartialWorld(makeWorld());
+    PartialWorldDiff[] worlds = { diff, journaling };
+    for (int i = 0; i < worlds.length; ++i) {
+      worlds[i].setValue(var("Z"), 0.5);
+      worlds[i].setValue(var("B"), Boolean.FALSE);
+    }
+
+    assertEquals(diff.getChangedVars(), journaling.getChangedVars());
+    assertEquals(diff.getVarsWithChangedProbs(), journaling
+        .getVarsWithChangedProbs());
+    assertEquals(diff.getNewlyBarrenVars(), journaling.getNewlyBarrenVars());
+    assertEquals(diff.getLogProbOfValue(var("W")), journaling
+        .getLogProbOfValue(var("W")), 0);
+  }
+
+  @Test
+  public void testMHSamplerWithJournalingWorld() {
+    Util.initRandom(false);
+    Evidence evidence = new Evidence(model);
+    evidence.addFromString("obs Y = 2.0;");
+    evidence.compile();
+    Properties properties = new Properties();
+    properties.setProperty("worldDiffClass",
+        "blog.world.JournalingPartialWorld");
+    MHSampler sampler = new MHSampler(model, properties);
+    sampler.initialize(evidence, new Queries(model));
+    for (int i = 0; i < 200; ++i) {
+      sampler.nextSample();
+      assertTrue(sampler.getLatestWorld() instanceof JournalingPartialWorld);
+      assertTrue(evidence.isTrue(sampler.getLatestWorld()));
+    }
+  }
+}
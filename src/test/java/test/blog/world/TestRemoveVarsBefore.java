@@ -0,0 +1,120 @@
+package test.blog.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+
+import blog.BLOGUtil;
+import blog.bn.DerivedVar;
+import blog.bn.RandFuncAppVar;
+import blog.model.Model;
+import blog.model.RandomFunction;
+import blog.type.Timestep;
+import blog.world.DefaultPartialWorld;
+import blog.world.PartialWorld;
+import blog.world.PartialWorldDiff;
+
+/**
+ * Unit tests for PartialWorld.removeVarsBefore.
+ */
+public class TestRemoveVarsBefore {
+  private static final String MODEL = "type Ball;\n"
+      + "distinct Ball B1, B2;\n"
+      + "random Real Z ~ UnivarGaussian(0, 1);\n"
+      + "random Ball Pick(Timestep t) ~ UniformChoice({b for Ball b});\n"
+      + "random Real X(Timestep t) ~ UnivarGaussian(Z, 1);\n"
+      + "random Real Y(Timestep t) ~ UnivarGaussian(X(t), 1);";
+
+  private Model model = Model.fromString(MODEL);
+
+  private RandFuncAppVar var(String name, Object... args) {
+    RandomFunction f = (RandomFunction) model.getRandomFunc(name, args.length);
+    return f.rvWithArgs(args, true);
+  }
+
+  private DefaultPartialWorld makeWorld(int numSlices) {
+    DefaultPartialWorld world = new DefaultPartialWorld(Collections.EMPTY_SET,
+        true, true);
+    world.setValue(var("Z"), 0.0);
+    for (int t = 0; t < numSlices; t++) {
+      world.setValue(var("Pick", Timestep.at(t)), model.getConstantValue("B1"));
+      world.setValue(var("X", Timestep.at(t)), 1.0 * t);
+      world.setValue(var("Y", Timestep.at(t)), 2.0 * t);
+    }
+    world.getCBN(); // brings the parents up to date
+    return world;
+  }
+
+  @Test
+  public void testRemovesPriorSlicesOnly() {
+    DefaultPartialWorld world = makeWorld(3);
+    world.removeVarsBefore(Timestep.at(2));
+
+    assertEquals(4, world.getInstantiatedVars().size());
+    assertEquals(0.0, world.getValue(var("Z")));
+    assertEquals(2.0, world.getValue(var("X", Timestep.at(2))));
+    assertNull(world.getValue(var("X", Timestep.at(1))));
+    assertNull(world.getValue(var("Y", Timestep.at(0))));
+  }
+
+  @Test
+  public void testCleansUpCBNAndUsage() {
+    DefaultPartialWorld world = makeWorld(3);
+    Object b1 = model.getConstantValue("B1");
+    assertEquals(3, ((Set) world.objToUsesAsValueMap().get(b1)).size());
+    world.removeVarsBefore(Timestep.at(2));
+
+    assertEquals(Collections.singleton(var("Pick", Timestep.at(2))), world
+        .objToUsesAsValueMap().get(b1));
+    assertFalse(world.getCBN().nodes().contains(var("X", Timestep.at(1))));
+    assertFalse(world.getCBN().nodes().contains(var("Y", Timestep.at(0))));
+    assertEquals(Collections.singleton(var("X", Timestep.at(2))), world
+        .getCBN().getChildren(var("Z")));
+  }
+
+  @Test
+  public void testRemovesDerivedVars() {
+    DefaultPartialWorld world = makeWorld(2);
+    DerivedVar early = new DerivedVar(BLOGUtil.parseArgSpec("X(@0) == 0.0",
+        model));
+    DerivedVar late = new DerivedVar(BLOGUtil.parseArgSpec("X(@1) == 1.0",
+        model));
+    world.addDerivedVar(early);
+    world.addDerivedVar(late);
+    world.removeVarsBefore(Timestep.at(1));
+
+    assertEquals(Collections.singleton(late), world.getDerivedVars());
+    assertFalse(world.getCBN().nodes().contains(early));
+  }
+
+  @Test
+  public void testClonesKeepTheirOwnSlices() {
+    DefaultPartialWorld world = makeWorld(2);
+    PartialWorld clone = (PartialWorld) world.clone();
+    clone.setValue(var("X", Timestep.at(0)), null);
+    world.removeVarsBefore(Timestep.at(1));
+    clone.setValue(var("X", Timestep.at(2)), 5.0);
+
+    assertNull(world.getValue(var("Y", Timestep.at(0))));
+    assertEquals(0.0, clone.getValue(var("Y", Timestep.at(0))));
+    clone.removeVarsBefore(Timestep.at(2));
+    assertEquals(2, clone.getInstantiatedVars().size());
+    assertEquals(5.0, clone.getValue(var("X", Timestep.at(2))));
+  }
+
+  @Test
+  public void testWorldWithoutIndex() {
+    DefaultPartialWorld world = makeWorld(3);
+    PartialWorldDiff diff = new PartialWorldDiff(world);
+    diff.removeVarsBefore(Timestep.at(2));
+    assertEquals(4, diff.getInstantiatedVars().size());
+    assertNull(diff.getValue(var("X", Timestep.at(1))));
+    assertTrue(diff.getInstantiatedVars().contains(var("Y", Timestep.at(2))));
+  }
+}
@@ -0,0 +1,77 @@
+package test.blog.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import blog.bn.RandFuncAppVar;
+import blog.common.IndexedSet;
+import blog.world.DefaultPartialWorld;
+import blog.world.PartialWorldDiff;
+
+/**
+ * Unit tests for the index of unobserved variables kept by partial worlds.
+ */
+public class TestUnobservedVars {
+  private static Set contents(IndexedSet set) {
+    Set contents = new HashSet();
+    for (int i = 0; i < set.size(); i++) {
+      contents.add(set.get(i));
+    }
+    assertEquals(set.size(), contents.size());
+    return contents;
+  }
+
+  @Test
+  public void testObservedVarsAreLeftOut() {
+    RandFuncAppVar[] vars = TestIntIndexedPartialWorld.makeVars(3);
+    DefaultPartialWorld world = new DefaultPartialWorld();
+    world.setValue(vars[0], 0.0);
+    world.setValue(vars[1], 1.0);
+    world.setObservedVars(Collections.singleton(vars[1]));
+    assertEquals(Collections.singleton(vars[0]),
+        contents(world.getUnobservedVars()));
+
+    world.setValue(vars[2], 2.0);
+    world.setValue(vars[0], null);
+    world.setValue(vars[1], 1.5);
+    assertEquals(Collections.singleton(vars[2]),
+        contents(world.getUnobservedVars()));
+  }
+
+  @Test
+  public void testDiffSaveAndRevert() {
+    RandFuncAppVar[] vars = TestIntIndexedPartialWorld.makeVars(4);
+    DefaultPartialWorld underlying = new DefaultPartialWorld(
+        Collections.EMPTY_SET, false, true);
+    underlying.setValue(vars[0], 0.0);
+    underlying.setValue(vars[1], 1.0);
+    underlying.setValue(vars[2], 2.0);
+    PartialWorldDiff diff = new PartialWorldDiff(underlying);
+    diff.setObservedVars(Collections.singleton(vars[2]));
+    assertEquals(2, diff.getUnobservedVars().size());
+
+    diff.setValue(vars[0], null);
+    diff.setValue(vars[3], 3.0);
+    Set expected = new HashSet();
+    expected.add(vars[1]);
+    expected.add(vars[3]);
+    assertEquals(expected, contents(diff.getUnobservedVars()));
+
+    diff.revert();
+    assertTrue(contents(diff.getUnobservedVars()).contains(vars[0]));
+    assertFalse(diff.getUnobservedVars().contains(vars[3]));
+
+    diff.setValue(vars[0], null);
+    diff.setValue(vars[3], 3.0);
+    diff.save();
+    assertEquals(expected, contents(diff.getUnobservedVars()));
+    assertEquals(expected, contents(underlying.getUnobservedVars()));
+  }
+}
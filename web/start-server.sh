@@ -1,7 +1,9 @@
 #!/bin/bash
-# start the web server
+# start the BLOG inference server, then the web server
 if [ "$1" == "--test" ]; then
+	../blog-server --port 8090 &
 	python app.py 9000
 else
+  nohup nice ../blog-server --port 8090 > /var/log/blog-inference-server.log &
   nohup nice python app.py 8080 > /var/log/dblog-server.log &
-fi
\ No newline at end of file
+fi